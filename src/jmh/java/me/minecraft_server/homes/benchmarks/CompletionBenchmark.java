@@ -0,0 +1,54 @@
+package me.minecraft_server.homes.benchmarks;
+
+import me.minecraft_server.homes.util.CommandUtils;
+import me.minecraft_server.homes.util.HomeNameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks completing home names from large candidate sets, by filtering them and by the prefix index.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompletionBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int mCandidates;
+
+    @Param({"", "Home1", "home12"})
+    public String mPrefix;
+
+    private List<String> mNames;
+    private HomeNameIndex mIndex;
+
+    @Setup(Level.Trial)
+    public void createCandidates() {
+        mNames = new ArrayList<>(mCandidates);
+        for (int i = 0; i < mCandidates; i++)
+            mNames.add("home" + i);
+        mIndex = new HomeNameIndex(mNames);
+    }
+
+    @Benchmark
+    public List<String> getPossibleCompletion() {
+        return CommandUtils.getPossibleCompletion(mPrefix, mNames);
+    }
+
+    @Benchmark
+    public List<String> completeIndexed() {
+        return mIndex.complete(mPrefix);
+    }
+
+    @Benchmark
+    public List<String> completeIndexedQualified() {
+        return mIndex.complete("Player", mPrefix);
+    }
+
+}
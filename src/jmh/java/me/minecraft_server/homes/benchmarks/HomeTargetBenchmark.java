@@ -0,0 +1,27 @@
+package me.minecraft_server.homes.benchmarks;
+
+import me.minecraft_server.homes.services.homes.HomeTarget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing every kind of home target typed in commands.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HomeTargetBenchmark {
+
+    @Param({"home", "@1234", "Player:home", "00000000-0000-0000-0000-000000000001:home", "@invalid"})
+    public String mTarget;
+
+    @Benchmark
+    public HomeTarget parseString() {
+        return HomeTarget.parseString(mTarget);
+    }
+
+}
@@ -0,0 +1,106 @@
+package me.minecraft_server.homes.benchmarks;
+
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.OwnedHome;
+import me.minecraft_server.homes.services.HomesService;
+import me.minecraft_server.homes.services.HomesStorage;
+import me.minecraft_server.homes.services.homes.HomeTarget;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks resolving homes through the caches of the homes service on top of an in-memory H2 database.
+ * A miss drops the cached homes of the owner first, like a player who quit, so they are loaded again.
+ * Loads wait for the batch window of the service, which is part of the latency of a miss.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HomesServiceBenchmark {
+
+    private static final int PLAYERS = 1000;
+    private static final int HOMES = 5;
+
+    private static final HomeLocation LOCATION = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+
+    private SQLDataSource mSource;
+    private HomesService mService;
+    private UUID[] mOwners;
+    private HomeTarget[][] mTargets;
+
+    @Setup(Level.Trial)
+    public void openService() {
+        mSource = new SQLDataSource(H2Database.memory("HomesServiceBenchmark"));
+        final var database = new SQLDatabase(mSource);
+        mOwners = new UUID[PLAYERS];
+        mTargets = new HomeTarget[PLAYERS][HOMES];
+        final var players = new HashMap<UUID, String>();
+        final var homes = new ArrayList<OwnedHome>();
+        for (int i = 0; i < PLAYERS; i++) {
+            mOwners[i] = new UUID(0, i + 1);
+            players.put(mOwners[i], "Player" + i);
+            for (int j = 0; j < HOMES; j++) {
+                homes.add(new OwnedHome(mOwners[i], "home" + j, LOCATION));
+                mTargets[i][j] = new HomeTarget.ForeignHomeNameUnique("home" + j, mOwners[i]);
+            }
+        }
+        database.registerPlayers(players);
+        database.setHomes(homes);
+        mService = new HomesService(new HomesStorage(database, null, 4, Duration.ofSeconds(1L)), "server", "default", Logger.getLogger("HomesServiceBenchmark"));
+
+        // Caches all homes for the hits
+        for (int i = 0; i < PLAYERS; i++)
+            for (int j = 0; j < HOMES; j++)
+                mService.getHomeLocation(mTargets[i][j], mOwners[i]).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeService() {
+        mService.shutdown();
+        mSource.close();
+    }
+
+    @Benchmark
+    public Integer getHomeIdHit() {
+        final var index = ThreadLocalRandom.current().nextInt(PLAYERS);
+        return mService.getHomeId(target(index), mOwners[index]).join();
+    }
+
+    @Benchmark
+    public HomeLocation getHomeLocationHit() {
+        final var index = ThreadLocalRandom.current().nextInt(PLAYERS);
+        return mService.getHomeLocation(target(index), mOwners[index]).join();
+    }
+
+    @Benchmark
+    public Integer getHomeIdMiss() {
+        final var index = ThreadLocalRandom.current().nextInt(PLAYERS);
+        mService.releasePlayer(mOwners[index]);
+        return mService.getHomeId(target(index), mOwners[index]).join();
+    }
+
+    @Benchmark
+    public HomeLocation getHomeLocationMiss() {
+        final var index = ThreadLocalRandom.current().nextInt(PLAYERS);
+        mService.releasePlayer(mOwners[index]);
+        return mService.getHomeLocation(target(index), mOwners[index]).join();
+    }
+
+    private HomeTarget target(final int pIndex) {
+        return mTargets[pIndex][ThreadLocalRandom.current().nextInt(HOMES)];
+    }
+
+}
@@ -0,0 +1,79 @@
+package me.minecraft_server.homes.benchmarks;
+
+import me.minecraft_server.homes.services.InventoryService;
+import me.minecraft_server.homes.services.inventory.InventoryCallback;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.inventory.Inventory;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Benchmarks dispatching an inventory event to the callbacks of one of many registered inventories.
+ * Events can't be created without a server, so the benchmark calls the dispatch the event handlers share.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InventoryServiceBenchmark {
+
+    private static final int CALLBACKS = 2;
+
+    @Param({"100", "500", "1000"})
+    public int mInventories;
+
+    private InventoryService mService;
+    private Inventory[] mRegistered;
+    private Inventory mUnregistered;
+    private MethodHandle mExecute;
+
+    @Setup(Level.Trial)
+    public void registerInventories() throws ReflectiveOperationException {
+        mService = new InventoryService();
+        mRegistered = new Inventory[mInventories];
+        for (int i = 0; i < mInventories; i++) {
+            mRegistered[i] = newInventory();
+            for (int j = 0; j < CALLBACKS; j++)
+                mService.addInventoryCallback(mRegistered[i], new InventoryCallback() { });
+        }
+        mUnregistered = newInventory();
+        mExecute = MethodHandles.privateLookupIn(InventoryService.class, MethodHandles.lookup())
+                .findVirtual(InventoryService.class, "execute", MethodType.methodType(void.class, Inventory.class, Consumer.class));
+    }
+
+    @Benchmark
+    public void dispatch() throws Throwable {
+        final var inventory = mRegistered[ThreadLocalRandom.current().nextInt(mInventories)];
+        final Consumer<InventoryCallback> task = callback -> callback.onInventoryOpen(mService, (InventoryOpenEvent) null);
+        mExecute.invokeExact(mService, inventory, task);
+    }
+
+    @Benchmark
+    public void dispatchUnregistered() throws Throwable {
+        final Consumer<InventoryCallback> task = callback -> callback.onInventoryOpen(mService, (InventoryOpenEvent) null);
+        mExecute.invokeExact(mService, mUnregistered, task);
+    }
+
+    /**
+     * Creates an inventory that is only equal to itself, like the inventories of the server.
+     */
+    private static @NotNull Inventory newInventory() {
+        return (Inventory) Proxy.newProxyInstance(Inventory.class.getClassLoader(), new Class<?>[] { Inventory.class }, (proxy, method, args) -> switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "Inventory@" + Integer.toHexString(System.identityHashCode(proxy));
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+}
@@ -0,0 +1,208 @@
+package me.minecraft_server.homes.benchmarks;
+
+import com.google.common.collect.BiMap;
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.dto.HomeChange;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import me.minecraft_server.homes.dto.OwnedHome;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks every method of the SQL database on an in-memory H2 database.
+ * Writes replace existing rows or undo themselves, so the size of the database stays the same.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SQLDatabaseBenchmark {
+
+    private static final int PLAYERS = 1000;
+    private static final int HOMES = 5;
+    private static final int BATCH = 100;
+
+    private static final HomeLocation LOCATION = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+
+    private SQLDataSource mSource;
+    private SQLDatabase mDatabase;
+    private UUID[] mOwners;
+    private int[][] mHomeIds;
+
+    @Setup(Level.Trial)
+    public void openDatabase() {
+        mSource = new SQLDataSource(H2Database.memory("SQLDatabaseBenchmark"));
+        mDatabase = new SQLDatabase(mSource, null, new StatementProfiler(), true);
+        mOwners = new UUID[PLAYERS];
+        mHomeIds = new int[PLAYERS][];
+        final var players = new HashMap<UUID, String>();
+        for (int i = 0; i < PLAYERS; i++) {
+            mOwners[i] = new UUID(0, i + 1);
+            players.put(mOwners[i], "Player" + i);
+        }
+        mDatabase.registerPlayers(players);
+        final var homes = new ArrayList<OwnedHome>();
+        for (final var owner : mOwners)
+            for (int j = 0; j < HOMES; j++)
+                homes.add(new OwnedHome(owner, "home" + j, LOCATION));
+        mDatabase.setHomes(homes);
+        for (int i = 0; i < PLAYERS; i++)
+            mHomeIds[i] = mDatabase.getPlayerMappedHomes(mOwners[i]).keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() {
+        mSource.close();
+    }
+
+    @Benchmark
+    public HomeLocation getHomeByName() {
+        return mDatabase.getHome(owner(), "home0");
+    }
+
+    @Benchmark
+    public HomeLocation getHomeById() {
+        return mDatabase.getHome(homeId());
+    }
+
+    @Benchmark
+    public Map<String, HomeLocation> getHomesOfOwner() {
+        return mDatabase.getHomes(owner());
+    }
+
+    @Benchmark
+    public Map<Integer, HomeLocation> getHomesByIds() {
+        final var ids = new ArrayList<Integer>(BATCH);
+        for (int i = 0; i < BATCH; i++)
+            ids.add(homeId());
+        return mDatabase.getHomes(ids);
+    }
+
+    @Benchmark
+    public List<HomeEntry> getHomeEntriesOfOwner() {
+        return mDatabase.getHomeEntries(owner());
+    }
+
+    @Benchmark
+    public Map<UUID, List<HomeEntry>> getHomeEntriesOfOwners() {
+        final var owners = new ArrayList<UUID>(BATCH);
+        for (int i = 0; i < BATCH; i++)
+            owners.add(owner());
+        return mDatabase.getHomeEntries(owners);
+    }
+
+    @Benchmark
+    public HomesVersion getHomesVersion() {
+        return mDatabase.getHomesVersion(owner());
+    }
+
+    @Benchmark
+    public BiMap<Integer, String> getPlayerMappedHomes() {
+        return mDatabase.getPlayerMappedHomes(owner());
+    }
+
+    @Benchmark
+    public boolean addAndDeleteHomeById() {
+        final var homeId = mDatabase.addHome(owner(), "added", LOCATION);
+        return homeId != null && mDatabase.deleteHome(homeId);
+    }
+
+    @Benchmark
+    public boolean addAndDeleteHomeByName() {
+        final var owner = owner();
+        return mDatabase.addHome(owner, "added", LOCATION) != null && mDatabase.deleteHome(owner, "added");
+    }
+
+    @Benchmark
+    public Integer setHome() {
+        return mDatabase.setHome(owner(), "home0", LOCATION);
+    }
+
+    @Benchmark
+    public boolean updateHome() {
+        return mDatabase.updateHome(homeId(), LOCATION);
+    }
+
+    @Benchmark
+    public boolean setHomes() {
+        final var homes = new ArrayList<OwnedHome>(BATCH);
+        for (int i = 0; i < BATCH; i++)
+            homes.add(new OwnedHome(owner(), "home" + (i % HOMES), LOCATION));
+        return mDatabase.setHomes(homes);
+    }
+
+    @Benchmark
+    public boolean updateHomes() {
+        final var locations = new HashMap<Integer, HomeLocation>();
+        for (int i = 0; i < BATCH; i++)
+            locations.put(homeId(), LOCATION);
+        return mDatabase.updateHomes(locations);
+    }
+
+    @Benchmark
+    public void registerPlayer() {
+        final var index = ThreadLocalRandom.current().nextInt(PLAYERS);
+        mDatabase.registerPlayer(mOwners[index], "Player" + index);
+    }
+
+    @Benchmark
+    public void registerPlayers() {
+        final var players = new HashMap<UUID, String>();
+        for (int i = 0; i < BATCH; i++) {
+            final var index = ThreadLocalRandom.current().nextInt(PLAYERS);
+            players.put(mOwners[index], "Player" + index);
+        }
+        mDatabase.registerPlayers(players);
+    }
+
+    @Benchmark
+    public String getPlayerName() {
+        return mDatabase.getPlayerName(owner());
+    }
+
+    @Benchmark
+    public List<UUID> getPlayerUniqueId() {
+        return mDatabase.getPlayerUniqueId("Player" + ThreadLocalRandom.current().nextInt(PLAYERS));
+    }
+
+    @Benchmark
+    public boolean forEachPlayer(@NotNull final Blackhole pBlackhole) {
+        return mDatabase.forEachPlayer((uniqueId, username) -> pBlackhole.consume(username));
+    }
+
+    @Benchmark
+    public long getLatestSequence() {
+        return mDatabase.getLatestSequence();
+    }
+
+    @Benchmark
+    public List<HomeChange> getChanges() {
+        return mDatabase.getChanges(Math.max(0L, mDatabase.getLatestSequence() - BATCH), BATCH);
+    }
+
+    private @NotNull UUID owner() {
+        return mOwners[ThreadLocalRandom.current().nextInt(PLAYERS)];
+    }
+
+    private int homeId() {
+        final var ids = mHomeIds[ThreadLocalRandom.current().nextInt(PLAYERS)];
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+}
@@ -7,24 +7,23 @@ import me.minecraft_server.homes.services.HomesService;
 import me.minecraft_server.homes.services.InventoryService;
 import me.minecraft_server.homes.services.InvitationService;
 import me.minecraft_server.homes.services.TeleportService;
-import me.minecraft_server.homes.util.AsyncExecutor;
 import me.minecraft_server.homes.util.SyncExecutor;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.event.Listener;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Objects;
 
 @Accessors(prefix = "m")
 public final class Homes extends JavaPlugin {
 
-    @Getter
-    private final AsyncExecutor mAsyncExecutor = new AsyncExecutor(this);
-
     @Getter
     private final SyncExecutor mSyncExecutor = new SyncExecutor(this);
 
@@ -40,6 +39,28 @@ public final class Homes extends JavaPlugin {
     @Getter
     private InventoryService mInventoryService = null;
 
+    /**
+     * Created by the plugin loader of the server.
+     */
+    public Homes() {
+        super();
+    }
+
+    /**
+     * Creates the plugin outside the plugin loader of a server, e.g. to run the commands against a simulated server.
+     * The given homes service is used instead of the database configured in the config.yml.
+     * @param pLoader The plugin loader of the simulated server.
+     * @param pDescription The description of the plugin.
+     * @param pDataFolder The folder of the config.yml.
+     * @param pFile The file of the plugin.
+     * @param pHomesService The homes service to use.
+     */
+    public Homes(@NotNull final JavaPluginLoader pLoader, @NotNull final PluginDescriptionFile pDescription, @NotNull final File pDataFolder,
+                 @NotNull final File pFile, @NotNull final HomesService pHomesService) {
+        super(pLoader, pDescription, pDataFolder, pFile);
+        mHomesService = pHomesService;
+    }
+
     /**
      * Registers all commands to the classes.
      */
@@ -71,7 +92,7 @@ public final class Homes extends JavaPlugin {
      * Loads all services and sets them to the fields.
      */
     private void loadServices() {
-        mHomesService = createService(HomesService.class);
+        mHomesService = mHomesService != null ? registerService(HomesService.class, mHomesService) : createService(HomesService.class);
         mTeleportService = createService(TeleportService.class);
         mInvitationService = createService(InvitationService.class);
         mInventoryService = createService(InventoryService.class);
@@ -85,7 +106,17 @@ public final class Homes extends JavaPlugin {
      * @param <T> The type of the service class.
      */
     private <T extends Listener> T createService(Class<T> clazz) {
-        final var instance = createInstance(clazz);
+        return registerService(clazz, createInstance(clazz));
+    }
+
+    /**
+     * Registers a service to the bukkit service manager and all events inside the service in bukkit plugin manager.
+     * @param clazz The class to register the instance as.
+     * @param instance The instance to register.
+     * @return The registered instance.
+     * @param <T> The type of the service class.
+     */
+    private <T extends Listener> T registerService(Class<T> clazz, T instance) {
         getServer().getServicesManager().register(clazz, instance, this, ServicePriority.Normal);
         getServer().getPluginManager().registerEvents(instance, this);
         return instance;
@@ -2,9 +2,11 @@ package me.minecraft_server.homes.commands;
 
 import lombok.RequiredArgsConstructor;
 import me.minecraft_server.homes.Homes;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
 import me.minecraft_server.homes.exceptions.NotUniquelyIdentifiableException;
 import me.minecraft_server.homes.exceptions.RegisteredPlayerNotFoundException;
 import me.minecraft_server.homes.services.homes.HomeTarget;
+import me.minecraft_server.homes.util.CommandUtils;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -15,7 +17,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
 public class DelHomeCommand implements CommandExecutor, TabCompleter {
@@ -28,7 +29,6 @@ public class DelHomeCommand implements CommandExecutor, TabCompleter {
 
         final var homesService = plugin.getHomesService();
         final var syncExecutor = plugin.getSyncExecutor();
-        final var asyncExecutor = plugin.getAsyncExecutor();
 
         // The home target to delete
         final var home = HomeTarget.parseString(args.length == 0 ? homesService.getDefaultHome() : args[0]);
@@ -41,9 +41,9 @@ public class DelHomeCommand implements CommandExecutor, TabCompleter {
         }
 
         // Execute the actual location set
-        CompletableFuture.supplyAsync(() -> homesService.deleteHomeLocation(home, (Player) sender), asyncExecutor).whenCompleteAsync((result, ex) -> {
+        homesService.deleteHomeLocation(home, (Player) sender).whenCompleteAsync((result, ex) -> {
             if (ex != null) {
-                final var actual = ex.getCause();
+                final var actual = CommandUtils.unwrap(ex);
                 switch (actual) {
                     case NotUniquelyIdentifiableException ignored -> {
                         assert home instanceof HomeTarget.ForeignHomeName;
@@ -53,6 +53,8 @@ public class DelHomeCommand implements CommandExecutor, TabCompleter {
                         assert home instanceof HomeTarget.ForeignHomeName;
                         sender.sendMessage(String.format("§5§lHomes §8| §cPlayer §d%s§c not found.", ((HomeTarget.ForeignHomeName)home).owner()));
                     }
+                    case DatabaseUnavailableException ignored ->
+                            sender.sendMessage("§5§lHomes §8| §cThe home database is currently unavailable, try again later.");
                     case null, default ->
                             sender.sendMessage(String.format("§5§lHomes §8| §cCould not remove home §d%s§c, unknown exception.", home.toHumanReadable()));
                 }
@@ -2,10 +2,12 @@ package me.minecraft_server.homes.commands;
 
 import lombok.RequiredArgsConstructor;
 import me.minecraft_server.homes.Homes;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
 import me.minecraft_server.homes.exceptions.HomeNotFoundException;
 import me.minecraft_server.homes.exceptions.NotUniquelyIdentifiableException;
 import me.minecraft_server.homes.exceptions.RegisteredPlayerNotFoundException;
 import me.minecraft_server.homes.services.homes.HomeTarget;
+import me.minecraft_server.homes.util.CommandUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -17,7 +19,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
 public class HomeCommand implements CommandExecutor, TabCompleter {
@@ -30,7 +31,6 @@ public class HomeCommand implements CommandExecutor, TabCompleter {
 
         final var homesService = plugin.getHomesService();
         final var syncExecutor = plugin.getSyncExecutor();
-        final var asyncExecutor = plugin.getAsyncExecutor();
         final var teleportService = plugin.getTeleportService();
 
         // Who is the initiator?
@@ -79,9 +79,9 @@ public class HomeCommand implements CommandExecutor, TabCompleter {
         final var instant = teleportTarget != sender || sender.hasPermission("homes.instant");
 
         // Execute the actual teleport
-        CompletableFuture.supplyAsync(() -> homesService.getHomeLocation(home, initiator), asyncExecutor).whenCompleteAsync((location, ex) -> {
+        homesService.getHomeLocation(home, initiator).whenCompleteAsync((location, ex) -> {
             if (ex != null) {
-                final var actual= ex.getCause();
+                final var actual = CommandUtils.unwrap(ex);
                 switch (actual) {
                     case HomeNotFoundException ignored ->
                             sender.sendMessage(String.format("§5§lHomes §8| §cCan't find home §d%s§c.", home.toHumanReadable()));
@@ -89,6 +89,8 @@ public class HomeCommand implements CommandExecutor, TabCompleter {
                             sender.sendMessage(String.format("§5§lHomes §8| §cThe player §d%s§c can't be uniquely identified.", ((HomeTarget.ForeignHomeName)home).owner()));
                     case RegisteredPlayerNotFoundException ignored ->
                             sender.sendMessage(String.format("§5§lHomes §8| §cPlayer §d%s§c not found.", ((HomeTarget.ForeignHomeName)home).owner()));
+                    case DatabaseUnavailableException ignored ->
+                            sender.sendMessage("§5§lHomes §8| §cThe home database is currently unavailable, try again later.");
                     case null, default ->
                             sender.sendMessage(String.format("§5§lHomes §8| §cCan't retrieve home §d%s§c, unknown exception.", home.toHumanReadable()));
                 }
@@ -2,9 +2,11 @@ package me.minecraft_server.homes.commands;
 
 import lombok.RequiredArgsConstructor;
 import me.minecraft_server.homes.Homes;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
 import me.minecraft_server.homes.exceptions.NotUniquelyIdentifiableException;
 import me.minecraft_server.homes.exceptions.RegisteredPlayerNotFoundException;
 import me.minecraft_server.homes.services.homes.HomeTarget;
+import me.minecraft_server.homes.util.CommandUtils;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
@@ -20,7 +22,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
 public class SetHomeCommand implements CommandExecutor, TabCompleter {
@@ -38,7 +39,6 @@ public class SetHomeCommand implements CommandExecutor, TabCompleter {
 
         final var homesService = plugin.getHomesService();
         final var syncExecutor = plugin.getSyncExecutor();
-        final var asyncExecutor = plugin.getAsyncExecutor();
 
         // The home target to set
         final var home = HomeTarget.parseString(args.length == 0 ? homesService.getDefaultHome() : args[0]);
@@ -54,9 +54,9 @@ public class SetHomeCommand implements CommandExecutor, TabCompleter {
         final var override = args.length >= 2 && args[1].equalsIgnoreCase("override");
 
         // Execute the actual location set
-        CompletableFuture.supplyAsync(() -> homesService.setHomeLocation(home, (Player) sender, override), asyncExecutor).whenCompleteAsync((result, ex) -> {
+        homesService.setHomeLocation(home, (Player) sender, override).whenCompleteAsync((result, ex) -> {
             if (ex != null) {
-                final var actual = ex.getCause();
+                final var actual = CommandUtils.unwrap(ex);
                 switch (actual) {
                     case NotUniquelyIdentifiableException ignored -> {
                         assert home instanceof HomeTarget.ForeignHomeName;
@@ -66,6 +66,8 @@ public class SetHomeCommand implements CommandExecutor, TabCompleter {
                         assert home instanceof HomeTarget.ForeignHomeName;
                         sender.sendMessage(String.format("§5§lHomes §8| §cPlayer §d%s§c not found.", ((HomeTarget.ForeignHomeName)home).owner()));
                     }
+                    case DatabaseUnavailableException ignored ->
+                            sender.sendMessage("§5§lHomes §8| §cThe home database is currently unavailable, try again later.");
                     case null, default ->
                             sender.sendMessage(String.format("§5§lHomes §8| §cCould not set home §d%s§c, unknown exception.", home.toHumanReadable()));
                 }
@@ -0,0 +1,158 @@
+package me.minecraft_server.homes.database;
+
+import com.google.common.collect.BiMap;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs a blocking {@link IDatabase} on its own pool of threads.
+ * The pool should be as large as the connection pool, so no thread has to wait for a connection.
+ */
+@Accessors(prefix = "m")
+public class AsyncDatabase implements IAsyncDatabase, Closeable {
+
+    private @NotNull final IDatabase mDatabase;
+
+    /**
+     * The threads running the database calls. Can be used to schedule further work of the data layer.
+     */
+    @Getter
+    private @NotNull final ScheduledExecutorService mExecutor;
+
+    /**
+     * Creates an asynchronous database with a dedicated pool of threads.
+     * @param pDatabase The blocking database to run.
+     * @param pThreads The amount of threads to use.
+     */
+    public AsyncDatabase(@NotNull final IDatabase pDatabase, final int pThreads) {
+        mDatabase = pDatabase;
+        final var counter = new AtomicInteger();
+        mExecutor = Executors.newScheduledThreadPool(pThreads, runnable -> {
+            final var thread = new Thread(runnable, "Homes-Database-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops accepting new calls and waits for the running ones to finish.
+     */
+    @Override
+    public void close() {
+        mExecutor.shutdown();
+        try {
+            if (!mExecutor.awaitTermination(10L, TimeUnit.SECONDS))
+                mExecutor.shutdownNow();
+        } catch (InterruptedException e) {
+            mExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // IMPLEMENTATION: IAsyncDatabase
+
+    @Override
+    public @NotNull CompletableFuture<@Nullable HomeLocation> getHome(@NotNull final UUID pPlayer, @NotNull final String pName) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.getHome(pPlayer, pName), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@Nullable HomeLocation> getHome(final int pHomeId) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.getHome(pHomeId), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull Map<String, HomeLocation>> getHomes(@NotNull final UUID pOwner) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.getHomes(pOwner), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull Map<Integer, HomeLocation>> getHomes(@NotNull final Collection<Integer> pHomeIds) {
+        final var homeIds = List.copyOf(pHomeIds);
+        return CompletableFuture.supplyAsync(() -> mDatabase.getHomes(homeIds), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull List<HomeEntry>> getHomeEntries(@NotNull final UUID pOwner) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.getHomeEntries(pOwner), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull HomesVersion> getHomesVersion(@NotNull final UUID pOwner) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.getHomesVersion(pOwner), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull Map<UUID, List<HomeEntry>>> getHomeEntries(@NotNull final Collection<UUID> pOwners) {
+        final var owners = List.copyOf(pOwners);
+        return CompletableFuture.supplyAsync(() -> mDatabase.getHomeEntries(owners), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull BiMap<@NotNull Integer, @NotNull String>> getPlayerMappedHomes(@NotNull final UUID pOwner) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.getPlayerMappedHomes(pOwner), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@Nullable Integer> addHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.addHome(pOwner, pName, pLocation), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@Nullable Integer> setHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.setHome(pOwner, pName, pLocation), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull Boolean> updateHome(final int pHomeId, @NotNull final HomeLocation pLocation) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.updateHome(pHomeId, pLocation), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull Boolean> deleteHome(@NotNull final UUID pOwner, @NotNull final String pName) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.deleteHome(pOwner, pName), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull Boolean> deleteHome(final int pHomeId) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.deleteHome(pHomeId), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> registerPlayer(@NotNull final UUID pOwner, @NotNull final String pUsername) {
+        return CompletableFuture.runAsync(() -> mDatabase.registerPlayer(pOwner, pUsername), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@Nullable String> getPlayerName(@NotNull final UUID pUniqueId) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.getPlayerName(pUniqueId), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull List<UUID>> getPlayerUniqueId(@NotNull final String pUsername) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.getPlayerUniqueId(pUsername), mExecutor);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<@NotNull Boolean> forEachPlayer(@NotNull final BiConsumer<UUID, String> pAction) {
+        return CompletableFuture.supplyAsync(() -> mDatabase.forEachPlayer(pAction), mExecutor);
+    }
+
+}
@@ -0,0 +1,104 @@
+package me.minecraft_server.homes.database;
+
+import me.minecraft_server.homes.dto.HomeChange;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Reads the changes other servers made from a change feed, starting with the latest change when created.
+ * A change can become visible after later ones, if its transaction commits later. So changes are read again
+ * until no earlier change can show up anymore, and already applied changes are skipped.
+ * Not thread-safe, polls have to be run one after another.
+ */
+public class ChangeFeedPoller {
+
+    /**
+     * The maximum amount of changes read by a single query.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    private @NotNull final IChangeFeed mFeed;
+
+    private @NotNull final Consumer<HomeChange> mListener;
+
+    private @NotNull final Runnable mGapListener;
+
+    /**
+     * Transactions that take longer to commit after their change got its sequence may be missed.
+     */
+    private final long mSettleTime;
+
+    /**
+     * If the feed was not read for this long, changes may have been pruned before they were read.
+     */
+    private final long mMaxLag;
+
+    /**
+     * All changes up to this sequence were applied or will never show up.
+     */
+    private long mCursor;
+
+    /**
+     * Applied changes after the cursor, with the time they were first read at.
+     */
+    private @NotNull final TreeMap<Long, Long> mApplied = new TreeMap<>();
+
+    private long mLastPoll;
+
+    /**
+     * Creates a poller that starts after the latest change.
+     * @param pFeed The feed to read.
+     * @param pListener Receives the changes of other servers.
+     * @param pGapListener Called when changes may have been missed, e.g. because the database was unavailable
+     *                     for longer than changes are retained. Everything cached should be invalidated then.
+     * @param pSettleTime The time after which no change with an earlier sequence is expected to show up anymore.
+     * @param pRetention The time changes are retained by the feed.
+     */
+    public ChangeFeedPoller(@NotNull final IChangeFeed pFeed, @NotNull final Consumer<HomeChange> pListener, @NotNull final Runnable pGapListener,
+                            @NotNull final Duration pSettleTime, @NotNull final Duration pRetention) {
+        mFeed = pFeed;
+        mListener = pListener;
+        mGapListener = pGapListener;
+        mSettleTime = pSettleTime.toNanos();
+        mMaxLag = pRetention.toNanos() / 2L;
+        mCursor = pFeed.getLatestSequence();
+        mLastPoll = System.nanoTime();
+    }
+
+    /**
+     * Reads and applies new changes.
+     * @throws DatabaseUnavailableException If the feed can't be read.
+     */
+    public void poll() {
+        final var start = System.nanoTime();
+        if (start - mLastPoll > mMaxLag)
+            mGapListener.run();
+
+        // Read until there are no more changes
+        var after = mCursor;
+        while (true) {
+            final var changes = mFeed.getChanges(after, BATCH_SIZE);
+            for (final var change : changes) {
+                if (mApplied.putIfAbsent(change.sequence(), start) == null && change.origin() != mFeed.getOrigin())
+                    mListener.accept(change);
+            }
+            if (changes.size() < BATCH_SIZE)
+                break;
+            after = changes.get(changes.size() - 1).sequence();
+        }
+        mLastPoll = start;
+
+        // Move the cursor past changes that are followed by no gap, or by gaps that won't be filled anymore
+        for (final var applied : mApplied.entrySet()) {
+            if (applied.getKey() != mCursor + 1L && start - applied.getValue() < mSettleTime)
+                break;
+            mCursor = applied.getKey();
+        }
+        mApplied.headMap(mCursor, true).clear();
+    }
+
+}
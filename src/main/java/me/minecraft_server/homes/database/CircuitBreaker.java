@@ -0,0 +1,173 @@
+package me.minecraft_server.homes.database;
+
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stops calling a database after several failed or slow calls in a row, so callers fail immediately
+ * instead of waiting for timeouts. While open, a probe checks the database in the background
+ * and closes the breaker once it answers in time again.
+ */
+public class CircuitBreaker implements Closeable {
+
+    private final long mDeadline;
+
+    private final int mFailureThreshold;
+
+    private final long mProbeInterval;
+
+    private @NotNull final Runnable mProbe;
+
+    private @NotNull final ScheduledExecutorService mProber;
+
+    private @NotNull final Logger mLogger;
+
+    /**
+     * Failed calls in a row, guarded by this.
+     */
+    private int mFailures = 0;
+
+    private volatile boolean mOpen = false;
+
+    /**
+     * Creates a closed circuit breaker.
+     * @param pDeadline Calls taking longer count as failed, even if they succeed.
+     * @param pFailureThreshold The amount of failed calls in a row that open the breaker.
+     * @param pProbeInterval The time between two probes while the breaker is open.
+     * @param pProbe A cheap call to the database, that throws {@link DatabaseUnavailableException} if it is still unavailable.
+     * @param pLogger The logger to report opening and closing the breaker to.
+     */
+    public CircuitBreaker(@NotNull final Duration pDeadline, final int pFailureThreshold, @NotNull final Duration pProbeInterval,
+                          @NotNull final Runnable pProbe, @NotNull final Logger pLogger) {
+        mDeadline = pDeadline.toNanos();
+        mFailureThreshold = Math.max(1, pFailureThreshold);
+        mProbeInterval = pProbeInterval.toMillis();
+        mProbe = pProbe;
+        mLogger = pLogger;
+        mProber = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "Homes-Database-Probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a call through the breaker.
+     * @param pCall The call to the database.
+     * @return The result of the call.
+     * @throws DatabaseUnavailableException If the breaker is open or the call failed, because the database is unavailable.
+     */
+    public <T> T call(@NotNull final Supplier<T> pCall) {
+        if (mOpen)
+            throw new DatabaseUnavailableException("The database is unavailable, calls are paused until it responds again.");
+        final var start = System.nanoTime();
+        final T result;
+        try {
+            result = pCall.get();
+        } catch (DatabaseUnavailableException e) {
+            recordFailure();
+            throw e;
+        }
+        if (System.nanoTime() - start > mDeadline)
+            recordFailure();
+        else
+            recordSuccess();
+        return result;
+    }
+
+    /**
+     * Runs a call through the breaker that may take longer than the deadline, like a full table scan.
+     * Only fails immediately while the breaker is open and counts as failed if the database is unavailable.
+     * @param pCall The call to the database.
+     * @return The result of the call.
+     * @throws DatabaseUnavailableException If the breaker is open or the call failed, because the database is unavailable.
+     */
+    public <T> T callUnbounded(@NotNull final Supplier<T> pCall) {
+        if (mOpen)
+            throw new DatabaseUnavailableException("The database is unavailable, calls are paused until it responds again.");
+        final T result;
+        try {
+            result = pCall.get();
+        } catch (DatabaseUnavailableException e) {
+            recordFailure();
+            throw e;
+        }
+        recordSuccess();
+        return result;
+    }
+
+    /**
+     * Runs a call without a result through the breaker.
+     * @param pCall The call to the database.
+     * @throws DatabaseUnavailableException If the breaker is open or the call failed, because the database is unavailable.
+     */
+    public void run(@NotNull final Runnable pCall) {
+        call(() -> {
+            pCall.run();
+            return null;
+        });
+    }
+
+    public boolean isOpen() {
+        return mOpen;
+    }
+
+    private synchronized void recordSuccess() {
+        mFailures = 0;
+    }
+
+    private synchronized void recordFailure() {
+        if (++mFailures < mFailureThreshold || mOpen)
+            return;
+        mOpen = true;
+        mLogger.warning("The database is unavailable, database calls are paused until it responds again.");
+        scheduleProbe();
+    }
+
+    private void scheduleProbe() {
+        try {
+            mProber.schedule(this::probe, mProbeInterval, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Closed, nothing to probe anymore.
+        }
+    }
+
+    private void probe() {
+        final var start = System.nanoTime();
+        try {
+            mProbe.run();
+            if (System.nanoTime() - start <= mDeadline) {
+                synchronized (this) {
+                    mFailures = 0;
+                    mOpen = false;
+                }
+                mLogger.info("The database responds again, database calls are resumed.");
+                return;
+            }
+        } catch (DatabaseUnavailableException ignored) {
+            // Still unavailable, try again later.
+        } catch (RuntimeException e) {
+            mLogger.log(Level.WARNING, "The probe of the database failed.", e);
+        }
+        scheduleProbe();
+    }
+
+    /**
+     * Stops probing.
+     */
+    @Override
+    public void close() {
+        mProber.shutdownNow();
+    }
+
+}
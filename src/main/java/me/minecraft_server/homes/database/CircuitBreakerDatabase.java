@@ -0,0 +1,153 @@
+package me.minecraft_server.homes.database;
+
+import com.google.common.collect.BiMap;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Runs every call of a database through a {@link CircuitBreaker}.
+ * While the breaker is open, every call throws {@link DatabaseUnavailableException} without touching the database.
+ */
+public class CircuitBreakerDatabase implements IDatabase, Closeable {
+
+    /**
+     * Looked up by the probe, no player has this unique id.
+     */
+    private static final UUID PROBE_ID = new UUID(0L, 0L);
+
+    private @NotNull final IDatabase mDelegate;
+
+    private @NotNull final CircuitBreaker mBreaker;
+
+    /**
+     * Creates a circuit breaker in front of a database.
+     * @param pDelegate The database to call.
+     * @param pDeadline Calls taking longer count as failed.
+     * @param pFailureThreshold The amount of failed calls in a row that open the breaker.
+     * @param pProbeInterval The time between two probes while the breaker is open.
+     * @param pLogger The logger to report opening and closing the breaker to.
+     */
+    public CircuitBreakerDatabase(@NotNull final IDatabase pDelegate, @NotNull final Duration pDeadline, final int pFailureThreshold,
+                                  @NotNull final Duration pProbeInterval, @NotNull final Logger pLogger) {
+        mDelegate = pDelegate;
+        mBreaker = new CircuitBreaker(pDeadline, pFailureThreshold, pProbeInterval, () -> pDelegate.getPlayerName(PROBE_ID), pLogger);
+    }
+
+    /**
+     * Whether calls are currently paused, because the database is unavailable.
+     */
+    public boolean isOpen() {
+        return mBreaker.isOpen();
+    }
+
+    @Override
+    public void close() {
+        mBreaker.close();
+    }
+
+    // IMPLEMENTATION: IDatabase
+
+    @Override
+    public @Nullable HomeLocation getHome(@NotNull final UUID pPlayer, @NotNull final String pName) {
+        return mBreaker.call(() -> mDelegate.getHome(pPlayer, pName));
+    }
+
+    @Override
+    public @Nullable HomeLocation getHome(final int pHomeId) {
+        return mBreaker.call(() -> mDelegate.getHome(pHomeId));
+    }
+
+    @Override
+    public @NotNull Map<String, HomeLocation> getHomes(@NotNull final UUID pOwner) {
+        return mBreaker.call(() -> mDelegate.getHomes(pOwner));
+    }
+
+    @Override
+    public @NotNull Map<Integer, HomeLocation> getHomes(@NotNull final Collection<Integer> pHomeIds) {
+        return mBreaker.call(() -> mDelegate.getHomes(pHomeIds));
+    }
+
+    @Override
+    public @NotNull List<HomeEntry> getHomeEntries(@NotNull final UUID pOwner) {
+        return mBreaker.call(() -> mDelegate.getHomeEntries(pOwner));
+    }
+
+    @Override
+    public @NotNull Map<UUID, List<HomeEntry>> getHomeEntries(@NotNull final Collection<UUID> pOwners) {
+        return mBreaker.call(() -> mDelegate.getHomeEntries(pOwners));
+    }
+
+    @Override
+    public @NotNull HomesVersion getHomesVersion(@NotNull final UUID pOwner) {
+        return mBreaker.call(() -> mDelegate.getHomesVersion(pOwner));
+    }
+
+    @Override
+    public @NotNull BiMap<@NotNull Integer, @NotNull String> getPlayerMappedHomes(@NotNull final UUID pOwner) {
+        return mBreaker.call(() -> mDelegate.getPlayerMappedHomes(pOwner));
+    }
+
+    @Override
+    public @Nullable Integer addHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        return mBreaker.call(() -> mDelegate.addHome(pOwner, pName, pLocation));
+    }
+
+    @Override
+    public @Nullable Integer setHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        return mBreaker.call(() -> mDelegate.setHome(pOwner, pName, pLocation));
+    }
+
+    @Override
+    public boolean updateHome(final int pHomeId, @NotNull final HomeLocation pLocation) {
+        return mBreaker.call(() -> mDelegate.updateHome(pHomeId, pLocation));
+    }
+
+    @Override
+    public boolean deleteHome(@NotNull final UUID pOwner, @NotNull final String pName) {
+        return mBreaker.call(() -> mDelegate.deleteHome(pOwner, pName));
+    }
+
+    @Override
+    public boolean deleteHome(final int pHomeId) {
+        return mBreaker.call(() -> mDelegate.deleteHome(pHomeId));
+    }
+
+    @Override
+    public void registerPlayer(@NotNull final UUID pOwner, @NotNull final String pUsername) {
+        mBreaker.run(() -> mDelegate.registerPlayer(pOwner, pUsername));
+    }
+
+    @Override
+    public void registerPlayers(@NotNull final Map<UUID, String> pPlayers) {
+        mBreaker.run(() -> mDelegate.registerPlayers(pPlayers));
+    }
+
+    @Override
+    public @Nullable String getPlayerName(@NotNull final UUID pUniqueId) {
+        return mBreaker.call(() -> mDelegate.getPlayerName(pUniqueId));
+    }
+
+    @Override
+    public @NotNull List<UUID> getPlayerUniqueId(@NotNull final String pUsername) {
+        return mBreaker.call(() -> mDelegate.getPlayerUniqueId(pUsername));
+    }
+
+    @Override
+    public boolean forEachPlayer(@NotNull final BiConsumer<UUID, String> pAction) {
+        return mBreaker.callUnbounded(() -> mDelegate.forEachPlayer(pAction));
+    }
+
+}
@@ -0,0 +1,151 @@
+package me.minecraft_server.homes.database;
+
+import com.google.common.collect.BiMap;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * The asynchronous counterpart of {@link IDatabase}. Every method returns immediately,
+ * the futures are completed by threads owned by the implementation.
+ */
+public interface IAsyncDatabase {
+
+    /**
+     * Gets a home of a player
+     * @param pPlayer The player whose home it is.
+     * @param pName The name of the home.
+     * @return A future to a location of the home, can be null if the home does not exist.
+     */
+    @NotNull CompletableFuture<@Nullable HomeLocation> getHome(@NotNull final UUID pPlayer, @NotNull final String pName);
+
+    /**
+     * Gets a home of a player
+     * @param pHomeId The id of the home.
+     * @return A future to a location of the home, can be null if the home does not exist.
+     */
+    @NotNull CompletableFuture<@Nullable HomeLocation> getHome(int pHomeId);
+
+    /**
+     * Gets all homes of a player with their names.
+     * @param pOwner The player whose homes to retrieve.
+     * @return A future to a map of players homes mapped by name to location. Can be empty if the player has no homes.
+     */
+    @NotNull CompletableFuture<@NotNull Map<String, HomeLocation>> getHomes(@NotNull final UUID pOwner);
+
+    /**
+     * Gets multiple homes by their ids at once.
+     * @param pHomeIds The ids of the homes.
+     * @return A future to a map of the homes mapped by id to location. Homes that don't exist are missing.
+     */
+    @NotNull CompletableFuture<@NotNull Map<Integer, HomeLocation>> getHomes(@NotNull Collection<Integer> pHomeIds);
+
+    /**
+     * Gets all homes of a player with their names and ids.
+     * @param pOwner The player whose homes to retrieve.
+     * @return A future to a list of players homes with ids and names. Can be empty if the player has no homes.
+     */
+    @NotNull CompletableFuture<@NotNull List<HomeEntry>> getHomeEntries(@NotNull UUID pOwner);
+
+    /**
+     * Gets a fingerprint of the homes of a player, to check cheaply whether homes were added or deleted.
+     * @param pOwner The player whose homes to check.
+     * @return A future to the fingerprint, or {@link HomesVersion#UNKNOWN} if some error occurred.
+     */
+    @NotNull CompletableFuture<@NotNull HomesVersion> getHomesVersion(@NotNull UUID pOwner);
+
+    /**
+     * Gets all homes of multiple players with their names and ids at once.
+     * @param pOwners The players whose homes to retrieve.
+     * @return A future to a map of players homes with ids and names mapped by owner. Every owner that could be loaded
+     *         is contained, with an empty list if the player has no homes. Can be empty if some error occurred.
+     */
+    @NotNull CompletableFuture<@NotNull Map<UUID, List<HomeEntry>>> getHomeEntries(@NotNull Collection<UUID> pOwners);
+
+    /**
+     * Gets all homes ids of a player bi-mapped to their names.
+     * @param pOwner The player whose homes to retrieve.
+     * @return A future to a map of players homes bi-mapped by home-id to name. Can be empty if the player has no homes.
+     */
+    @NotNull CompletableFuture<@NotNull BiMap<@NotNull Integer, @NotNull String>> getPlayerMappedHomes(@NotNull UUID pOwner);
+
+    /**
+     * Inserts a new home location. Fails if the home already exists.
+     * @param pOwner The player who the home belongs to.
+     * @param pName The name of the home.
+     * @param pLocation The new location.
+     * @return A future to the id of the new home, or null if the action failed. Is null, if the player already has a home with this name.
+     */
+    @NotNull CompletableFuture<@Nullable Integer> addHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation);
+
+    /**
+     * Inserts or updates a new home location.
+     * @param pOwner    The player who the home belongs to.
+     * @param pName     The name of the home.
+     * @param pLocation The new location.
+     * @return A future to the id of the home, {@link IDatabase#PENDING_HOME_ID} if the write is buffered, or null if the action failed.
+     */
+    @NotNull CompletableFuture<@Nullable Integer> setHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation);
+
+    /**
+     * Updates the location of the home.
+     * @param pHomeId   The id of the home.
+     * @param pLocation The new location.
+     * @return A future to a boolean, whether the action was successful.
+     */
+    @NotNull CompletableFuture<@NotNull Boolean> updateHome(int pHomeId, @NotNull HomeLocation pLocation);
+
+    /**
+     * Deletes a home by its owner and name.
+     * @param pOwner The player who the home belongs to.
+     * @param pName  The name of the home.
+     * @return A future to a boolean, whether the action was successful.
+     */
+    @NotNull CompletableFuture<@NotNull Boolean> deleteHome(@NotNull UUID pOwner, @NotNull String pName);
+
+    /**
+     * Deletes a home by its id.
+     * @param pHomeId The id of the home.
+     * @return A future to a boolean, whether the action was successful.
+     */
+    @NotNull CompletableFuture<@NotNull Boolean> deleteHome(int pHomeId);
+
+    /**
+     * Registers a player.
+     * @param pOwner    The players uniqueId.
+     * @param pUsername The players name.
+     * @return A future that completes once the player is registered.
+     */
+    @NotNull CompletableFuture<Void> registerPlayer(@NotNull UUID pOwner, @NotNull String pUsername);
+
+    /**
+     * Returns a player name for a given unique id.
+     * @param pUniqueId The unique id in question.
+     * @return A future to a player name.
+     */
+    @NotNull CompletableFuture<@Nullable String> getPlayerName(@NotNull UUID pUniqueId);
+
+    /**
+     * Returns unique ids with a given username.
+     * @param pUsername The username in question.
+     * @return A future to a list of unique ids with that username.
+     */
+    @NotNull CompletableFuture<@NotNull List<UUID>> getPlayerUniqueId(@NotNull String pUsername);
+
+    /**
+     * Streams all registered players, without holding all of them in memory at once.
+     * @param pAction Called with the unique id and username of every player, on the thread of the database.
+     * @return A future to whether all players were passed, false if some error occurred.
+     */
+    @NotNull CompletableFuture<@NotNull Boolean> forEachPlayer(@NotNull BiConsumer<UUID, String> pAction);
+
+}
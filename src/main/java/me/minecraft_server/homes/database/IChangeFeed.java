@@ -0,0 +1,43 @@
+package me.minecraft_server.homes.database;
+
+import me.minecraft_server.homes.dto.HomeChange;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The change log of a database shared by multiple servers.
+ * Every method may throw {@link DatabaseUnavailableException} if the database can't be reached or does not answer in time.
+ */
+public interface IChangeFeed {
+
+    /**
+     * Gets the origin of changes made through this instance.
+     * @return The origin.
+     */
+    int getOrigin();
+
+    /**
+     * Gets the sequence of the latest change, to start reading changes from.
+     * @return The sequence, or 0 if there are no changes.
+     */
+    long getLatestSequence();
+
+    /**
+     * Gets changes in the order of their sequence.
+     * A change may become visible after later ones, if its transaction commits later.
+     * @param pAfter Only changes with a greater sequence are returned.
+     * @param pLimit The maximum amount of changes.
+     * @return The changes, can be empty.
+     */
+    @NotNull List<HomeChange> getChanges(long pAfter, int pLimit);
+
+    /**
+     * Deletes old changes.
+     * @param pRetention Changes older than this are deleted.
+     */
+    void pruneChanges(@NotNull Duration pRetention);
+
+}
@@ -3,15 +3,29 @@ package me.minecraft_server.homes.database;
 import com.google.common.collect.BiMap;
 import me.minecraft_server.homes.dto.HomeEntry;
 import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
+/**
+ * A blocking database of homes and players.
+ * Every method may throw {@link DatabaseUnavailableException} if the database can't be reached or does not answer in time.
+ */
 public interface IDatabase {
 
+    /**
+     * Returned by {@link #setHome(UUID, String, HomeLocation)} instead of an id, if the write succeeded but is buffered,
+     * so the id is not known yet. Real home ids start at 1.
+     */
+    int PENDING_HOME_ID = 0;
+
     /**
      * Gets a home of a player
      * @param pPlayer The player whose home it is.
@@ -34,6 +48,13 @@ public interface IDatabase {
      */
     @NotNull Map<String, HomeLocation> getHomes(@NotNull final UUID pOwner);
 
+    /**
+     * Gets multiple homes by their ids at once.
+     * @param pHomeIds The ids of the homes.
+     * @return A map of the homes mapped by id to location. Homes that don't exist are missing.
+     */
+    @NotNull Map<Integer, HomeLocation> getHomes(@NotNull Collection<Integer> pHomeIds);
+
     /**
      * Gets all homes of a player with their names and ids.
      * @param pOwner The player whose homes to retrieve.
@@ -41,6 +62,21 @@ public interface IDatabase {
      */
     @NotNull List<HomeEntry> getHomeEntries(@NotNull UUID pOwner);
 
+    /**
+     * Gets all homes of multiple players with their names and ids at once.
+     * @param pOwners The players whose homes to retrieve.
+     * @return A map of players homes with ids and names mapped by owner. Every owner that could be loaded is contained,
+     *         with an empty list if the player has no homes. Can be empty if some error occurred.
+     */
+    @NotNull Map<UUID, List<HomeEntry>> getHomeEntries(@NotNull Collection<UUID> pOwners);
+
+    /**
+     * Gets a fingerprint of the homes of a player, to check cheaply whether homes were added or deleted.
+     * @param pOwner The player whose homes to check.
+     * @return The fingerprint, or {@link HomesVersion#UNKNOWN} if some error occurred.
+     */
+    @NotNull HomesVersion getHomesVersion(@NotNull UUID pOwner);
+
     /**
      * Gets all homes ids of a player bi-mapped to their names.
      * @param pOwner The player whose homes to retrieve.
@@ -53,19 +89,19 @@ public interface IDatabase {
      * @param pOwner The player who the home belongs to.
      * @param pName The name of the home.
      * @param pLocation The new location.
-     * @return A boolean, whether the action was successful. Can be false, if the player already has a home with this name.
+     * @return The id of the new home, or null if the action failed. Is null, if the player already has a home with this name.
      */
-    boolean addHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation);
+    @Nullable Integer addHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation);
 
     /**
      * Inserts or updates a new home location.
      * @param pOwner    The player who the home belongs to.
      * @param pName     The name of the home.
      * @param pLocation The new location.
-     * @return A boolean, whether the action was successful.
+     * @return The id of the home, {@link #PENDING_HOME_ID} if the write is buffered, or null if the action failed.
      */
     @SuppressWarnings("UnusedReturnValue")
-    boolean setHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation);
+    @Nullable Integer setHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation);
 
     /**
      * Updates the location of the home.
@@ -98,6 +134,12 @@ public interface IDatabase {
     @SuppressWarnings("UnusedReturnValue")
     void registerPlayer(@NotNull UUID pOwner, @NotNull String pUsername);
 
+    /**
+     * Registers multiple players at once.
+     * @param pPlayers The usernames of the players mapped by unique id.
+     */
+    void registerPlayers(@NotNull Map<UUID, String> pPlayers);
+
     /**
      * Returns a player name for a given unique id.
      * @param pUniqueId The unique id in question.
@@ -112,4 +154,11 @@ public interface IDatabase {
      */
     @NotNull List<UUID> getPlayerUniqueId(@NotNull String pUsername);
 
+    /**
+     * Streams all registered players, without holding all of them in memory at once.
+     * @param pAction Called with the unique id and username of every player.
+     * @return Whether all players were passed, false if some error occurred.
+     */
+    boolean forEachPlayer(@NotNull BiConsumer<UUID, String> pAction);
+
 }
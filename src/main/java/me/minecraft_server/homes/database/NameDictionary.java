@@ -0,0 +1,111 @@
+package me.minecraft_server.homes.database;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import me.minecraft_server.homes.database.dialect.ISQLDialect;
+import me.minecraft_server.homes.database.dialect.SQLTemplate;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Maps names, like servers or worlds, to the small ids they are stored as.
+ * The whole dictionary is kept in memory, so every name exists only once on the heap.
+ * Ids are only added, never changed or removed, so cached ids are always valid.
+ */
+@SuppressWarnings({"SqlNoDataSourceInspection", "SqlResolve"})
+public class NameDictionary {
+
+    private @NotNull final String mTable;
+
+    private @NotNull final String mLoadStatement;
+
+    private @NotNull final SQLTemplate mInsertStatement;
+
+    private @NotNull final String mSelectStatement;
+
+    private @NotNull final BiMap<Short, String> mNames = HashBiMap.create();
+
+    /**
+     * Creates a dictionary of a table.
+     * @param pTable The table with the names.
+     * @param pIdColumn The id column of the table, the name column is always called name.
+     * @param pDialect The dialect to add names with.
+     */
+    public NameDictionary(@NotNull final String pTable, @NotNull final String pIdColumn, @NotNull final ISQLDialect pDialect) {
+        mTable = pTable;
+        mLoadStatement = "SELECT `" + pIdColumn + "`, `name` FROM `" + pTable + "`;";
+        mInsertStatement = pDialect.insertIgnore(pTable, List.of("name"), List.of("name"));
+        mSelectStatement = "SELECT `" + pIdColumn + "` FROM `" + pTable + "` WHERE `name` = ?;";
+    }
+
+    /**
+     * Loads all names, names that are already known are kept.
+     * @param pConnection The connection to load with.
+     */
+    public void load(@NotNull final Connection pConnection) throws SQLException {
+        try (final var statement = pConnection.prepareStatement(mLoadStatement);
+             final var result = statement.executeQuery()) {
+            synchronized (mNames) {
+                while (result.next())
+                    mNames.putIfAbsent(result.getShort(1), result.getString(2).intern());
+            }
+        }
+    }
+
+    /**
+     * Gets the name of an id. Ids that are unknown, because another server added them, are loaded.
+     * @param pConnection The connection to load unknown ids with.
+     * @param pId The id of the name.
+     * @return The name.
+     * @throws SQLException If the id does not exist.
+     */
+    public @NotNull String getName(@NotNull final Connection pConnection, final short pId) throws SQLException {
+        synchronized (mNames) {
+            final var name = mNames.get(pId);
+            if (name != null)
+                return name;
+        }
+        load(pConnection);
+        synchronized (mNames) {
+            final var name = mNames.get(pId);
+            if (name == null)
+                throw new SQLException("Unknown id " + pId + " in " + mTable + ".");
+            return name;
+        }
+    }
+
+    /**
+     * Gets the id of a name, unknown names are added.
+     * NOTE: Must not be called inside a transaction, since the id is cached even if the transaction is rolled back.
+     * @param pConnection The connection to add unknown names with.
+     * @param pName The name.
+     * @return The id of the name.
+     */
+    public short getId(@NotNull final Connection pConnection, @NotNull final String pName) throws SQLException {
+        synchronized (mNames) {
+            final var id = mNames.inverse().get(pName);
+            if (id != null)
+                return id;
+        }
+        try (final var statement = pConnection.prepareStatement(mInsertStatement.getSql())) {
+            mInsertStatement.setString(statement, 0, pName);
+            statement.executeUpdate();
+        }
+        try (final var statement = pConnection.prepareStatement(mSelectStatement)) {
+            statement.setString(1, pName);
+            try (final var result = statement.executeQuery()) {
+                if (!result.next())
+                    throw new SQLException("Could not add " + pName + " to " + mTable + ".");
+                final var id = result.getShort(1);
+                synchronized (mNames) {
+                    mNames.putIfAbsent(id, pName.intern());
+                }
+                return id;
+            }
+        }
+    }
+
+}
@@ -3,55 +3,194 @@ package me.minecraft_server.homes.database;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableBiMap;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import me.minecraft_server.homes.database.dialect.ISQLDialect;
+import me.minecraft_server.homes.database.dialect.SQLTemplate;
+import me.minecraft_server.homes.database.migration.SQLEngine;
+import me.minecraft_server.homes.database.migration.SchemaMigrator;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.dto.HomeChange;
 import me.minecraft_server.homes.dto.HomeEntry;
 import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import me.minecraft_server.homes.dto.OwnedHome;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import me.minecraft_server.homes.exceptions.SchemaMigrationException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
 
 @SuppressWarnings({"SqlNoDataSourceInspection", "SqlResolve"})
-public class SQLDatabase implements IDatabase {
+@Accessors(prefix = "m")
+public class SQLDatabase implements IDatabase, IChangeFeed {
 
     @NotNull final SQLDataSource mSource;
 
+    /**
+     * The source of connections for migrations and full table scans, which may take longer than interactive calls.
+     */
+    private @NotNull final SQLDataSource mBulkSource;
+
+    /**
+     * All statements, built once for the dialect of the database.
+     */
+    private @NotNull final SQLStatements mStatements;
+
+    /**
+     * Measures every call, see {@link StatementProfiler}.
+     */
+    @Getter
+    private @NotNull final StatementProfiler mProfiler;
+
+    /**
+     * Server names by their ids in the Servers table.
+     */
+    private @NotNull final NameDictionary mServers;
+
+    /**
+     * World names by their ids in the Worlds table.
+     */
+    private @NotNull final NameDictionary mWorlds;
+
+    /**
+     * Whether changes are appended to the change log, for other servers sharing the database.
+     */
+    private final boolean mRecordChanges;
+
+    /**
+     * The seconds a statement of an interactive call may run before the driver cancels it, zero for no limit.
+     */
+    private final int mQueryTimeout;
+
+    /**
+     * Identifies the changes made through this instance in the change log.
+     */
+    @Getter
+    private final int mOrigin = ThreadLocalRandom.current().nextInt();
+
+    /**
+     * Creates the database with the dialect of its engine.
+     * @param pSource The source of connections.
+     */
     public SQLDatabase(@NotNull final SQLDataSource pSource) {
+        this(pSource, null);
+    }
+
+    /**
+     * Creates the database.
+     * @param pSource The source of connections.
+     * @param pDialect The dialect to use, or null to use the one of the engine.
+     */
+    public SQLDatabase(@NotNull final SQLDataSource pSource, @Nullable final ISQLDialect pDialect) {
+        this(pSource, pDialect, new StatementProfiler());
+    }
+
+    /**
+     * Creates the database.
+     * @param pSource The source of connections.
+     * @param pDialect The dialect to use, or null to use the one of the engine.
+     * @param pProfiler The profiler to measure all calls with.
+     */
+    public SQLDatabase(@NotNull final SQLDataSource pSource, @Nullable final ISQLDialect pDialect, @NotNull final StatementProfiler pProfiler) {
+        this(pSource, pDialect, pProfiler, false);
+    }
+
+    /**
+     * Creates the database.
+     * @param pSource The source of connections.
+     * @param pDialect The dialect to use, or null to use the one of the engine.
+     * @param pProfiler The profiler to measure all calls with.
+     * @param pRecordChanges Whether changes are appended to the change log, see {@link IChangeFeed}.
+     */
+    public SQLDatabase(@NotNull final SQLDataSource pSource, @Nullable final ISQLDialect pDialect, @NotNull final StatementProfiler pProfiler, final boolean pRecordChanges) {
+        this(pSource, pSource, pDialect, pProfiler, pRecordChanges);
+    }
+
+    /**
+     * Creates the database.
+     * @param pSource The source of connections for interactive calls.
+     * @param pBulkSource The source of connections for migrations and full table scans, without the timeouts of interactive calls.
+     * @param pDialect The dialect to use, or null to use the one of the engine.
+     * @param pProfiler The profiler to measure all calls with.
+     * @param pRecordChanges Whether changes are appended to the change log, see {@link IChangeFeed}.
+     */
+    public SQLDatabase(@NotNull final SQLDataSource pSource, @NotNull final SQLDataSource pBulkSource, @Nullable final ISQLDialect pDialect,
+                       @NotNull final StatementProfiler pProfiler, final boolean pRecordChanges) {
+        this(pSource, pBulkSource, pDialect, pProfiler, pRecordChanges, Duration.ZERO);
+    }
+
+    /**
+     * Creates the database.
+     * @param pSource The source of connections for interactive calls.
+     * @param pBulkSource The source of connections for migrations and full table scans, without the timeouts of interactive calls.
+     * @param pDialect The dialect to use, or null to use the one of the engine.
+     * @param pProfiler The profiler to measure all calls with.
+     * @param pRecordChanges Whether changes are appended to the change log, see {@link IChangeFeed}.
+     * @param pQueryTimeout Statements of interactive calls running longer are cancelled, rounded up to seconds. Zero for no limit.
+     */
+    public SQLDatabase(@NotNull final SQLDataSource pSource, @NotNull final SQLDataSource pBulkSource, @Nullable final ISQLDialect pDialect,
+                       @NotNull final StatementProfiler pProfiler, final boolean pRecordChanges, @NotNull final Duration pQueryTimeout) {
         this.mSource = pSource;
-        createTables(); // Prepare database
+        this.mBulkSource = pBulkSource;
+        this.mProfiler = pProfiler;
+        this.mRecordChanges = pRecordChanges;
+        this.mQueryTimeout = (int) Math.min(Integer.MAX_VALUE, (pQueryTimeout.toMillis() + 999L) / 1000L);
+        new SchemaMigrator(pBulkSource).migrate(); // Prepare database
+        final var dialect = pDialect != null ? pDialect : detectDialect(pSource);
+        this.mStatements = new SQLStatements(dialect);
+        this.mServers = new NameDictionary("Servers", "serverId", dialect);
+        this.mWorlds = new NameDictionary("Worlds", "worldId", dialect);
+        loadDictionaries();
+    }
+
+    private static @NotNull ISQLDialect detectDialect(@NotNull final SQLDataSource pSource) {
+        try (final var connection = pSource.getConnection()) {
+            return ISQLDialect.of(SQLEngine.detect(connection.getMetaData()));
+        } catch (SQLException e) {
+            throw new SchemaMigrationException("Could not detect the database engine.", e);
+        }
     }
 
     /**
      * ! This is called at creation of the class !
-     * Creates the required tables:
-     *  Players(!uniqueId(B16), username(VC16))
-     *  Homes(!homeId(Int), name(VC64), server(VC32), world(VC32), x(D), y(D), y(D), yaw(F), pitch(F), !#Players.uniqueId(B16))
+     * Loads all known server and world names, so they don't have to be looked up one by one.
      */
-    private void createTables() {
-        try (final var connection = mSource.getConnection();
-             final var playersTable = connection.prepareStatement("CREATE TABLE IF NOT EXISTS `Players` (`uniqueId` BINARY(16) NOT NULL, `username` VARCHAR(16) NOT NULL, PRIMARY KEY (`uniqueId`));");
-             final var homesTables = connection.prepareStatement("CREATE TABLE IF NOT EXISTS `Homes` (`homeId` INTEGER NOT NULL AUTO_INCREMENT, `name` VARCHAR(64) NOT NULL, `server` VARCHAR(32) NOT NULL, `world` VARCHAR(32) NOT NULL, `x` DOUBLE NOT NULL, `y` DOUBLE NOT NULL, `z` DOUBLE NOT NULL, `yaw` FLOAT NOT NULL, `pitch` FLOAT NOT NULL, `uniqueId` BINARY(16) NOT NULL, CONSTRAINT UC_HomeId UNIQUE (`homeId`), CONSTRAINT UC_OnlyOneName UNIQUE (`name`, `uniqueId`), PRIMARY KEY (`homeId`, `uniqueId`), CONSTRAINT FK_HomeOwner FOREIGN KEY (`uniqueId`) REFERENCES `Players`(`uniqueId`));")) {
-            playersTable.executeUpdate();
-            homesTables.executeUpdate();
+    private void loadDictionaries() {
+        try (final var connection = mProfiler.getConnection(mSource, "loadDictionaries")) {
+            mServers.load(connection);
+            mWorlds.load(connection);
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
     }
 
     @Override
     @SuppressWarnings("DuplicatedCode")
     public @Nullable HomeLocation getHome(@NotNull final UUID pOwner, @NotNull final String pName) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "SELECT `server`, `world`, `x`, `y`, `z`, `yaw`, `pitch` FROM `Homes` WHERE `uniqueId` = ? AND `name` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "getHome(name)");
+             final var statement = prepare(connection, mStatements.mGetHomeByName)) {
             statement.setBytes(1, toBytes(pOwner));
             statement.setString(2, pName);
             try (final var result = statement.executeQuery()) {
                 if (result.next()) {
-                    final var server = result.getString(1);
-                    final var world = result.getString(2);
+                    final var server = mServers.getName(connection, result.getShort(1));
+                    final var world = mWorlds.getName(connection, result.getShort(2));
                     final var x = result.getDouble(3);
                     final var y = result.getDouble(4);
                     final var z = result.getDouble(5);
@@ -61,7 +200,7 @@ public class SQLDatabase implements IDatabase {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
         return null; // Some error occurred or the player has no home with that name.
     }
@@ -69,14 +208,13 @@ public class SQLDatabase implements IDatabase {
     @Override
     @SuppressWarnings("DuplicatedCode")
     public @Nullable HomeLocation getHome(final int pHomeId) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "SELECT `server`, `world`, `x`, `y`, `z`, `yaw`, `pitch` FROM `Homes` WHERE `homeId` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "getHome(id)");
+             final var statement = prepare(connection, mStatements.mGetHomeById)) {
             statement.setInt(1, pHomeId);
             try (final var result = statement.executeQuery()) {
                 if (result.next()) {
-                    final var server = result.getString(1);
-                    final var world = result.getString(2);
+                    final var server = mServers.getName(connection, result.getShort(1));
+                    final var world = mWorlds.getName(connection, result.getShort(2));
                     final var x = result.getDouble(3);
                     final var y = result.getDouble(4);
                     final var z = result.getDouble(5);
@@ -86,23 +224,22 @@ public class SQLDatabase implements IDatabase {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
         return null; // Some error occurred or the player has no home with that name.
     }
 
     @Override
     public @NotNull Map<String, HomeLocation> getHomes(@NotNull UUID pOwner) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "SELECT `name`, `server`, `world`, `x`, `y`, `z`, `yaw`, `pitch` FROM `Homes` WHERE `uniqueId` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "getHomes(owner)");
+             final var statement = prepare(connection, mStatements.mGetHomesByOwner)) {
             statement.setBytes(1, toBytes(pOwner));
             try (final var result = statement.executeQuery()) {
                 final var map = new HashMap<String, HomeLocation>();
                 while (result.next()) {
                     final var name = result.getString(1);
-                    final var server = result.getString(2);
-                    final var world = result.getString(3);
+                    final var server = mServers.getName(connection, result.getShort(2));
+                    final var world = mWorlds.getName(connection, result.getShort(3));
                     final var x = result.getDouble(4);
                     final var y = result.getDouble(5);
                     final var z = result.getDouble(6);
@@ -113,24 +250,69 @@ public class SQLDatabase implements IDatabase {
                 return map;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
+        }
+        return Collections.emptyMap(); // Some error occurred.
+    }
+
+    @Override
+    @SuppressWarnings("DuplicatedCode")
+    public @NotNull Map<Integer, HomeLocation> getHomes(@NotNull Collection<Integer> pHomeIds) {
+        final var homeIds = new ArrayList<>(new LinkedHashSet<>(pHomeIds));
+        final var map = new HashMap<Integer, HomeLocation>();
+        if (homeIds.isEmpty())
+            return map;
+        try (final var connection = mProfiler.getConnection(mSource, "getHomes(ids)")) {
+            // Every chunk but the last has the same size, so the statement is only prepared twice at most.
+            PreparedStatement statement = null;
+            try {
+                for (int start = 0; start < homeIds.size(); start += SQLStatements.BULK_CHUNK_SIZE) {
+                    final var chunk = homeIds.subList(start, Math.min(start + SQLStatements.BULK_CHUNK_SIZE, homeIds.size()));
+                    if (statement == null || chunk.size() < SQLStatements.BULK_CHUNK_SIZE) {
+                        if (statement != null)
+                            statement.close();
+                        statement = prepare(connection, mStatements.getHomesByIds(chunk.size()));
+                    }
+                    final var parameters = SQLStatements.paddedSize(chunk.size());
+                    for (int i = 0; i < parameters; i++)
+                        statement.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    try (final var result = statement.executeQuery()) {
+                        while (result.next()) {
+                            final var homeId = result.getInt(1);
+                            final var server = mServers.getName(connection, result.getShort(2));
+                            final var world = mWorlds.getName(connection, result.getShort(3));
+                            final var x = result.getDouble(4);
+                            final var y = result.getDouble(5);
+                            final var z = result.getDouble(6);
+                            final var yaw = result.getFloat(7);
+                            final var pitch = result.getFloat(8);
+                            map.put(homeId, new HomeLocation(x, y, z, yaw, pitch, world, server));
+                        }
+                    }
+                }
+                return map;
+            } finally {
+                if (statement != null)
+                    statement.close();
+            }
+        } catch (SQLException e) {
+            handleException(e);
         }
         return Collections.emptyMap(); // Some error occurred.
     }
 
     @Override
     public @NotNull List<HomeEntry> getHomeEntries(@NotNull UUID pOwner) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "SELECT `homeId`, `name`, `server`, `world`, `x`, `y`, `z`, `yaw`, `pitch` FROM `Homes` WHERE `uniqueId` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "getHomeEntries(owner)");
+             final var statement = prepare(connection, mStatements.mGetHomeEntries)) {
             statement.setBytes(1, toBytes(pOwner));
             try (final var result = statement.executeQuery()) {
                 final var list = new ArrayList<HomeEntry>();
                 while (result.next()) {
                     final var homeId = result.getInt(1);
                     final var name = result.getString(2);
-                    final var server = result.getString(3);
-                    final var world = result.getString(4);
+                    final var server = mServers.getName(connection, result.getShort(3));
+                    final var world = mWorlds.getName(connection, result.getShort(4));
                     final var x = result.getDouble(5);
                     final var y = result.getDouble(6);
                     final var z = result.getDouble(7);
@@ -141,16 +323,80 @@ public class SQLDatabase implements IDatabase {
                 return list;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
         return Collections.emptyList(); // Some error occurred.
     }
 
+    @Override
+    @SuppressWarnings("DuplicatedCode")
+    public @NotNull Map<UUID, List<HomeEntry>> getHomeEntries(@NotNull Collection<UUID> pOwners) {
+        final var owners = new ArrayList<>(new LinkedHashSet<>(pOwners));
+        final var map = new HashMap<UUID, List<HomeEntry>>();
+        if (owners.isEmpty())
+            return map;
+        try (final var connection = mProfiler.getConnection(mSource, "getHomeEntries(owners)")) {
+            // Every chunk but the last has the same size, so the statement is only prepared twice at most.
+            PreparedStatement statement = null;
+            try {
+                for (int start = 0; start < owners.size(); start += SQLStatements.BULK_CHUNK_SIZE) {
+                    final var chunk = owners.subList(start, Math.min(start + SQLStatements.BULK_CHUNK_SIZE, owners.size()));
+                    if (statement == null || chunk.size() < SQLStatements.BULK_CHUNK_SIZE) {
+                        if (statement != null)
+                            statement.close();
+                        statement = prepare(connection, mStatements.getHomeEntriesByOwners(chunk.size()));
+                    }
+                    final var parameters = SQLStatements.paddedSize(chunk.size());
+                    for (int i = 0; i < parameters; i++)
+                        statement.setBytes(i + 1, toBytes(chunk.get(Math.min(i, chunk.size() - 1))));
+                    for (final var owner : chunk)
+                        map.put(owner, new ArrayList<>());
+                    try (final var result = statement.executeQuery()) {
+                        while (result.next()) {
+                            final var owner = toUniqueId(result.getBytes(1));
+                            final var homeId = result.getInt(2);
+                            final var name = result.getString(3);
+                            final var server = mServers.getName(connection, result.getShort(4));
+                            final var world = mWorlds.getName(connection, result.getShort(5));
+                            final var x = result.getDouble(6);
+                            final var y = result.getDouble(7);
+                            final var z = result.getDouble(8);
+                            final var yaw = result.getFloat(9);
+                            final var pitch = result.getFloat(10);
+                            map.get(owner).add(new HomeEntry(homeId, name, new HomeLocation(x, y, z, yaw, pitch, world, server)));
+                        }
+                    }
+                }
+                return map;
+            } finally {
+                if (statement != null)
+                    statement.close();
+            }
+        } catch (SQLException e) {
+            handleException(e);
+        }
+        return Collections.emptyMap(); // Some error occurred.
+    }
+
+    @Override
+    public @NotNull HomesVersion getHomesVersion(@NotNull UUID pOwner) {
+        try (final var connection = mProfiler.getConnection(mSource, "getHomesVersion");
+             final var statement = prepare(connection, mStatements.mGetHomesVersion)) {
+            statement.setBytes(1, toBytes(pOwner));
+            try (final var result = statement.executeQuery()) {
+                if (result.next())
+                    return new HomesVersion(result.getInt(1), result.getInt(2));
+            }
+        } catch (SQLException e) {
+            handleException(e);
+        }
+        return HomesVersion.UNKNOWN; // Some error occurred.
+    }
+
     @Override
     public @NotNull BiMap<@NotNull Integer, @NotNull String> getPlayerMappedHomes(@NotNull UUID pOwner) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "SELECT `homeId`, `name` FROM `Homes` WHERE `uniqueId` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "getPlayerMappedHomes");
+             final var statement = prepare(connection, mStatements.mGetMappedHomes)) {
             statement.setBytes(1, toBytes(pOwner));
             try (final var result = statement.executeQuery()) {
                 final BiMap<Integer, String> map = HashBiMap.create();
@@ -159,145 +405,206 @@ public class SQLDatabase implements IDatabase {
                 return map;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
         return ImmutableBiMap.of(); // Some error occurred.
     }
 
     @Override
     @SuppressWarnings("DuplicatedCode")
-    public boolean addHome(@NotNull UUID pOwner, @NotNull String pName, @NotNull HomeLocation pLocation) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "INSERT IGNORE INTO `Homes` (`name`, `server`, `world`, `x`, `y`, `z`, `yaw`, `pitch`, `uniqueId`) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);")) {
-            statement.setString(1, pName);
-            statement.setString(2, pLocation.getServer());
-            statement.setString(3, pLocation.getWorld());
-            statement.setDouble(4, pLocation.getX());
-            statement.setDouble(5, pLocation.getY());
-            statement.setDouble(6, pLocation.getZ());
-            statement.setFloat(7, pLocation.getYaw());
-            statement.setFloat(8, pLocation.getPitch());
-            statement.setBytes(9, toBytes(pOwner));
-            return statement.executeUpdate() > 0;
+    public @Nullable Integer addHome(@NotNull UUID pOwner, @NotNull String pName, @NotNull HomeLocation pLocation) {
+        try (final var connection = mProfiler.getConnection(mSource, "addHome");
+             final var statement = prepare(connection, mStatements.mInsertHome.getSql(), Statement.RETURN_GENERATED_KEYS)) {
+            bindHome(mStatements.mInsertHome, connection, statement, pOwner, pName, pLocation);
+            return writeHome(connection, statement, pOwner, pName, true);
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
-        return false; // Some error occurred.
+        return null; // Some error occurred.
     }
 
     @Override
     @SuppressWarnings("DuplicatedCode")
-    public boolean setHome(@NotNull UUID pOwner, @NotNull String pName, @NotNull HomeLocation pLocation) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "INSERT INTO `Homes` (`name`, `server`, `world`, `x`, `y`, `z`, `yaw`, `pitch`, `uniqueId`) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)" +
-                             "ON DUPLICATE KEY UPDATE `server` = ?, `world` = ?, `x` = ?, `y` = ?, `z` = ?, `yaw` = ?, `pitch` = ?;")) {
-            statement.setString(1, pName);
-            statement.setString(2, pLocation.getServer());
-            statement.setString(3, pLocation.getWorld());
-            statement.setDouble(4, pLocation.getX());
-            statement.setDouble(5, pLocation.getY());
-            statement.setDouble(6, pLocation.getZ());
-            statement.setFloat(7, pLocation.getYaw());
-            statement.setFloat(8, pLocation.getPitch());
-            statement.setBytes(9, toBytes(pOwner));
-            statement.setString(10, pLocation.getServer());
-            statement.setString(11, pLocation.getWorld());
-            statement.setDouble(12, pLocation.getX());
-            statement.setDouble(13, pLocation.getY());
-            statement.setDouble(14, pLocation.getZ());
-            statement.setFloat(15, pLocation.getYaw());
-            statement.setFloat(16, pLocation.getPitch());
-            return statement.executeUpdate() > 0;
+    public @Nullable Integer setHome(@NotNull UUID pOwner, @NotNull String pName, @NotNull HomeLocation pLocation) {
+        final var returnsId = mStatements.mUpsertHomeReturningId != null;
+        final var template = returnsId ? mStatements.mUpsertHomeReturningId : mStatements.mUpsertHome;
+        try (final var connection = mProfiler.getConnection(mSource, "setHome");
+             final var statement = returnsId ? prepare(connection, template.getSql(), Statement.RETURN_GENERATED_KEYS) : prepare(connection, template.getSql())) {
+            bindHome(template, connection, statement, pOwner, pName, pLocation);
+            return writeHome(connection, statement, pOwner, pName, returnsId);
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
-        return false; // Error occurred.
+        return null; // Error occurred.
     }
 
     @Override
     public boolean updateHome(int pHomeId, @NotNull HomeLocation pLocation) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "UPDATE `Homes` SET `server` = ?, `world` = ?, `x` = ?, `y` = ?, `z` = ?, `yaw` = ?, `pitch` = ? WHERE `homeId` = ?;")) {
-            statement.setString(1, pLocation.getServer());
-            statement.setString(2, pLocation.getWorld());
-            statement.setDouble(3, pLocation.getX());
-            statement.setDouble(4, pLocation.getY());
-            statement.setDouble(5, pLocation.getZ());
-            statement.setFloat(6, pLocation.getYaw());
-            statement.setFloat(7, pLocation.getPitch());
-            statement.setInt(8, pHomeId);
-            return statement.executeUpdate() > 0;
+        try (final var connection = mProfiler.getConnection(mSource, "updateHome");
+             final var statement = prepare(connection, mStatements.mUpdateHome.getSql())) {
+            final var template = mStatements.mUpdateHome;
+            template.setInt(statement, bindLocation(template, connection, statement, 0, pLocation), pHomeId);
+            return executeRecorded(connection, statement, HomeChange.home(0L, mOrigin, pHomeId));
+        } catch (SQLException e) {
+            handleException(e);
+        }
+        return false; // Error occurred.
+    }
+
+    /**
+     * Inserts or updates multiple homes in a single transaction using one JDBC batch.
+     * @param pHomes The homes to insert or update.
+     * @return A boolean, whether the batch was written successfully. If not, nothing was written.
+     */
+    @SuppressWarnings("DuplicatedCode")
+    public boolean setHomes(@NotNull final Collection<OwnedHome> pHomes) {
+        if (pHomes.isEmpty())
+            return true;
+        try (final var connection = mProfiler.getConnection(mSource, "setHomes")) {
+            // Add unknown names before the transaction starts, the dictionaries can't be rolled back.
+            for (final var home : pHomes) {
+                mServers.getId(connection, home.location().getServer());
+                mWorlds.getId(connection, home.location().getWorld());
+            }
+            connection.setAutoCommit(false);
+            try (final var statement = prepare(connection, mStatements.mUpsertHome.getSql())) {
+                for (final var home : pHomes) {
+                    bindHome(mStatements.mUpsertHome, connection, statement, home.owner(), home.name(), home.location());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                recordChanges(connection, pHomes.stream().map(OwnedHome::owner).distinct().map(owner -> HomeChange.homes(0L, mOrigin, owner)).toList());
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
+        }
+        return false; // Error occurred.
+    }
+
+    /**
+     * Updates the locations of multiple homes in a single transaction using one JDBC batch.
+     * @param pLocations The new locations mapped by home id.
+     * @return A boolean, whether the batch was written successfully. If not, nothing was written.
+     */
+    public boolean updateHomes(@NotNull final Map<Integer, HomeLocation> pLocations) {
+        if (pLocations.isEmpty())
+            return true;
+        try (final var connection = mProfiler.getConnection(mSource, "updateHomes")) {
+            // Add unknown names before the transaction starts, the dictionaries can't be rolled back.
+            for (final var location : pLocations.values()) {
+                mServers.getId(connection, location.getServer());
+                mWorlds.getId(connection, location.getWorld());
+            }
+            connection.setAutoCommit(false);
+            try (final var statement = prepare(connection, mStatements.mUpdateHome.getSql())) {
+                final var template = mStatements.mUpdateHome;
+                for (final var entry : pLocations.entrySet()) {
+                    template.setInt(statement, bindLocation(template, connection, statement, 0, entry.getValue()), entry.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                recordChanges(connection, pLocations.keySet().stream().map(homeId -> HomeChange.home(0L, mOrigin, homeId)).toList());
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            handleException(e);
         }
         return false; // Error occurred.
     }
 
     @Override
     public boolean deleteHome(@NotNull UUID pOwner, @NotNull String pName) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "DELETE FROM `Homes` WHERE `uniqueId` = ? AND `name` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "deleteHome(name)");
+             final var statement = prepare(connection, mStatements.mDeleteHomeByName)) {
             statement.setBytes(1, toBytes(pOwner));
             statement.setString(2, pName);
-            return statement.executeUpdate() > 0;
+            return executeRecorded(connection, statement, HomeChange.homes(0L, mOrigin, pOwner));
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
         return false; // Error occurred.
     }
 
     @Override
     public boolean deleteHome(int pHomeId) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "DELETE FROM `Homes` WHERE `homeId` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "deleteHome(id)");
+             final var statement = prepare(connection, mStatements.mDeleteHomeById)) {
             statement.setInt(1, pHomeId);
-            return statement.executeUpdate() > 0;
+            return executeRecorded(connection, statement, HomeChange.home(0L, mOrigin, pHomeId));
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
         return false; // Error occurred.
     }
 
     @Override
     public void registerPlayer(@NotNull UUID pOwner, @NotNull String pUsername) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "INSERT INTO `Players` VALUES (?, ?) ON DUPLICATE KEY UPDATE `username` = ?;")) {
-            statement.setBytes(1, toBytes(pOwner));
-            statement.setString(2, pUsername);
-            statement.setString(3, pUsername);
-            statement.executeUpdate();
+        try (final var connection = mProfiler.getConnection(mSource, "registerPlayer");
+             final var statement = prepare(connection, mStatements.mUpsertPlayer.getSql())) {
+            mStatements.mUpsertPlayer.setBytes(statement, 0, toBytes(pOwner));
+            mStatements.mUpsertPlayer.setString(statement, 1, pUsername);
+            executeRecorded(connection, statement, HomeChange.player(0L, mOrigin, pOwner, pUsername));
+        } catch (SQLException e) {
+            handleException(e);
+        }
+    }
+
+    /**
+     * Registers multiple players in a single transaction using one JDBC batch.
+     * @param pPlayers The usernames of the players mapped by unique id.
+     */
+    @Override
+    public void registerPlayers(@NotNull final Map<UUID, String> pPlayers) {
+        if (pPlayers.isEmpty())
+            return;
+        try (final var connection = mProfiler.getConnection(mSource, "registerPlayers")) {
+            connection.setAutoCommit(false);
+            try (final var statement = prepare(connection, mStatements.mUpsertPlayer.getSql())) {
+                for (final var player : pPlayers.entrySet()) {
+                    mStatements.mUpsertPlayer.setBytes(statement, 0, toBytes(player.getKey()));
+                    mStatements.mUpsertPlayer.setString(statement, 1, player.getValue());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                recordChanges(connection, pPlayers.entrySet().stream().map(player -> HomeChange.player(0L, mOrigin, player.getKey(), player.getValue())).toList());
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
     }
 
     @Override
     public @Nullable String getPlayerName(@NotNull final UUID pUniqueId) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "SELECT `username` FROM `Players` WHERE `uniqueId` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "getPlayerName");
+             final var statement = prepare(connection, mStatements.mGetPlayerName)) {
             statement.setBytes(1, toBytes(pUniqueId));
             try (final var result = statement.executeQuery()) {
                 if (result.next())
                     return result.getString(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
         return null; // Some error occurred or that player is not registered.
     }
 
     @Override
     public @NotNull List<UUID> getPlayerUniqueId(@NotNull final String pUsername) {
-        try (final var connection = mSource.getConnection();
-             final var statement = connection.prepareStatement(
-                     "SELECT `uniqueId` FROM `Players` WHERE `username` = ?;")) {
+        try (final var connection = mProfiler.getConnection(mSource, "getPlayerUniqueId");
+             final var statement = prepare(connection, mStatements.mGetPlayerUniqueIds)) {
             statement.setString(1, pUsername);
             try (final var result = statement.executeQuery()) {
                 final var uniqueIds = new ArrayList<UUID>();
@@ -306,11 +613,251 @@ public class SQLDatabase implements IDatabase {
                 return uniqueIds;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            handleException(e);
         }
         return Collections.emptyList(); // Some error occurred or that player is not registered.
     }
 
+    @Override
+    public boolean forEachPlayer(@NotNull BiConsumer<UUID, String> pAction) {
+        try (final var connection = mProfiler.getConnection(mBulkSource, "forEachPlayer");
+             final var statement = connection.prepareStatement(mStatements.mGetPlayers)) {
+            statement.setFetchSize(SQLStatements.STREAM_FETCH_SIZE);
+            try (final var result = statement.executeQuery()) {
+                while (result.next())
+                    pAction.accept(toUniqueId(result.getBytes(1)), result.getString(2));
+                return true;
+            }
+        } catch (SQLException e) {
+            handleException(e);
+        }
+        return false; // Some error occurred.
+    }
+
+    @Override
+    public long getLatestSequence() {
+        try (final var connection = mProfiler.getConnection(mSource, "getLatestSequence");
+             final var statement = prepare(connection, mStatements.mGetLatestChange);
+             final var result = statement.executeQuery()) {
+            if (result.next())
+                return result.getLong(1);
+        } catch (SQLException e) {
+            handleException(e);
+        }
+        return 0L; // Some error occurred.
+    }
+
+    @Override
+    public @NotNull List<HomeChange> getChanges(final long pAfter, final int pLimit) {
+        try (final var connection = mProfiler.getConnection(mSource, "getChanges");
+             final var statement = prepare(connection, mStatements.mGetChanges)) {
+            statement.setLong(1, pAfter);
+            statement.setInt(2, pLimit);
+            try (final var result = statement.executeQuery()) {
+                final var changes = new ArrayList<HomeChange>();
+                while (result.next()) {
+                    final var owner = result.getBytes(3);
+                    final var homeId = result.getInt(4);
+                    final var hasHomeId = !result.wasNull();
+                    changes.add(new HomeChange(result.getLong(1), result.getInt(2), owner != null ? toUniqueId(owner) : null,
+                            hasHomeId ? homeId : null, result.getString(5)));
+                }
+                return changes;
+            }
+        } catch (SQLException e) {
+            handleException(e);
+        }
+        return Collections.emptyList(); // Some error occurred.
+    }
+
+    @Override
+    public void pruneChanges(@NotNull final Duration pRetention) {
+        try (final var connection = mProfiler.getConnection(mSource, "pruneChanges")) {
+            final long last;
+            try (final var statement = prepare(connection, mStatements.mGetPrunableChange)) {
+                statement.setLong(1, System.currentTimeMillis() - pRetention.toMillis());
+                try (final var result = statement.executeQuery()) {
+                    if (!result.next() || (last = result.getLong(1)) == 0L)
+                        return;
+                }
+            }
+            // Deleting by sequence only locks the deleted rows, in chunks
+            try (final var statement = prepare(connection, mStatements.mDeleteChanges)) {
+                statement.setLong(1, last);
+                while (statement.executeUpdate() > 0)
+                    ; // Next chunk
+            }
+        } catch (SQLException e) {
+            handleException(e);
+        }
+    }
+
+    /**
+     * Executes a write, and if it changed anything, appends its change to the change log in the same transaction.
+     * @param pConnection The connection of the statement, in auto-commit mode.
+     * @param pStatement The bound statement.
+     * @param pChange The change to append, the sequence is assigned by the database.
+     * @return Whether the write changed anything.
+     */
+    private boolean executeRecorded(@NotNull final Connection pConnection, @NotNull final PreparedStatement pStatement, @NotNull final HomeChange pChange) throws SQLException {
+        if (!mRecordChanges)
+            return pStatement.executeUpdate() > 0;
+        pConnection.setAutoCommit(false);
+        try {
+            final var changed = pStatement.executeUpdate() > 0;
+            if (changed)
+                recordChanges(pConnection, List.of(pChange));
+            pConnection.commit();
+            return changed;
+        } catch (SQLException e) {
+            pConnection.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Executes an insert or upsert of a home and gets its id on the same connection, recording the change if enabled.
+     * Engines don't agree on the generated key of a row that was updated instead, so it is only used by statements that define it,
+     * otherwise the id is selected.
+     * @return The id of the home, or null if nothing was written.
+     */
+    private @Nullable Integer writeHome(@NotNull final Connection pConnection, @NotNull final PreparedStatement pStatement,
+                                        @NotNull final UUID pOwner, @NotNull final String pName, final boolean pGeneratedKey) throws SQLException {
+        if (mRecordChanges)
+            pConnection.setAutoCommit(false);
+        try {
+            Integer homeId = null;
+            if (pStatement.executeUpdate() > 0) {
+                if (pGeneratedKey) {
+                    try (final var keys = pStatement.getGeneratedKeys()) {
+                        if (keys.next())
+                            homeId = keys.getInt(1);
+                    }
+                }
+                if (homeId == null)
+                    homeId = getHomeId(pConnection, pOwner, pName);
+                if (homeId != null)
+                    recordChanges(pConnection, List.of(HomeChange.home(0L, mOrigin, pOwner, homeId)));
+            }
+            if (mRecordChanges)
+                pConnection.commit();
+            return homeId;
+        } catch (SQLException e) {
+            if (mRecordChanges)
+                pConnection.rollback();
+            throw e;
+        }
+    }
+
+    private @Nullable Integer getHomeId(@NotNull final Connection pConnection, @NotNull final UUID pOwner, @NotNull final String pName) throws SQLException {
+        try (final var statement = prepare(pConnection, mStatements.mGetHomeId)) {
+            statement.setBytes(1, toBytes(pOwner));
+            statement.setString(2, pName);
+            try (final var result = statement.executeQuery()) {
+                return result.next() ? result.getInt(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Appends changes to the change log, if changes are recorded.
+     * @param pConnection The connection, usually in the transaction of the write.
+     * @param pChanges The changes to append, the sequences are assigned by the database.
+     */
+    private void recordChanges(@NotNull final Connection pConnection, @NotNull final Collection<HomeChange> pChanges) throws SQLException {
+        if (!mRecordChanges || pChanges.isEmpty())
+            return;
+        try (final var statement = prepare(pConnection, mStatements.mInsertChange)) {
+            final var now = System.currentTimeMillis();
+            for (final var change : pChanges) {
+                statement.setInt(1, change.origin());
+                statement.setBytes(2, change.owner() != null ? toBytes(change.owner()) : null);
+                if (change.homeId() != null)
+                    statement.setInt(3, change.homeId());
+                else
+                    statement.setNull(3, Types.INTEGER);
+                statement.setString(4, change.username());
+                statement.setLong(5, now);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Binds the columns of a home insert: the owner, the name and the location.
+     */
+    private void bindHome(@NotNull final SQLTemplate pTemplate, @NotNull final Connection pConnection, @NotNull final PreparedStatement pStatement,
+                          @NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) throws SQLException {
+        pTemplate.setBytes(pStatement, 0, toBytes(pOwner));
+        pTemplate.setString(pStatement, 1, pName);
+        bindLocation(pTemplate, pConnection, pStatement, 2, pLocation);
+    }
+
+    /**
+     * Binds the columns of a location.
+     * @return The index of the next column.
+     */
+    private int bindLocation(@NotNull final SQLTemplate pTemplate, @NotNull final Connection pConnection, @NotNull final PreparedStatement pStatement,
+                             final int pColumn, @NotNull final HomeLocation pLocation) throws SQLException {
+        pTemplate.setShort(pStatement, pColumn, mServers.getId(pConnection, pLocation.getServer()));
+        pTemplate.setShort(pStatement, pColumn + 1, mWorlds.getId(pConnection, pLocation.getWorld()));
+        pTemplate.setDouble(pStatement, pColumn + 2, pLocation.getX());
+        pTemplate.setDouble(pStatement, pColumn + 3, pLocation.getY());
+        pTemplate.setDouble(pStatement, pColumn + 4, pLocation.getZ());
+        pTemplate.setFloat(pStatement, pColumn + 5, pLocation.getYaw());
+        pTemplate.setFloat(pStatement, pColumn + 6, pLocation.getPitch());
+        return pColumn + 7;
+    }
+
+    /**
+     * Prepares a statement of an interactive call, the driver cancels it once it runs longer than the query timeout.
+     */
+    private @NotNull PreparedStatement prepare(@NotNull final Connection pConnection, @NotNull final String pSql) throws SQLException {
+        return withTimeout(pConnection.prepareStatement(pSql));
+    }
+
+    private @NotNull PreparedStatement prepare(@NotNull final Connection pConnection, @NotNull final String pSql, final int pGeneratedKeys) throws SQLException {
+        return withTimeout(pConnection.prepareStatement(pSql, pGeneratedKeys));
+    }
+
+    private @NotNull PreparedStatement withTimeout(@NotNull final PreparedStatement pStatement) throws SQLException {
+        if (mQueryTimeout > 0) {
+            try {
+                pStatement.setQueryTimeout(mQueryTimeout);
+            } catch (SQLException e) {
+                pStatement.close();
+                throw e;
+            }
+        }
+        return pStatement;
+    }
+
+    /**
+     * Prints errors, but reports a database that can't be reached or does not answer in time to the caller.
+     * @param pException The error.
+     * @throws DatabaseUnavailableException If the database is unavailable.
+     */
+    private static void handleException(@NotNull final SQLException pException) {
+        if (isUnavailable(pException))
+            throw new DatabaseUnavailableException("The database is unavailable.", pException);
+        pException.printStackTrace();
+    }
+
+    /**
+     * Checks whether an error means the database is unavailable, rather than the statement being wrong.
+     * @param pException The error.
+     * @return Whether the database is unavailable.
+     */
+    static boolean isUnavailable(@NotNull final SQLException pException) {
+        final var state = pException.getSQLState();
+        return pException instanceof SQLTransientConnectionException // Includes timeouts waiting for a pooled connection
+                || pException instanceof SQLNonTransientConnectionException
+                || pException instanceof SQLRecoverableException // Includes a lost connection to MySQL
+                || pException instanceof SQLTimeoutException
+                || (state != null && state.startsWith("08")); // Connection exception
+    }
+
     private static byte[] toBytes(@NotNull final UUID pUniqueId) {
         byte[] bytes = new byte[16];
         ByteBuffer.wrap(bytes)
@@ -0,0 +1,125 @@
+package me.minecraft_server.homes.database;
+
+import me.minecraft_server.homes.database.dialect.ISQLDialect;
+import me.minecraft_server.homes.database.dialect.SQLTemplate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * All statements of the {@link SQLDatabase}, built once for a dialect.
+ * Values of the templates are bound by the index of their column in the lists below.
+ */
+@SuppressWarnings({"SqlNoDataSourceInspection", "SqlResolve"})
+final class SQLStatements {
+
+    /**
+     * The maximum amount of values bound to a single {@code IN (...)} query.
+     */
+    static final int BULK_CHUNK_SIZE = 512;
+
+    /**
+     * The amount of rows fetched at once from results that are streamed.
+     */
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * The columns of a location, followed by the home id in updates.
+     */
+    private static final List<String> LOCATION = List.of("serverId", "worldId", "x", "y", "z", "yaw", "pitch");
+
+    /**
+     * The columns of a home insert: the owner, the name and the location.
+     */
+    private static final List<String> HOME = List.of("uniqueId", "name", "serverId", "worldId", "x", "y", "z", "yaw", "pitch");
+
+    private static final List<String> HOME_KEY = List.of("uniqueId", "name");
+
+    final @NotNull String mGetHomeByName;
+    final @NotNull String mGetHomeById;
+    final @NotNull String mGetHomesByOwner;
+    final @NotNull String mGetHomeEntries;
+    final @NotNull String mGetMappedHomes;
+    final @NotNull String mGetHomesVersion;
+    final @NotNull String mGetHomeId;
+    final @NotNull SQLTemplate mInsertHome;
+    final @NotNull SQLTemplate mUpsertHome;
+    /**
+     * The upsert of a single home that generates the id of the home, null if the engine can't.
+     */
+    final @Nullable SQLTemplate mUpsertHomeReturningId;
+    final @NotNull SQLTemplate mUpdateHome;
+    final @NotNull String mDeleteHomeByName;
+    final @NotNull String mDeleteHomeById;
+    final @NotNull SQLTemplate mUpsertPlayer;
+    final @NotNull String mGetPlayerName;
+    final @NotNull String mGetPlayerUniqueIds;
+    final @NotNull String mGetPlayers;
+    final @NotNull String mInsertChange;
+    final @NotNull String mGetChanges;
+    final @NotNull String mGetLatestChange;
+    final @NotNull String mGetPrunableChange;
+    final @NotNull String mDeleteChanges;
+
+    /**
+     * Bulk queries by the amount of parameters, one for every power of two up to the chunk size.
+     */
+    private final @NotNull String[] mGetHomesByIds;
+    private final @NotNull String[] mGetHomeEntriesByOwners;
+
+    SQLStatements(@NotNull final ISQLDialect pDialect) {
+        final var location = ISQLDialect.columns(LOCATION);
+        mGetHomeByName = "SELECT " + location + " FROM `Homes` WHERE `uniqueId` = ? AND `name` = ?;";
+        mGetHomeById = "SELECT " + location + " FROM `Homes` WHERE `homeId` = ?;";
+        mGetHomesByOwner = "SELECT `name`, " + location + " FROM `Homes` WHERE `uniqueId` = ?;";
+        mGetHomeEntries = "SELECT `homeId`, `name`, " + location + " FROM `Homes` WHERE `uniqueId` = ?;";
+        mGetMappedHomes = "SELECT `homeId`, `name` FROM `Homes` WHERE `uniqueId` = ?;";
+        mGetHomesVersion = "SELECT COUNT(*), COALESCE(MAX(`homeId`), 0) FROM `Homes` WHERE `uniqueId` = ?;";
+        mGetHomeId = "SELECT `homeId` FROM `Homes` WHERE `uniqueId` = ? AND `name` = ?;";
+        mInsertHome = pDialect.insertIgnore("Homes", HOME_KEY, HOME);
+        mUpsertHome = pDialect.upsert("Homes", HOME_KEY, HOME);
+        mUpsertHomeReturningId = pDialect.upsertReturningId("Homes", "homeId", HOME_KEY, HOME);
+        mUpdateHome = SQLTemplate.of("UPDATE `Homes` SET " + String.join(", ", LOCATION.stream().map(column -> "`" + column + "` = ?").toList()) +
+                " WHERE `homeId` = ?;", LOCATION.size() + 1);
+        mDeleteHomeByName = "DELETE FROM `Homes` WHERE `uniqueId` = ? AND `name` = ?;";
+        mDeleteHomeById = "DELETE FROM `Homes` WHERE `homeId` = ?;";
+        mUpsertPlayer = pDialect.upsert("Players", List.of("uniqueId"), List.of("uniqueId", "username"));
+        mGetPlayerName = "SELECT `username` FROM `Players` WHERE `uniqueId` = ?;";
+        mGetPlayerUniqueIds = "SELECT `uniqueId` FROM `Players` WHERE `username` = ?;";
+        mGetPlayers = "SELECT `uniqueId`, `username` FROM `Players`;";
+        mInsertChange = "INSERT INTO `HomeChanges` (`origin`, `uniqueId`, `homeId`, `username`, `createdAt`) VALUES (?, ?, ?, ?, ?);";
+        mGetChanges = "SELECT `sequence`, `origin`, `uniqueId`, `homeId`, `username` FROM `HomeChanges` WHERE `sequence` > ? ORDER BY `sequence` LIMIT ?;";
+        mGetLatestChange = "SELECT MAX(`sequence`) FROM `HomeChanges`;";
+        mGetPrunableChange = "SELECT MAX(`sequence`) FROM `HomeChanges` WHERE `createdAt` < ?;";
+        mDeleteChanges = "DELETE FROM `HomeChanges` WHERE `sequence` <= ? LIMIT 10000;";
+
+        final var sizes = Integer.numberOfTrailingZeros(BULK_CHUNK_SIZE) + 1;
+        mGetHomesByIds = new String[sizes];
+        mGetHomeEntriesByOwners = new String[sizes];
+        for (int i = 0; i < sizes; i++) {
+            final var parameters = String.join(", ", Collections.nCopies(1 << i, "?"));
+            mGetHomesByIds[i] = "SELECT `homeId`, " + location + " FROM `Homes` WHERE `homeId` IN (" + parameters + ");";
+            mGetHomeEntriesByOwners[i] = "SELECT `uniqueId`, `homeId`, `name`, " + location + " FROM `Homes` WHERE `uniqueId` IN (" + parameters + ");";
+        }
+    }
+
+    /**
+     * Gets the amount of parameters a bulk query for some values has. Unused parameters are bound to the last value again.
+     * @param pCount The amount of values, at most the chunk size.
+     * @return The next power of two.
+     */
+    static int paddedSize(final int pCount) {
+        return pCount <= 1 ? 1 : Integer.highestOneBit(pCount - 1) << 1;
+    }
+
+    @NotNull String getHomesByIds(final int pCount) {
+        return mGetHomesByIds[Integer.numberOfTrailingZeros(paddedSize(pCount))];
+    }
+
+    @NotNull String getHomeEntriesByOwners(final int pCount) {
+        return mGetHomeEntriesByOwners[Integer.numberOfTrailingZeros(paddedSize(pCount))];
+    }
+
+}
@@ -0,0 +1,601 @@
+package me.minecraft_server.homes.database;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.BiMap;
+import me.minecraft_server.homes.dto.HomeChange;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import me.minecraft_server.homes.dto.OwnedHome;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Buffers home writes in front of a {@link SQLDatabase} and flushes them in JDBC batches.
+ * Pending writes are coalesced per home, so only the latest location of a home is written.
+ * Reads are answered from pending writes if possible, otherwise the pending writes they may depend on are flushed first.
+ * Pending writes are indexed by owner, using the owners of home ids learned from reads, so a read only flushes the writes of its homes.
+ * Deletions and additions are executed directly, because their result depends on the current state of the database.
+ * Writes the database rejects are dropped and reported, so caches that show them as written can be invalidated.
+ */
+public class WriteBehindDatabase implements IDatabase, Closeable {
+
+    private @NotNull final SQLDatabase mDelegate;
+
+    private @NotNull final ScheduledExecutorService mScheduler;
+
+    private @NotNull final Logger mLogger;
+
+    /**
+     * Told about every write the database rejected, as a change of the home or the homes of its owner.
+     */
+    private volatile @NotNull Consumer<HomeChange> mDroppedWriteListener = change -> { };
+
+    /**
+     * Pending writes keyed by {@link NameKey} or home id, ordered by their sequence.
+     */
+    private @NotNull final LinkedHashMap<Object, PendingWrite> mPending = new LinkedHashMap<>();
+
+    /**
+     * The keys of the writes the flush in progress took, guarded by {@link #mPending}.
+     */
+    private @NotNull final Set<Object> mFlushing = new HashSet<>();
+
+    /**
+     * The keys of pending writes and writes in flight by owner, guarded by {@link #mPending}.
+     * Home ids are indexed by the owner learned for them, if it is known when they are queued.
+     */
+    private @NotNull final Map<UUID, Set<Object>> mOwnerKeys = new HashMap<>();
+
+    /**
+     * The names of the home ids in {@link #mOwnerKeys}, guarded by {@link #mPending}.
+     */
+    private @NotNull final Map<Integer, NameKey> mIndexedHomes = new HashMap<>();
+
+    /**
+     * The home ids of pending writes and writes in flight with an unknown owner, every read by owner or name depends on them.
+     * Guarded by {@link #mPending}.
+     */
+    private @NotNull final Set<Integer> mUnknownHomes = new HashSet<>();
+
+    /**
+     * The owners and names of home ids learned from reads, ids are never reused and homes are never renamed.
+     */
+    private @NotNull final Cache<Integer, NameKey> mHomeNames = CacheBuilder.newBuilder().maximumSize(100_000L).build();
+
+    /**
+     * The sequence of the latest write, guarded by {@link #mPending}.
+     */
+    private long mSequence;
+
+    /**
+     * Held while flushing, so batches reach the database in the order they were taken.
+     */
+    private @NotNull final Object mFlushLock = new Object();
+
+    /**
+     * Creates a write behind layer and starts flushing periodically.
+     * @param pDelegate The database to write to.
+     * @param pFlushInterval The interval between two flushes.
+     */
+    public WriteBehindDatabase(@NotNull final SQLDatabase pDelegate, @NotNull final Duration pFlushInterval) {
+        this(pDelegate, pFlushInterval, Logger.getLogger(WriteBehindDatabase.class.getName()));
+    }
+
+    /**
+     * Creates a write behind layer and starts flushing periodically.
+     * @param pDelegate The database to write to.
+     * @param pFlushInterval The interval between two flushes.
+     * @param pLogger The logger to report dropped writes to.
+     */
+    public WriteBehindDatabase(@NotNull final SQLDatabase pDelegate, @NotNull final Duration pFlushInterval, @NotNull final Logger pLogger) {
+        mDelegate = pDelegate;
+        mLogger = pLogger;
+        mScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "Homes-WriteBehind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final var interval = pFlushInterval.toMillis();
+        mScheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets who is told about writes the database rejected, e.g. to invalidate the cached homes that show them as written.
+     * @param pListener Told about the home of a rejected update or the owner of a rejected upsert, on the flushing thread.
+     */
+    public void setDroppedWriteListener(@NotNull final Consumer<HomeChange> pListener) {
+        mDroppedWriteListener = pListener;
+    }
+
+    /**
+     * Queues a write, replacing any pending write with the same key.
+     * The key is moved to the end, so writes to the same home keep their order.
+     */
+    private void enqueue(@NotNull final Object pKey, @NotNull final LongFunction<PendingWrite> pWrite) {
+        synchronized (mPending) {
+            if (mPending.remove(pKey) == null && !mFlushing.contains(pKey))
+                index(pKey);
+            mPending.put(pKey, pWrite.apply(++mSequence));
+        }
+    }
+
+    private @Nullable PendingWrite getPending(@NotNull final Object pKey) {
+        synchronized (mPending) {
+            return mPending.get(pKey);
+        }
+    }
+
+    private @Nullable PendingWrite removePending(@NotNull final Object pKey) {
+        synchronized (mPending) {
+            final var write = mPending.remove(pKey);
+            if (write != null && !mFlushing.contains(pKey))
+                unindex(pKey);
+            return write;
+        }
+    }
+
+    /**
+     * Adds the key of a write that is neither pending nor in flight to the index, guarded by {@link #mPending}.
+     */
+    private void index(@NotNull final Object pKey) {
+        if (pKey instanceof NameKey name) {
+            mOwnerKeys.computeIfAbsent(name.owner(), owner -> new HashSet<>()).add(name);
+        } else if (pKey instanceof Integer homeId) {
+            final var name = mHomeNames.getIfPresent(homeId);
+            if (name == null) {
+                mUnknownHomes.add(homeId);
+                return;
+            }
+            mIndexedHomes.put(homeId, name);
+            mOwnerKeys.computeIfAbsent(name.owner(), owner -> new HashSet<>()).add(homeId);
+        }
+    }
+
+    /**
+     * Removes the key of a write that is no longer pending nor in flight from the index, guarded by {@link #mPending}.
+     */
+    private void unindex(@NotNull final Object pKey) {
+        final UUID owner;
+        if (pKey instanceof NameKey name) {
+            owner = name.owner();
+        } else {
+            final var name = mIndexedHomes.remove(pKey);
+            if (name == null) {
+                mUnknownHomes.remove(pKey);
+                return;
+            }
+            owner = name.owner();
+        }
+        final var keys = mOwnerKeys.get(owner);
+        if (keys != null && keys.remove(pKey) && keys.isEmpty())
+            mOwnerKeys.remove(owner);
+    }
+
+    /**
+     * Remembers the owner and name of a home id, pending writes of it with an unknown owner are indexed by it from now on.
+     */
+    private void learn(final int pHomeId, @NotNull final UUID pOwner, @NotNull final String pName) {
+        final var name = new NameKey(pOwner, pName);
+        mHomeNames.put(pHomeId, name);
+        synchronized (mPending) {
+            if (mUnknownHomes.remove(pHomeId)) {
+                mIndexedHomes.put(pHomeId, name);
+                mOwnerKeys.computeIfAbsent(pOwner, owner -> new HashSet<>()).add(pHomeId);
+            }
+        }
+    }
+
+    private void learn(@NotNull final UUID pOwner, @NotNull final Collection<HomeEntry> pEntries) {
+        for (final var entry : pEntries)
+            learn(entry.homeId(), pOwner, entry.name());
+    }
+
+    /**
+     * The keys of pending writes and writes in flight reads of homes of some owners depend on:
+     * their homes and the homes by id with an unknown owner.
+     */
+    private @NotNull Set<Object> ownerKeys(@NotNull final Collection<UUID> pOwners) {
+        synchronized (mPending) {
+            final var keys = new HashSet<Object>(mUnknownHomes);
+            for (final var owner : pOwners) {
+                final var owned = mOwnerKeys.get(owner);
+                if (owned != null)
+                    keys.addAll(owned);
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * The keys of pending writes and writes in flight a read of a home by name depends on:
+     * the home by name and by id, and the homes by id with an unknown owner.
+     */
+    private @NotNull Set<Object> nameKeys(@NotNull final NameKey pName) {
+        synchronized (mPending) {
+            final var keys = new HashSet<Object>(mUnknownHomes);
+            final var owned = mOwnerKeys.get(pName.owner());
+            if (owned != null) {
+                for (final var key : owned) {
+                    if (key.equals(pName) || pName.equals(mIndexedHomes.get(key)))
+                        keys.add(key);
+                }
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * The keys of pending writes and writes in flight reads of homes by id depend on: these homes by id and by name.
+     * If the name of a home is unknown, every home by name.
+     */
+    private @NotNull Set<Object> homeKeys(@NotNull final Collection<Integer> pHomeIds) {
+        synchronized (mPending) {
+            final var keys = new HashSet<Object>();
+            boolean unknown = false;
+            for (final var homeId : pHomeIds) {
+                if (mIndexedHomes.containsKey(homeId) || mUnknownHomes.contains(homeId))
+                    keys.add(homeId);
+                final var name = mHomeNames.getIfPresent(homeId);
+                if (name == null)
+                    unknown = true;
+                else if (mOwnerKeys.getOrDefault(name.owner(), Set.of()).contains(name))
+                    keys.add(name);
+            }
+            if (unknown) {
+                for (final var owned : mOwnerKeys.values()) {
+                    for (final var key : owned) {
+                        if (key instanceof NameKey)
+                            keys.add(key);
+                    }
+                }
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Writes all pending writes to the database.
+     */
+    public void flush() {
+        synchronized (mPending) {
+            if (mPending.isEmpty() && mFlushing.isEmpty())
+                return;
+        }
+        synchronized (mFlushLock) {
+            final List<Map.Entry<Object, PendingWrite>> writes;
+            synchronized (mPending) {
+                writes = take(new ArrayList<>(mPending.keySet()));
+            }
+            write(writes);
+        }
+    }
+
+    /**
+     * Writes the pending writes of some keys to the database, in the order they were queued.
+     * @param pKeys The keys to write, waits for nothing if none of them has a write pending or in flight.
+     */
+    private void flush(@NotNull final Set<Object> pKeys) {
+        if (pKeys.isEmpty())
+            return;
+        synchronized (mFlushLock) {
+            final List<Map.Entry<Object, PendingWrite>> writes;
+            synchronized (mPending) {
+                writes = take(pKeys);
+            }
+            write(writes);
+        }
+    }
+
+    /**
+     * Takes the pending writes of some keys for a flush, ordered by their sequence. Guarded by {@link #mPending}.
+     */
+    private @NotNull List<Map.Entry<Object, PendingWrite>> take(@NotNull final Collection<Object> pKeys) {
+        final var writes = new ArrayList<Map.Entry<Object, PendingWrite>>();
+        for (final var key : pKeys) {
+            final var write = mPending.remove(key);
+            if (write != null) {
+                writes.add(Map.entry(key, write));
+                mFlushing.add(key);
+            }
+        }
+        writes.sort(Comparator.comparingLong(entry -> entry.getValue().sequence()));
+        return writes;
+    }
+
+    /**
+     * Writes writes taken for a flush, consecutive writes of the same kind are sent in one batch.
+     * If the database rejects a batch, its writes are retried one at a time and the writes that still fail are dropped.
+     * Writes are only queued again if the database is unavailable.
+     */
+    private void write(@NotNull final List<Map.Entry<Object, PendingWrite>> pWrites) {
+        final var failed = new ArrayList<Map.Entry<Object, PendingWrite>>();
+        try {
+            int start = 0;
+            while (start < pWrites.size()) {
+                int end = start + 1;
+                final var kind = pWrites.get(start).getValue().getClass();
+                while (end < pWrites.size() && pWrites.get(end).getValue().getClass() == kind)
+                    end++;
+                failed.addAll(writeBatch(pWrites.subList(start, end)));
+                start = end;
+            }
+        } finally {
+            requeue(failed);
+        }
+    }
+
+    /**
+     * Writes a batch of writes of the same kind, one at a time if the database rejects the batch.
+     * @return The writes that could not be written because the database is unavailable.
+     */
+    private @NotNull List<Map.Entry<Object, PendingWrite>> writeBatch(@NotNull final List<Map.Entry<Object, PendingWrite>> pBatch) {
+        try {
+            if (pBatch.get(0).getValue() instanceof Upsert) {
+                final var homes = new ArrayList<OwnedHome>(pBatch.size());
+                for (final var entry : pBatch)
+                    homes.add(((Upsert) entry.getValue()).home());
+                if (mDelegate.setHomes(homes))
+                    return List.of();
+            } else {
+                final var locations = new LinkedHashMap<Integer, HomeLocation>();
+                for (final var entry : pBatch) {
+                    final var update = (Update) entry.getValue();
+                    locations.put(update.homeId(), update.location());
+                }
+                if (mDelegate.updateHomes(locations))
+                    return List.of();
+            }
+        } catch (DatabaseUnavailableException e) {
+            return pBatch; // Queued again and retried with the next flush.
+        }
+
+        // A single rejected write fails the whole batch, so the others are written one at a time
+        for (int i = 0; i < pBatch.size(); i++) {
+            try {
+                final var written = switch (pBatch.get(i).getValue()) {
+                    case Upsert upsert -> {
+                        final var homeId = mDelegate.setHome(upsert.home().owner(), upsert.home().name(), upsert.home().location());
+                        if (homeId != null)
+                            learn(homeId, upsert.home().owner(), upsert.home().name());
+                        yield homeId != null;
+                    }
+                    case Update update -> mDelegate.updateHome(update.homeId(), update.location());
+                };
+                if (!written)
+                    drop(pBatch.get(i).getKey(), pBatch.get(i).getValue());
+            } catch (DatabaseUnavailableException e) {
+                return pBatch.subList(i, pBatch.size());
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Reports a write the database rejected, it is not retried.
+     */
+    private void drop(@NotNull final Object pKey, @NotNull final PendingWrite pWrite) {
+        mLogger.warning("The pending write of home " + pKey + " was rejected by the database and dropped.");
+        mDroppedWriteListener.accept(switch (pWrite) {
+            case Upsert upsert -> HomeChange.homes(0L, 0, upsert.home().owner());
+            case Update update -> HomeChange.home(0L, 0, update.homeId());
+        });
+    }
+
+    /**
+     * Queues writes of a flush again in the order of their sequence, unless a newer write of the same key was queued in the meantime.
+     * Ends the flush, so its keys are no longer considered pending.
+     */
+    private void requeue(@NotNull final List<Map.Entry<Object, PendingWrite>> pFailed) {
+        synchronized (mPending) {
+            final var failed = new HashSet<Object>();
+            for (final var entry : pFailed)
+                failed.add(entry.getKey());
+            for (final var key : mFlushing) {
+                if (!mPending.containsKey(key) && !failed.contains(key))
+                    unindex(key);
+            }
+            mFlushing.clear();
+            if (pFailed.isEmpty())
+                return;
+            final var writes = new ArrayList<Map.Entry<Object, PendingWrite>>(pFailed.size() + mPending.size());
+            for (final var entry : pFailed) {
+                if (!mPending.containsKey(entry.getKey()))
+                    writes.add(entry);
+            }
+            writes.addAll(mPending.entrySet());
+            writes.sort(Comparator.comparingLong(entry -> entry.getValue().sequence()));
+            final var ordered = new LinkedHashMap<Object, PendingWrite>();
+            for (final var entry : writes)
+                ordered.put(entry.getKey(), entry.getValue());
+            mPending.clear();
+            mPending.putAll(ordered);
+        }
+    }
+
+    /**
+     * Flushes without letting exceptions escape, so the scheduled flush keeps running.
+     */
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            mLogger.log(Level.WARNING, "Could not flush the pending writes.", e);
+        }
+    }
+
+    /**
+     * Stops flushing periodically and writes all remaining writes.
+     */
+    @Override
+    public void close() {
+        mScheduler.shutdown();
+        try {
+            if (!mScheduler.awaitTermination(10L, TimeUnit.SECONDS))
+                mScheduler.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    // IMPLEMENTATION: IDatabase
+
+    @Override
+    public @Nullable HomeLocation getHome(@NotNull final UUID pPlayer, @NotNull final String pName) {
+        if (getPending(new NameKey(pPlayer, pName)) instanceof Upsert upsert)
+            return upsert.home().location();
+        flush(nameKeys(new NameKey(pPlayer, pName)));
+        return mDelegate.getHome(pPlayer, pName);
+    }
+
+    @Override
+    public @Nullable HomeLocation getHome(final int pHomeId) {
+        if (getPending(pHomeId) instanceof Update update)
+            return update.location();
+        flush(homeKeys(Set.of(pHomeId)));
+        return mDelegate.getHome(pHomeId);
+    }
+
+    @Override
+    public @NotNull Map<String, HomeLocation> getHomes(@NotNull final UUID pOwner) {
+        flush(ownerKeys(Set.of(pOwner)));
+        return mDelegate.getHomes(pOwner);
+    }
+
+    @Override
+    public @NotNull Map<Integer, HomeLocation> getHomes(@NotNull final Collection<Integer> pHomeIds) {
+        flush(homeKeys(pHomeIds));
+        return mDelegate.getHomes(pHomeIds);
+    }
+
+    @Override
+    public @NotNull List<HomeEntry> getHomeEntries(@NotNull final UUID pOwner) {
+        flush(ownerKeys(Set.of(pOwner)));
+        final var entries = mDelegate.getHomeEntries(pOwner);
+        learn(pOwner, entries);
+        return entries;
+    }
+
+    @Override
+    public @NotNull Map<UUID, List<HomeEntry>> getHomeEntries(@NotNull final Collection<UUID> pOwners) {
+        flush(ownerKeys(pOwners));
+        final var entries = mDelegate.getHomeEntries(pOwners);
+        entries.forEach(this::learn);
+        return entries;
+    }
+
+    @Override
+    public @NotNull HomesVersion getHomesVersion(@NotNull final UUID pOwner) {
+        flush(ownerKeys(Set.of(pOwner)));
+        return mDelegate.getHomesVersion(pOwner);
+    }
+
+    @Override
+    public @NotNull BiMap<@NotNull Integer, @NotNull String> getPlayerMappedHomes(@NotNull final UUID pOwner) {
+        flush(ownerKeys(Set.of(pOwner)));
+        final var homes = mDelegate.getPlayerMappedHomes(pOwner);
+        homes.forEach((homeId, name) -> learn(homeId, pOwner, name));
+        return homes;
+    }
+
+    @Override
+    public @Nullable Integer addHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        flush(nameKeys(new NameKey(pOwner, pName)));
+        final var homeId = mDelegate.addHome(pOwner, pName, pLocation);
+        if (homeId != null)
+            learn(homeId, pOwner, pName);
+        return homeId;
+    }
+
+    /**
+     * Queues the write. Always succeeds, the actual write happens with the next flush.
+     * @return Always {@link #PENDING_HOME_ID}.
+     */
+    @Override
+    public @Nullable Integer setHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        enqueue(new NameKey(pOwner, pName), sequence -> new Upsert(sequence, new OwnedHome(pOwner, pName, pLocation)));
+        return PENDING_HOME_ID;
+    }
+
+    /**
+     * Queues the write. Always succeeds, the actual write happens with the next flush.
+     */
+    @Override
+    public boolean updateHome(final int pHomeId, @NotNull final HomeLocation pLocation) {
+        enqueue(pHomeId, sequence -> new Update(sequence, pHomeId, pLocation));
+        return true;
+    }
+
+    @Override
+    public boolean deleteHome(@NotNull final UUID pOwner, @NotNull final String pName) {
+        // A pending write of the home is pointless now, but if there was one, the home existed.
+        // A write of it in flight may still be queued again, so it is written before the home is deleted.
+        final var key = new NameKey(pOwner, pName);
+        final var discarded = removePending(key) != null;
+        flush(nameKeys(key));
+        return mDelegate.deleteHome(pOwner, pName) || discarded;
+    }
+
+    @Override
+    public boolean deleteHome(final int pHomeId) {
+        removePending(pHomeId);
+        flush(homeKeys(Set.of(pHomeId)));
+        return mDelegate.deleteHome(pHomeId);
+    }
+
+    @Override
+    public void registerPlayer(@NotNull final UUID pOwner, @NotNull final String pUsername) {
+        mDelegate.registerPlayer(pOwner, pUsername);
+    }
+
+    @Override
+    public void registerPlayers(@NotNull final Map<UUID, String> pPlayers) {
+        mDelegate.registerPlayers(pPlayers);
+    }
+
+    @Override
+    public @Nullable String getPlayerName(@NotNull final UUID pUniqueId) {
+        return mDelegate.getPlayerName(pUniqueId);
+    }
+
+    @Override
+    public @NotNull List<UUID> getPlayerUniqueId(@NotNull final String pUsername) {
+        return mDelegate.getPlayerUniqueId(pUsername);
+    }
+
+    @Override
+    public boolean forEachPlayer(@NotNull final BiConsumer<UUID, String> pAction) {
+        return mDelegate.forEachPlayer(pAction);
+    }
+
+    private record NameKey(@NotNull UUID owner, @NotNull String name) { }
+
+    private sealed interface PendingWrite permits Upsert, Update {
+
+        /**
+         * The order in which the writes were queued.
+         */
+        long sequence();
+
+    }
+
+    private record Upsert(long sequence, @NotNull OwnedHome home) implements PendingWrite { }
+
+    private record Update(long sequence, int homeId, @NotNull HomeLocation location) implements PendingWrite { }
+
+}
@@ -0,0 +1,55 @@
+package me.minecraft_server.homes.database.dialect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Statements that only use the MERGE statement of the SQL standard, for engines without a dialect of their own.
+ * The values are bound where they are used instead of in a derived table, because untyped parameters
+ * in a VALUES list can't be compared with the columns. So keys and updated columns are bound twice.
+ */
+public class ANSIDialect implements ISQLDialect {
+
+    @Override
+    public @NotNull SQLTemplate insertIgnore(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns) {
+        final var plan = new ArrayList<Integer>();
+        final var sql = merge(pTable, pKeys, pColumns, plan) + insert(pColumns, plan) + ";";
+        return new SQLTemplate(sql, pColumns.size(), plan.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Override
+    public @NotNull SQLTemplate upsert(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns) {
+        final var plan = new ArrayList<Integer>();
+        final var merge = merge(pTable, pKeys, pColumns, plan);
+        final var updates = new ArrayList<String>();
+        for (int i = 0; i < pColumns.size(); i++) {
+            if (!pKeys.contains(pColumns.get(i))) {
+                updates.add("`" + pColumns.get(i) + "` = ?");
+                plan.add(i);
+            }
+        }
+        final var sql = merge + "WHEN MATCHED THEN UPDATE SET " + String.join(", ", updates) + " " + insert(pColumns, plan) + ";";
+        return new SQLTemplate(sql, pColumns.size(), plan.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Merges into the rows of the table with the bound key.
+     */
+    private static @NotNull String merge(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns, @NotNull final List<Integer> pPlan) {
+        final var conditions = new ArrayList<String>();
+        for (final var key : pKeys) {
+            conditions.add("`" + pTable + "`.`" + key + "` = ?");
+            pPlan.add(pColumns.indexOf(key));
+        }
+        return "MERGE INTO `" + pTable + "` USING (VALUES (1)) `source` (`one`) ON " + String.join(" AND ", conditions) + " ";
+    }
+
+    private static @NotNull String insert(@NotNull final List<String> pColumns, @NotNull final List<Integer> pPlan) {
+        IntStream.range(0, pColumns.size()).forEach(pPlan::add);
+        return "WHEN NOT MATCHED THEN INSERT (" + ISQLDialect.columns(pColumns) + ") VALUES (" + ISQLDialect.parameters(pColumns) + ")";
+    }
+
+}
@@ -0,0 +1,19 @@
+package me.minecraft_server.homes.database.dialect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Statements for H2. Upserts use MERGE ... KEY, which H2 executes as a single update or insert
+ * without joining a derived table like the standard MERGE.
+ */
+public class H2Dialect extends ANSIDialect {
+
+    @Override
+    public @NotNull SQLTemplate upsert(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns) {
+        return SQLTemplate.of("MERGE INTO `" + pTable + "` (" + ISQLDialect.columns(pColumns) + ") KEY (" + ISQLDialect.columns(pKeys) + ") " +
+                "VALUES (" + ISQLDialect.parameters(pColumns) + ");", pColumns.size());
+    }
+
+}
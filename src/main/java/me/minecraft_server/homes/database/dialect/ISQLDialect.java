@@ -0,0 +1,73 @@
+package me.minecraft_server.homes.database.dialect;
+
+import me.minecraft_server.homes.database.migration.SQLEngine;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Builds the statements whose syntax differs between database engines.
+ * Statements are only built once at startup, so the methods don't need to be fast.
+ * Values are bound by column through the bind plan of the template, so all dialects share the same binding code.
+ */
+public interface ISQLDialect {
+
+    /**
+     * Builds a statement that inserts a row, unless a row with the same key already exists.
+     * @param pTable The table to insert into.
+     * @param pKeys The columns of the unique key.
+     * @param pColumns All columns to insert, including the key. Values are bound by their index in this list.
+     * @return The statement.
+     */
+    @NotNull SQLTemplate insertIgnore(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns);
+
+    /**
+     * Builds a statement that inserts a row or updates the row with the same key.
+     * @param pTable The table to insert into.
+     * @param pKeys The columns of the unique key, these are not updated.
+     * @param pColumns All columns to insert, including the key. Values are bound by their index in this list.
+     * @return The statement.
+     */
+    @NotNull SQLTemplate upsert(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns);
+
+    /**
+     * Builds an upsert whose generated key is the id of the row, whether it was inserted or updated.
+     * @param pTable The table to insert into.
+     * @param pIdColumn The auto increment column of the table.
+     * @param pKeys The columns of the unique key, these are not updated.
+     * @param pColumns All columns to insert, including the key. Values are bound by their index in this list.
+     * @return The statement, or null if the engine only generates keys for inserted rows, then the id has to be selected.
+     */
+    default @Nullable SQLTemplate upsertReturningId(@NotNull final String pTable, @NotNull final String pIdColumn,
+                                                   @NotNull final List<String> pKeys, @NotNull final List<String> pColumns) {
+        return null;
+    }
+
+    /**
+     * Gets the dialect of an engine.
+     * @param pEngine The engine.
+     * @return The dialect with the fastest statements for that engine.
+     */
+    static @NotNull ISQLDialect of(@NotNull final SQLEngine pEngine) {
+        return switch (pEngine) {
+            case MYSQL -> new MySQLDialect();
+            case H2 -> new H2Dialect();
+        };
+    }
+
+    /**
+     * Joins quoted columns, e.g. {@code `a`, `b`}.
+     */
+    static @NotNull String columns(@NotNull final List<String> pColumns) {
+        return String.join(", ", pColumns.stream().map(column -> "`" + column + "`").toList());
+    }
+
+    /**
+     * Joins one parameter per column, e.g. {@code ?, ?}.
+     */
+    static @NotNull String parameters(@NotNull final List<String> pColumns) {
+        return String.join(", ", pColumns.stream().map(column -> "?").toList());
+    }
+
+}
@@ -0,0 +1,43 @@
+package me.minecraft_server.homes.database.dialect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statements for MySQL and MariaDB.
+ * Updates refer to the inserted values with VALUES(column), so every value is only sent once.
+ * MySQL 8.0.20 deprecated it in favor of row aliases, but MariaDB only supports VALUES(column).
+ * Updated rows report their id as the generated key through LAST_INSERT_ID(id), so it doesn't have to be selected.
+ */
+public class MySQLDialect implements ISQLDialect {
+
+    @Override
+    public @NotNull SQLTemplate insertIgnore(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns) {
+        return SQLTemplate.of("INSERT IGNORE INTO `" + pTable + "` (" + ISQLDialect.columns(pColumns) + ") VALUES (" + ISQLDialect.parameters(pColumns) + ");", pColumns.size());
+    }
+
+    @Override
+    public @NotNull SQLTemplate upsert(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns) {
+        return upsert(pTable, pKeys, pColumns, List.of());
+    }
+
+    @Override
+    public @NotNull SQLTemplate upsertReturningId(@NotNull final String pTable, @NotNull final String pIdColumn,
+                                                  @NotNull final List<String> pKeys, @NotNull final List<String> pColumns) {
+        return upsert(pTable, pKeys, pColumns, List.of("`" + pIdColumn + "` = LAST_INSERT_ID(`" + pIdColumn + "`)"));
+    }
+
+    private static @NotNull SQLTemplate upsert(@NotNull final String pTable, @NotNull final List<String> pKeys, @NotNull final List<String> pColumns,
+                                               @NotNull final List<String> pExtraUpdates) {
+        final var updates = new ArrayList<>(pExtraUpdates);
+        pColumns.stream()
+                .filter(column -> !pKeys.contains(column))
+                .map(column -> "`" + column + "` = VALUES(`" + column + "`)")
+                .forEach(updates::add);
+        return SQLTemplate.of("INSERT INTO `" + pTable + "` (" + ISQLDialect.columns(pColumns) + ") VALUES (" + ISQLDialect.parameters(pColumns) + ") " +
+                "ON DUPLICATE KEY UPDATE " + String.join(", ", updates) + ";", pColumns.size());
+    }
+
+}
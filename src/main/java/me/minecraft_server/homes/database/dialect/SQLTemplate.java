@@ -0,0 +1,86 @@
+package me.minecraft_server.homes.database.dialect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A statement and its bind plan. Values are bound by the index of their column,
+ * the plan binds them to every parameter of the statement that refers to that column.
+ */
+public final class SQLTemplate {
+
+    private @NotNull final String mSql;
+
+    /**
+     * The parameter indices of every column.
+     */
+    private final int @NotNull [][] mParameters;
+
+    /**
+     * Creates a template.
+     * @param pSql The statement.
+     * @param pColumnCount The amount of columns.
+     * @param pColumns The column of every parameter, in the order of the parameters.
+     */
+    public SQLTemplate(@NotNull final String pSql, final int pColumnCount, final int @NotNull ... pColumns) {
+        mSql = pSql;
+        final var parameters = new ArrayList<List<Integer>>(pColumnCount);
+        for (int i = 0; i < pColumnCount; i++)
+            parameters.add(new ArrayList<>(1));
+        for (int i = 0; i < pColumns.length; i++)
+            parameters.get(pColumns[i]).add(i + 1);
+        mParameters = parameters.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+    }
+
+    /**
+     * Creates a template whose parameters are the columns in order.
+     * @param pSql The statement.
+     * @param pColumnCount The amount of columns and parameters.
+     * @return The template.
+     */
+    public static @NotNull SQLTemplate of(@NotNull final String pSql, final int pColumnCount) {
+        final var columns = new int[pColumnCount];
+        for (int i = 0; i < pColumnCount; i++)
+            columns[i] = i;
+        return new SQLTemplate(pSql, pColumnCount, columns);
+    }
+
+    public @NotNull String getSql() {
+        return mSql;
+    }
+
+    public void setBytes(@NotNull final PreparedStatement pStatement, final int pColumn, final byte[] pValue) throws SQLException {
+        for (final var parameter : mParameters[pColumn])
+            pStatement.setBytes(parameter, pValue);
+    }
+
+    public void setString(@NotNull final PreparedStatement pStatement, final int pColumn, @NotNull final String pValue) throws SQLException {
+        for (final var parameter : mParameters[pColumn])
+            pStatement.setString(parameter, pValue);
+    }
+
+    public void setShort(@NotNull final PreparedStatement pStatement, final int pColumn, final short pValue) throws SQLException {
+        for (final var parameter : mParameters[pColumn])
+            pStatement.setShort(parameter, pValue);
+    }
+
+    public void setInt(@NotNull final PreparedStatement pStatement, final int pColumn, final int pValue) throws SQLException {
+        for (final var parameter : mParameters[pColumn])
+            pStatement.setInt(parameter, pValue);
+    }
+
+    public void setDouble(@NotNull final PreparedStatement pStatement, final int pColumn, final double pValue) throws SQLException {
+        for (final var parameter : mParameters[pColumn])
+            pStatement.setDouble(parameter, pValue);
+    }
+
+    public void setFloat(@NotNull final PreparedStatement pStatement, final int pColumn, final float pValue) throws SQLException {
+        for (final var parameter : mParameters[pColumn])
+            pStatement.setFloat(parameter, pValue);
+    }
+
+}
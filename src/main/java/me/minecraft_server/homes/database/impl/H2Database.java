@@ -4,6 +4,8 @@ import lombok.experimental.UtilityClass;
 import me.minecraft_server.homes.database.ISQLConfigurator;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.file.Path;
+
 /**
  * Used to create a connection to a h2 database. Intended to be used in tests or as a file database.
  */
@@ -24,4 +26,22 @@ public final class H2Database {
         };
     }
 
+    /**
+     * Create a file database, intended for single servers that don't need a shared database.
+     * The database is kept open until the data source is closed and uses a large page cache,
+     * so most reads are answered without touching the file.
+     * @param pFile The path of the database file, without the .mv.db extension.
+     * @return A database configurator for that database.
+     */
+    public static @NotNull ISQLConfigurator file(@NotNull final Path pFile) {
+        return config -> {
+            config.setDriverClassName("org.h2.Driver");
+            config.setJdbcUrl("jdbc:h2:file:" + pFile.toAbsolutePath() + ";MODE=MYSQL;DATABASE_TO_LOWER=TRUE" +
+                    ";DB_CLOSE_ON_EXIT=FALSE" + // Closed with the data source, so pending writes are not lost on shutdown
+                    ";CACHE_SIZE=65536" + // 64 MiB page cache, enough to keep the homes of all players in memory
+                    ";RETENTION_TIME=1000" + // Reuse space of old versions quickly, so the file doesn't grow under frequent updates
+                    ";LOCK_TIMEOUT=10000");
+        };
+    }
+
 }
@@ -25,6 +25,8 @@ public final class MySQLDatabase {
             config.setJdbcUrl("jdbc:mysql://" + pHost + ":" + pPort + "/" + pDatabase);
             config.setUsername(pUsername);
             config.setPassword(pPassword);
+            config.addDataSourceProperty("rewriteBatchedStatements", "true"); // Sends batches as multi-row statements
+            config.addDataSourceProperty("useCursorFetch", "true"); // Streams results with a fetch size in chunks
         };
     }
 
@@ -0,0 +1,505 @@
+package me.minecraft_server.homes.database.log;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import me.minecraft_server.homes.database.IDatabase;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A database without SQL for single servers. All data is kept in memory and every mutation is
+ * appended to a log of memory-mapped segments, which is replayed at startup.
+ * Whenever a segment is full, the older segments are compacted into a snapshot in the background.
+ * Appended records are forced to the disk every second, so a crash of the process loses nothing,
+ * a crash of the machine at most the last second.
+ * Files of the directory:
+ *  N.log: The segments, the one with the highest N is appended to.
+ *  N.snapshot: All records of the segments before N, the one with the highest N is used.
+ * Only the last segment may end with a torn record. A corrupted snapshot or earlier segment fails the open
+ * and is never compacted, so the records behind the corruption are not lost silently.
+ */
+public class LogDatabase implements IDatabase, Closeable {
+
+    /**
+     * The default size of a segment.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private @NotNull final Path mDirectory;
+
+    private final int mSegmentSize;
+
+    private @NotNull final LogState mState = new LogState();
+
+    private @NotNull final ReentrantReadWriteLock mLock = new ReentrantReadWriteLock();
+
+    /**
+     * Compacts segments and forces appended records to the disk.
+     */
+    private @NotNull final ScheduledExecutorService mMaintenance;
+
+    /**
+     * The segment records are appended to, guarded by the write lock.
+     */
+    private volatile LogSegment mActive;
+
+    private @NotNull final Logger mLogger;
+
+    /**
+     * Opens the database in a directory with the default segment size and recovers the existing data.
+     * @param pDirectory The directory of the log files, it is created if it does not exist.
+     */
+    public LogDatabase(@NotNull final Path pDirectory) throws IOException {
+        this(pDirectory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the database in a directory and recovers the existing data.
+     * @param pDirectory The directory of the log files, it is created if it does not exist.
+     * @param pSegmentSize The size of new segments in bytes.
+     */
+    public LogDatabase(@NotNull final Path pDirectory, final int pSegmentSize) throws IOException {
+        this(pDirectory, pSegmentSize, Logger.getLogger(LogDatabase.class.getName()));
+    }
+
+    /**
+     * Opens the database in a directory and recovers the existing data.
+     * @param pDirectory The directory of the log files, it is created if it does not exist.
+     * @param pSegmentSize The size of new segments in bytes.
+     * @param pLogger The logger to report corrupted files and failed writes to.
+     * @throws IOException If the files can't be read, or a snapshot or a segment before the last one is corrupted.
+     */
+    public LogDatabase(@NotNull final Path pDirectory, final int pSegmentSize, @NotNull final Logger pLogger) throws IOException {
+        mDirectory = pDirectory;
+        mSegmentSize = pSegmentSize;
+        mLogger = pLogger;
+        Files.createDirectories(pDirectory);
+        recover();
+        mMaintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "Homes-Log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mMaintenance.scheduleWithFixedDelay(() -> mActive.force(), 1L, 1L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Loads the latest snapshot and replays all segments after it. The last segment is opened for appending.
+     * @throws IOException If the snapshot or a segment before the last one is corrupted, the files are kept as they are.
+     */
+    private void recover() throws IOException {
+        final var snapshot = latest(SNAPSHOT_SUFFIX, Long.MAX_VALUE);
+        final long start;
+        if (snapshot == null) {
+            start = 0L;
+        } else {
+            start = sequenceOf(snapshot);
+            replayComplete(snapshot, mState);
+        }
+        final var segments = list(SEGMENT_SUFFIX).stream().filter(path -> sequenceOf(path) >= start).toList();
+        for (int i = 0; i < segments.size() - 1; i++)
+            replayComplete(segments.get(i), mState);
+        final var sequence = segments.isEmpty() ? start : sequenceOf(segments.get(segments.size() - 1));
+        mActive = LogSegment.open(pathOf(sequence, SEGMENT_SUFFIX), sequence, mSegmentSize, mState::apply);
+        deleteBefore(start);
+    }
+
+    /**
+     * Appends a record to the log and applies it to the tables. Must be called with the write lock held.
+     * A full segment is replaced by a new one and the older segments are compacted.
+     * @param pRecord The record to write.
+     */
+    private void write(@NotNull final LogRecord pRecord) throws IOException {
+        final var bytes = LogRecord.encode(pRecord);
+        if (!mActive.append(bytes)) {
+            final var sequence = mActive.getSequence() + 1;
+            final var next = LogSegment.open(pathOf(sequence, SEGMENT_SUFFIX), sequence, Math.max(mSegmentSize, bytes.length), record -> { });
+            mActive.close();
+            mActive = next;
+            if (!mActive.append(bytes))
+                throw new IOException("The record does not fit into a new segment.");
+            mMaintenance.execute(() -> compact(sequence));
+        }
+        mState.apply(pRecord);
+    }
+
+    /**
+     * Replays the latest snapshot and all segments before a sequence into a new snapshot.
+     * Runs on its own tables, so the database can be used in the meantime.
+     * @param pSequence The sequence of the new snapshot, all segments before it are included.
+     */
+    private void compact(final long pSequence) {
+        try {
+            final var state = new LogState();
+            final var snapshot = latest(SNAPSHOT_SUFFIX, pSequence);
+            final var start = snapshot == null ? 0L : sequenceOf(snapshot);
+            if (snapshot != null)
+                replayComplete(snapshot, state);
+            for (final var segment : list(SEGMENT_SUFFIX)) {
+                final var sequence = sequenceOf(segment);
+                if (sequence >= start && sequence < pSequence)
+                    replayComplete(segment, state);
+            }
+            LogSegment.write(pathOf(pSequence, SNAPSHOT_SUFFIX), state.toRecords());
+            deleteBefore(pSequence);
+        } catch (IOException e) {
+            // The segments are kept, compaction is retried with the next segment.
+            mLogger.log(Level.SEVERE, "Could not compact the log before segment " + pSequence + ".", e);
+        }
+    }
+
+    /**
+     * Replays a snapshot or a closed segment, which must not end with a torn or corrupted record.
+     * @throws IOException If the file is corrupted.
+     */
+    private void replayComplete(@NotNull final Path pPath, @NotNull final LogState pState) throws IOException {
+        if (!LogSegment.replay(pPath, pState::apply)) {
+            mLogger.severe("The log file " + pPath + " ends with a corrupted record, but newer records follow it. "
+                    + "The files are kept as they are, restore it from a backup.");
+            throw new IOException("The log file " + pPath + " is corrupted.");
+        }
+    }
+
+    /**
+     * Deletes the snapshots and segments that are covered by the snapshot with the given sequence.
+     */
+    private void deleteBefore(final long pSequence) throws IOException {
+        for (final var suffix : List.of(SEGMENT_SUFFIX, SNAPSHOT_SUFFIX, SNAPSHOT_SUFFIX + ".tmp")) {
+            for (final var path : list(suffix)) {
+                if (sequenceOf(path) < pSequence)
+                    Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private @NotNull List<Path> list(@NotNull final String pSuffix) throws IOException {
+        try (final Stream<Path> files = Files.list(mDirectory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(pSuffix))
+                    .sorted(Comparator.comparingLong(LogDatabase::sequenceOf))
+                    .toList();
+        }
+    }
+
+    private @Nullable Path latest(@NotNull final String pSuffix, final long pBefore) throws IOException {
+        Path latest = null;
+        for (final var path : list(pSuffix)) {
+            if (sequenceOf(path) < pBefore)
+                latest = path;
+        }
+        return latest;
+    }
+
+    private @NotNull Path pathOf(final long pSequence, @NotNull final String pSuffix) {
+        return mDirectory.resolve(String.format("%020d", pSequence) + pSuffix);
+    }
+
+    private static long sequenceOf(@NotNull final Path pPath) {
+        final var name = pPath.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('.')));
+    }
+
+    /**
+     * Waits for a running compaction and closes the log.
+     */
+    @Override
+    public void close() {
+        mMaintenance.shutdown();
+        try {
+            if (!mMaintenance.awaitTermination(1L, TimeUnit.MINUTES))
+                mMaintenance.shutdownNow();
+        } catch (InterruptedException e) {
+            mMaintenance.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        mLock.writeLock().lock();
+        try {
+            mActive.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Locations are mutable, so the stored ones are never handed out.
+     */
+    private static @NotNull HomeLocation copyOf(@NotNull final HomeLocation pLocation) {
+        return new HomeLocation(pLocation.getX(), pLocation.getY(), pLocation.getZ(), pLocation.getYaw(), pLocation.getPitch(), pLocation.getWorld(), pLocation.getServer());
+    }
+
+    // IMPLEMENTATION: IDatabase
+
+    @Override
+    public @Nullable HomeLocation getHome(@NotNull final UUID pPlayer, @NotNull final String pName) {
+        mLock.readLock().lock();
+        try {
+            final var homes = mState.mHomesByOwner.get(pPlayer);
+            final var homeId = homes == null ? null : homes.get(pName);
+            return homeId == null ? null : copyOf(mState.mHomes.get(homeId).location());
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @Nullable HomeLocation getHome(final int pHomeId) {
+        mLock.readLock().lock();
+        try {
+            final var home = mState.mHomes.get(pHomeId);
+            return home == null ? null : copyOf(home.location());
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull Map<String, HomeLocation> getHomes(@NotNull final UUID pOwner) {
+        mLock.readLock().lock();
+        try {
+            final var map = new HashMap<String, HomeLocation>();
+            final var homes = mState.mHomesByOwner.get(pOwner);
+            if (homes != null)
+                homes.forEach((name, homeId) -> map.put(name, copyOf(mState.mHomes.get(homeId).location())));
+            return map;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull Map<Integer, HomeLocation> getHomes(@NotNull final Collection<Integer> pHomeIds) {
+        mLock.readLock().lock();
+        try {
+            final var map = new HashMap<Integer, HomeLocation>();
+            for (final var homeId : pHomeIds) {
+                final var home = mState.mHomes.get(homeId);
+                if (home != null)
+                    map.put(homeId, copyOf(home.location()));
+            }
+            return map;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull List<HomeEntry> getHomeEntries(@NotNull final UUID pOwner) {
+        mLock.readLock().lock();
+        try {
+            return entriesOf(pOwner);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull Map<UUID, List<HomeEntry>> getHomeEntries(@NotNull final Collection<UUID> pOwners) {
+        mLock.readLock().lock();
+        try {
+            final var map = new HashMap<UUID, List<HomeEntry>>();
+            for (final var owner : pOwners)
+                map.put(owner, entriesOf(owner));
+            return map;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull HomesVersion getHomesVersion(@NotNull final UUID pOwner) {
+        mLock.readLock().lock();
+        try {
+            final var homes = mState.mHomesByOwner.get(pOwner);
+            return HomesVersion.of(homes != null ? homes.values() : List.of());
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    private @NotNull List<HomeEntry> entriesOf(@NotNull final UUID pOwner) {
+        final var homes = mState.mHomesByOwner.get(pOwner);
+        if (homes == null)
+            return new ArrayList<>();
+        final var list = new ArrayList<HomeEntry>(homes.size());
+        homes.forEach((name, homeId) -> list.add(new HomeEntry(homeId, name, copyOf(mState.mHomes.get(homeId).location()))));
+        return list;
+    }
+
+    @Override
+    public @NotNull BiMap<@NotNull Integer, @NotNull String> getPlayerMappedHomes(@NotNull final UUID pOwner) {
+        mLock.readLock().lock();
+        try {
+            final BiMap<Integer, String> map = HashBiMap.create();
+            final var homes = mState.mHomesByOwner.get(pOwner);
+            if (homes != null)
+                homes.forEach((name, homeId) -> map.put(homeId, name));
+            return map;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @Nullable Integer addHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        mLock.writeLock().lock();
+        try {
+            if (!mState.mPlayers.containsKey(pOwner))
+                return null; // The owner must be registered
+            final var homes = mState.mHomesByOwner.get(pOwner);
+            if (homes != null && homes.containsKey(pName))
+                return null; // The home already exists
+            final var homeId = mState.mNextHomeId;
+            write(new LogRecord.Home(homeId, pOwner, pName, copyOf(pLocation)));
+            return homeId;
+        } catch (IOException e) {
+            mLogger.log(Level.SEVERE, "Could not append to the log.", e);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+        return null; // Error occurred.
+    }
+
+    @Override
+    public @Nullable Integer setHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        mLock.writeLock().lock();
+        try {
+            if (!mState.mPlayers.containsKey(pOwner))
+                return null; // The owner must be registered
+            final var homes = mState.mHomesByOwner.get(pOwner);
+            final var existing = homes == null ? null : homes.get(pName);
+            final var homeId = existing == null ? mState.mNextHomeId : existing;
+            write(new LogRecord.Home(homeId, pOwner, pName, copyOf(pLocation)));
+            return homeId;
+        } catch (IOException e) {
+            mLogger.log(Level.SEVERE, "Could not append to the log.", e);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+        return null; // Error occurred.
+    }
+
+    @Override
+    public boolean updateHome(final int pHomeId, @NotNull final HomeLocation pLocation) {
+        mLock.writeLock().lock();
+        try {
+            final var home = mState.mHomes.get(pHomeId);
+            if (home == null)
+                return false;
+            write(new LogRecord.Home(pHomeId, home.owner(), home.name(), copyOf(pLocation)));
+            return true;
+        } catch (IOException e) {
+            mLogger.log(Level.SEVERE, "Could not append to the log.", e);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+        return false; // Error occurred.
+    }
+
+    @Override
+    public boolean deleteHome(@NotNull final UUID pOwner, @NotNull final String pName) {
+        mLock.writeLock().lock();
+        try {
+            final var homes = mState.mHomesByOwner.get(pOwner);
+            final var homeId = homes == null ? null : homes.get(pName);
+            if (homeId == null)
+                return false;
+            write(new LogRecord.Delete(homeId));
+            return true;
+        } catch (IOException e) {
+            mLogger.log(Level.SEVERE, "Could not append to the log.", e);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+        return false; // Error occurred.
+    }
+
+    @Override
+    public boolean deleteHome(final int pHomeId) {
+        mLock.writeLock().lock();
+        try {
+            if (!mState.mHomes.containsKey(pHomeId))
+                return false;
+            write(new LogRecord.Delete(pHomeId));
+            return true;
+        } catch (IOException e) {
+            mLogger.log(Level.SEVERE, "Could not append to the log.", e);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+        return false; // Error occurred.
+    }
+
+    @Override
+    public void registerPlayer(@NotNull final UUID pOwner, @NotNull final String pUsername) {
+        mLock.writeLock().lock();
+        try {
+            if (!pUsername.equals(mState.mPlayers.get(pOwner)))
+                write(new LogRecord.Player(pOwner, pUsername));
+        } catch (IOException e) {
+            mLogger.log(Level.SEVERE, "Could not append to the log.", e);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void registerPlayers(@NotNull final Map<UUID, String> pPlayers) {
+        pPlayers.forEach(this::registerPlayer);
+    }
+
+    @Override
+    public @Nullable String getPlayerName(@NotNull final UUID pUniqueId) {
+        mLock.readLock().lock();
+        try {
+            return mState.mPlayers.get(pUniqueId);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull List<UUID> getPlayerUniqueId(@NotNull final String pUsername) {
+        mLock.readLock().lock();
+        try {
+            final var uniqueIds = mState.mPlayersByName.get(pUsername);
+            return uniqueIds == null ? new ArrayList<>() : new ArrayList<>(uniqueIds);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean forEachPlayer(@NotNull final BiConsumer<UUID, String> pAction) {
+        mLock.readLock().lock();
+        try {
+            mState.mPlayers.forEach(pAction);
+            return true;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package me.minecraft_server.homes.database.log;
+
+import me.minecraft_server.homes.dto.HomeLocation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * A single mutation in the log. Every record is framed as [int length][int crc32][byte type][payload],
+ * where length and checksum cover the type and payload. A length of zero marks the end of the log.
+ */
+sealed interface LogRecord permits LogRecord.Player, LogRecord.Home, LogRecord.Delete, LogRecord.Counter {
+
+    byte PLAYER = 1;
+    byte HOME = 2;
+    byte DELETE = 3;
+    byte COUNTER = 4;
+
+    /**
+     * Size of the length and checksum in front of every record.
+     */
+    int HEADER_SIZE = 8;
+
+    /**
+     * A player was registered or renamed.
+     */
+    record Player(@NotNull UUID uniqueId, @NotNull String username) implements LogRecord { }
+
+    /**
+     * A home was added or its location changed.
+     */
+    record Home(int homeId, @NotNull UUID owner, @NotNull String name, @NotNull HomeLocation location) implements LogRecord { }
+
+    /**
+     * A home was deleted.
+     */
+    record Delete(int homeId) implements LogRecord { }
+
+    /**
+     * The next home id, written to snapshots so ids of deleted homes are not reused.
+     */
+    record Counter(int nextHomeId) implements LogRecord { }
+
+    /**
+     * Encodes a record with its frame.
+     * @param pRecord The record to encode.
+     * @return The framed record.
+     */
+    static byte[] encode(@NotNull final LogRecord pRecord) {
+        final var body = switch (pRecord) {
+            case Player player -> {
+                final var username = player.username().getBytes(StandardCharsets.UTF_8);
+                yield ByteBuffer.allocate(1 + 16 + 2 + username.length)
+                        .put(PLAYER)
+                        .putLong(player.uniqueId().getMostSignificantBits()).putLong(player.uniqueId().getLeastSignificantBits())
+                        .putShort((short) username.length).put(username);
+            }
+            case Home home -> {
+                final var name = home.name().getBytes(StandardCharsets.UTF_8);
+                final var location = home.location();
+                final var world = location.getWorld().getBytes(StandardCharsets.UTF_8);
+                final var server = location.getServer().getBytes(StandardCharsets.UTF_8);
+                yield ByteBuffer.allocate(1 + 4 + 16 + 2 + name.length + 3 * 8 + 2 * 4 + 2 + world.length + 2 + server.length)
+                        .put(HOME)
+                        .putInt(home.homeId())
+                        .putLong(home.owner().getMostSignificantBits()).putLong(home.owner().getLeastSignificantBits())
+                        .putShort((short) name.length).put(name)
+                        .putDouble(location.getX()).putDouble(location.getY()).putDouble(location.getZ())
+                        .putFloat(location.getYaw()).putFloat(location.getPitch())
+                        .putShort((short) world.length).put(world)
+                        .putShort((short) server.length).put(server);
+            }
+            case Delete delete -> ByteBuffer.allocate(1 + 4).put(DELETE).putInt(delete.homeId());
+            case Counter counter -> ByteBuffer.allocate(1 + 4).put(COUNTER).putInt(counter.nextHomeId());
+        };
+        final var bodyBytes = body.array();
+        final var crc = new CRC32();
+        crc.update(bodyBytes);
+        return ByteBuffer.allocate(HEADER_SIZE + bodyBytes.length)
+                .putInt(bodyBytes.length)
+                .putInt((int) crc.getValue())
+                .put(bodyBytes)
+                .array();
+    }
+
+    /**
+     * Reads the record at the position of the buffer and advances the position past it.
+     * @param pBuffer The buffer to read from.
+     * @return The record, or null if the log ends here or the record is incomplete or corrupted.
+     *         In this case the position is left at the start of the record.
+     */
+    static @Nullable LogRecord read(@NotNull final ByteBuffer pBuffer) {
+        final var start = pBuffer.position();
+        if (pBuffer.remaining() < HEADER_SIZE)
+            return null;
+        final var length = pBuffer.getInt();
+        final var checksum = pBuffer.getInt();
+        if (length <= 0 || length > pBuffer.remaining()) {
+            pBuffer.position(start);
+            return null;
+        }
+        final var body = pBuffer.slice(pBuffer.position(), length);
+        final var crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            pBuffer.position(start);
+            return null;
+        }
+        try {
+            final var record = decode(body);
+            pBuffer.position(pBuffer.position() + length);
+            return record;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            pBuffer.position(start);
+            return null;
+        }
+    }
+
+    private static @NotNull LogRecord decode(@NotNull final ByteBuffer pBody) {
+        return switch (pBody.get()) {
+            case PLAYER -> new Player(readUniqueId(pBody), readString(pBody));
+            case HOME -> {
+                final var homeId = pBody.getInt();
+                final var owner = readUniqueId(pBody);
+                final var name = readString(pBody);
+                final var x = pBody.getDouble();
+                final var y = pBody.getDouble();
+                final var z = pBody.getDouble();
+                final var yaw = pBody.getFloat();
+                final var pitch = pBody.getFloat();
+                // Worlds and servers repeat a lot, so every name is only kept once.
+                final var world = readString(pBody).intern();
+                final var server = readString(pBody).intern();
+                yield new Home(homeId, owner, name, new HomeLocation(x, y, z, yaw, pitch, world, server));
+            }
+            case DELETE -> new Delete(pBody.getInt());
+            case COUNTER -> new Counter(pBody.getInt());
+            default -> throw new IllegalArgumentException("Unknown record type.");
+        };
+    }
+
+    private static @NotNull UUID readUniqueId(@NotNull final ByteBuffer pBuffer) {
+        return new UUID(pBuffer.getLong(), pBuffer.getLong());
+    }
+
+    private static @NotNull String readString(@NotNull final ByteBuffer pBuffer) {
+        final var bytes = new byte[Short.toUnsignedInt(pBuffer.getShort())];
+        pBuffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,155 @@
+package me.minecraft_server.homes.database.log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * A log file of fixed size, mapped into memory. Records are appended until the segment is full.
+ */
+final class LogSegment implements Closeable {
+
+    private final long mSequence;
+
+    private @NotNull final FileChannel mChannel;
+
+    private @NotNull final MappedByteBuffer mBuffer;
+
+    private LogSegment(final long pSequence, @NotNull final FileChannel pChannel, @NotNull final MappedByteBuffer pBuffer) {
+        mSequence = pSequence;
+        mChannel = pChannel;
+        mBuffer = pBuffer;
+    }
+
+    /**
+     * Opens a segment for appending, the segment is created if it does not exist.
+     * The existing records are replayed and appending continues after the last valid record.
+     * Anything behind it, like a record torn by a crash, is cleared.
+     * @param pPath The path of the segment.
+     * @param pSequence The sequence number of the segment.
+     * @param pSize The size of new segments.
+     * @param pConsumer Receives the existing records.
+     * @return The opened segment.
+     */
+    static @NotNull LogSegment open(@NotNull final Path pPath, final long pSequence, final int pSize, @NotNull final Consumer<LogRecord> pConsumer) throws IOException {
+        final var channel = FileChannel.open(pPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final var size = (int) Math.max(channel.size(), pSize);
+            final var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            replay(buffer, pConsumer);
+            clear(buffer, buffer.position());
+            return new LogSegment(pSequence, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Replays all valid records of a closed segment or a snapshot.
+     * @param pPath The path of the file.
+     * @param pConsumer Receives the records.
+     * @return Whether the file was read to its end. If not, it ends with a torn or corrupted record.
+     */
+    static boolean replay(@NotNull final Path pPath, @NotNull final Consumer<LogRecord> pConsumer) throws IOException {
+        try (final var channel = FileChannel.open(pPath, StandardOpenOption.READ)) {
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            replay(buffer, pConsumer);
+            return buffer.remaining() < LogRecord.HEADER_SIZE || buffer.getInt(buffer.position()) == 0;
+        }
+    }
+
+    /**
+     * Zeroes everything from an offset to the end, only pages that are not zeroed already are written.
+     */
+    private static void clear(@NotNull final ByteBuffer pBuffer, final int pOffset) {
+        final var zeros = new byte[4096];
+        for (int start = pOffset; start < pBuffer.limit(); start += zeros.length) {
+            final var length = Math.min(zeros.length, pBuffer.limit() - start);
+            for (int i = start; i < start + length; i++) {
+                if (pBuffer.get(i) != 0) {
+                    pBuffer.put(start, zeros, 0, length);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void replay(@NotNull final ByteBuffer pBuffer, @NotNull final Consumer<LogRecord> pConsumer) {
+        LogRecord record;
+        while ((record = LogRecord.read(pBuffer)) != null)
+            pConsumer.accept(record);
+    }
+
+    /**
+     * Writes records to a new file, forces them to the disk and moves the file in place atomically.
+     * @param pPath The path of the file.
+     * @param pRecords The records to write.
+     */
+    static void write(@NotNull final Path pPath, @NotNull final Iterable<LogRecord> pRecords) throws IOException {
+        final var temporary = pPath.resolveSibling(pPath.getFileName() + ".tmp");
+        try (final var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var buffer = ByteBuffer.allocate(1 << 16);
+            for (final var record : pRecords) {
+                final var bytes = LogRecord.encode(record);
+                if (bytes.length > buffer.remaining()) {
+                    buffer.flip();
+                    while (buffer.hasRemaining())
+                        channel.write(buffer);
+                    buffer.clear();
+                }
+                if (bytes.length > buffer.capacity()) {
+                    final var large = ByteBuffer.wrap(bytes);
+                    while (large.hasRemaining())
+                        channel.write(large);
+                } else {
+                    buffer.put(bytes);
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, pPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    long getSequence() {
+        return mSequence;
+    }
+
+    /**
+     * Appends a record.
+     * @param pRecord The encoded record.
+     * @return Whether the record was appended, false if the segment is full.
+     */
+    boolean append(final byte[] pRecord) {
+        if (pRecord.length > mBuffer.remaining())
+            return false;
+        mBuffer.put(pRecord);
+        return true;
+    }
+
+    /**
+     * Forces all appended records to the disk.
+     */
+    void force() {
+        mBuffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        mChannel.close();
+    }
+
+}
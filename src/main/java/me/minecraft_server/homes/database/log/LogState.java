@@ -0,0 +1,90 @@
+package me.minecraft_server.homes.database.log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * The tables of the log database, built by applying the records of the log in order.
+ * Not thread-safe, the owner has to synchronize access.
+ */
+final class LogState {
+
+    /**
+     * Usernames by unique id.
+     */
+    final Map<UUID, String> mPlayers = new HashMap<>();
+
+    /**
+     * Unique ids by username, a username can be registered with multiple unique ids.
+     */
+    final Map<String, Set<UUID>> mPlayersByName = new HashMap<>();
+
+    /**
+     * Homes by id.
+     */
+    final Map<Integer, LogRecord.Home> mHomes = new HashMap<>();
+
+    /**
+     * Home ids by owner and name.
+     */
+    final Map<UUID, Map<String, Integer>> mHomesByOwner = new HashMap<>();
+
+    /**
+     * The id of the next added home.
+     */
+    int mNextHomeId = 1;
+
+    /**
+     * Applies a record to the tables.
+     * @param pRecord The record to apply.
+     */
+    void apply(@NotNull final LogRecord pRecord) {
+        switch (pRecord) {
+            case LogRecord.Player player -> {
+                final var previous = mPlayers.put(player.uniqueId(), player.username());
+                if (previous != null)
+                    removeName(previous, player.uniqueId());
+                mPlayersByName.computeIfAbsent(player.username(), name -> new HashSet<>(1)).add(player.uniqueId());
+            }
+            case LogRecord.Home home -> {
+                final var previous = mHomes.put(home.homeId(), home);
+                if (previous != null && !previous.name().equals(home.name()))
+                    removeHome(previous);
+                mHomesByOwner.computeIfAbsent(home.owner(), owner -> new HashMap<>(4)).put(home.name(), home.homeId());
+                mNextHomeId = Math.max(mNextHomeId, home.homeId() + 1);
+            }
+            case LogRecord.Delete delete -> {
+                final var previous = mHomes.remove(delete.homeId());
+                if (previous != null)
+                    removeHome(previous);
+            }
+            case LogRecord.Counter counter -> mNextHomeId = Math.max(mNextHomeId, counter.nextHomeId());
+        }
+    }
+
+    private void removeName(@NotNull final String pUsername, @NotNull final UUID pUniqueId) {
+        final var uniqueIds = mPlayersByName.get(pUsername);
+        if (uniqueIds != null && uniqueIds.remove(pUniqueId) && uniqueIds.isEmpty())
+            mPlayersByName.remove(pUsername);
+    }
+
+    private void removeHome(@NotNull final LogRecord.Home pHome) {
+        final var homes = mHomesByOwner.get(pHome.owner());
+        if (homes != null && homes.remove(pHome.name(), pHome.homeId()) && homes.isEmpty())
+            mHomesByOwner.remove(pHome.owner());
+    }
+
+    /**
+     * Gets the records that rebuild these tables, used to write snapshots.
+     * @return The records.
+     */
+    @NotNull List<LogRecord> toRecords() {
+        final var records = new ArrayList<LogRecord>(1 + mPlayers.size() + mHomes.size());
+        records.add(new LogRecord.Counter(mNextHomeId));
+        mPlayers.forEach((uniqueId, username) -> records.add(new LogRecord.Player(uniqueId, username)));
+        records.addAll(mHomes.values());
+        return records;
+    }
+
+}
@@ -0,0 +1,21 @@
+package me.minecraft_server.homes.database.migration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Changes the schema from one version to the next.
+ */
+@FunctionalInterface
+public interface IMigrationStep {
+
+    /**
+     * Applies the changes of this step.
+     * @param pConnection The connection to apply the changes with.
+     * @param pEngine The engine of the connection.
+     */
+    void migrate(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException;
+
+}
@@ -0,0 +1,11 @@
+package me.minecraft_server.homes.database.migration;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A versioned change of the schema.
+ * @param version The version of the schema after this migration, versions are applied in ascending order.
+ * @param description A short description, recorded in the schema history.
+ * @param step The actual changes.
+ */
+public record Migration(int version, @NotNull String description, @NotNull IMigrationStep step) { }
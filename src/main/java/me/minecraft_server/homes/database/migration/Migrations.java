@@ -0,0 +1,289 @@
+package me.minecraft_server.homes.database.migration;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All migrations of the schema. Never change a released migration, add a new one instead.
+ * MySQL commits every DDL statement on its own, so migrations check the schema before each step and can be run again after failing halfway.
+ */
+@SuppressWarnings({"SqlNoDataSourceInspection", "SqlResolve"})
+@UtilityClass
+public final class Migrations {
+
+    /**
+     * All migrations in ascending order.
+     */
+    public static final List<Migration> ALL = List.of(
+            new Migration(1, "Create tables", Migrations::createTables),
+            new Migration(2, "Index player names", Migrations::indexUsernames),
+            new Migration(3, "Cluster homes by owner", Migrations::clusterHomesByOwner),
+            new Migration(4, "Store servers and worlds in dictionaries", Migrations::normalizeLocationNames),
+            new Migration(5, "Record changes for other servers", Migrations::createChangeLog)
+    );
+
+    /**
+     * The amount of home ids whose servers and worlds are resolved together.
+     */
+    private static final long RESOLVE_CHUNK = 10000L;
+
+    /**
+     * Creates the initial tables, existing tables from before the schema history are kept:
+     *  Players(!uniqueId(B16), username(VC16))
+     *  Homes(!homeId(Int), name(VC64), server(VC32), world(VC32), x(D), y(D), y(D), yaw(F), pitch(F), !#Players.uniqueId(B16))
+     */
+    private static void createTables(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException {
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS `Players` (`uniqueId` BINARY(16) NOT NULL, `username` VARCHAR(16) NOT NULL, PRIMARY KEY (`uniqueId`));");
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS `Homes` (`homeId` INTEGER NOT NULL AUTO_INCREMENT, `name` VARCHAR(64) NOT NULL, `server` VARCHAR(32) NOT NULL, `world` VARCHAR(32) NOT NULL, `x` DOUBLE NOT NULL, `y` DOUBLE NOT NULL, `z` DOUBLE NOT NULL, `yaw` FLOAT NOT NULL, `pitch` FLOAT NOT NULL, `uniqueId` BINARY(16) NOT NULL, CONSTRAINT UC_HomeId UNIQUE (`homeId`), CONSTRAINT UC_OnlyOneName UNIQUE (`name`, `uniqueId`), PRIMARY KEY (`homeId`, `uniqueId`), CONSTRAINT FK_HomeOwner FOREIGN KEY (`uniqueId`) REFERENCES `Players`(`uniqueId`));");
+    }
+
+    /**
+     * Adds an index on player names, so looking up unique ids by name doesn't scan the whole table.
+     */
+    private static void indexUsernames(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException {
+        if (hasIndex(pConnection, "Players", "IDX_Username"))
+            return;
+        switch (pEngine) {
+            case MYSQL -> execute(pConnection, "ALTER TABLE `Players` ADD INDEX `IDX_Username` (`username`), ALGORITHM=INPLACE, LOCK=NONE;");
+            case H2 -> execute(pConnection, "CREATE INDEX `IDX_Username` ON `Players` (`username`);");
+        }
+    }
+
+    /**
+     * Replaces the primary key (homeId, uniqueId) with (uniqueId, name), so the homes of a player are stored together.
+     * The new primary key replaces the unique name constraint and covers the foreign key, so their indices are dropped.
+     * The home id keeps its own unique index, which is required for the auto increment.
+     */
+    private static void clusterHomesByOwner(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException {
+        final var primaryKey = getPrimaryKey(pConnection, pEngine, "Homes");
+        final var clustered = primaryKey.equals(List.of("uniqueid", "name"));
+        final var uniqueName = hasConstraint(pConnection, pEngine, "Homes", "UC_OnlyOneName");
+        switch (pEngine) {
+            case MYSQL -> {
+                final var changes = new ArrayList<String>();
+                if (!clustered && !primaryKey.isEmpty())
+                    changes.add("DROP PRIMARY KEY");
+                if (!clustered)
+                    changes.add("ADD PRIMARY KEY (`uniqueId`, `name`)");
+                if (uniqueName)
+                    changes.add("DROP INDEX `UC_OnlyOneName`");
+                if (!changes.isEmpty())
+                    execute(pConnection, "ALTER TABLE `Homes` " + String.join(", ", changes) + ", ALGORITHM=INPLACE, LOCK=NONE;");
+                if (hasIndex(pConnection, "Homes", "FK_HomeOwner"))
+                    execute(pConnection, "ALTER TABLE `Homes` DROP INDEX `FK_HomeOwner`, ALGORITHM=INPLACE, LOCK=NONE;");
+            }
+            case H2 -> {
+                if (!clustered && !primaryKey.isEmpty())
+                    execute(pConnection, "ALTER TABLE `Homes` DROP PRIMARY KEY;");
+                if (!clustered)
+                    execute(pConnection, "ALTER TABLE `Homes` ADD PRIMARY KEY (`uniqueId`, `name`);");
+                if (uniqueName)
+                    execute(pConnection, "ALTER TABLE `Homes` DROP CONSTRAINT `UC_OnlyOneName`;");
+            }
+        }
+    }
+
+    /**
+     * Moves server and world names into the dictionary tables Servers and Worlds, homes only reference them by id.
+     * The names are binary, since world names are case-sensitive. The legacy columns may compare case-insensitively,
+     * so they are compared binary as well, otherwise "World" and "world" would share one dictionary entry.
+     * Homes are updated in chunks of ids, so no single transaction locks the whole table.
+     */
+    private static void normalizeLocationNames(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException {
+        final var nameType = switch (pEngine) {
+            case MYSQL -> "VARCHAR(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin";
+            case H2 -> "VARCHAR(32)";
+        };
+        final var binary = switch (pEngine) {
+            case MYSQL -> "CONVERT(`Homes`.`%s` USING utf8mb4) COLLATE utf8mb4_bin";
+            case H2 -> "`Homes`.`%s`";
+        };
+        final var server = String.format(binary, "server");
+        final var world = String.format(binary, "world");
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS `Servers` (`serverId` SMALLINT NOT NULL AUTO_INCREMENT, `name` " + nameType + " NOT NULL, PRIMARY KEY (`serverId`), CONSTRAINT UC_ServerName UNIQUE (`name`));");
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS `Worlds` (`worldId` SMALLINT NOT NULL AUTO_INCREMENT, `name` " + nameType + " NOT NULL, PRIMARY KEY (`worldId`), CONSTRAINT UC_WorldName UNIQUE (`name`));");
+        // The names are only gone once every home references its dictionary entries
+        final var hasServer = hasColumn(pConnection, pEngine, "Homes", "server");
+        final var hasWorld = hasColumn(pConnection, pEngine, "Homes", "world");
+        if (hasServer)
+            execute(pConnection, "INSERT IGNORE INTO `Servers` (`name`) SELECT DISTINCT " + server + " FROM `Homes`;");
+        if (hasWorld)
+            execute(pConnection, "INSERT IGNORE INTO `Worlds` (`name`) SELECT DISTINCT " + world + " FROM `Homes`;");
+        final var columns = new ArrayList<String>();
+        if (!hasColumn(pConnection, pEngine, "Homes", "serverId"))
+            columns.add("`serverId` SMALLINT NULL");
+        if (!hasColumn(pConnection, pEngine, "Homes", "worldId"))
+            columns.add("`worldId` SMALLINT NULL");
+        if (!columns.isEmpty())
+            execute(pConnection, "ALTER TABLE `Homes` ADD (" + String.join(", ", columns) + ");");
+        if (hasServer && hasWorld)
+            resolveLocationNames(pConnection, server, world);
+        switch (pEngine) {
+            case MYSQL -> {
+                final var changes = new ArrayList<>(List.of("MODIFY `serverId` SMALLINT NOT NULL", "MODIFY `worldId` SMALLINT NOT NULL"));
+                if (hasServer)
+                    changes.add("DROP COLUMN `server`");
+                if (hasWorld)
+                    changes.add("DROP COLUMN `world`");
+                execute(pConnection, "ALTER TABLE `Homes` " + String.join(", ", changes) + ", ALGORITHM=INPLACE, LOCK=NONE;");
+            }
+            case H2 -> {
+                execute(pConnection, "ALTER TABLE `Homes` ALTER COLUMN `serverId` SET NOT NULL;");
+                execute(pConnection, "ALTER TABLE `Homes` ALTER COLUMN `worldId` SET NOT NULL;");
+                if (hasServer)
+                    execute(pConnection, "ALTER TABLE `Homes` DROP COLUMN `server`;");
+                if (hasWorld)
+                    execute(pConnection, "ALTER TABLE `Homes` DROP COLUMN `world`;");
+            }
+        }
+    }
+
+    /**
+     * Sets the dictionary ids of all homes that don't reference their server and world yet, in chunks of home ids.
+     * Fails if a chunk leaves homes unresolved, since their columns can't be made mandatory afterwards.
+     * @param pConnection The connection to update with.
+     * @param pServer The expression of the server name of a home.
+     * @param pWorld The expression of the world name of a home.
+     */
+    private static void resolveLocationNames(@NotNull final Connection pConnection, @NotNull final String pServer, @NotNull final String pWorld) throws SQLException {
+        final long first, last;
+        try (final var statement = pConnection.prepareStatement("SELECT MIN(`homeId`), MAX(`homeId`) FROM `Homes` WHERE `serverId` IS NULL OR `worldId` IS NULL;");
+             final var result = statement.executeQuery()) {
+            if (!result.next() || result.getObject(1) == null)
+                return;
+            first = result.getLong(1);
+            last = result.getLong(2);
+        }
+        try (final var update = pConnection.prepareStatement(
+                "UPDATE `Homes` SET `serverId` = (SELECT `serverId` FROM `Servers` WHERE `Servers`.`name` = " + pServer + "), " +
+                        "`worldId` = (SELECT `worldId` FROM `Worlds` WHERE `Worlds`.`name` = " + pWorld + ") " +
+                        "WHERE `homeId` BETWEEN ? AND ? AND (`serverId` IS NULL OR `worldId` IS NULL);");
+             final var check = pConnection.prepareStatement("SELECT COUNT(*) FROM `Homes` WHERE `homeId` BETWEEN ? AND ? AND (`serverId` IS NULL OR `worldId` IS NULL);")) {
+            for (long from = first; from <= last; from += RESOLVE_CHUNK) {
+                final var to = Math.min(from + RESOLVE_CHUNK - 1L, last);
+                update.setLong(1, from);
+                update.setLong(2, to);
+                update.executeUpdate();
+                check.setLong(1, from);
+                check.setLong(2, to);
+                try (final var result = check.executeQuery()) {
+                    if (result.next() && result.getLong(1) > 0L)
+                        throw new SQLException(String.format("%d homes with ids from %d to %d reference servers or worlds that are missing from the dictionaries.",
+                                result.getLong(1), from, to));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the change log, every change of a home or player appends a row, so other servers can invalidate their caches:
+     *  HomeChanges(!sequence(BI), origin(Int), uniqueId(B16?), homeId(Int?), username(VC16?), createdAt(BI))
+     */
+    private static void createChangeLog(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException {
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS `HomeChanges` (`sequence` BIGINT NOT NULL AUTO_INCREMENT, `origin` INTEGER NOT NULL, `uniqueId` BINARY(16) NULL, `homeId` INTEGER NULL, `username` VARCHAR(16) NULL, `createdAt` BIGINT NOT NULL, PRIMARY KEY (`sequence`));");
+    }
+
+    private static void execute(@NotNull final Connection pConnection, @NotNull final String pSql) throws SQLException {
+        try (final var statement = pConnection.prepareStatement(pSql)) {
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Checks if a table has an index with the given name, ignoring case.
+     * @param pConnection The connection to check with.
+     * @param pTable The name of the table.
+     * @param pIndex The name of the index.
+     * @return Whether the index exists.
+     */
+    static boolean hasIndex(@NotNull final Connection pConnection, @NotNull final String pTable, @NotNull final String pIndex) throws SQLException {
+        final var metaData = pConnection.getMetaData();
+        final var table = metaData.storesLowerCaseIdentifiers() ? pTable.toLowerCase()
+                : metaData.storesUpperCaseIdentifiers() ? pTable.toUpperCase() : pTable;
+        try (final var result = metaData.getIndexInfo(pConnection.getCatalog(), null, table, false, false)) {
+            while (result.next()) {
+                if (pIndex.equalsIgnoreCase(result.getString("INDEX_NAME")))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a table has a column with the given name, ignoring case.
+     * @param pConnection The connection to check with.
+     * @param pEngine The engine of the database.
+     * @param pTable The name of the table.
+     * @param pColumn The name of the column.
+     * @return Whether the column exists.
+     */
+    static boolean hasColumn(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine, @NotNull final String pTable, @NotNull final String pColumn) throws SQLException {
+        try (final var statement = pConnection.prepareStatement("SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = ? AND LOWER(TABLE_NAME) = LOWER(?) AND LOWER(COLUMN_NAME) = LOWER(?);")) {
+            statement.setString(1, getSchema(pConnection, pEngine));
+            statement.setString(2, pTable);
+            statement.setString(3, pColumn);
+            try (final var result = statement.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+
+    /**
+     * Checks if a table has a constraint with the given name, ignoring case.
+     * @param pConnection The connection to check with.
+     * @param pEngine The engine of the database.
+     * @param pTable The name of the table.
+     * @param pConstraint The name of the constraint.
+     * @return Whether the constraint exists.
+     */
+    static boolean hasConstraint(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine, @NotNull final String pTable, @NotNull final String pConstraint) throws SQLException {
+        try (final var statement = pConnection.prepareStatement("SELECT 1 FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE TABLE_SCHEMA = ? AND LOWER(TABLE_NAME) = LOWER(?) AND LOWER(CONSTRAINT_NAME) = LOWER(?);")) {
+            statement.setString(1, getSchema(pConnection, pEngine));
+            statement.setString(2, pTable);
+            statement.setString(3, pConstraint);
+            try (final var result = statement.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+
+    /**
+     * Gets the columns of the primary key of a table.
+     * @param pConnection The connection to check with.
+     * @param pEngine The engine of the database.
+     * @param pTable The name of the table.
+     * @return The lower case names of the columns in the order of the key, empty if the table has no primary key.
+     */
+    static @NotNull List<String> getPrimaryKey(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine, @NotNull final String pTable) throws SQLException {
+        try (final var statement = pConnection.prepareStatement("SELECT LOWER(k.COLUMN_NAME) FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE k " +
+                "JOIN INFORMATION_SCHEMA.TABLE_CONSTRAINTS c ON c.CONSTRAINT_SCHEMA = k.CONSTRAINT_SCHEMA " +
+                "AND c.TABLE_NAME = k.TABLE_NAME AND c.CONSTRAINT_NAME = k.CONSTRAINT_NAME " +
+                "WHERE k.TABLE_SCHEMA = ? AND LOWER(k.TABLE_NAME) = LOWER(?) AND c.CONSTRAINT_TYPE = 'PRIMARY KEY' " +
+                "ORDER BY k.ORDINAL_POSITION;")) {
+            statement.setString(1, getSchema(pConnection, pEngine));
+            statement.setString(2, pTable);
+            try (final var result = statement.executeQuery()) {
+                final var columns = new ArrayList<String>(2);
+                while (result.next())
+                    columns.add(result.getString(1));
+                return columns;
+            }
+        }
+    }
+
+    /**
+     * The schema of the tables in the information schema, MySQL calls it the database.
+     */
+    private static @NotNull String getSchema(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException {
+        return switch (pEngine) {
+            case MYSQL -> pConnection.getCatalog();
+            case H2 -> pConnection.getSchema();
+        };
+    }
+
+}
@@ -0,0 +1,32 @@
+package me.minecraft_server.homes.database.migration;
+
+import me.minecraft_server.homes.exceptions.SchemaMigrationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+/**
+ * The database engines the schema can be migrated on. Online schema changes need engine specific statements.
+ */
+public enum SQLEngine {
+
+    MYSQL,
+    H2;
+
+    /**
+     * Detects the engine of a connection.
+     * @param pMetaData The meta data of the connection.
+     * @return The engine of the connection.
+     * @throws SchemaMigrationException If the engine is not supported.
+     */
+    public static @NotNull SQLEngine detect(@NotNull final DatabaseMetaData pMetaData) throws SQLException {
+        final var product = pMetaData.getDatabaseProductName();
+        if (product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB"))
+            return MYSQL;
+        if (product.equalsIgnoreCase("H2"))
+            return H2;
+        throw new SchemaMigrationException("Unsupported database engine: " + product);
+    }
+
+}
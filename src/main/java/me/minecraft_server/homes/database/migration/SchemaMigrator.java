@@ -0,0 +1,119 @@
+package me.minecraft_server.homes.database.migration;
+
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.exceptions.SchemaMigrationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Upgrades the schema to the latest version. Applied versions are recorded in the SchemaHistory table,
+ * so every migration runs exactly once per database.
+ */
+@SuppressWarnings({"SqlNoDataSourceInspection", "SqlResolve"})
+public class SchemaMigrator {
+
+    /**
+     * Name of the lock, so multiple servers starting at once don't migrate the same database concurrently.
+     */
+    private static final String LOCK_NAME = "homes_schema_migration";
+
+    private @NotNull final SQLDataSource mSource;
+
+    private @NotNull final List<Migration> mMigrations;
+
+    public SchemaMigrator(@NotNull final SQLDataSource pSource) {
+        this(pSource, Migrations.ALL);
+    }
+
+    public SchemaMigrator(@NotNull final SQLDataSource pSource, @NotNull final List<Migration> pMigrations) {
+        mSource = pSource;
+        mMigrations = pMigrations;
+    }
+
+    /**
+     * Applies all migrations that were not applied yet.
+     * @return The version of the schema after migrating.
+     * @throws SchemaMigrationException If a migration failed, the schema stays at the last successful version.
+     */
+    public int migrate() {
+        try (final var connection = mSource.getConnection()) {
+            final var engine = SQLEngine.detect(connection.getMetaData());
+            lock(connection, engine);
+            try {
+                createHistory(connection);
+                var version = getVersion(connection);
+                for (final var migration : mMigrations) {
+                    if (migration.version() <= version)
+                        continue;
+                    try {
+                        migration.step().migrate(connection, engine);
+                    } catch (SQLException e) {
+                        throw new SchemaMigrationException("Migration to version " + migration.version() + " (" + migration.description() + ") failed.", e);
+                    }
+                    record(connection, migration);
+                    version = migration.version();
+                }
+                return version;
+            } finally {
+                unlock(connection, engine);
+            }
+        } catch (SQLException e) {
+            throw new SchemaMigrationException("Could not migrate the schema.", e);
+        }
+    }
+
+    /**
+     * Gets the version of the schema.
+     * @param pConnection The connection to check with.
+     * @return The latest applied version or zero if nothing was applied yet.
+     */
+    private static int getVersion(@NotNull final Connection pConnection) throws SQLException {
+        try (final var statement = pConnection.prepareStatement("SELECT MAX(`version`) FROM `SchemaHistory`;");
+             final var result = statement.executeQuery()) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    private static void createHistory(@NotNull final Connection pConnection) throws SQLException {
+        try (final var statement = pConnection.prepareStatement(
+                "CREATE TABLE IF NOT EXISTS `SchemaHistory` (`version` INTEGER NOT NULL, `description` VARCHAR(128) NOT NULL, `appliedAt` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (`version`));")) {
+            statement.executeUpdate();
+        }
+    }
+
+    private static void record(@NotNull final Connection pConnection, @NotNull final Migration pMigration) throws SQLException {
+        try (final var statement = pConnection.prepareStatement("INSERT INTO `SchemaHistory` (`version`, `description`) VALUES (?, ?);")) {
+            statement.setInt(1, pMigration.version());
+            statement.setString(2, pMigration.description());
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Waits for other servers that are migrating the same database. Only needed on MySQL, H2 is not shared.
+     */
+    private static void lock(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException {
+        if (pEngine != SQLEngine.MYSQL)
+            return;
+        try (final var statement = pConnection.prepareStatement("SELECT GET_LOCK(?, 60);")) {
+            statement.setString(1, LOCK_NAME);
+            try (final var result = statement.executeQuery()) {
+                if (!result.next() || result.getInt(1) != 1)
+                    throw new SchemaMigrationException("Timed out waiting for another server to migrate the schema.");
+            }
+        }
+    }
+
+    private static void unlock(@NotNull final Connection pConnection, @NotNull final SQLEngine pEngine) throws SQLException {
+        if (pEngine != SQLEngine.MYSQL)
+            return;
+        try (final var statement = pConnection.prepareStatement("SELECT RELEASE_LOCK(?);")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        }
+    }
+
+}
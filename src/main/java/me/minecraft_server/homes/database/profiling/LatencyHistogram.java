@@ -0,0 +1,82 @@
+package me.minecraft_server.homes.database.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds.
+ * Every power of two is split into four buckets, so percentiles are off by at most 25%.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+    private final LongAdder mCount = new LongAdder();
+
+    private final LongAdder mSum = new LongAdder();
+
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * @param pNanos The latency in nanoseconds, negative values are counted as zero.
+     */
+    public void record(final long pNanos) {
+        final var nanos = Math.max(0L, pNanos);
+        mBuckets.incrementAndGet(bucketOf(nanos));
+        mCount.increment();
+        mSum.add(nanos);
+        mMax.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return mCount.sum();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public double getMean() {
+        final var count = mCount.sum();
+        return count == 0L ? 0.0D : (double) mSum.sum() / count;
+    }
+
+    /**
+     * Gets a percentile.
+     * @param pPercentile The percentile between 0 and 1.
+     * @return The upper bound of the bucket containing the percentile, at most the maximum.
+     */
+    public long getPercentile(final double pPercentile) {
+        final var count = mCount.sum();
+        if (count == 0L)
+            return 0L;
+        final var target = Math.max(1L, (long) Math.ceil(pPercentile * count));
+        long seen = 0L;
+        for (int i = 0; i < mBuckets.length(); i++) {
+            seen += mBuckets.get(i);
+            if (seen >= target)
+                return Math.min(lowerBoundOf(i + 1) - 1L, getMax());
+        }
+        return getMax();
+    }
+
+    private static int bucketOf(final long pNanos) {
+        if (pNanos < SUB_BUCKETS)
+            return (int) pNanos;
+        final var exponent = 63 - Long.numberOfLeadingZeros(pNanos);
+        return (exponent - 1) * SUB_BUCKETS + (int) ((pNanos >>> (exponent - 2)) & (SUB_BUCKETS - 1));
+    }
+
+    private static long lowerBoundOf(final int pBucket) {
+        if (pBucket < SUB_BUCKETS)
+            return pBucket;
+        final var exponent = pBucket / SUB_BUCKETS + 1;
+        final var bound = (long) (SUB_BUCKETS + pBucket % SUB_BUCKETS) << (exponent - 2);
+        return bound < 0L ? Long.MAX_VALUE : bound;
+    }
+
+}
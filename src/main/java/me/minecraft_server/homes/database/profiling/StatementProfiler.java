@@ -0,0 +1,281 @@
+package me.minecraft_server.homes.database.profiling;
+
+import me.minecraft_server.homes.database.SQLDataSource;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures how long database methods wait for a connection, execute statements and map results.
+ * The connections handed out are wrapped, so the methods themselves don't need to be changed.
+ * Calls slower than a threshold are logged, optionally with the EXPLAIN output of their last statement.
+ */
+public final class StatementProfiler {
+
+    private final @NotNull Map<String, StatementStatistics> mStatistics = new ConcurrentHashMap<>();
+
+    private final @Nullable Logger mLogger;
+
+    private final long mSlowThreshold;
+
+    private final boolean mExplain;
+
+    /**
+     * Creates a profiler without a slow query log.
+     */
+    public StatementProfiler() {
+        this(null, Duration.ZERO, false);
+    }
+
+    /**
+     * Creates a profiler.
+     * @param pLogger The logger of the slow query log, or null to disable it.
+     * @param pSlowThreshold Calls that take longer are logged, zero disables the slow query log.
+     * @param pExplain Whether the EXPLAIN output of slow calls is logged as well.
+     */
+    public StatementProfiler(@Nullable final Logger pLogger, @NotNull final Duration pSlowThreshold, final boolean pExplain) {
+        mLogger = pLogger;
+        mSlowThreshold = pLogger == null || pSlowThreshold.isZero() ? Long.MAX_VALUE : pSlowThreshold.toNanos();
+        mExplain = pExplain;
+    }
+
+    /**
+     * Gets a connection whose statements are profiled. The call ends when the connection is closed.
+     * @param pSource The source to get the connection from.
+     * @param pName The name of the call, usually the name of the database method.
+     * @return The connection.
+     */
+    public @NotNull Connection getConnection(@NotNull final SQLDataSource pSource, @NotNull final String pName) throws SQLException {
+        final var start = System.nanoTime();
+        final var connection = pSource.getConnection();
+        final var call = new Call(pName, connection, start, System.nanoTime());
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, call);
+    }
+
+    /**
+     * Gets the statistics of all calls so far.
+     * @return The statistics by the name of the call.
+     */
+    public @NotNull Map<String, StatementStatistics> getStatistics() {
+        return Collections.unmodifiableMap(mStatistics);
+    }
+
+    /**
+     * Formats the statistics, one line per call and phase.
+     * @return The lines.
+     */
+    public @NotNull List<String> report() {
+        final var lines = new ArrayList<String>();
+        new TreeMap<>(mStatistics).forEach((name, statistics) -> {
+            lines.add(format(name, "acquire", statistics.acquire()));
+            lines.add(format(name, "execute", statistics.execute()));
+            lines.add(format(name, "map", statistics.map()));
+            lines.add(format(name, "total", statistics.total()));
+        });
+        return lines;
+    }
+
+    private static @NotNull String format(@NotNull final String pName, @NotNull final String pPhase, @NotNull final LatencyHistogram pHistogram) {
+        return String.format(Locale.ROOT, "%-24s %-8s n=%-8d mean=%8.3fms p50=%8.3fms p99=%8.3fms max=%8.3fms", pName, pPhase,
+                pHistogram.getCount(), pHistogram.getMean() / 1e6D, pHistogram.getPercentile(0.5D) / 1e6D,
+                pHistogram.getPercentile(0.99D) / 1e6D, pHistogram.getMax() / 1e6D);
+    }
+
+    private static Object invoke(@NotNull final Object pTarget, @NotNull final Method pMethod, @Nullable final Object[] pArgs) throws Throwable {
+        try {
+            return pMethod.invoke(pTarget, pArgs);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A single call of a database method, from getting the connection until closing it.
+     */
+    private final class Call implements InvocationHandler {
+
+        private final @NotNull String mName;
+        private final @NotNull Connection mConnection;
+        private final long mStart;
+        private final long mAcquired;
+        private long mExecuting = 0L;
+        private boolean mClosed = false;
+
+        /**
+         * The last prepared statement and the calls that bound its parameters, to explain it if the call is slow.
+         */
+        private @Nullable String mSql = null;
+        private @Nullable Map<Integer, Binding> mParameters = null;
+
+        /**
+         * Whether a parameter of the last statement was bound from a stream, which can't be read again to explain it.
+         */
+        private boolean mUncaptured = false;
+
+        private Call(@NotNull final String pName, @NotNull final Connection pConnection, final long pStart, final long pAcquired) {
+            mName = pName;
+            mConnection = pConnection;
+            mStart = pStart;
+            mAcquired = pAcquired;
+        }
+
+        @Override
+        public Object invoke(final Object pProxy, final Method pMethod, final Object[] pArgs) throws Throwable {
+            switch (pMethod.getName()) {
+                case "prepareStatement" -> {
+                    final var start = System.nanoTime();
+                    try {
+                        final var statement = (PreparedStatement) StatementProfiler.invoke(mConnection, pMethod, pArgs);
+                        mSql = (String) pArgs[0];
+                        mParameters = mExplain ? new HashMap<>() : null;
+                        mUncaptured = false;
+                        return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                                (proxy, method, args) -> invokeStatement(statement, method, args));
+                    } finally {
+                        mExecuting += System.nanoTime() - start;
+                    }
+                }
+                case "close" -> {
+                    if (!mClosed) {
+                        mClosed = true;
+                        try {
+                            finish();
+                        } finally {
+                            mConnection.close();
+                        }
+                    }
+                    return null;
+                }
+                default -> {
+                    return StatementProfiler.invoke(mConnection, pMethod, pArgs);
+                }
+            }
+        }
+
+        private Object invokeStatement(@NotNull final PreparedStatement pStatement, @NotNull final Method pMethod, final Object[] pArgs) throws Throwable {
+            final var name = pMethod.getName();
+            if (name.startsWith("execute")) {
+                final var start = System.nanoTime();
+                try {
+                    return StatementProfiler.invoke(pStatement, pMethod, pArgs);
+                } finally {
+                    mExecuting += System.nanoTime() - start;
+                }
+            }
+            if (mParameters != null)
+                capture(pMethod, pArgs);
+            return StatementProfiler.invoke(pStatement, pMethod, pArgs);
+        }
+
+        /**
+         * Remembers a call that binds a parameter, like setNull(index, type) or setObject(index, value, type), to repeat it for EXPLAIN.
+         * Parameters bound from streams are not captured.
+         */
+        private void capture(@NotNull final Method pMethod, final Object[] pArgs) {
+            final var name = pMethod.getName();
+            if (name.equals("clearParameters")) {
+                Objects.requireNonNull(mParameters).clear();
+                mUncaptured = false;
+                return;
+            }
+            if (!name.startsWith("set") || pArgs == null || pArgs.length < 2 || !(pArgs[0] instanceof Integer index))
+                return;
+            for (final var arg : pArgs) {
+                if (arg instanceof InputStream || arg instanceof Reader) {
+                    mUncaptured = true;
+                    return;
+                }
+            }
+            Objects.requireNonNull(mParameters).put(index, new Binding(pMethod, pArgs.clone()));
+        }
+
+        private void finish() {
+            final var end = System.nanoTime();
+            final var acquire = mAcquired - mStart;
+            final var total = end - mStart;
+            final var map = total - acquire - mExecuting;
+            final var statistics = mStatistics.computeIfAbsent(mName, name -> new StatementStatistics());
+            statistics.acquire().record(acquire);
+            statistics.execute().record(mExecuting);
+            statistics.map().record(map);
+            statistics.total().record(total);
+            if (total >= mSlowThreshold && mLogger != null) {
+                final var message = new StringBuilder(String.format(Locale.ROOT,
+                        "Slow database call %s: %.3fms (acquire %.3fms, execute %.3fms, map %.3fms)",
+                        mName, total / 1e6D, acquire / 1e6D, mExecuting / 1e6D, map / 1e6D));
+                if (mSql != null)
+                    message.append("\n  ").append(mSql);
+                if (mExplain && mSql != null)
+                    explain(message);
+                mLogger.warning(message.toString());
+            }
+        }
+
+        /**
+         * Appends the EXPLAIN output of the last statement, with the parameters it was executed with.
+         * Nothing is explained if a parameter was not captured, since the plan could differ from the one that was slow.
+         */
+        private void explain(@NotNull final StringBuilder pMessage) {
+            try (final var statement = mConnection.prepareStatement("EXPLAIN " + mSql)) {
+                final var parameters = Objects.requireNonNull(mParameters);
+                final var count = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= count; i++) {
+                    if (mUncaptured || !parameters.containsKey(i)) {
+                        pMessage.append("\n  Not explained, not all parameters were captured.");
+                        return;
+                    }
+                    parameters.get(i).bind(statement);
+                }
+                try (final var result = statement.executeQuery()) {
+                    final var columns = result.getMetaData().getColumnCount();
+                    while (result.next()) {
+                        pMessage.append("\n  ");
+                        for (int i = 1; i <= columns; i++) {
+                            if (i > 1)
+                                pMessage.append(" | ");
+                            pMessage.append(result.getString(i));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (mLogger != null)
+                    mLogger.log(Level.FINE, "Could not explain " + mSql, e);
+            }
+        }
+
+    }
+
+    /**
+     * A call that bound a parameter, repeated on the EXPLAIN statement with the same arguments.
+     */
+    private record Binding(@NotNull Method method, @NotNull Object[] args) {
+
+        private void bind(@NotNull final PreparedStatement pStatement) throws SQLException {
+            try {
+                method.invoke(pStatement, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException cause)
+                    throw cause;
+                throw new SQLException("Could not bind a parameter.", e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new SQLException("Could not bind a parameter.", e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package me.minecraft_server.homes.database.profiling;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The latencies of a database method, split into its phases.
+ * @param acquire Waiting for a connection of the pool.
+ * @param execute Preparing and executing the statements.
+ * @param map Reading the results and everything else until the connection is returned.
+ * @param total The whole call.
+ */
+public record StatementStatistics(@NotNull LatencyHistogram acquire, @NotNull LatencyHistogram execute,
+                                  @NotNull LatencyHistogram map, @NotNull LatencyHistogram total) {
+
+    StatementStatistics() {
+        this(new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram());
+    }
+
+}
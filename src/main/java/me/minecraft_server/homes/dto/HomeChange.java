@@ -0,0 +1,34 @@
+package me.minecraft_server.homes.dto;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * A change recorded in the change log of a shared database.
+ * @param sequence The position in the change log.
+ * @param origin The database instance that made the change, to skip own changes.
+ * @param owner The player whose homes changed, or who was registered if a username is set.
+ * @param homeId The home whose location changed or that was deleted, null if any home of the owner may have changed.
+ * @param username The username a player was registered with, null for changes of homes.
+ */
+public record HomeChange(long sequence, int origin, @Nullable UUID owner, @Nullable Integer homeId, @Nullable String username) {
+
+    public static @NotNull HomeChange homes(final long pSequence, final int pOrigin, @NotNull final UUID pOwner) {
+        return new HomeChange(pSequence, pOrigin, pOwner, null, null);
+    }
+
+    public static @NotNull HomeChange home(final long pSequence, final int pOrigin, final int pHomeId) {
+        return new HomeChange(pSequence, pOrigin, null, pHomeId, null);
+    }
+
+    public static @NotNull HomeChange home(final long pSequence, final int pOrigin, @NotNull final UUID pOwner, final int pHomeId) {
+        return new HomeChange(pSequence, pOrigin, pOwner, pHomeId, null);
+    }
+
+    public static @NotNull HomeChange player(final long pSequence, final int pOrigin, @NotNull final UUID pOwner, @NotNull final String pUsername) {
+        return new HomeChange(pSequence, pOrigin, pOwner, null, pUsername);
+    }
+
+}
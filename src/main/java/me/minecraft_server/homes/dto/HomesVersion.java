@@ -0,0 +1,27 @@
+package me.minecraft_server.homes.dto;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * A cheap fingerprint of the homes of a player. Ids of homes are never reused and the name of a home never changes,
+ * so adding or deleting homes always changes the fingerprint, moving them does not.
+ * @param count The amount of homes.
+ * @param maxHomeId The greatest id of the homes, 0 if there are none.
+ */
+public record HomesVersion(int count, int maxHomeId) {
+
+    /**
+     * A version that matches no homes, e.g. if it could not be read.
+     */
+    public static final HomesVersion UNKNOWN = new HomesVersion(-1, -1);
+
+    public static @NotNull HomesVersion of(@NotNull final Collection<Integer> pHomeIds) {
+        int max = 0;
+        for (final var homeId : pHomeIds)
+            max = Math.max(max, homeId);
+        return new HomesVersion(pHomeIds.size(), max);
+    }
+
+}
@@ -0,0 +1,7 @@
+package me.minecraft_server.homes.dto;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+public record OwnedHome(@NotNull UUID owner, @NotNull String name, @NotNull HomeLocation location) { }
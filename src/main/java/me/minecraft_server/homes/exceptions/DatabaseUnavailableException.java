@@ -0,0 +1,19 @@
+package me.minecraft_server.homes.exceptions;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Thrown if the database can't be reached or does not answer in time.
+ * Other errors, like violated constraints, are not reported this way.
+ */
+public class DatabaseUnavailableException extends RuntimeException {
+
+    public DatabaseUnavailableException(@NotNull final String pMessage) {
+        super(pMessage);
+    }
+
+    public DatabaseUnavailableException(@NotNull final String pMessage, @NotNull final Exception pCause) {
+        super(pMessage, pCause);
+    }
+
+}
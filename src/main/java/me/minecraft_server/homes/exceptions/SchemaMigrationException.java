@@ -0,0 +1,15 @@
+package me.minecraft_server.homes.exceptions;
+
+import org.jetbrains.annotations.NotNull;
+
+public class SchemaMigrationException extends RuntimeException {
+
+    public SchemaMigrationException(@NotNull final String pMessage) {
+        super(pMessage);
+    }
+
+    public SchemaMigrationException(@NotNull final String pMessage, @NotNull final Exception pCause) {
+        super(pMessage, pCause);
+    }
+
+}
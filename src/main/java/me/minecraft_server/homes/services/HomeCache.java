@@ -0,0 +1,516 @@
+package me.minecraft_server.homes.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import me.minecraft_server.homes.dto.HomeChange;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import me.minecraft_server.homes.exceptions.HomeNotFoundException;
+import me.minecraft_server.homes.services.homes.HomeTarget;
+import me.minecraft_server.homes.util.CommandUtils;
+import me.minecraft_server.homes.util.RefreshingCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caches the homes of players and their locations, and keeps the last known ones to serve while the database is unavailable.
+ * Owners and homes have write counters, spread over stripes by hash. Writes and changes of other servers advance the counters
+ * of what they touch before they cache or invalidate, and a load only caches its result if the counter did not advance
+ * while it was running. So a load that read the database before a write can't put back what the write replaced.
+ * Loads check and cache while holding the lock of the counters, writes and invalidations advance and cache while holding it.
+ */
+public final class HomeCache {
+
+    /**
+     * The amount of write counters owners and homes are spread over, a power of two.
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    /**
+     * Write counters of owners and homes, the lock of this array guards every check and update of the caches.
+     */
+    private @NotNull final AtomicLongArray mGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private @NotNull final Loader<Integer, HomeLocation> mLocationLoader;
+
+    private @NotNull final Loader<UUID, List<HomeEntry>> mEntryLoader;
+
+    /**
+     * Locations by home id.
+     */
+    private @NotNull final RefreshingCache<Integer, HomeLocation> mLocations;
+
+    /**
+     * Ids and names of all homes of a player, the ids can then be used in the locations cache.
+     */
+    private @NotNull final RefreshingCache<UUID, BiMap<Integer, String>> mPlayerHomes;
+
+    /**
+     * The last known locations and homes of players, kept after they expire from the caches above.
+     */
+    private @NotNull final Cache<Integer, HomeLocation> mStaleLocations;
+
+    private @NotNull final Cache<UUID, BiMap<Integer, String>> mStalePlayerHomes;
+
+    /**
+     * Ids of homes that don't exist.
+     */
+    private @NotNull final Cache<Integer, Boolean> mMissingHomes;
+
+    /**
+     * Creates a cache.
+     * @param pRefreshAfter The time after which read entries are reloaded in the background.
+     * @param pExpireAfter The time after which entries that were not read expire.
+     * @param pJitter The fraction both times are randomized by per entry.
+     * @param pStaleDuration How long the last known homes are kept.
+     * @param pNegativeExpiry How long homes that don't exist are remembered.
+     * @param pLocationLoader Loads the location of a home, null if the home does not exist.
+     * @param pEntryLoader Loads all homes of a player.
+     */
+    public HomeCache(@NotNull final Duration pRefreshAfter, @NotNull final Duration pExpireAfter, final double pJitter,
+                     @NotNull final Duration pStaleDuration, @NotNull final Duration pNegativeExpiry,
+                     @NotNull final Loader<Integer, HomeLocation> pLocationLoader, @NotNull final Loader<UUID, List<HomeEntry>> pEntryLoader) {
+        mLocationLoader = pLocationLoader;
+        mEntryLoader = pEntryLoader;
+        mLocations = new RefreshingCache<>(pRefreshAfter, pExpireAfter, pJitter, this::loadLocation);
+        mPlayerHomes = new RefreshingCache<>(pRefreshAfter, pExpireAfter, pJitter, this::loadPlayerHomes);
+        mStaleLocations = CacheBuilder.newBuilder().expireAfterWrite(pStaleDuration).build();
+        mStalePlayerHomes = CacheBuilder.newBuilder().expireAfterWrite(pStaleDuration).build();
+        mMissingHomes = CacheBuilder.newBuilder().expireAfterWrite(pNegativeExpiry).build();
+    }
+
+    /**
+     * Gets the write counter of an owner or home.
+     * @param pKey The unique id of the owner or the id of the home.
+     * @return The counter.
+     */
+    public long generation(@NotNull final Object pKey) {
+        return mGenerations.get(pKey.hashCode() & (GENERATION_STRIPES - 1));
+    }
+
+    /**
+     * Advances the write counter of an owner or home, so loads that are running won't cache their result.
+     * Has to be called while holding the lock of {@link #mGenerations}.
+     * @param pKey The unique id of the owner or the id of the home.
+     */
+    private void advanceGeneration(@NotNull final Object pKey) {
+        mGenerations.incrementAndGet(pKey.hashCode() & (GENERATION_STRIPES - 1));
+    }
+
+    /**
+     * Gets a cached location.
+     * @param pHomeId The id of the home.
+     * @return The location, or null if it is not cached.
+     */
+    public @Nullable HomeLocation getCachedLocation(final int pHomeId) {
+        return mLocations.getIfPresent(pHomeId);
+    }
+
+    /**
+     * Gets the cached homes of a player.
+     * @param pOwner The owner of the homes.
+     * @return The homes bi-mapped by id to name, or null if they are not cached. Never modified.
+     */
+    public @Nullable BiMap<Integer, String> getCachedPlayerHomes(@NotNull final UUID pOwner) {
+        return mPlayerHomes.getIfPresent(pOwner);
+    }
+
+    /**
+     * Gets the last known homes of a player.
+     * @param pOwner The owner of the homes.
+     * @return The homes bi-mapped by id to name, or null if they are unknown.
+     */
+    public @Nullable BiMap<Integer, String> getStalePlayerHomes(@NotNull final UUID pOwner) {
+        return mStalePlayerHomes.getIfPresent(pOwner);
+    }
+
+    /**
+     * Gets the last known locations of homes.
+     * @param pHomeIds The ids of the homes.
+     * @return The known locations mapped by id.
+     */
+    public @NotNull Map<Integer, HomeLocation> getStaleLocations(@NotNull final Collection<Integer> pHomeIds) {
+        return mStaleLocations.getAllPresent(pHomeIds);
+    }
+
+    /**
+     * Gets a location from the cache or loads it.
+     * While the database is unavailable, the last known location is returned.
+     * @param pHomeId The id of the home.
+     * @return A future to the location, fails with {@link HomeNotFoundException} if the home does not exist.
+     */
+    public @NotNull CompletableFuture<HomeLocation> getLocation(final int pHomeId) {
+        final var cached = mLocations.getIfPresent(pHomeId);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+        if (mMissingHomes.getIfPresent(pHomeId) != null)
+            return CompletableFuture.failedFuture(new HomeNotFoundException(new HomeTarget.Identifier(pHomeId)));
+        final var generation = generation(pHomeId);
+        return orStale(loadLocation(pHomeId).thenApply(home -> {
+            if (home == null) {
+                mMissingHomes.put(pHomeId, true);
+                throw new HomeNotFoundException(new HomeTarget.Identifier(pHomeId));
+            }
+            cacheLoadedLocation(pHomeId, home, generation);
+            return home;
+        }), mStaleLocations, pHomeId);
+    }
+
+    /**
+     * Gets the homes of a player from the cache or loads them, loading also caches their locations.
+     * While the database is unavailable, the last known homes are returned.
+     * @param pOwner The owner of the homes.
+     * @return A future to the homes bi-mapped by id to name.
+     */
+    public @NotNull CompletableFuture<BiMap<Integer, String>> getPlayerHomes(@NotNull final UUID pOwner) {
+        final var cached = mPlayerHomes.getIfPresent(pOwner);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+        final var generation = generation(pOwner);
+        return orStale(mEntryLoader.load(pOwner, generation).thenApply(entries -> cacheEntries(pOwner, entries, generation)), mStalePlayerHomes, pOwner);
+    }
+
+    /**
+     * Loads all homes of a player and caches both, the home names and their locations.
+     * @param pOwner The owner of the homes.
+     * @return A future to all homes of the owner.
+     */
+    public @NotNull CompletableFuture<List<HomeEntry>> loadEntries(@NotNull final UUID pOwner) {
+        final var generation = generation(pOwner);
+        return mEntryLoader.load(pOwner, generation).thenApply(entries -> {
+            cacheEntries(pOwner, entries, generation);
+            return entries;
+        });
+    }
+
+    /**
+     * Loads a location for {@link #mLocations}, it is kept as the last known location as well.
+     * @param pHomeId The id of the home.
+     * @return A future to the location, or null if the home does not exist.
+     */
+    private @NotNull CompletableFuture<HomeLocation> loadLocation(@NotNull final Integer pHomeId) {
+        final var generation = generation(pHomeId);
+        return mLocationLoader.load(pHomeId, generation).thenApply(home -> {
+            if (home != null) {
+                synchronized (mGenerations) {
+                    if (generation(pHomeId) == generation)
+                        mStaleLocations.put(pHomeId, home);
+                }
+            }
+            return home;
+        });
+    }
+
+    /**
+     * Loads the homes of a player for {@link #mPlayerHomes}, their locations are cached as well.
+     * @param pOwner The owner of the homes.
+     * @return A future to the homes bi-mapped by id to name.
+     */
+    private @NotNull CompletableFuture<BiMap<Integer, String>> loadPlayerHomes(@NotNull final UUID pOwner) {
+        final var generation = generation(pOwner);
+        return mEntryLoader.load(pOwner, generation).thenApply(entries -> mapEntries(pOwner, entries, generation));
+    }
+
+    /**
+     * Caches the ids and names of all homes of a player and their locations, unless the player was written meanwhile.
+     * @param pOwner The owner of the homes.
+     * @param pEntries All homes of the owner.
+     * @param pGeneration The write counter of the owner before the homes were loaded.
+     * @return The homes bi-mapped by id to name.
+     */
+    public @NotNull BiMap<Integer, String> cacheEntries(@NotNull final UUID pOwner, @NotNull final List<HomeEntry> pEntries, final long pGeneration) {
+        final var homes = mapEntries(pOwner, pEntries, pGeneration);
+        synchronized (mGenerations) {
+            if (generation(pOwner) == pGeneration)
+                mPlayerHomes.put(pOwner, homes);
+        }
+        return homes;
+    }
+
+    /**
+     * Maps the homes of a player by id to name and caches their locations, unless the player was written meanwhile.
+     * Locations that are cached already are kept, they can only be newer. The map is only cached as the last known homes.
+     * @param pOwner The owner of the homes.
+     * @param pEntries All homes of the owner.
+     * @param pGeneration The write counter of the owner before the homes were loaded.
+     * @return The homes bi-mapped by id to name.
+     */
+    private @NotNull BiMap<Integer, String> mapEntries(@NotNull final UUID pOwner, @NotNull final List<HomeEntry> pEntries, final long pGeneration) {
+        final BiMap<Integer, String> homes = HashBiMap.create(pEntries.size());
+        for (final var entry : pEntries)
+            homes.put(entry.homeId(), entry.name());
+        synchronized (mGenerations) {
+            if (generation(pOwner) != pGeneration)
+                return homes;
+            for (final var entry : pEntries) {
+                mLocations.putIfAbsent(entry.homeId(), entry.location());
+                mStaleLocations.put(entry.homeId(), entry.location());
+                mMissingHomes.invalidate(entry.homeId());
+            }
+            mStalePlayerHomes.put(pOwner, homes);
+        }
+        return homes;
+    }
+
+    /**
+     * Caches a loaded location, unless the home was written meanwhile.
+     * @param pHomeId The id of the home.
+     * @param pLocation The loaded location.
+     * @param pGeneration The write counter of the home before the location was loaded.
+     */
+    public void cacheLoadedLocation(final int pHomeId, @NotNull final HomeLocation pLocation, final long pGeneration) {
+        synchronized (mGenerations) {
+            if (generation(pHomeId) == pGeneration)
+                cacheLocation(pHomeId, pLocation);
+        }
+    }
+
+    /**
+     * Caches homes of a player again, unless the player was written since the homes were read.
+     * @param pOwner The owner of the homes.
+     * @param pHomes The homes bi-mapped by id to name.
+     * @param pGeneration The write counter of the owner before the homes were read.
+     * @return Whether the homes are cached.
+     */
+    public boolean restorePlayerHomes(@NotNull final UUID pOwner, @NotNull final BiMap<Integer, String> pHomes, final long pGeneration) {
+        synchronized (mGenerations) {
+            if (generation(pOwner) != pGeneration)
+                return false;
+            mPlayerHomes.put(pOwner, pHomes);
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the cached homes of a player, the last known homes are kept.
+     * @param pOwner The owner of the homes.
+     */
+    public void invalidatePlayerHomes(@NotNull final UUID pOwner) {
+        mPlayerHomes.invalidate(pOwner);
+    }
+
+    /**
+     * Caches a home that was just written. The cached homes of its owner are replaced by a copy with the home,
+     * so the next teleport neither has to load the homes nor the location.
+     * @param pOwner The owner of the home.
+     * @param pHomeId The id of the home.
+     * @param pName The name of the home.
+     * @param pLocation The written location.
+     */
+    public void cacheWrittenHome(@NotNull final UUID pOwner, final int pHomeId, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        synchronized (mGenerations) {
+            advanceGeneration(pOwner);
+            advanceGeneration(pHomeId);
+            cacheLocation(pHomeId, pLocation);
+            final var homes = mPlayerHomes.getIfPresent(pOwner);
+            if (homes != null && !pName.equals(homes.get(pHomeId)))
+                mPlayerHomes.put(pOwner, withHome(homes, pHomeId, pName));
+            final var staleHomes = mStalePlayerHomes.getIfPresent(pOwner);
+            if (staleHomes != null && !pName.equals(staleHomes.get(pHomeId)))
+                mStalePlayerHomes.put(pOwner, withHome(staleHomes, pHomeId, pName));
+        }
+    }
+
+    /**
+     * Caches a home whose write is buffered, so its id is only known if the home is cached already.
+     * Otherwise, the homes of the owner are invalidated. This keeps the cache authoritative even though the write is still pending.
+     * @param pOwner The owner of the home.
+     * @param pName The name of the home.
+     * @param pLocation The written location.
+     */
+    public void cachePendingHome(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation) {
+        synchronized (mGenerations) {
+            advanceGeneration(pOwner);
+            final var homes = mPlayerHomes.getIfPresent(pOwner);
+            final var homeId = homes != null ? homes.inverse().get(pName) : null;
+            if (homeId != null) {
+                advanceGeneration(homeId);
+                cacheLocation(homeId, pLocation);
+            } else {
+                mPlayerHomes.invalidate(pOwner);
+            }
+        }
+    }
+
+    /**
+     * Caches the location a home was just moved to.
+     * @param pHomeId The id of the home.
+     * @param pLocation The written location.
+     */
+    public void cacheWrittenLocation(final int pHomeId, @NotNull final HomeLocation pLocation) {
+        synchronized (mGenerations) {
+            advanceGeneration(pHomeId);
+            cacheLocation(pHomeId, pLocation);
+        }
+    }
+
+    /**
+     * Forgets a deleted home of a player, its id is taken from the cached or last known homes.
+     * @param pOwner The owner of the home.
+     * @param pName The name of the home.
+     */
+    public void forgetHome(@NotNull final UUID pOwner, @NotNull final String pName) {
+        synchronized (mGenerations) {
+            advanceGeneration(pOwner);
+            final var homes = mPlayerHomes.getIfPresent(pOwner);
+            final var staleHomes = mStalePlayerHomes.getIfPresent(pOwner);
+            final var known = homes != null ? homes : staleHomes;
+            final var homeId = known != null ? known.inverse().get(pName) : null;
+            if (homeId != null)
+                forgetHome(homeId);
+            if (homes != null)
+                mPlayerHomes.put(pOwner, withoutHome(homes, pName));
+            if (staleHomes != null)
+                mStalePlayerHomes.put(pOwner, withoutHome(staleHomes, pName));
+        }
+    }
+
+    /**
+     * Forgets a deleted home, including its last known location.
+     * @param pHomeId The id of the home.
+     */
+    public void forgetHome(final int pHomeId) {
+        synchronized (mGenerations) {
+            advanceGeneration(pHomeId);
+            mLocations.invalidate(pHomeId);
+            mStaleLocations.invalidate(pHomeId);
+            mMissingHomes.put(pHomeId, true);
+        }
+    }
+
+    /**
+     * Invalidates the homes another server changed. Changes of usernames are ignored.
+     * @param pChange The change of the other server.
+     */
+    public void applyChange(@NotNull final HomeChange pChange) {
+        if (pChange.username() != null)
+            return;
+        synchronized (mGenerations) {
+            if (pChange.owner() != null) {
+                // The ids of the homes are known from the cached or last known homes, so loads of them in flight are dropped too
+                advanceGeneration(pChange.owner());
+                final var homes = mStalePlayerHomes.getIfPresent(pChange.owner());
+                if (homes != null)
+                    homes.keySet().forEach(this::invalidateLocation);
+                final var cached = mPlayerHomes.getIfPresent(pChange.owner());
+                if (cached != null)
+                    cached.keySet().forEach(this::invalidateLocation);
+                mPlayerHomes.invalidate(pChange.owner());
+            }
+            if (pChange.homeId() != null) {
+                invalidateLocation(pChange.homeId());
+                mMissingHomes.invalidate(pChange.homeId());
+            }
+        }
+    }
+
+    /**
+     * Invalidates all cached homes, since changes of other servers may have been missed.
+     * The last known homes are kept, they are only served while the database is unavailable.
+     */
+    public void invalidateAll() {
+        synchronized (mGenerations) {
+            for (int i = 0; i < GENERATION_STRIPES; i++)
+                mGenerations.incrementAndGet(i);
+        }
+        mLocations.invalidateAll();
+        mPlayerHomes.invalidateAll();
+        mMissingHomes.invalidateAll();
+    }
+
+    /**
+     * Caches a location, also as the last known location. Has to be called while holding the lock of {@link #mGenerations}.
+     * @param pHomeId The id of the home.
+     * @param pLocation The location.
+     */
+    private void cacheLocation(final int pHomeId, @NotNull final HomeLocation pLocation) {
+        mLocations.put(pHomeId, pLocation);
+        mStaleLocations.put(pHomeId, pLocation);
+        mMissingHomes.invalidate(pHomeId);
+    }
+
+    /**
+     * Invalidates the cached location of a home and drops loads of it in flight.
+     * Has to be called while holding the lock of {@link #mGenerations}.
+     * @param pHomeId The id of the home.
+     */
+    private void invalidateLocation(@NotNull final Integer pHomeId) {
+        advanceGeneration(pHomeId);
+        mLocations.invalidate(pHomeId);
+    }
+
+    /**
+     * Completes with the last known value instead, if a load failed because the database is unavailable.
+     * @param pLoad The load from the database.
+     * @param pStale The cache of last known values.
+     * @param pKey The key of the value.
+     * @return A future to the loaded or the last known value.
+     */
+    private static <K, V> @NotNull CompletableFuture<V> orStale(@NotNull final CompletableFuture<V> pLoad, @NotNull final Cache<K, V> pStale, @NotNull final K pKey) {
+        return pLoad.handle((value, ex) -> {
+            if (ex == null)
+                return value;
+            final var stale = pStale.getIfPresent(pKey);
+            if (stale != null && CommandUtils.unwrap(ex) instanceof DatabaseUnavailableException)
+                return stale;
+            throw ex instanceof CompletionException completion ? completion : new CompletionException(ex);
+        });
+    }
+
+    /**
+     * Copies homes with a home added, cached maps are never modified since they are read concurrently.
+     * A home with the same name but a different id is replaced, it was deleted and added again.
+     * @param pHomes The homes bi-mapped by id to name.
+     * @param pHomeId The id of the home.
+     * @param pName The name of the home.
+     * @return The copy.
+     */
+    private static @NotNull BiMap<Integer, String> withHome(@NotNull final BiMap<Integer, String> pHomes, final int pHomeId, @NotNull final String pName) {
+        final BiMap<Integer, String> homes = HashBiMap.create(pHomes);
+        homes.forcePut(pHomeId, pName);
+        return homes;
+    }
+
+    /**
+     * Copies homes with a home removed, cached maps are never modified since they are read concurrently.
+     * @param pHomes The homes bi-mapped by id to name.
+     * @param pName The name of the home.
+     * @return The copy.
+     */
+    private static @NotNull BiMap<Integer, String> withoutHome(@NotNull final BiMap<Integer, String> pHomes, @NotNull final String pName) {
+        final BiMap<Integer, String> homes = HashBiMap.create(pHomes);
+        homes.inverse().remove(pName);
+        return homes;
+    }
+
+    /**
+     * Loads values of the cache from the database.
+     * @param <K> The type of the keys.
+     * @param <V> The type of the values.
+     */
+    @FunctionalInterface
+    public interface Loader<K, V> {
+
+        /**
+         * Loads a value, a pending load may be joined if it started for the same write counter.
+         * @param pKey The key of the value.
+         * @param pGeneration The write counter of the key before the load.
+         * @return A future to the value.
+         */
+        @NotNull CompletableFuture<V> load(@NotNull K pKey, long pGeneration);
+
+    }
+
+}
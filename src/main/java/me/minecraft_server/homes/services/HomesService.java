@@ -1,25 +1,34 @@
 package me.minecraft_server.homes.services;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.BiMap;
 import lombok.Getter;
 import me.minecraft_server.homes.Homes;
-import me.minecraft_server.homes.database.SQLDataSource;
-import me.minecraft_server.homes.database.SQLDatabase;
-import me.minecraft_server.homes.database.impl.MySQLDatabase;
+import me.minecraft_server.homes.database.AsyncDatabase;
+import me.minecraft_server.homes.database.ChangeFeedPoller;
+import me.minecraft_server.homes.database.IAsyncDatabase;
+import me.minecraft_server.homes.database.IDatabase;
+import me.minecraft_server.homes.dto.HomeChange;
 import me.minecraft_server.homes.dto.HomeEntry;
 import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
 import me.minecraft_server.homes.exceptions.HomeNotFoundException;
 import me.minecraft_server.homes.exceptions.NotUniquelyIdentifiableException;
 import me.minecraft_server.homes.exceptions.RegisteredPlayerNotFoundException;
+import me.minecraft_server.homes.util.BatchLoader;
 import me.minecraft_server.homes.util.CommandUtils;
+import me.minecraft_server.homes.util.HomeNameIndex;
+import me.minecraft_server.homes.util.SingleFlight;
 import me.minecraft_server.homes.services.homes.HomeTarget;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.permissions.Permissible;
@@ -28,13 +37,115 @@ import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
 
 public final class HomesService implements Listener {
 
-    private @NotNull final SQLDataSource source;
+    /**
+     * Entries read after this time are reloaded in the background, while the cached value is still returned.
+     */
+    private static final Duration REFRESH_AFTER = Duration.ofMinutes(4L);
+
+    /**
+     * Entries not read since they were written expire after this time.
+     */
+    private static final Duration EXPIRE_AFTER = Duration.ofMinutes(5L);
+
+    /**
+     * Both times are randomized by this fraction per entry, so entries cached together don't reload together.
+     */
+    private static final double EXPIRY_JITTER = 0.2D;
+
+    /**
+     * The refresh and expiry times if changes of other servers are read from the change feed.
+     */
+    private static final Duration FEED_REFRESH_AFTER = Duration.ofMinutes(50L);
+    private static final Duration FEED_EXPIRE_AFTER = Duration.ofHours(1L);
+
+    /**
+     * Changes that show up later than this after changes with a greater sequence are missed.
+     */
+    private static final Duration CHANGE_SETTLE_TIME = Duration.ofSeconds(5L);
+
+    /**
+     * Homes and usernames that don't exist are remembered for this time.
+     */
+    private static final Duration NEGATIVE_EXPIRY = Duration.ofSeconds(30L);
 
-    private @NotNull final SQLDatabase database;
+    /**
+     * Registered usernames are trusted this long for shared databases, if other servers may rename players without telling.
+     */
+    private static final Duration REGISTERED_NAMES_TRUST = Duration.ofMinutes(10L);
+
+    /**
+     * How long logging in players wait for their homes, afterwards they are loaded on demand.
+     */
+    private static final Duration LOGIN_PRELOAD_TIMEOUT = Duration.ofSeconds(2L);
+
+    /**
+     * The maximum amount of players whose registered username is remembered.
+     */
+    private static final long KNOWN_PLAYERS = 100_000L;
+
+    /**
+     * Renames of players are written this often.
+     */
+    private static final Duration RENAME_FLUSH_INTERVAL = Duration.ofSeconds(5L);
+
+    /**
+     * The homes of players who quit are retained for this time, so reconnecting players don't reload them.
+     */
+    private static final Duration KEEP_WARM = Duration.ofMinutes(2L);
+
+    /**
+     * The maximum amount of usernames completed at once.
+     */
+    private static final int PLAYER_COMPLETIONS = 50;
+
+    /**
+     * Loads of different players and homes within this window are loaded together with a single query.
+     */
+    private static final Duration BATCH_WINDOW = Duration.ofMillis(2L);
+
+    /**
+     * The maximum amount of players or homes loaded together, full batches are loaded right away.
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private @NotNull final HomesStorage storage;
+
+    private @NotNull final IDatabase database;
+
+    private @NotNull final AsyncDatabase asyncDatabase;
+
+    private @NotNull final PlayerRegistry playerRegistry;
+
+    /**
+     * The cached homes and their locations, including the last known ones.
+     */
+    private @NotNull final HomeCache homeCache;
+
+    /**
+     * Resolves and completes the usernames of registered players.
+     */
+    private @NotNull final PlayerLookup playerLookup;
+
+    /**
+     * Reads the changes of other servers, null if the database is not shared or changes are not exchanged.
+     */
+    private @Nullable final ChangeFeedPoller changeFeedPoller;
+
+    /**
+     * Whether other servers change the database without telling, so cached homes may be outdated.
+     */
+    private final boolean changesUnknown;
+
+    private @NotNull final Logger logger;
 
     @Getter
     private @NotNull final String server;
@@ -42,260 +153,471 @@ public final class HomesService implements Listener {
     @Getter
     private @NotNull final String defaultHome;
 
-    private @NotNull final Homes plugin;
-
     public HomesService(@NotNull final Homes pPlugin) {
-        this.plugin = pPlugin;
+        this(HomesStorage.fromConfig(pPlugin.getConfig(), pPlugin.getDataFolder().toPath(), pPlugin.getLogger()),
+                pPlugin.getConfig().getString("server", ""), pPlugin.getConfig().getString("default_home", "default"), pPlugin.getLogger());
+
+        // Players that are already online, e.g. after a reload
+        preloadPlayers(Bukkit.getOnlinePlayers().stream().map(Player::getUniqueId).toList());
+    }
 
-        // Get config
-        final var config = pPlugin.getConfig();
+    /**
+     * Creates the service without the plugin.
+     * @param pStorage The storage of homes, closed when the service shuts down.
+     * @param pServer The name of this server.
+     * @param pDefaultHome The name of the default home.
+     * @param pLogger The logger to log to.
+     */
+    public HomesService(@NotNull final HomesStorage pStorage, @NotNull final String pServer, @NotNull final String pDefaultHome, @NotNull final Logger pLogger) {
+
+        this.storage = pStorage;
+        this.database = pStorage.getDatabase();
+        this.logger = pLogger;
+        this.server = pServer;
+        this.defaultHome = pDefaultHome;
+
+        // One thread per connection, so no thread has to wait for a connection
+        this.asyncDatabase = new AsyncDatabase(this.database, pStorage.getThreads());
+
+        // Concurrent loads of different players and homes share a query, so the pool is not drained at peak times
+        this.entryBatches = new BatchLoader<>(asyncDatabase.getExecutor(), BATCH_WINDOW, MAX_BATCH_SIZE, asyncDatabase::getHomeEntries);
+        this.locationBatches = new BatchLoader<>(asyncDatabase.getExecutor(), BATCH_WINDOW, MAX_BATCH_SIZE, asyncDatabase::getHomes);
+
+        // With the changes of other servers, entries only expire to free memory
+        final var changeFeed = pStorage.getChangeFeed();
+        final var refreshAfter = changeFeed != null ? FEED_REFRESH_AFTER : REFRESH_AFTER;
+        final var expireAfter = changeFeed != null ? FEED_EXPIRE_AFTER : EXPIRE_AFTER;
+
+        // Keep the last known homes much longer, to serve them while the database is unavailable
+        this.homeCache = new HomeCache(refreshAfter, expireAfter, EXPIRY_JITTER, pStorage.getStaleDuration(), NEGATIVE_EXPIRY,
+                (homeId, generation) -> locationLoads.load(homeId, generation, () -> locationBatches.load(homeId)), this::fetchEntries);
+
+        // Buffered writes the database rejected are shown as written, so their homes are loaded again
+        pStorage.setDroppedWriteListener(homeCache::applyChange);
+
+        // Follow the changes of other servers
+        if (changeFeed != null) {
+            this.changeFeedPoller = new ChangeFeedPoller(changeFeed, this::applyChange, this::invalidateAll, CHANGE_SETTLE_TIME, pStorage.getRetention());
+            final var interval = pStorage.getPollInterval().toMillis();
+            asyncDatabase.getExecutor().scheduleWithFixedDelay(this::pollChanges, interval, interval, TimeUnit.MILLISECONDS);
+            asyncDatabase.getExecutor().scheduleWithFixedDelay(this::pruneChanges, 1L, 1L, TimeUnit.MINUTES);
+        } else {
+            this.changeFeedPoller = null;
+        }
 
-        // Connect to the database
-        final var host = config.getString("database.host", "localhost");
-        final var port = config.getInt("database.port", 3306);
-        final var database = config.getString("database.database", "homes");
-        final var username = config.getString("database.username", "username");
-        final var password = config.getString("database.password", "password");
-        this.source = new SQLDataSource(MySQLDatabase.connection(host, port, database, username, password));
-        this.database = new SQLDatabase(this.source);
+        // Skip writing usernames that did not change, if other servers don't tell about their changes, trust them for a while
+        this.changesUnknown = pStorage.isShared() && changeFeed == null;
+        this.playerRegistry = new PlayerRegistry(this.database, KNOWN_PLAYERS, changesUnknown ? REGISTERED_NAMES_TRUST : null);
+        this.playerLookup = new PlayerLookup(asyncDatabase, playerRegistry, refreshAfter, expireAfter, EXPIRY_JITTER, NEGATIVE_EXPIRY, !changesUnknown);
+        final var renameInterval = RENAME_FLUSH_INTERVAL.toMillis();
+        asyncDatabase.getExecutor().scheduleWithFixedDelay(this::flushRenames, renameInterval, renameInterval, TimeUnit.MILLISECONDS);
 
-        // Configure other properties
-        this.server = config.getString("server", "");
-        this.defaultHome = config.getString("default_home", "default");
+        // Learn the registered players once, afterwards only from registrations and the change feed
+        playerLookup.load();
 
     }
 
     /**
-     * This cache contains homes identified by id.
+     * The home names of players indexed for tab completion, with the cached homes they were indexed from.
+     * Cached homes are never modified, so an index is outdated once its homes are not the cached ones anymore.
      */
     @NotNull
-    private final LoadingCache<Integer, HomeLocation> cachedLocations = CacheBuilder.newBuilder()
-            .expireAfterWrite(Duration.ofMinutes(5L))
-            .build(new CacheLoader<>() {
-                @Override
-                public @NotNull HomeLocation load(@NotNull final Integer pHomeId) throws HomeNotFoundException {
-                    final var home = database.getHome(pHomeId);
-                    if (home == null)
-                        throw new HomeNotFoundException(new HomeTarget.Identifier(pHomeId));
-                    return home;
-                }
-            });
+    private final Cache<UUID, IndexedHomes> homeNameIndexes = CacheBuilder.newBuilder()
+            .expireAfterAccess(EXPIRE_AFTER)
+            .build();
 
     /**
-     * This cache contains id and name of all homes of a player.
-     * The id can then be used in the locations cache.
+     * The homes of players who quit recently, cached again if they are still up to date once the player logs in again.
      */
     @NotNull
-    private final LoadingCache<UUID, BiMap<Integer, String>> cachedPlayerHomes = CacheBuilder.newBuilder()
-            .expireAfterWrite(Duration.ofMinutes(5L))
-            .build(new CacheLoader<>() {
-                @Override
-                public @NotNull BiMap<Integer, String> load(@NotNull UUID pOwner) {
-                    return database.getPlayerMappedHomes(pOwner);
-                }
-            });
+    private final Cache<UUID, RetainedHomes> retainedPlayerHomes = CacheBuilder.newBuilder()
+            .expireAfterWrite(KEEP_WARM)
+            .build();
+
+    /**
+     * Players who joined recently, their homes are loaded together shortly after the first of them joined.
+     */
+    @NotNull
+    private final Set<UUID> pendingPreloads = new HashSet<>();
+
+    /**
+     * Completes once the next batch of preloads is cached, null if no batch is pending.
+     */
+    @Nullable
+    private CompletableFuture<Void> pendingPreload = null;
+
+    /**
+     * Players that could not be registered while logging in, because the database was unavailable.
+     */
+    @NotNull
+    private final Set<UUID> failedRegistrations = ConcurrentHashMap.newKeySet();
 
     /**
-     * This cache contains unique ids by player names.
-     * Used to translate player names to unique ids.
+     * Pending loads of homes and locations. Concurrent loads of the same key share a single query,
+     * but only as long as the owner or home was not written meanwhile.
      */
     @NotNull
-    private final LoadingCache<String, List<UUID>> cachedPlayerNames = CacheBuilder.newBuilder()
-            .expireAfterWrite(Duration.ofMinutes(5L))
-            .build(new CacheLoader<>() {
-                @Override
-                public @NotNull List<UUID> load(@NotNull String pUsername) {
-                    return database.getPlayerUniqueId(pUsername);
-                }
+    private final SingleFlight<UUID, List<HomeEntry>> entryLoads = new SingleFlight<>();
+
+    @NotNull
+    private final SingleFlight<Integer, HomeLocation> locationLoads = new SingleFlight<>();
+
+    /**
+     * Collects the loads of different players and homes, to load them with a single query.
+     */
+    @NotNull
+    private final BatchLoader<UUID, List<HomeEntry>> entryBatches;
+
+    @NotNull
+    private final BatchLoader<Integer, HomeLocation> locationBatches;
+
+    /**
+     * Loads the homes of multiple players at once and caches them, players that are already cached are skipped.
+     * @param pOwners The players whose homes to load.
+     * @return A future that completes once the homes are cached.
+     */
+    public @NotNull CompletableFuture<Void> preloadPlayers(@NotNull final Collection<UUID> pOwners) {
+        final var missing = new HashMap<UUID, Long>();
+        for (final var owner : pOwners) {
+            if (homeCache.getCachedPlayerHomes(owner) == null)
+                missing.put(owner, homeCache.generation(owner));
+        }
+        if (missing.isEmpty())
+            return CompletableFuture.completedFuture(null);
+        return asyncDatabase.getHomeEntries(missing.keySet())
+                .thenAccept(entries -> entries.forEach((owner, list) -> homeCache.cacheEntries(owner, list, missing.get(owner))));
+    }
+
+    /**
+     * Loads all homes of a player, joining a pending load that started after the last write of the player.
+     * Otherwise, the player is loaded together with the other players loaded right now.
+     * @param pOwner The owner of the homes.
+     * @param pGeneration The write counter of the owner.
+     * @return A future to all homes of the owner.
+     */
+    private @NotNull CompletableFuture<List<HomeEntry>> fetchEntries(@NotNull final UUID pOwner, final long pGeneration) {
+        return entryLoads.load(pOwner, pGeneration, () -> entryBatches.load(pOwner)
+                .thenApply(entries -> entries != null ? entries : List.of())); // Missing if some error occurred
+    }
+
+    /**
+     * Writes the collected renames of players, unless the database is known to be unavailable.
+     * The new usernames may have been looked up before they were written.
+     */
+    private void flushRenames() {
+        if (storage.isUnavailable())
+            return;
+        try {
+            for (final var username : playerRegistry.flush().values())
+                playerLookup.forget(username);
+        } catch (RuntimeException e) {
+            if (!(e instanceof DatabaseUnavailableException))
+                e.printStackTrace(); // Would cancel all further flushes
+        }
+    }
+
+    /**
+     * Reads the changes of other servers, unless the database is known to be unavailable.
+     */
+    private void pollChanges() {
+        if (changeFeedPoller == null || storage.isUnavailable())
+            return;
+        try {
+            changeFeedPoller.poll();
+        } catch (DatabaseUnavailableException ignored) {
+            // Read again with the next poll
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // Would cancel all further polls
+        }
+    }
+
+    /**
+     * Deletes changes every server had plenty of time to read.
+     */
+    private void pruneChanges() {
+        final var changeFeed = storage.getChangeFeed();
+        if (changeFeed == null || storage.isUnavailable())
+            return;
+        try {
+            changeFeed.pruneChanges(storage.getRetention());
+        } catch (RuntimeException e) {
+            if (!(e instanceof DatabaseUnavailableException))
+                e.printStackTrace(); // Would cancel all further prunes
+        }
+    }
+
+    /**
+     * Invalidates everything another server changed.
+     * @param pChange The change of the other server.
+     */
+    private void applyChange(@NotNull final HomeChange pChange) {
+        homeCache.applyChange(pChange);
+        playerLookup.applyChange(pChange);
+        if (pChange.username() != null && pChange.owner() != null)
+            playerRegistry.forget(pChange.owner());
+    }
+
+    /**
+     * Invalidates all cached homes and players, since changes of other servers may have been missed.
+     * The last known homes are kept, they are only served while the database is unavailable.
+     * The player directory is kept for completions, but usernames are looked up on demand from now on.
+     */
+    private void invalidateAll() {
+        homeCache.invalidateAll();
+        playerLookup.invalidateAll();
+        playerRegistry.forgetAll();
+    }
+
+    /**
+     * Queues a player to be preloaded with the next batch.
+     * The first player of a batch schedules the load, so a login storm results in a few bulk queries.
+     * @param pOwner The player whose homes to load.
+     * @return A future that completes once the batch is cached.
+     */
+    private @NotNull CompletableFuture<Void> schedulePreload(@NotNull final UUID pOwner) {
+        final CompletableFuture<Void> batch;
+        synchronized (pendingPreloads) {
+            pendingPreloads.add(pOwner);
+            if (pendingPreload != null)
+                return pendingPreload;
+            batch = pendingPreload = new CompletableFuture<>();
+        }
+        asyncDatabase.getExecutor().schedule(() -> {
+            final List<UUID> owners;
+            synchronized (pendingPreloads) {
+                owners = new ArrayList<>(pendingPreloads);
+                pendingPreloads.clear();
+                pendingPreload = null;
+            }
+            preloadPlayers(owners).whenComplete((result, ex) -> {
+                if (ex != null)
+                    batch.completeExceptionally(ex);
+                else
+                    batch.complete(null);
             });
+        }, 50L, TimeUnit.MILLISECONDS);
+        return batch;
+    }
 
     /**
      * Gets the home location for a target.
      * @param pHomeTarget The home target.
      * @param pInitiator The initiator, required for own home targets.
-     * @return The home location.
-     * @throws HomeNotFoundException Thrown if the home can't be found. Either because it does not exist or
-     *                               because of other exceptions occurring at retrieving the data.
-     * @throws NotUniquelyIdentifiableException Thrown if the owner can't be uniquely identified, usually because
-     *                                          multiple unique ids are registered with the same username.
-     * @throws RegisteredPlayerNotFoundException Thrown if no unique ids can be retrieved for a username.
-     * @throws UnsupportedOperationException Thrown if some implementation is missing.
-     */
-    public @NotNull HomeLocation getHomeLocation(@NotNull HomeTarget pHomeTarget, @Nullable Player pInitiator) throws HomeNotFoundException, NotUniquelyIdentifiableException, RegisteredPlayerNotFoundException, UnsupportedOperationException {
-        try {
-            return cachedLocations.get(getHomeId(pHomeTarget, pInitiator));
-        } catch (NotUniquelyIdentifiableException | HomeNotFoundException | RegisteredPlayerNotFoundException | UnsupportedOperationException e) {
-            throw e;
-        } catch (Exception e) {
-            if (e.getCause() instanceof HomeNotFoundException)
-                throw (HomeNotFoundException) e.getCause();
-            throw new HomeNotFoundException(pHomeTarget, e);
-        }
+     * @return A future to the home location. Fails with:
+     *         {@link HomeNotFoundException} if the home can't be found.
+     *         {@link NotUniquelyIdentifiableException} if the owner can't be uniquely identified, usually because
+     *         multiple unique ids are registered with the same username.
+     *         {@link RegisteredPlayerNotFoundException} if no unique ids can be retrieved for a username.
+     *         {@link UnsupportedOperationException} if some implementation is missing.
+     */
+    public @NotNull CompletableFuture<HomeLocation> getHomeLocation(@NotNull HomeTarget pHomeTarget, @Nullable Player pInitiator) {
+        return getHomeLocation(pHomeTarget, pInitiator != null ? pInitiator.getUniqueId() : null);
+    }
+
+    /**
+     * Gets the home location for a target, see {@link #getHomeLocation(HomeTarget, Player)}.
+     * @param pHomeTarget The home target.
+     * @param pInitiator The unique id of the initiator, required for own home targets.
+     * @return A future to the home location.
+     */
+    public @NotNull CompletableFuture<HomeLocation> getHomeLocation(@NotNull HomeTarget pHomeTarget, @Nullable UUID pInitiator) {
+        return getHomeId(pHomeTarget, pInitiator).thenCompose(homeCache::getLocation);
     }
 
     /**
      * Gets the home id for a target.
      * @param pHomeTarget The home target.
      * @param pInitiator The initiator, required for own home targets.
-     * @return The home location.
-     * @throws HomeNotFoundException Thrown if the home can't be found. Either because it does not exist or
-     *                               because of other exceptions occurring at retrieving the data.
-     * @throws NotUniquelyIdentifiableException Thrown if the owner can't be uniquely identified, usually because
-     *                                          multiple unique ids are registered with the same username.
-     * @throws RegisteredPlayerNotFoundException Thrown if no unique ids can be retrieved for a username.
-     * @throws UnsupportedOperationException Thrown if some implementation is missing.
-     */
-    public int getHomeId(@NotNull HomeTarget pHomeTarget, @Nullable Player pInitiator) throws HomeNotFoundException, NotUniquelyIdentifiableException, RegisteredPlayerNotFoundException, UnsupportedOperationException {
-        try {
-            switch (pHomeTarget) {
-
-                case HomeTarget.Identifier identifier -> {
-                    return identifier.value();
-                }
-
-                case HomeTarget.ForeignHomeName foreignName -> {
-                    final var homeId = cachedPlayerHomes.get(getPlayerName(foreignName.owner())).inverse().get(foreignName.name());
-                    if (homeId == null)
-                        throw new HomeNotFoundException(foreignName);
-                    return homeId;
-                }
-
-                case HomeTarget.OwnHomeName ownName -> {
-                    Preconditions.checkNotNull(pInitiator, "Can't identify a non-foreign home without an initiator.");
-                    final var homeId = cachedPlayerHomes.get(pInitiator.getUniqueId()).inverse().get(ownName.name());
-                    if (homeId == null)
-                        throw new HomeNotFoundException(ownName);
-                    return homeId;
-                }
-
-                case HomeTarget.ForeignHomeNameUnique uniqueForeignName -> {
-                    final var homeId = cachedPlayerHomes.get(uniqueForeignName.owner()).inverse().get(uniqueForeignName.name());
-                    if (homeId == null)
-                        throw new HomeNotFoundException(uniqueForeignName);
-                    return homeId;
-                }
-
-                default -> throw new UnsupportedOperationException("This is not implemented, yet.");
+     * @return A future to the home id. Fails with:
+     *         {@link HomeNotFoundException} if the home can't be found.
+     *         {@link NotUniquelyIdentifiableException} if the owner can't be uniquely identified, usually because
+     *         multiple unique ids are registered with the same username.
+     *         {@link RegisteredPlayerNotFoundException} if no unique ids can be retrieved for a username.
+     *         {@link UnsupportedOperationException} if some implementation is missing.
+     */
+    public @NotNull CompletableFuture<Integer> getHomeId(@NotNull HomeTarget pHomeTarget, @Nullable Player pInitiator) {
+        return getHomeId(pHomeTarget, pInitiator != null ? pInitiator.getUniqueId() : null);
+    }
+
+    /**
+     * Gets the home id for a target, see {@link #getHomeId(HomeTarget, Player)}.
+     * @param pHomeTarget The home target.
+     * @param pInitiator The unique id of the initiator, required for own home targets.
+     * @return A future to the home id.
+     */
+    public @NotNull CompletableFuture<Integer> getHomeId(@NotNull HomeTarget pHomeTarget, @Nullable UUID pInitiator) {
+        switch (pHomeTarget) {
+
+            case HomeTarget.Identifier identifier -> {
+                return CompletableFuture.completedFuture(identifier.value());
+            }
+
+            case HomeTarget.ForeignHomeName foreignName -> {
+                return getPlayerName(foreignName.owner()).thenCompose(owner -> getHomeId(owner, foreignName));
+            }
+
+            case HomeTarget.OwnHomeName ownName -> {
+                Preconditions.checkNotNull(pInitiator, "Can't identify a non-foreign home without an initiator.");
+                return getHomeId(pInitiator, ownName);
+            }
+
+            case HomeTarget.ForeignHomeNameUnique uniqueForeignName -> {
+                return getHomeId(uniqueForeignName.owner(), uniqueForeignName);
+            }
 
+            default -> {
+                return CompletableFuture.failedFuture(new UnsupportedOperationException("This is not implemented, yet."));
             }
-        } catch (NotUniquelyIdentifiableException | HomeNotFoundException | RegisteredPlayerNotFoundException | UnsupportedOperationException e) {
-            throw e;
-        } catch (Exception e) {
-            if (e.getCause() instanceof HomeNotFoundException)
-                throw (HomeNotFoundException) e.getCause();
-            throw new HomeNotFoundException(pHomeTarget, e);
+
         }
     }
 
     /**
-     * Helper function for {@link #setHomeLocation(HomeTarget, Player, boolean)} to set home and invalidate for on home name targets.
+     * Helper function for {@link #getHomeId(HomeTarget, Player)} to look up a home name of an owner.
+     * @param pOwner The owner of the home.
+     * @param pHomeName The home name target.
+     * @return A future to the home id, fails with {@link HomeNotFoundException} if the owner has no such home.
+     */
+    private @NotNull CompletableFuture<Integer> getHomeId(@NotNull final UUID pOwner, @NotNull final HomeTarget.HomeName pHomeName) {
+        return homeCache.getPlayerHomes(pOwner).thenApply(homes -> {
+            final var homeId = homes.inverse().get(pHomeName.name());
+            if (homeId == null)
+                throw new HomeNotFoundException(pHomeName);
+            return homeId;
+        });
+    }
+
+    /**
+     * Helper function for {@link #setHomeLocation(HomeTarget, Player, boolean)} to set home and cache it for home name targets.
      * @param pOwner The owner of the home.
      * @param pName The name of the home.
      * @param pLocation The location to set.
      * @param override Allow updating existing homes or just adding new ones?
-     * @return Whether the action was successful.
+     * @return A future to whether the action was successful.
      */
-    private boolean setHomeLocationAndInvalidate(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation, final boolean override) {
-        final var result = override ? database.setHome(pOwner, pName, pLocation)
-                : database.addHome(pOwner, pName, pLocation);
-        if (result) {
-            try {
-                cachedPlayerHomes.invalidate(pOwner);
-                final var map = cachedPlayerHomes.get(pOwner);
-                final var id = map.inverse().get(pName);
-                if (id != null)
-                    cachedLocations.invalidate(id);
-            } catch (ExecutionException e) {
-                e.printStackTrace();
-            }
-        }
-        return result;
+    private @NotNull CompletableFuture<Boolean> setHomeLocationAndCache(@NotNull final UUID pOwner, @NotNull final String pName, @NotNull final HomeLocation pLocation, final boolean override) {
+        final var write = override ? asyncDatabase.setHome(pOwner, pName, pLocation)
+                : asyncDatabase.addHome(pOwner, pName, pLocation);
+        return write.thenApply(homeId -> {
+            if (homeId == null)
+                return false;
+            if (homeId != IDatabase.PENDING_HOME_ID)
+                homeCache.cacheWrittenHome(pOwner, homeId, pName, pLocation);
+            else
+                homeCache.cachePendingHome(pOwner, pName, pLocation);
+            return true;
+        });
     }
 
     /**
+     * Sets a home to the current location of a player.
      * @param pHomeTarget The home to set.
-     * @param pSelf The player who is adding the location.
+     * @param pSelf The player who is adding the location. Must be called on the main thread, since the location is read immediately.
      * @param pOverride If it should override existing locations.
      *                 Note: This option is ignored on identifiers since you can't add them, only modify.
+     * @return A future to boolean, whether the execution was successful. Fails with:
+     *         {@link NotUniquelyIdentifiableException} if the owner can't be uniquely identified, usually because
+     *         multiple unique ids are registered with the same username.
+     *         {@link RegisteredPlayerNotFoundException} if no unique ids can be retrieved for a username.
+     */
+    public @NotNull CompletableFuture<Boolean> setHomeLocation(@NotNull HomeTarget pHomeTarget, @NotNull Player pSelf, boolean pOverride) {
+        return setHomeLocation(pHomeTarget, pSelf.getUniqueId(), new HomeLocation(pSelf.getLocation(), server), pOverride);
+    }
+
+    /**
+     * Sets a home to a location, see {@link #setHomeLocation(HomeTarget, Player, boolean)}.
+     * @param pHomeTarget The home to set.
+     * @param pSelf The unique id of the player who is setting the home.
+     * @param pLocation The location to set.
+     * @param pOverride If it should override existing locations.
      * @return A future to boolean, whether the execution was successful.
-     * @throws NotUniquelyIdentifiableException Thrown if the owner can't be uniquely identified, usually because
-     *                                          multiple unique ids are registered with the same username.
-     * @throws RegisteredPlayerNotFoundException Thrown if no unique ids can be retrieved for a username.
      */
-    public boolean setHomeLocation(@NotNull HomeTarget pHomeTarget, @NotNull Player pSelf, boolean pOverride) throws NotUniquelyIdentifiableException, RegisteredPlayerNotFoundException {
-        final var location = new HomeLocation(pSelf.getLocation(), server);
+    public @NotNull CompletableFuture<Boolean> setHomeLocation(@NotNull HomeTarget pHomeTarget, @NotNull UUID pSelf, @NotNull HomeLocation pLocation, boolean pOverride) {
         switch (pHomeTarget) {
 
             case HomeTarget.Identifier identifier -> {
-                final var result = database.updateHome(identifier.value(), location);
-                if (result)
-                    cachedLocations.invalidate(identifier.value());
-                return result;
+                return asyncDatabase.updateHome(identifier.value(), pLocation).thenApply(result -> {
+                    if (result)
+                        homeCache.cacheWrittenLocation(identifier.value(), pLocation);
+                    return result;
+                });
             }
 
             case HomeTarget.OwnHomeName ownName -> {
-                return setHomeLocationAndInvalidate(pSelf.getUniqueId(), ownName.name(), location, pOverride);
+                return setHomeLocationAndCache(pSelf, ownName.name(), pLocation, pOverride);
             }
 
             case HomeTarget.ForeignHomeNameUnique uniqueForeignName -> {
-                return setHomeLocationAndInvalidate(uniqueForeignName.owner(), uniqueForeignName.name(), location, pOverride);
+                return setHomeLocationAndCache(uniqueForeignName.owner(), uniqueForeignName.name(), pLocation, pOverride);
             }
 
             case HomeTarget.ForeignHomeName foreignName -> {
-                return setHomeLocationAndInvalidate(getPlayerName(foreignName.owner()), foreignName.name(), location, pOverride);
+                return getPlayerName(foreignName.owner())
+                        .thenCompose(owner -> setHomeLocationAndCache(owner, foreignName.name(), pLocation, pOverride));
             }
 
-            default -> throw new UnsupportedOperationException("Not implemented, yet.");
+            default -> {
+                return CompletableFuture.failedFuture(new UnsupportedOperationException("Not implemented, yet."));
+            }
 
         }
     }
 
     /**
-     * A helper for {@link #deleteHomeLocation(HomeTarget, Player)} to delete and invalidate home names.
+     * A helper for {@link #deleteHomeLocation(HomeTarget, Player)} to delete home names and remove them from the cache.
      * @param pOwner The owner of the home.
      * @param pName The name of the home.
-     * @return Whether the action was successful.
-     */
-    private boolean deleteHomeLocationAndInvalidate(@NotNull final UUID pOwner, @NotNull final String pName) {
-        final var result = database.deleteHome(pOwner, pName);
-        final var map = cachedPlayerHomes.getIfPresent(pOwner);
-        if (map != null) {
-            final var id = map.inverse().get(pName);
-            if (id != null)
-                cachedLocations.invalidate(id);
-        }
-        cachedPlayerHomes.invalidate(pOwner);
-        return result;
+     * @return A future to whether the action was successful.
+     */
+    private @NotNull CompletableFuture<Boolean> deleteHomeLocationAndUncache(@NotNull final UUID pOwner, @NotNull final String pName) {
+        return asyncDatabase.deleteHome(pOwner, pName).thenApply(result -> {
+            homeCache.forgetHome(pOwner, pName);
+            return result;
+        });
     }
 
     /**
      * Deletes a home.
      * @param pHomeTarget The home to delete.
      * @param pSelf The player who is deleting the location.
-     * @return Whether the action was successful.
+     * @return A future to whether the action was successful.
      */
-    public boolean deleteHomeLocation(@NotNull HomeTarget pHomeTarget, @NotNull Player pSelf) {
+    public @NotNull CompletableFuture<Boolean> deleteHomeLocation(@NotNull HomeTarget pHomeTarget, @NotNull Player pSelf) {
+        return deleteHomeLocation(pHomeTarget, pSelf.getUniqueId());
+    }
+
+    /**
+     * Deletes a home, see {@link #deleteHomeLocation(HomeTarget, Player)}.
+     * @param pHomeTarget The home to delete.
+     * @param pSelf The unique id of the player who is deleting the home.
+     * @return A future to whether the action was successful.
+     */
+    public @NotNull CompletableFuture<Boolean> deleteHomeLocation(@NotNull HomeTarget pHomeTarget, @NotNull UUID pSelf) {
         switch (pHomeTarget) {
 
             case HomeTarget.Identifier identifier -> {
-                final var result = database.deleteHome(identifier.value());
-                cachedLocations.invalidate(identifier.value());
-                return result;
+                return asyncDatabase.deleteHome(identifier.value()).thenApply(result -> {
+                    homeCache.forgetHome(identifier.value());
+                    return result;
+                });
             }
 
             case HomeTarget.OwnHomeName ownName -> {
-                return deleteHomeLocationAndInvalidate(pSelf.getUniqueId(), ownName.name());
+                return deleteHomeLocationAndUncache(pSelf, ownName.name());
             }
 
             case HomeTarget.ForeignHomeNameUnique uniqueForeignName -> {
-                return deleteHomeLocationAndInvalidate(uniqueForeignName.owner(), uniqueForeignName.name());
+                return deleteHomeLocationAndUncache(uniqueForeignName.owner(), uniqueForeignName.name());
             }
 
             case HomeTarget.ForeignHomeName foreignName -> {
-                return deleteHomeLocationAndInvalidate(getPlayerName(foreignName.owner()), foreignName.name());
+                return getPlayerName(foreignName.owner())
+                        .thenCompose(owner -> deleteHomeLocationAndUncache(owner, foreignName.name()));
             }
 
-            default -> throw new UnsupportedOperationException("Not implemented, yet");
+            default -> {
+                return CompletableFuture.failedFuture(new UnsupportedOperationException("Not implemented, yet"));
+            }
 
         }
     }
@@ -303,48 +625,133 @@ public final class HomesService implements Listener {
     /**
      * Converts player name to unique id.
      * @param pUsername The username to convert.
-     * @return The unique id of the player.
-     * @throws RegisteredPlayerNotFoundException The player is not registered or an exception occurred
-     *                                           retrieving the unique ids form the database.
-     * @throws NotUniquelyIdentifiableException The username is registered for multiple usernames.
+     * @return A future to the unique id of the player. Fails with:
+     *         {@link RegisteredPlayerNotFoundException} if the player is not registered.
+     *         {@link NotUniquelyIdentifiableException} if the username is registered for multiple unique ids.
      */
-    public @NotNull UUID getPlayerName(@NotNull final String pUsername) throws RegisteredPlayerNotFoundException, NotUniquelyIdentifiableException {
-        try {
-            final var playerUniqueIds = cachedPlayerNames.get(pUsername);
+    public @NotNull CompletableFuture<UUID> getPlayerName(@NotNull final String pUsername) {
+        return playerLookup.getUniqueIds(pUsername).thenApply(playerUniqueIds -> {
             if (playerUniqueIds.size() == 0)
                 throw new RegisteredPlayerNotFoundException(pUsername);
             else if (playerUniqueIds.size() > 1)
                 throw new NotUniquelyIdentifiableException(pUsername);
             return playerUniqueIds.get(0);
-        } catch (ExecutionException e) {
-            throw new RegisteredPlayerNotFoundException(pUsername);
-        }
+        });
     }
 
     /**
-     * Shutdowns all connections.
+     * Shutdowns all connections. Waits for running database calls and writes pending writes first.
      */
     public void shutdown() {
-        source.close();
+        asyncDatabase.close();
+        try {
+            playerRegistry.flush();
+        } catch (DatabaseUnavailableException e) {
+            logger.warning("Could not write the latest usernames, the database is unavailable.");
+        }
+        storage.close();
     }
 
     /**
-     * Invalidates the player.
+     * Retains the homes of the player.
      */
     @EventHandler
     private void OnPlayerQuit(PlayerQuitEvent e) {
-        cachedPlayerHomes.invalidate(e.getPlayer().getUniqueId());
-        cachedPlayerNames.invalidate(e.getPlayer().getName());
+        releasePlayer(e.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Moves the cached homes of a player who quit to the retained homes, together with their write counter.
+     * If the player logs in again soon, the homes are revalidated instead of loaded again.
+     * @param pOwner The unique id of the player.
+     */
+    public void releasePlayer(@NotNull final UUID pOwner) {
+        // Read the counter first, a write in between only makes the retained homes look outdated
+        final var generation = homeCache.generation(pOwner);
+        final var homes = homeCache.getCachedPlayerHomes(pOwner);
+        homeCache.invalidatePlayerHomes(pOwner);
+        if (homes != null)
+            retainedPlayerHomes.put(pOwner, new RetainedHomes(homes, generation));
+    }
+
+    /**
+     * Caches the homes retained since a player quit again, if they are still up to date.
+     * Writes of this server and changes read from the change feed advance the write counter of the owner,
+     * only if other servers change the database without telling, the homes are compared with their fingerprint in the database.
+     * @param pOwner The unique id of the player.
+     * @return Whether the retained homes are cached again.
+     */
+    private boolean restoreRetainedHomes(@NotNull final UUID pOwner) {
+        final var retained = retainedPlayerHomes.asMap().remove(pOwner);
+        if (retained == null || homeCache.generation(pOwner) != retained.generation())
+            return false;
+        if (changesUnknown) {
+            try {
+                if (!database.getHomesVersion(pOwner).equals(HomesVersion.of(retained.homes().keySet())))
+                    return false;
+            } catch (DatabaseUnavailableException ex) {
+                return false;
+            }
+        }
+        return homeCache.restorePlayerHomes(pOwner, retained.homes(), retained.generation());
+    }
+
+    /**
+     * Prepares the login of a player on their login thread, after other plugins decided whether they may join.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void OnAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED)
+            prepareLogin(e.getUniqueId(), e.getName());
+    }
+
+    /**
+     * Registers a logging in player and loads their homes, so joining does not query the database on the main thread.
+     * Homes retained since the player quit are only revalidated.
+     * Blocks until the homes are cached, so it must not be called on the main thread.
+     * If the database is unavailable, the player is registered again once they joined.
+     * @param pOwner The unique id of the player.
+     * @param pUsername The username of the player.
+     */
+    public void prepareLogin(@NotNull final UUID pOwner, @NotNull final String pUsername) {
+        try {
+            if (playerRegistry.register(pOwner, pUsername))
+                playerLookup.forget(pUsername);
+            failedRegistrations.remove(pOwner);
+        } catch (DatabaseUnavailableException ex) {
+            failedRegistrations.add(pOwner);
+            logger.warning("Could not register " + pUsername + ", the database is unavailable.");
+        }
+        playerLookup.learn(pOwner, pUsername);
+
+        // Keep the homes retained since the player quit, or load fresh homes together with the other players logging in right now
+        if (restoreRetainedHomes(pOwner))
+            return;
+        homeCache.invalidatePlayerHomes(pOwner);
+        try {
+            schedulePreload(pOwner).get(LOGIN_PRELOAD_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException ignored) {
+            // Loaded on demand instead
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
-     * Registers and invalidates the player.
+     * Retries a registration that failed while logging in, the homes were loaded while logging in already.
+     * Nothing is queried on the main thread.
      */
     @EventHandler
     private void OnPlayerJoin(PlayerJoinEvent e) {
-        database.registerPlayer(e.getPlayer().getUniqueId(), e.getPlayer().getName());
-        cachedPlayerHomes.invalidate(e.getPlayer().getUniqueId());
-        cachedPlayerNames.invalidate(e.getPlayer().getName());
+        final var player = e.getPlayer();
+        if (failedRegistrations.remove(player.getUniqueId())) {
+            CompletableFuture.runAsync(() -> playerRegistry.register(player.getUniqueId(), player.getName()), asyncDatabase.getExecutor()).exceptionally(ex -> {
+                failedRegistrations.add(player.getUniqueId());
+                return null;
+            });
+        }
+        if (homeCache.getCachedPlayerHomes(player.getUniqueId()) == null)
+            schedulePreload(player.getUniqueId());
     }
 
     /**
@@ -354,53 +761,68 @@ public final class HomesService implements Listener {
      * @return The list of homes.
      */
     public Iterable<String> getHomeNamesAsync(@NotNull UUID pOwner) {
-        final var homes = cachedPlayerHomes.getIfPresent(pOwner);
+        final var homes = homeCache.getCachedPlayerHomes(pOwner);
         if (homes == null) {
-            plugin.getAsyncExecutor().execute(() -> {
-                try {
-                    cachedPlayerHomes.get(pOwner);
-                } catch (ExecutionException ignored) { }
-            });
+            homeCache.getPlayerHomes(pOwner);
             return Collections.emptyList();
         }
         return homes.values();
     }
 
     /**
-     * Returns home names or an empty list if they are currently not loaded in.
+     * Returns home names qualified as in "username:home" or an empty list if they are currently not loaded in.
      * If the homes are not loaded in, then it schedules a load asynchronously.
      * @param pUsername The player whose homes to get.
      * @return The list of homes.
      */
     public Iterable<String> getHomeNamesAsync(@NotNull String pUsername) {
+        final var index = getHomeNameIndex(pUsername);
+        return index != null ? index.complete(pUsername, "") : Collections.emptyList();
+    }
 
-        UUID uniqueId = null;
-        if (pUsername.length() <= 16) {
-            final var playerUniqueIds = cachedPlayerNames.getIfPresent(pUsername);
-            if (playerUniqueIds == null) {
-                plugin.getAsyncExecutor().execute(() -> {
-                    try {
-                        final var list = cachedPlayerNames.get(pUsername);
-                        if (list.size() == 1)
-                            cachedPlayerHomes.get(list.get(0));
-                    } catch (ExecutionException ignored) { }
-                });
-            } else if (playerUniqueIds.size() == 1) {
-                uniqueId = playerUniqueIds.get(0);
-            }
-        } else try {
-             uniqueId = UUID.fromString(pUsername);
-        } catch (IllegalArgumentException ignored) { }
-
-        if (uniqueId == null)
-            return Collections.emptyList();
-
-        final var homes = getHomeNamesAsync(uniqueId);
-        final var possibles = new ArrayList<String>();
-        for (final var home : homes)
-            possibles.add(pUsername + ":" + home);
-        return possibles;
+    /**
+     * Gets the indexed home names of a player, the index is rebuilt once their homes changed.
+     * If the homes are not loaded in, then it schedules a load asynchronously.
+     * @param pOwner The player whose homes to get.
+     * @return The index, or null if the homes are not loaded in.
+     */
+    private @Nullable HomeNameIndex getHomeNameIndex(@NotNull final UUID pOwner) {
+        final var homes = homeCache.getCachedPlayerHomes(pOwner);
+        if (homes == null) {
+            homeCache.getPlayerHomes(pOwner);
+            return null;
+        }
+        final var indexed = homeNameIndexes.getIfPresent(pOwner);
+        if (indexed != null && indexed.homes() == homes)
+            return indexed.index();
+        final var index = new HomeNameIndex(homes.values());
+        homeNameIndexes.put(pOwner, new IndexedHomes(homes, index));
+        return index;
+    }
 
+    /**
+     * Gets the indexed home names of a player by username or unique id.
+     * If the player or their homes are not loaded in, then it schedules a load asynchronously.
+     * @param pUsername The username or unique id of the player.
+     * @return The index, or null if the player or their homes are not loaded in.
+     */
+    private @Nullable HomeNameIndex getHomeNameIndex(@NotNull final String pUsername) {
+        if (pUsername.length() > 16) {
+            try {
+                return getHomeNameIndex(UUID.fromString(pUsername));
+            } catch (IllegalArgumentException ignored) {
+                return null;
+            }
+        }
+        final var playerUniqueIds = playerLookup.getKnownUniqueIds(pUsername);
+        if (playerUniqueIds == null) {
+            playerLookup.getUniqueIds(pUsername).thenAccept(list -> {
+                if (list.size() == 1)
+                    homeCache.getPlayerHomes(list.get(0));
+            });
+            return null;
+        }
+        return playerUniqueIds.size() == 1 ? getHomeNameIndex(playerUniqueIds.get(0)) : null;
     }
 
     /**
@@ -411,56 +833,133 @@ public final class HomesService implements Listener {
      * @return A list of possible completions.
      */
     public List<String> getPossibleHomes(@NotNull final Permissible pPermissible, @NotNull final String pArgument, @NotNull final String pForeignPermission) {
+        // The completions are copied, since the server and other plugins may modify them
         if (pPermissible.hasPermission(pForeignPermission)) {
             final var split = pArgument.split(":", 2);
-            if (split.length == 2)
-                return CommandUtils.getPossibleCompletion(pArgument, plugin.getHomesService().getHomeNamesAsync(split[0]));
+            if (split.length == 2) {
+                final var index = getHomeNameIndex(split[0]);
+                return index != null ? new ArrayList<>(index.complete(split[0], split[1])) : new ArrayList<>();
+            }
+            // Only players have own homes, everyone else can only use the foreign form
             if (!(pPermissible instanceof Player))
-                return null;
+                return getPossibleOwners(pArgument);
+        }
+        if (pPermissible instanceof Player) {
+            final var index = getHomeNameIndex(((Player) pPermissible).getUniqueId());
+            return index != null ? new ArrayList<>(index.complete(pArgument)) : new ArrayList<>();
         }
-        if (pPermissible instanceof Player)
-            return CommandUtils.getPossibleCompletion(pArgument, plugin.getHomesService().getHomeNamesAsync(((Player) pPermissible).getUniqueId()));
         return Collections.emptyList();
     }
 
+    /**
+     * Retrieves possible tab completion for the owner of foreign home targets, as in "username:".
+     * @param pArgument The argument to complete.
+     * @return A list of possible completions, or null if the registered players are not loaded yet.
+     */
+    private @Nullable List<String> getPossibleOwners(@NotNull final String pArgument) {
+        final var usernames = getPossiblePlayers(pArgument);
+        if (usernames == null)
+            return null;
+        final var list = new ArrayList<String>(usernames.size());
+        for (final var username : usernames)
+            list.add(username + ":");
+        return list;
+    }
+
+    /**
+     * Retrieves possible tab completion for usernames of registered players, including offline players.
+     * @param pArgument The argument to complete.
+     * @return A list of possible completions, or null if the registered players are not loaded yet.
+     */
+    public @Nullable List<String> getPossiblePlayers(@NotNull final String pArgument) {
+        return playerLookup.complete(pArgument, PLAYER_COMPLETIONS);
+    }
+
     /**
      * Gets all homes of a player, cached if possible.
+     * On a cold cache all homes are loaded with a single query, if only some locations
+     * are missing, just those are loaded.
      * @param pOwner The owner whose homes to get.
-     * @return A list of all homes.
+     * @return A future to a list of all homes.
      */
-    public @NotNull List<HomeEntry> getEntries(@NotNull final UUID pOwner) {
-        try {
+    public @NotNull CompletableFuture<List<HomeEntry>> getEntries(@NotNull final UUID pOwner) {
+
+        final var homes = homeCache.getCachedPlayerHomes(pOwner);
+        if (homes == null)
+            return homeCache.loadEntries(pOwner).exceptionallyCompose(ex -> staleEntries(pOwner, ex));
+
+        // Try to get every home from the cache.
+        final var cached = new HashMap<Integer, HomeLocation>();
+        final var missing = new ArrayList<Integer>();
+        for (final var homeId : homes.keySet()) {
+            final var location = homeCache.getCachedLocation(homeId);
+            if (location == null)
+                missing.add(homeId);
+            else
+                cached.put(homeId, location);
+        }
 
-            final var list = new ArrayList<HomeEntry>();
-            final var homes = cachedPlayerHomes.get(pOwner);
-            boolean everythingWasCached = true;
-
-            // Try to get every home from the cache.
-            for (final var home : homes.entrySet()) {
-                final var location = cachedLocations.getIfPresent(home.getKey());
-                if (location == null) {
-                    everythingWasCached = false;
-                    break;
-                } else {
-                    list.add(new HomeEntry(home.getKey(), home.getValue(), location));
-                }
-            }
+        // Nice, we don't need to fetch anything!
+        if (missing.isEmpty())
+            return CompletableFuture.completedFuture(toEntries(homes, cached));
+
+        // Fetch just the missing locations
+        final var started = new HashMap<Integer, Long>();
+        missing.forEach(homeId -> started.put(homeId, homeCache.generation(homeId)));
+        return asyncDatabase.getHomes(missing).thenApply(locations -> {
+            locations.forEach((homeId, location) -> homeCache.cacheLoadedLocation(homeId, location, started.get(homeId)));
+            cached.putAll(locations);
+            // Homes that are gone were deleted somewhere else, so the names are outdated as well.
+            if (locations.size() < missing.size())
+                homeCache.invalidatePlayerHomes(pOwner);
+            return toEntries(homes, cached);
+        }).exceptionallyCompose(ex -> staleEntries(pOwner, ex));
 
-            // Nice, we don't need to fetch anything!
-            if (everythingWasCached)
-                return list;
+    }
 
-            // Just get every home the player has and cache it for the next time.
-            // We do it like this, because we don't know how many homes are missing,
-            // and we don't want to call the database multiple times, so we do this instead.
-            // In the worst case this will be called every five minutes which isn't bad.
-            final var result = database.getHomeEntries(pOwner);
-            result.forEach(entry -> cachedLocations.put(entry.homeId(), entry.location()));
-            return result;
+    /**
+     * Gets the last known homes of a player, if loading them failed because the database is unavailable.
+     * @param pOwner The owner whose homes to get.
+     * @param pFailure Why loading the homes failed.
+     * @return A future to a list of the last known homes, fails with the failure otherwise.
+     */
+    private @NotNull CompletableFuture<List<HomeEntry>> staleEntries(@NotNull final UUID pOwner, @NotNull final Throwable pFailure) {
+        final var homes = homeCache.getStalePlayerHomes(pOwner);
+        if (homes == null || !(CommandUtils.unwrap(pFailure) instanceof DatabaseUnavailableException))
+            return CompletableFuture.failedFuture(pFailure);
+        return CompletableFuture.completedFuture(toEntries(homes, homeCache.getStaleLocations(homes.keySet())));
+    }
 
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+    /**
+     * Joins home names and locations, homes without a location are skipped.
+     * @param pHomes The homes bi-mapped by id to name.
+     * @param pLocations The locations mapped by id.
+     * @return The list of homes.
+     */
+    private static @NotNull List<HomeEntry> toEntries(@NotNull final BiMap<Integer, String> pHomes, @NotNull final Map<Integer, HomeLocation> pLocations) {
+        final var list = new ArrayList<HomeEntry>(pHomes.size());
+        for (final var home : pHomes.entrySet()) {
+            final var location = pLocations.get(home.getKey());
+            if (location != null)
+                list.add(new HomeEntry(home.getKey(), home.getValue(), location));
         }
+        return list;
+    }
+
+    /**
+     * The homes of a player who quit.
+     * @param homes The homes bi-mapped by id to name.
+     * @param generation The write counter of the owner before the homes were read.
+     */
+    private record RetainedHomes(@NotNull BiMap<Integer, String> homes, long generation) {
+    }
+
+    /**
+     * The indexed home names of a player.
+     * @param homes The cached homes the names were indexed from.
+     * @param index The index.
+     */
+    private record IndexedHomes(@NotNull BiMap<Integer, String> homes, @NotNull HomeNameIndex index) {
     }
 
 }
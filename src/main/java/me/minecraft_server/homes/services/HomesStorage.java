@@ -0,0 +1,255 @@
+package me.minecraft_server.homes.services;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import me.minecraft_server.homes.database.CircuitBreakerDatabase;
+import me.minecraft_server.homes.database.IChangeFeed;
+import me.minecraft_server.homes.database.IDatabase;
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.WriteBehindDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.impl.MySQLDatabase;
+import me.minecraft_server.homes.database.log.LogDatabase;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.dto.HomeChange;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * The database of the homes service with everything in front of it: the connection pool, the write buffer,
+ * the circuit breaker and the change feed. Either configured from the plugin config or assembled directly, e.g. in tests.
+ */
+@Accessors(prefix = "m")
+public final class HomesStorage implements Closeable {
+
+    /**
+     * The database to call, with the write buffer and circuit breaker in front of it if configured.
+     */
+    @Getter
+    private @NotNull final IDatabase mDatabase;
+
+    /**
+     * The change log of a shared database, null if changes are not exchanged with other servers.
+     */
+    @Getter
+    private @Nullable final IChangeFeed mChangeFeed;
+
+    /**
+     * The amount of threads to call the database with.
+     */
+    @Getter
+    private final int mThreads;
+
+    /**
+     * Whether other servers can change the database.
+     */
+    @Getter
+    private final boolean mShared;
+
+    /**
+     * How long the last known homes are served while the database is unavailable.
+     */
+    @Getter
+    private @NotNull final Duration mStaleDuration;
+
+    /**
+     * How often the change feed is read.
+     */
+    @Getter
+    private @NotNull final Duration mPollInterval;
+
+    /**
+     * How long changes are kept in the change feed.
+     */
+    @Getter
+    private @NotNull final Duration mRetention;
+
+    private @Nullable final SQLDataSource mSource;
+
+    private @Nullable final SQLDataSource mBulkSource;
+
+    private @Nullable final StatementProfiler mProfiler;
+
+    private @Nullable final WriteBehindDatabase mWriteBehind;
+
+    private @Nullable final CircuitBreakerDatabase mCircuitBreaker;
+
+    private @Nullable final Logger mLogger;
+
+    /**
+     * Assembles a storage from a database, closing the database is up to the caller.
+     * @param pDatabase The database to call.
+     * @param pChangeFeed The change log of the database if it is shared, or null.
+     * @param pThreads The amount of threads to call the database with.
+     * @param pPollInterval How often the change feed is read.
+     */
+    public HomesStorage(@NotNull final IDatabase pDatabase, @Nullable final IChangeFeed pChangeFeed, final int pThreads, @NotNull final Duration pPollInterval) {
+        this(pDatabase, pChangeFeed, pThreads, pChangeFeed != null, pPollInterval);
+    }
+
+    /**
+     * Assembles a storage from a database, closing the database is up to the caller.
+     * @param pDatabase The database to call.
+     * @param pChangeFeed The change log of the database if changes are exchanged with other servers, or null.
+     * @param pThreads The amount of threads to call the database with.
+     * @param pShared Whether other servers can change the database.
+     * @param pPollInterval How often the change feed is read.
+     */
+    public HomesStorage(@NotNull final IDatabase pDatabase, @Nullable final IChangeFeed pChangeFeed, final int pThreads, final boolean pShared,
+                        @NotNull final Duration pPollInterval) {
+        this(pDatabase, pChangeFeed, pThreads, pShared || pChangeFeed != null, Duration.ofHours(1L), pPollInterval, Duration.ofHours(1L),
+                null, null, null, null, null, null);
+    }
+
+    private HomesStorage(@NotNull final IDatabase pDatabase, @Nullable final IChangeFeed pChangeFeed, final int pThreads, final boolean pShared,
+                         @NotNull final Duration pStaleDuration, @NotNull final Duration pPollInterval, @NotNull final Duration pRetention,
+                         @Nullable final SQLDataSource pSource, @Nullable final SQLDataSource pBulkSource, @Nullable final StatementProfiler pProfiler,
+                         @Nullable final WriteBehindDatabase pWriteBehind,
+                         @Nullable final CircuitBreakerDatabase pCircuitBreaker, @Nullable final Logger pLogger) {
+        mDatabase = pDatabase;
+        mChangeFeed = pChangeFeed;
+        mThreads = pThreads;
+        mShared = pShared;
+        mStaleDuration = pStaleDuration;
+        mPollInterval = pPollInterval;
+        mRetention = pRetention;
+        mSource = pSource;
+        mBulkSource = pBulkSource;
+        mProfiler = pProfiler;
+        mWriteBehind = pWriteBehind;
+        mCircuitBreaker = pCircuitBreaker;
+        mLogger = pLogger;
+    }
+
+    /**
+     * Opens the database configured in the plugin config.
+     * @param pConfig The plugin config.
+     * @param pDataFolder The folder of local databases.
+     * @param pLogger The logger of the plugin.
+     * @return The storage.
+     */
+    public static @NotNull HomesStorage fromConfig(@NotNull final FileConfiguration pConfig, @NotNull final Path pDataFolder, @NotNull final Logger pLogger) {
+
+        final var type = pConfig.getString("database.type", "mysql").toLowerCase();
+        final var poolSize = pConfig.getInt("database.pool_size", 10);
+        final var staleDuration = Duration.ofMinutes(pConfig.getLong("database.circuit_breaker.stale_duration", 60L));
+        final var pollInterval = Duration.ofMillis(pConfig.getLong("database.change_feed.poll_interval", 1000L));
+        final var retention = Duration.ofMinutes(pConfig.getLong("database.change_feed.retention", 60L));
+        if (type.equals("native")) {
+            try {
+                final var database = new LogDatabase(pDataFolder.resolve(pConfig.getString("database.file", "homes") + "-log"),
+                        LogDatabase.DEFAULT_SEGMENT_SIZE, pLogger);
+                return new HomesStorage(database, null, poolSize, false, staleDuration, pollInterval, retention, null, null, null, null, null, pLogger);
+            } catch (IOException e) {
+                throw new UncheckedIOException("The native database can't be opened.", e);
+            }
+        }
+
+        final var configurator = switch (type) {
+            case "mysql" -> {
+                final var host = pConfig.getString("database.host", "localhost");
+                final var port = pConfig.getInt("database.port", 3306);
+                final var database = pConfig.getString("database.database", "homes");
+                final var username = pConfig.getString("database.username", "username");
+                final var password = pConfig.getString("database.password", "password");
+                yield MySQLDatabase.connection(host, port, database, username, password);
+            }
+            case "h2" -> H2Database.file(pDataFolder.resolve(pConfig.getString("database.file", "homes")));
+            default -> throw new IllegalArgumentException("Unknown database type '" + type + "', use either mysql, h2 or native.");
+        };
+
+        // Calls must not hang longer than the deadline while the database is unreachable
+        final var deadline = Duration.ofMillis(pConfig.getLong("database.circuit_breaker.timeout", 5000L));
+        final var source = new SQLDataSource(hikari -> {
+            configurator.configure(hikari);
+            hikari.setMaximumPoolSize(poolSize);
+            hikari.setConnectionTimeout(deadline.toMillis());
+            if (type.equals("mysql")) {
+                hikari.addDataSourceProperty("connectTimeout", deadline.toMillis());
+                hikari.addDataSourceProperty("socketTimeout", deadline.toMillis());
+            }
+        });
+
+        // Migrations and full table scans of a large database take longer, so they get a small pool without the socket timeout
+        final var bulkSource = !type.equals("mysql") ? source : new SQLDataSource(hikari -> {
+            configurator.configure(hikari);
+            hikari.setPoolName("Homes-Bulk");
+            hikari.setMaximumPoolSize(2);
+            hikari.setMinimumIdle(0);
+            hikari.addDataSourceProperty("connectTimeout", deadline.toMillis());
+        });
+        final var slowThreshold = Duration.ofMillis(pConfig.getLong("database.slow_query_log.threshold", 0L));
+        final var profiler = new StatementProfiler(pLogger, slowThreshold, pConfig.getBoolean("database.slow_query_log.explain", false));
+
+        // Only a shared database needs to tell other servers about changes
+        final var shared = type.equals("mysql");
+        final var recordChanges = shared && pConfig.getBoolean("database.change_feed.enabled", true);
+        final var sqlDatabase = new SQLDatabase(source, bulkSource, null, profiler, recordChanges, deadline);
+
+        // Buffer home writes, if enabled
+        WriteBehindDatabase writeBehind = null;
+        if (pConfig.getBoolean("database.write_behind.enabled", false)) {
+            final var flushInterval = Duration.ofMillis(pConfig.getLong("database.write_behind.flush_interval", 500L));
+            writeBehind = new WriteBehindDatabase(sqlDatabase, flushInterval, pLogger);
+        }
+
+        // Stop calling the database once it is unavailable, until a probe succeeds again
+        final var failureThreshold = pConfig.getInt("database.circuit_breaker.failure_threshold", 5);
+        final var probeInterval = Duration.ofMillis(pConfig.getLong("database.circuit_breaker.probe_interval", 5000L));
+        final var circuitBreaker = new CircuitBreakerDatabase(writeBehind != null ? writeBehind : sqlDatabase, deadline, failureThreshold, probeInterval, pLogger);
+
+        return new HomesStorage(circuitBreaker, recordChanges ? sqlDatabase : null, poolSize, shared, staleDuration, pollInterval, retention,
+                source, bulkSource != source ? bulkSource : null, profiler, writeBehind, circuitBreaker, pLogger);
+
+    }
+
+    /**
+     * Sets who is told about buffered writes the database rejected, nothing is rejected without a write buffer.
+     * @param pListener Told about the home of a rejected update or the owner of a rejected upsert.
+     */
+    public void setDroppedWriteListener(@NotNull final Consumer<HomeChange> pListener) {
+        if (mWriteBehind != null)
+            mWriteBehind.setDroppedWriteListener(pListener);
+    }
+
+    /**
+     * Checks whether database calls currently fail immediately, because the database is unavailable.
+     * @return Whether the database is unavailable.
+     */
+    public boolean isUnavailable() {
+        return mCircuitBreaker != null && mCircuitBreaker.isOpen();
+    }
+
+    /**
+     * Writes pending writes and closes the connections.
+     * Database calls have to be finished before.
+     */
+    @Override
+    public void close() {
+        if (mCircuitBreaker != null)
+            mCircuitBreaker.close();
+        if (mWriteBehind != null)
+            mWriteBehind.close();
+        if (mDatabase instanceof LogDatabase log)
+            log.close();
+        if (mSource != null)
+            mSource.close();
+        if (mBulkSource != null)
+            mBulkSource.close();
+        if (mLogger != null && mProfiler != null && !mProfiler.getStatistics().isEmpty()) {
+            mLogger.info("Database latencies since startup:");
+            mProfiler.report().forEach(mLogger::info);
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package me.minecraft_server.homes.services;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * All registered players in memory, by unique id and by lowercase username.
+ * The usernames are sorted, so players are found by a prefix of their username with a range lookup.
+ * Reads don't lock, updates are serialized.
+ */
+public final class PlayerDirectory {
+
+    /**
+     * The usernames, mapped by unique id.
+     */
+    private final @NotNull Map<UUID, String> mUsernames = new ConcurrentHashMap<>();
+
+    /**
+     * The unique ids registered with a username, mapped by lowercase username. The lists are never modified.
+     */
+    private final @NotNull ConcurrentNavigableMap<String, List<UUID>> mUniqueIds = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds a player or changes their username.
+     * @param pUniqueId The unique id of the player.
+     * @param pUsername The username of the player.
+     */
+    public synchronized void put(@NotNull final UUID pUniqueId, @NotNull final String pUsername) {
+        final var previous = mUsernames.put(pUniqueId, pUsername);
+        if (pUsername.equals(previous))
+            return;
+        if (previous != null)
+            mUniqueIds.computeIfPresent(fold(previous), (key, uniqueIds) -> without(uniqueIds, pUniqueId));
+        mUniqueIds.compute(fold(pUsername), (key, uniqueIds) -> with(uniqueIds, pUniqueId));
+    }
+
+    /**
+     * Gets the username of a player.
+     * @param pUniqueId The unique id of the player.
+     * @return The username, or null if the player is unknown.
+     */
+    public @Nullable String getUsername(@NotNull final UUID pUniqueId) {
+        return mUsernames.get(pUniqueId);
+    }
+
+    /**
+     * Gets the players registered with a username, ignoring case.
+     * @param pUsername The username.
+     * @return The unique ids of the players, empty if no player is registered with the username.
+     */
+    public @NotNull List<UUID> getUniqueIds(@NotNull final String pUsername) {
+        return mUniqueIds.getOrDefault(fold(pUsername), Collections.emptyList());
+    }
+
+    /**
+     * Gets the usernames starting with a prefix, ignoring case.
+     * @param pPrefix The prefix.
+     * @param pLimit The maximum amount of usernames.
+     * @return The usernames sorted by their lowercase username, a username registered by multiple players is contained once.
+     */
+    public @NotNull List<String> complete(@NotNull final String pPrefix, final int pLimit) {
+        final var prefix = fold(pPrefix);
+        final var list = new ArrayList<String>();
+        for (final var entry : mUniqueIds.tailMap(prefix).entrySet()) {
+            if (list.size() >= pLimit || !entry.getKey().startsWith(prefix))
+                break;
+            final var username = mUsernames.get(entry.getValue().get(0));
+            if (username != null)
+                list.add(username);
+        }
+        return list;
+    }
+
+    /**
+     * @return An unmodifiable view of the usernames, mapped by unique id.
+     */
+    public @NotNull Map<UUID, String> getUsernames() {
+        return Collections.unmodifiableMap(mUsernames);
+    }
+
+    /**
+     * @return The amount of players.
+     */
+    public int size() {
+        return mUsernames.size();
+    }
+
+    private static @NotNull String fold(@NotNull final String pUsername) {
+        return pUsername.toLowerCase(Locale.ROOT);
+    }
+
+    private static @NotNull List<UUID> with(@Nullable final List<UUID> pUniqueIds, @NotNull final UUID pUniqueId) {
+        if (pUniqueIds == null)
+            return List.of(pUniqueId);
+        final var list = new ArrayList<>(pUniqueIds);
+        list.add(pUniqueId);
+        return List.copyOf(list);
+    }
+
+    private static @Nullable List<UUID> without(@NotNull final List<UUID> pUniqueIds, @NotNull final UUID pUniqueId) {
+        final var list = new ArrayList<>(pUniqueIds);
+        list.remove(pUniqueId);
+        return list.isEmpty() ? null : List.copyOf(list);
+    }
+
+}
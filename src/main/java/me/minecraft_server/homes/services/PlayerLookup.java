@@ -0,0 +1,208 @@
+package me.minecraft_server.homes.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import me.minecraft_server.homes.database.IAsyncDatabase;
+import me.minecraft_server.homes.dto.HomeChange;
+import me.minecraft_server.homes.util.RefreshingCache;
+import me.minecraft_server.homes.util.SingleFlight;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves usernames to the unique ids of registered players and completes them.
+ * All registered players are loaded once into a {@link PlayerDirectory}, afterwards it only learns from registrations
+ * and the change feed. Once changes of other servers may have been missed, the directory is only used for completions
+ * and usernames are looked up on demand instead of scanning all players again.
+ */
+public final class PlayerLookup {
+
+    private @NotNull final IAsyncDatabase mDatabase;
+
+    private @NotNull final PlayerRegistry mRegistry;
+
+    /**
+     * Unique ids by username, looked up on demand.
+     */
+    private @NotNull final RefreshingCache<String, List<UUID>> mUniqueIds;
+
+    /**
+     * Usernames no player is registered with.
+     */
+    private @NotNull final Cache<String, Boolean> mUnknownNames;
+
+    /**
+     * Pending lookups, concurrent lookups of the same username share a single query.
+     */
+    private @NotNull final SingleFlight<String, List<UUID>> mLoads = new SingleFlight<>();
+
+    /**
+     * All registered players, null until they are loaded.
+     */
+    private @Nullable volatile PlayerDirectory mDirectory = null;
+
+    /**
+     * Whether the directory knows every registered player.
+     */
+    private volatile boolean mComplete;
+
+    /**
+     * The players registered while the directory is loading, they are added once it is loaded.
+     */
+    private @NotNull final Map<UUID, String> mRecentRegistrations = new ConcurrentHashMap<>();
+
+    private volatile boolean mLoading = false;
+
+    /**
+     * Creates a lookup, the directory is loaded with {@link #load()}.
+     * @param pDatabase The database to look players up in.
+     * @param pRegistry The registry that is warmed with the loaded players.
+     * @param pRefreshAfter The time after which read usernames are looked up again in the background.
+     * @param pExpireAfter The time after which usernames that were not read expire.
+     * @param pJitter The fraction both times are randomized by per username.
+     * @param pNegativeExpiry How long usernames no player is registered with are remembered.
+     * @param pChangesKnown Whether every registration of other servers is told, otherwise the directory is only used for completions.
+     */
+    public PlayerLookup(@NotNull final IAsyncDatabase pDatabase, @NotNull final PlayerRegistry pRegistry,
+                        @NotNull final Duration pRefreshAfter, @NotNull final Duration pExpireAfter, final double pJitter,
+                        @NotNull final Duration pNegativeExpiry, final boolean pChangesKnown) {
+        mDatabase = pDatabase;
+        mRegistry = pRegistry;
+        mUniqueIds = new RefreshingCache<>(pRefreshAfter, pExpireAfter, pJitter, this::loadUniqueIds);
+        mUnknownNames = CacheBuilder.newBuilder().expireAfterWrite(pNegativeExpiry).build();
+        mComplete = pChangesKnown;
+    }
+
+    /**
+     * Loads all registered players into the directory and the player registry, in a single streaming pass.
+     * Players registered while loading are added as well.
+     */
+    public void load() {
+        mRecentRegistrations.clear();
+        mLoading = true;
+        final var directory = new PlayerDirectory();
+        mDatabase.forEachPlayer(directory::put).whenComplete((complete, ex) -> {
+            try {
+                // An error occurred, so the directory may miss players
+                if (ex != null || !complete)
+                    return;
+                mRegistry.warm(directory.getUsernames());
+                mDirectory = directory;
+                mRecentRegistrations.forEach(directory::put);
+            } finally {
+                mLoading = false;
+            }
+        });
+    }
+
+    /**
+     * Remembers that a player is registered with a username now.
+     * @param pOwner The unique id of the player.
+     * @param pUsername The username.
+     */
+    public void learn(@NotNull final UUID pOwner, @NotNull final String pUsername) {
+        mLoads.forget(pUsername);
+        mUnknownNames.invalidate(pUsername);
+        if (mLoading)
+            mRecentRegistrations.put(pOwner, pUsername);
+        final var directory = mDirectory;
+        if (directory != null)
+            directory.put(pOwner, pUsername);
+    }
+
+    /**
+     * Forgets what is known about a username, e.g. because a player was renamed to it.
+     * @param pUsername The username.
+     */
+    public void forget(@NotNull final String pUsername) {
+        mLoads.forget(pUsername);
+        mUniqueIds.invalidate(pUsername);
+        mUnknownNames.invalidate(pUsername);
+    }
+
+    /**
+     * Learns a player another server registered. Changes of homes are ignored.
+     * @param pChange The change of the other server.
+     */
+    public void applyChange(@NotNull final HomeChange pChange) {
+        if (pChange.username() == null)
+            return;
+        mUniqueIds.invalidate(pChange.username());
+        mUnknownNames.invalidate(pChange.username());
+        if (pChange.owner() != null)
+            learn(pChange.owner(), pChange.username());
+    }
+
+    /**
+     * Forgets all looked up usernames, since changes of other servers may have been missed.
+     * The directory is kept for completions, but usernames are looked up on demand from now on.
+     */
+    public void invalidateAll() {
+        mUniqueIds.invalidateAll();
+        mUnknownNames.invalidateAll();
+        mComplete = false;
+    }
+
+    /**
+     * Gets the unique ids registered with a username, if they are known without a query.
+     * @param pUsername The username.
+     * @return The unique ids, or null if they are unknown.
+     */
+    public @Nullable List<UUID> getKnownUniqueIds(@NotNull final String pUsername) {
+        final var directory = mDirectory;
+        if (directory == null || !mComplete)
+            return mUniqueIds.getIfPresent(pUsername);
+        return directory.getUniqueIds(pUsername);
+    }
+
+    /**
+     * Gets the unique ids registered with a username, looked up if they are not known.
+     * @param pUsername The username.
+     * @return A future to the unique ids, empty if no player is registered with the username.
+     */
+    public @NotNull CompletableFuture<List<UUID>> getUniqueIds(@NotNull final String pUsername) {
+        final var known = getKnownUniqueIds(pUsername);
+        if (known != null)
+            return CompletableFuture.completedFuture(known);
+        if (mUnknownNames.getIfPresent(pUsername) != null)
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        return loadUniqueIds(pUsername).thenApply(uniqueIds -> {
+            if (uniqueIds == null) {
+                mUnknownNames.put(pUsername, true);
+                return Collections.emptyList();
+            }
+            mUniqueIds.put(pUsername, uniqueIds);
+            return uniqueIds;
+        });
+    }
+
+    /**
+     * Completes usernames of registered players, including offline players.
+     * @param pPrefix The start of the username.
+     * @param pLimit The maximum amount of usernames.
+     * @return The usernames, or null if the registered players are not loaded yet.
+     */
+    public @Nullable List<String> complete(@NotNull final String pPrefix, final int pLimit) {
+        final var directory = mDirectory;
+        return directory != null ? directory.complete(pPrefix, pLimit) : null;
+    }
+
+    /**
+     * Loads the unique ids registered with a username for {@link #mUniqueIds}.
+     * @param pUsername The username.
+     * @return A future to the unique ids, or null if no player is registered with the username.
+     */
+    private @NotNull CompletableFuture<List<UUID>> loadUniqueIds(@NotNull final String pUsername) {
+        return mLoads.load(pUsername, 0L, () -> mDatabase.getPlayerUniqueId(pUsername))
+                .thenApply(uniqueIds -> uniqueIds.isEmpty() ? null : uniqueIds);
+    }
+
+}
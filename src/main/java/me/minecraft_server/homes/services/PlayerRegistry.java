@@ -0,0 +1,129 @@
+package me.minecraft_server.homes.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import me.minecraft_server.homes.database.IDatabase;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Registers players without writing usernames that did not change.
+ * The registered usernames of known players are remembered, warmed with all registered players at startup.
+ * Unknown players are written immediately, since their homes reference them. Renames of known players
+ * are collected and written together with the next flush.
+ */
+public final class PlayerRegistry {
+
+    private @NotNull final IDatabase mDatabase;
+
+    /**
+     * The usernames known to be registered, mapped by unique id.
+     */
+    private @NotNull final Cache<UUID, String> mKnown;
+
+    /**
+     * Renames that are not written yet, mapped by unique id.
+     */
+    private @NotNull final Map<UUID, String> mPendingRenames = new LinkedHashMap<>();
+
+    /**
+     * Creates a registry.
+     * @param pDatabase The database to register players in.
+     * @param pMaximumSize The maximum amount of players to remember.
+     * @param pTrustDuration How long a known username is trusted, null if it only changes through this registry
+     *                       or the registry is told about changes of other servers.
+     */
+    public PlayerRegistry(@NotNull final IDatabase pDatabase, final long pMaximumSize, @Nullable final Duration pTrustDuration) {
+        mDatabase = pDatabase;
+        final var builder = CacheBuilder.newBuilder().maximumSize(pMaximumSize);
+        if (pTrustDuration != null)
+            builder.expireAfterWrite(pTrustDuration);
+        mKnown = builder.build();
+    }
+
+    /**
+     * Remembers registered players, e.g. all players registered in the database.
+     * @param pPlayers The registered usernames mapped by unique id.
+     */
+    public void warm(@NotNull final Map<UUID, String> pPlayers) {
+        pPlayers.forEach(mKnown.asMap()::putIfAbsent);
+    }
+
+    /**
+     * Registers a player, unless they are known with the same username.
+     * @param pOwner The unique id of the player.
+     * @param pUsername The username of the player.
+     * @return Whether the username of the player changed or the player was unknown.
+     * @throws DatabaseUnavailableException If an unknown player can't be written.
+     */
+    public boolean register(@NotNull final UUID pOwner, @NotNull final String pUsername) {
+        final var known = mKnown.getIfPresent(pOwner);
+        if (pUsername.equals(known))
+            return false;
+
+        // The player may not exist yet, so homes could not be added until they are written
+        if (known == null) {
+            synchronized (mPendingRenames) {
+                mPendingRenames.remove(pOwner);
+            }
+            mDatabase.registerPlayer(pOwner, pUsername);
+            mKnown.put(pOwner, pUsername);
+            return true;
+        }
+
+        synchronized (mPendingRenames) {
+            mPendingRenames.put(pOwner, pUsername);
+        }
+        mKnown.put(pOwner, pUsername);
+        return true;
+    }
+
+    /**
+     * Forgets the username of a player, e.g. because another server changed it.
+     * The player is written again the next time they are registered.
+     * @param pOwner The unique id of the player.
+     */
+    public void forget(@NotNull final UUID pOwner) {
+        mKnown.invalidate(pOwner);
+    }
+
+    /**
+     * Forgets the usernames of all players.
+     */
+    public void forgetAll() {
+        mKnown.invalidateAll();
+    }
+
+    /**
+     * Writes the collected renames in one batch. If the write fails, the renames are collected again,
+     * unless they were replaced meanwhile.
+     * @return The written usernames mapped by unique id.
+     * @throws DatabaseUnavailableException If the database is unavailable.
+     */
+    public @NotNull Map<UUID, String> flush() {
+        final Map<UUID, String> renames;
+        synchronized (mPendingRenames) {
+            if (mPendingRenames.isEmpty())
+                return Map.of();
+            renames = new HashMap<>(mPendingRenames);
+            mPendingRenames.clear();
+        }
+        try {
+            mDatabase.registerPlayers(renames);
+        } catch (RuntimeException e) {
+            synchronized (mPendingRenames) {
+                renames.forEach(mPendingRenames::putIfAbsent);
+            }
+            throw e;
+        }
+        return renames;
+    }
+
+}
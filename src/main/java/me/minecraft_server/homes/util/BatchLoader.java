@@ -0,0 +1,112 @@
+package me.minecraft_server.homes.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects loads of distinct keys for a short window and loads them together with a single bulk load.
+ * A batch is loaded once the window of its first key passed or it is full, whatever happens first.
+ * So concurrent loads of many keys take as many bulk loads as there are batches, not keys.
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class BatchLoader<K, V> {
+
+    private final @NotNull ScheduledExecutorService mExecutor;
+
+    private final long mWindow;
+
+    private final int mMaxBatchSize;
+
+    private final @NotNull Function<Set<K>, CompletableFuture<Map<K, V>>> mLoader;
+
+    /**
+     * The batch collecting keys, null if none is collecting. Guarded by this loader.
+     */
+    private @Nullable Map<K, CompletableFuture<V>> mBatch = null;
+
+    /**
+     * Creates a loader.
+     * @param pExecutor Loads the batches once their window passed.
+     * @param pWindow The time keys are collected for, after the first key of a batch.
+     * @param pMaxBatchSize The maximum amount of keys of a batch.
+     * @param pLoader Loads the values of multiple keys, keys without value are missing.
+     */
+    public BatchLoader(@NotNull final ScheduledExecutorService pExecutor, @NotNull final Duration pWindow, final int pMaxBatchSize,
+                       @NotNull final Function<Set<K>, CompletableFuture<Map<K, V>>> pLoader) {
+        mExecutor = pExecutor;
+        mWindow = pWindow.toNanos();
+        mMaxBatchSize = Math.max(pMaxBatchSize, 1);
+        mLoader = pLoader;
+    }
+
+    /**
+     * Loads the value of a key with the next batch.
+     * @param pKey The key.
+     * @return A future to the value, or null if the key has no value.
+     */
+    public @NotNull CompletableFuture<V> load(@NotNull final K pKey) {
+        final Map<K, CompletableFuture<V>> full;
+        final CompletableFuture<V> future;
+        synchronized (this) {
+            if (mBatch == null) {
+                final var batch = new LinkedHashMap<K, CompletableFuture<V>>();
+                mExecutor.schedule(() -> dispatch(batch), mWindow, TimeUnit.NANOSECONDS);
+                mBatch = batch;
+            }
+            final var pending = mBatch.get(pKey);
+            if (pending != null)
+                return pending.copy();
+            future = new CompletableFuture<>();
+            mBatch.put(pKey, future);
+            if (mBatch.size() < mMaxBatchSize)
+                return future.copy();
+            full = mBatch;
+            mBatch = null;
+        }
+        load(full);
+        return future.copy();
+    }
+
+    /**
+     * Loads a batch once its window passed, unless it was loaded because it was full.
+     */
+    private void dispatch(@NotNull final Map<K, CompletableFuture<V>> pBatch) {
+        synchronized (this) {
+            if (mBatch != pBatch)
+                return;
+            mBatch = null;
+        }
+        load(pBatch);
+    }
+
+    /**
+     * Loads all keys of a batch and completes their futures.
+     */
+    private void load(@NotNull final Map<K, CompletableFuture<V>> pBatch) {
+        final CompletableFuture<Map<K, V>> load;
+        try {
+            load = mLoader.apply(Collections.unmodifiableSet(pBatch.keySet()));
+        } catch (RuntimeException e) {
+            pBatch.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        load.whenComplete((values, ex) -> pBatch.forEach((key, future) -> {
+            if (ex != null)
+                future.completeExceptionally(ex);
+            else
+                future.complete(values.get(key));
+        }));
+    }
+
+}
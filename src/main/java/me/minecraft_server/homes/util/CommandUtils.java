@@ -7,6 +7,8 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 @UtilityClass
 public final class CommandUtils {
@@ -14,10 +16,21 @@ public final class CommandUtils {
     public static List<String> getPossibleCompletion(@NotNull String current, @NotNull Iterable<String> possibles) {
         final var list = new ArrayList<String>();
         for (final var possbile : possibles) {
-            if (possbile.toLowerCase().startsWith(current.toLowerCase()))
+            if (possbile.regionMatches(true, 0, current, 0, current.length()))
                 list.add(possbile);
         }
         return list;
     }
 
+    /**
+     * Unwraps the exception a future failed with, so it can be matched against the actual cause.
+     * @param pThrowable The exception passed to a completion stage.
+     * @return The actual exception.
+     */
+    public static Throwable unwrap(@NotNull Throwable pThrowable) {
+        while ((pThrowable instanceof CompletionException || pThrowable instanceof ExecutionException) && pThrowable.getCause() != null)
+            pThrowable = pThrowable.getCause();
+        return pThrowable;
+    }
+
 }
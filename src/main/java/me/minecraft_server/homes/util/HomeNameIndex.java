@@ -0,0 +1,127 @@
+package me.minecraft_server.homes.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The home names of a player sorted by their lowercase name, so completing a prefix is a range lookup.
+ * The index is immutable and the returned lists are views of it, so completing allocates no strings.
+ */
+public final class HomeNameIndex {
+
+    /**
+     * The lowercase names, sorted.
+     */
+    private final @NotNull String[] mFolded;
+
+    /**
+     * The names in the order of {@link #mFolded}.
+     */
+    private final @NotNull List<String> mNames;
+
+    /**
+     * The names qualified with the username last completed with, built on demand.
+     */
+    private volatile @Nullable Qualified mQualified = null;
+
+    /**
+     * Indexes home names.
+     * @param pNames The names of the homes.
+     */
+    public HomeNameIndex(@NotNull final Collection<String> pNames) {
+        final var names = pNames.toArray(String[]::new);
+        final var folded = new String[names.length];
+        final var order = new Integer[names.length];
+        for (int i = 0; i < names.length; i++) {
+            folded[i] = names[i].toLowerCase(Locale.ROOT);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer, String>comparing(i -> folded[i]).thenComparing(i -> names[i]));
+        mFolded = new String[names.length];
+        final var sorted = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            mFolded[i] = folded[order[i]];
+            sorted[i] = names[order[i]];
+        }
+        mNames = List.of(sorted);
+    }
+
+    /**
+     * Gets the names starting with a prefix, ignoring case.
+     * @param pPrefix The prefix.
+     * @return An unmodifiable view of the names, sorted.
+     */
+    public @NotNull List<String> complete(@NotNull final String pPrefix) {
+        final var prefix = pPrefix.toLowerCase(Locale.ROOT);
+        final var from = lowerBound(prefix);
+        return mNames.subList(from, upperBound(prefix, from));
+    }
+
+    /**
+     * Gets the names starting with a prefix, ignoring case, qualified with a username as in "username:home".
+     * @param pUsername The username to qualify the names with, as typed.
+     * @param pPrefix The prefix of the names.
+     * @return An unmodifiable view of the qualified names, sorted.
+     */
+    public @NotNull List<String> complete(@NotNull final String pUsername, @NotNull final String pPrefix) {
+        var qualified = mQualified;
+        if (qualified == null || !qualified.username().equals(pUsername)) {
+            final var names = new String[mNames.size()];
+            for (int i = 0; i < names.length; i++)
+                names[i] = pUsername + ":" + mNames.get(i);
+            mQualified = qualified = new Qualified(pUsername, List.of(names));
+        }
+        final var prefix = pPrefix.toLowerCase(Locale.ROOT);
+        final var from = lowerBound(prefix);
+        return qualified.names().subList(from, upperBound(prefix, from));
+    }
+
+    /**
+     * @return The amount of names.
+     */
+    public int size() {
+        return mFolded.length;
+    }
+
+    /**
+     * Finds the first name not sorted before a prefix.
+     */
+    private int lowerBound(@NotNull final String pPrefix) {
+        int low = 0;
+        int high = mFolded.length;
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (mFolded[middle].compareTo(pPrefix) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first name after the names starting with a prefix.
+     */
+    private int upperBound(@NotNull final String pPrefix, final int pFrom) {
+        int low = pFrom;
+        int high = mFolded.length;
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (mFolded[middle].startsWith(pPrefix))
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private record Qualified(@NotNull String username, @NotNull List<String> names) {
+    }
+
+}
@@ -0,0 +1,173 @@
+package me.minecraft_server.homes.util;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A cache that reloads entries in the background once they are read after their refresh time.
+ * Until the reload completes, the old value is returned, so reads of hot entries never wait for the loader.
+ * Entries that are not read after their refresh time expire.
+ * Both times are randomized per entry, so entries cached at the same time don't refresh or expire at the same time.
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class RefreshingCache<K, V> {
+
+    private final @NotNull Cache<K, Entry<V>> mCache;
+
+    private final @NotNull Function<K, CompletableFuture<V>> mLoader;
+
+    private final @NotNull Ticker mTicker;
+
+    private final long mRefreshAfter;
+
+    private final long mExpireAfter;
+
+    private final double mJitter;
+
+    /**
+     * Creates a cache.
+     * @param pRefreshAfter The time after writing an entry, after which reading it reloads it.
+     * @param pExpireAfter The time after writing an entry, after which it is removed.
+     * @param pJitter The fraction both times are randomly shortened or extended by, e.g. 0.2 for ±20%.
+     * @param pLoader Reloads a value, completes with null if it does not exist anymore.
+     */
+    public RefreshingCache(@NotNull final Duration pRefreshAfter, @NotNull final Duration pExpireAfter, final double pJitter,
+                           @NotNull final Function<K, CompletableFuture<V>> pLoader) {
+        this(pRefreshAfter, pExpireAfter, pJitter, pLoader, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a cache with a custom time source.
+     * @param pRefreshAfter The time after writing an entry, after which reading it reloads it.
+     * @param pExpireAfter The time after writing an entry, after which it is removed.
+     * @param pJitter The fraction both times are randomly shortened or extended by, e.g. 0.2 for ±20%.
+     * @param pLoader Reloads a value, completes with null if it does not exist anymore.
+     * @param pTicker The time source.
+     */
+    public RefreshingCache(@NotNull final Duration pRefreshAfter, @NotNull final Duration pExpireAfter, final double pJitter,
+                           @NotNull final Function<K, CompletableFuture<V>> pLoader, @NotNull final Ticker pTicker) {
+        mRefreshAfter = pRefreshAfter.toNanos();
+        mExpireAfter = pExpireAfter.toNanos();
+        mJitter = Math.max(0.0D, Math.min(pJitter, 1.0D));
+        mLoader = pLoader;
+        mTicker = pTicker;
+        // Frees entries no longer than the longest possible expiry after they were written
+        mCache = CacheBuilder.newBuilder()
+                .expireAfterWrite((long) (mExpireAfter * (1.0D + mJitter)) + 1L, TimeUnit.NANOSECONDS)
+                .ticker(pTicker)
+                .build();
+    }
+
+    /**
+     * Gets a value, if it is cached and not expired. Starts a reload if it is due.
+     * @param pKey The key.
+     * @return The cached value, or null.
+     */
+    public @Nullable V getIfPresent(@NotNull final K pKey) {
+        final var entry = mCache.getIfPresent(pKey);
+        if (entry == null)
+            return null;
+        final var now = mTicker.read();
+        if (now - entry.mExpireAt >= 0L) {
+            mCache.asMap().remove(pKey, entry);
+            return null;
+        }
+        if (now - entry.mRefreshAt >= 0L && entry.mRefreshing.compareAndSet(false, true))
+            refresh(pKey, entry);
+        return entry.mValue;
+    }
+
+    /**
+     * Caches a value, replacing the previous one.
+     * @param pKey The key.
+     * @param pValue The value.
+     */
+    public void put(@NotNull final K pKey, @NotNull final V pValue) {
+        mCache.put(pKey, newEntry(pValue));
+    }
+
+    /**
+     * Caches a value, unless a value is cached already that did not expire.
+     * @param pKey The key.
+     * @param pValue The value.
+     */
+    public void putIfAbsent(@NotNull final K pKey, @NotNull final V pValue) {
+        final var entry = newEntry(pValue);
+        final var now = mTicker.read();
+        mCache.asMap().compute(pKey, (key, previous) -> previous == null || now - previous.mExpireAt >= 0L ? entry : previous);
+    }
+
+    /**
+     * Removes a value. A reload that is in progress won't cache its result.
+     * @param pKey The key.
+     */
+    public void invalidate(@NotNull final K pKey) {
+        mCache.invalidate(pKey);
+    }
+
+    /**
+     * Removes all values. Reloads that are in progress won't cache their results.
+     */
+    public void invalidateAll() {
+        mCache.invalidateAll();
+    }
+
+    private @NotNull Entry<V> newEntry(@NotNull final V pValue) {
+        final var factor = 1.0D + mJitter * (2.0D * ThreadLocalRandom.current().nextDouble() - 1.0D);
+        final var now = mTicker.read();
+        return new Entry<>(pValue, now + (long) (mRefreshAfter * factor), now + (long) (mExpireAfter * factor));
+    }
+
+    /**
+     * Reloads an entry. The result only replaces the entry if it was not replaced or invalidated meanwhile.
+     */
+    private void refresh(@NotNull final K pKey, @NotNull final Entry<V> pEntry) {
+        final CompletableFuture<V> load;
+        try {
+            load = mLoader.apply(pKey);
+        } catch (RuntimeException e) {
+            pEntry.mRefreshing.set(false);
+            throw e;
+        }
+        load.whenComplete((value, ex) -> {
+            if (ex != null) {
+                // Keep the old value and try again with the next read
+                pEntry.mRefreshing.set(false);
+            } else if (value == null) {
+                mCache.asMap().remove(pKey, pEntry);
+            } else {
+                mCache.asMap().replace(pKey, pEntry, newEntry(value));
+            }
+        });
+    }
+
+    private static final class Entry<V> {
+
+        private final @NotNull V mValue;
+
+        private final long mRefreshAt;
+
+        private final long mExpireAt;
+
+        private final @NotNull AtomicBoolean mRefreshing = new AtomicBoolean(false);
+
+        private Entry(@NotNull final V pValue, final long pRefreshAt, final long pExpireAt) {
+            mValue = pValue;
+            mRefreshAt = pRefreshAt;
+            mExpireAt = pExpireAt;
+        }
+
+    }
+
+}
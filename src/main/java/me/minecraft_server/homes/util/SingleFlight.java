@@ -0,0 +1,71 @@
+package me.minecraft_server.homes.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key, so a burst of callers results in a single load.
+ * Callers only join a load that was started for the same version of the key, e.g. the same write counter,
+ * so a load that started before a write is never handed to callers that arrived after it.
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class SingleFlight<K, V> {
+
+    private final @NotNull Map<K, Flight<V>> mFlights = new ConcurrentHashMap<>();
+
+    /**
+     * Joins the pending load of a key, or starts one if none is pending for the version.
+     * @param pKey The key.
+     * @param pVersion The version of the key the load has to be started for.
+     * @param pLoader Starts the load.
+     * @return A future to the loaded value, every caller gets its own copy.
+     */
+    public @NotNull CompletableFuture<V> load(@NotNull final K pKey, final long pVersion, @NotNull final Supplier<CompletableFuture<V>> pLoader) {
+        final var flight = new Flight<V>(pVersion, new CompletableFuture<>());
+        final var current = mFlights.compute(pKey, (key, pending) -> pending != null && pending.version() == pVersion ? pending : flight);
+        if (current != flight)
+            return current.future().copy();
+
+        final CompletableFuture<V> load;
+        try {
+            load = pLoader.get();
+        } catch (RuntimeException e) {
+            mFlights.remove(pKey, flight);
+            flight.future().completeExceptionally(e);
+            throw e;
+        }
+        load.whenComplete((value, ex) -> {
+            // Callers arriving from now on start a new load
+            mFlights.remove(pKey, flight);
+            if (ex != null)
+                flight.future().completeExceptionally(ex);
+            else
+                flight.future().complete(value);
+        });
+        return flight.future().copy();
+    }
+
+    /**
+     * Lets callers of a key start a new load, e.g. because the value changed. A pending load still completes.
+     * @param pKey The key.
+     */
+    public void forget(@NotNull final K pKey) {
+        mFlights.remove(pKey);
+    }
+
+    /**
+     * @return The amount of pending loads.
+     */
+    public int size() {
+        return mFlights.size();
+    }
+
+    private record Flight<V>(long version, @NotNull CompletableFuture<V> future) {
+    }
+
+}
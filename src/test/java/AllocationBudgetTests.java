@@ -0,0 +1,166 @@
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.services.HomesService;
+import me.minecraft_server.homes.services.HomesStorage;
+import me.minecraft_server.homes.services.InventoryService;
+import me.minecraft_server.homes.services.homes.HomeTarget;
+import me.minecraft_server.homes.services.inventory.InventoryCallback;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Fails if a hot path allocates more bytes per call than its budget, measured with the allocation counter of the current thread.
+ * The budgets are about twice the bytes allocated once the JIT compiled the path, so they catch regressions like a copy
+ * or a captured lambda per call, not noise. Lower a budget when its path gets cheaper.
+ */
+public class AllocationBudgetTests {
+
+    private static final int WARMUP = 50000;
+    private static final int OPERATIONS = 10000;
+
+    private final UUID owner = new UUID(0, 1);
+    private final HomeLocation home_A = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+
+    private SQLDataSource source;
+    private HomesService service;
+
+    /**
+     * Keeps the results alive, so the JIT can't drop the calls.
+     */
+    private volatile Object sink;
+
+    @BeforeEach
+    public void openService() {
+        final var threads = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads instanceof com.sun.management.ThreadMXBean allocations && allocations.isThreadAllocatedMemorySupported(),
+                "The JVM can't count allocated bytes!");
+        ((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+
+        source = new SQLDataSource(H2Database.memory("Allocation" + UUID.randomUUID()));
+        final var database = new SQLDatabase(source);
+        database.registerPlayer(owner, "Owner");
+        service = new HomesService(new HomesStorage(database, null, 2, Duration.ofSeconds(1L)), "server", "default", Logger.getLogger("AllocationBudgetTests"));
+        for (final var name : new String[] { "alpha", "beta", "home", "house", "harbour" })
+            Assertions.assertTrue(service.setHomeLocation(new HomeTarget.ForeignHomeNameUnique(name, owner), owner, home_A, false).join(), "The home was not added!");
+    }
+
+    @AfterEach
+    public void closeService() {
+        if (service != null)
+            service.shutdown();
+        if (source != null)
+            source.close();
+    }
+
+    @Test
+    public void parseStringTest() {
+        assertBudget("parseString(name)", 128L, () -> HomeTarget.parseString("home"));
+        assertBudget("parseString(@id)", 128L, () -> HomeTarget.parseString("@42"));
+        assertBudget("parseString(owner:name)", 512L, () -> HomeTarget.parseString("Owner:home"));
+        assertBudget("parseString(uuid:name)", 640L, () -> HomeTarget.parseString("00000000-0000-0000-0000-000000000001:home"));
+    }
+
+    @Test
+    public void warmHomeTest() {
+        final var own = new HomeTarget.OwnHomeName("home");
+        final var unique = new HomeTarget.ForeignHomeNameUnique("home", owner);
+        final var foreign = new HomeTarget.ForeignHomeName("home", "Owner");
+        final var missing = new HomeTarget.OwnHomeName("missing");
+        final var identifier = new HomeTarget.Identifier(service.getHomeId(own, owner).join());
+
+        assertBudget("getHomeId(own)", 128L, () -> service.getHomeId(own, owner).join());
+        assertBudget("getHomeId(unique)", 128L, () -> service.getHomeId(unique, owner).join());
+        assertBudget("getHomeId(foreign)", 448L, () -> service.getHomeId(foreign, owner).join());
+        assertBudget("getHomeLocation(own)", 256L, () -> service.getHomeLocation(own, owner).join());
+        assertBudget("getHomeLocation(identifier)", 192L, () -> service.getHomeLocation(identifier, owner).join());
+        assertBudget("getHomeLocation(foreign)", 576L, () -> service.getHomeLocation(foreign, owner).join());
+
+        // A missing home fails with an exception, its stack trace depends on the depth of the caller
+        assertBudget("getHomeId(missing)", 10000L, () -> service.getHomeId(missing, owner).exceptionally(ex -> null).join());
+    }
+
+    @Test
+    public void possibleHomesTest() {
+        final var player = newPlayer(Set.of());
+        final var admin = newPlayer(Set.of("homes.admin.use"));
+        service.getPossibleHomes(player, "", "homes.admin.use");
+        service.getPossibleHomes(admin, "Owner:", "homes.admin.use");
+
+        assertBudget("getPossibleHomes(prefix)", 320L, () -> service.getPossibleHomes(player, "h", "homes.admin.use"));
+        assertBudget("getPossibleHomes(owner:prefix)", 896L, () -> service.getPossibleHomes(admin, "Owner:h", "homes.admin.use"));
+    }
+
+    @Test
+    public void inventoryDispatchTest() throws ReflectiveOperationException {
+        final var inventoryService = new InventoryService();
+        final var inventories = new Inventory[100];
+        for (int i = 0; i < inventories.length; i++) {
+            inventories[i] = newInventory();
+            inventoryService.addInventoryCallback(inventories[i], new InventoryCallback() { }, new InventoryCallback() { });
+        }
+
+        // Events can't be created without a server, so the dispatch the event handlers share is called
+        final var execute = MethodHandles.privateLookupIn(InventoryService.class, MethodHandles.lookup())
+                .findVirtual(InventoryService.class, "execute", MethodType.methodType(void.class, Inventory.class, Consumer.class));
+        final Consumer<InventoryCallback> task = callback -> callback.onInventoryOpen(inventoryService, null);
+        final var index = new int[1];
+        assertBudget("InventoryService.execute", 320L, () -> {
+            try {
+                execute.invokeExact(inventoryService, inventories[index[0]++ % inventories.length], task);
+            } catch (Throwable e) {
+                throw new AssertionError(e);
+            }
+            return null;
+        });
+    }
+
+    private void assertBudget(@NotNull final String pPath, final long pBudget, @NotNull final Supplier<?> pOperation) {
+        final var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++)
+            sink = pOperation.get();
+
+        final var before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < OPERATIONS; i++)
+            sink = pOperation.get();
+        final var perOperation = (threads.getCurrentThreadAllocatedBytes() - before) / OPERATIONS;
+        Assertions.assertTrue(perOperation <= pBudget, String.format("%s allocates %d bytes per call, over its budget of %d bytes!", pPath, perOperation, pBudget));
+    }
+
+    private @NotNull Player newPlayer(@NotNull final Set<String> pPermissions) {
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] { Player.class }, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> owner;
+            case "hasPermission" -> args[0] instanceof String permission && pPermissions.contains(permission);
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> null;
+        });
+    }
+
+    private static @NotNull Inventory newInventory() {
+        return (Inventory) Proxy.newProxyInstance(Inventory.class.getClassLoader(), new Class<?>[] { Inventory.class }, (proxy, method, args) -> switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> null;
+        });
+    }
+
+}
@@ -0,0 +1,77 @@
+import me.minecraft_server.homes.util.BatchLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class BatchLoaderTests {
+
+    private ScheduledExecutorService executor;
+    private List<Set<Integer>> batches;
+
+    @BeforeEach
+    public void openExecutor() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        batches = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    public void closeExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void windowTest() {
+
+        // Keys loaded within the window are loaded together, keys without value complete with null
+        final var loader = new BatchLoader<Integer, String>(executor, Duration.ofMillis(50L), 100, this::load);
+        final var one = loader.load(1);
+        final var two = loader.load(2);
+        final var again = loader.load(1);
+        final var missing = loader.load(-1);
+        Assertions.assertEquals("1", one.join(), "Wrong value!");
+        Assertions.assertEquals("2", two.join(), "Wrong value!");
+        Assertions.assertEquals("1", again.join(), "Wrong value!");
+        Assertions.assertNull(missing.join(), "The key has no value!");
+        Assertions.assertEquals(List.of(Set.of(1, 2, -1)), batches, "The keys were not loaded together!");
+
+        // The next key starts a new batch
+        Assertions.assertEquals("3", loader.load(3).join(), "Wrong value!");
+        Assertions.assertEquals(2, batches.size(), "The key was not loaded with a new batch!");
+
+    }
+
+    @Test
+    public void fullTest() {
+
+        // Full batches are loaded right away
+        final var loader = new BatchLoader<Integer, String>(executor, Duration.ofHours(1L), 2, this::load);
+        final var one = loader.load(1);
+        final var two = loader.load(2);
+        Assertions.assertEquals("1", one.join(), "Wrong value!");
+        Assertions.assertEquals("2", two.join(), "Wrong value!");
+        Assertions.assertEquals(List.of(Set.of(1, 2)), batches, "The full batch was not loaded right away!");
+
+    }
+
+    private CompletableFuture<Map<Integer, String>> load(final Set<Integer> pKeys) {
+        batches.add(Set.copyOf(pKeys));
+        final var values = new HashMap<Integer, String>();
+        for (final var key : pKeys) {
+            if (key > 0)
+                values.put(key, String.valueOf(key));
+        }
+        return CompletableFuture.completedFuture(values);
+    }
+
+}
@@ -0,0 +1,129 @@
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.exceptions.HomeNotFoundException;
+import me.minecraft_server.homes.services.HomesService;
+import me.minecraft_server.homes.services.HomesStorage;
+import me.minecraft_server.homes.services.homes.HomeTarget;
+import me.minecraft_server.homes.util.CommandUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Two servers sharing one database, each with its own connection pool.
+ */
+public class ChangeFeedTests {
+
+    private SQLDataSource sourceA;
+    private SQLDataSource sourceB;
+    private SQLDatabase databaseA;
+    private SQLDatabase databaseB;
+
+    @BeforeEach
+    public void openDatabases() {
+        final var name = "Feed" + UUID.randomUUID();
+        sourceA = new SQLDataSource(H2Database.memory(name));
+        sourceB = new SQLDataSource(H2Database.memory(name));
+        databaseA = new SQLDatabase(sourceA, null, new StatementProfiler(), true);
+        databaseB = new SQLDatabase(sourceB, null, new StatementProfiler(), true);
+    }
+
+    @AfterEach
+    public void closeDatabases() {
+        sourceA.close();
+        sourceB.close();
+    }
+
+    @Test
+    public void feedTest() throws InterruptedException {
+
+        final var owner = new UUID(0, 1);
+        final var home = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+        final var start = databaseB.getLatestSequence();
+        databaseA.registerPlayer(owner, "Owner");
+        final var homeId = databaseA.addHome(owner, "A", home);
+        databaseA.updateHome(homeId, new HomeLocation(4.0D, 5.0D, 6.0D, 0.0F, 0.0F, "world", "server"));
+        Assertions.assertNull(databaseA.addHome(owner, "A", home), "The home was added twice!");
+
+        // Every change is visible to the other server, in order, failed writes are not recorded
+        final var changes = databaseB.getChanges(start, 100);
+        Assertions.assertEquals(3, changes.size(), "Wrong amount of changes recorded!");
+        Assertions.assertTrue(changes.stream().allMatch(change -> change.origin() == databaseA.getOrigin()), "The origin of a change is wrong!");
+        Assertions.assertEquals("Owner", changes.get(0).username(), "The registration was not recorded!");
+        Assertions.assertEquals(owner, changes.get(1).owner(), "The added home was not recorded!");
+        Assertions.assertEquals(homeId, changes.get(2).homeId(), "The updated home was not recorded!");
+        Assertions.assertTrue(changes.get(0).sequence() < changes.get(1).sequence() && changes.get(1).sequence() < changes.get(2).sequence(),
+                "The changes are not ordered!");
+        Assertions.assertEquals(changes.get(2).sequence(), databaseB.getLatestSequence(), "Wrong latest change!");
+
+        // Old changes are pruned
+        Thread.sleep(5L);
+        databaseB.pruneChanges(Duration.ZERO);
+        Assertions.assertTrue(databaseB.getChanges(start, 100).isEmpty(), "The changes were not pruned!");
+
+    }
+
+    @Test
+    public void invalidationTest() {
+
+        final var serviceA = new HomesService(new HomesStorage(databaseA, databaseA, 2, Duration.ofMillis(20L)), "server", "default", Logger.getLogger("A"));
+        final var serviceB = new HomesService(new HomesStorage(databaseB, databaseB, 2, Duration.ofMillis(20L)), "server", "default", Logger.getLogger("B"));
+        try {
+
+            final var owner = new UUID(0, 1);
+            final var target = new HomeTarget.ForeignHomeNameUnique("A", owner);
+            final var first = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+            final var second = new HomeLocation(4.0D, 5.0D, 6.0D, 0.0F, 0.0F, "world", "server");
+            databaseA.registerPlayer(owner, "Owner");
+            Assertions.assertTrue(serviceA.setHomeLocation(target, owner, first, false).join(), "The home was not added!");
+
+            // Server B caches the home
+            Assertions.assertEquals(first, serviceB.getHomeLocation(target, owner).join(), "Server B got a wrong home!");
+
+            // Moving the home on server A invalidates it on server B
+            Assertions.assertTrue(serviceA.setHomeLocation(target, owner, second, true).join(), "The home was not moved!");
+            awaitTrue(() -> second.equals(serviceB.getHomeLocation(target, owner).join()), "Server B still has the old location!");
+
+            // Deleting the home on server A invalidates it on server B
+            Assertions.assertTrue(serviceA.deleteHomeLocation(target, owner).join(), "The home was not deleted!");
+            awaitTrue(() -> {
+                try {
+                    serviceB.getHomeLocation(target, owner).join();
+                    return false;
+                } catch (CompletionException e) {
+                    return CommandUtils.unwrap(e) instanceof HomeNotFoundException;
+                }
+            }, "Server B still has the deleted home!");
+
+        } finally {
+            serviceA.shutdown();
+            serviceB.shutdown();
+        }
+
+    }
+
+    private static void awaitTrue(@SuppressWarnings("SameParameterValue") final BooleanSupplier pCondition, final String pMessage) {
+        final var deadline = System.nanoTime() + Duration.ofSeconds(5L).toNanos();
+        while (!pCondition.getAsBoolean()) {
+            if (System.nanoTime() > deadline)
+                Assertions.fail(pMessage);
+            try {
+                Thread.sleep(10L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Assertions.fail(pMessage);
+            }
+        }
+    }
+
+}
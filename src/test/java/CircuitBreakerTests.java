@@ -0,0 +1,101 @@
+import me.minecraft_server.homes.database.CircuitBreaker;
+import me.minecraft_server.homes.database.CircuitBreakerDatabase;
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+public class CircuitBreakerTests {
+
+    private final Logger logger = Logger.getLogger(CircuitBreakerTests.class.getName());
+
+    @Test
+    public void breakerTest() throws InterruptedException {
+
+        final var available = new AtomicBoolean(false);
+        final var calls = new AtomicInteger();
+        try (final var breaker = new CircuitBreaker(Duration.ofSeconds(1L), 3, Duration.ofMillis(20L), () -> {
+            if (!available.get())
+                throw new DatabaseUnavailableException("Still down.");
+        }, logger)) {
+
+            // The breaker opens after three failures in a row
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertThrows(DatabaseUnavailableException.class, () -> breaker.run(() -> {
+                    calls.incrementAndGet();
+                    throw new DatabaseUnavailableException("Down.");
+                }));
+            }
+            Assertions.assertTrue(breaker.isOpen(), "The breaker did not open!");
+
+            // Calls fail without reaching the database
+            Assertions.assertThrows(DatabaseUnavailableException.class, () -> breaker.run(calls::incrementAndGet));
+            Assertions.assertEquals(3, calls.get(), "The database was called while the breaker was open!");
+
+            // The probe closes the breaker once the database is back
+            available.set(true);
+            final var deadline = System.nanoTime() + Duration.ofSeconds(5L).toNanos();
+            while (breaker.isOpen() && System.nanoTime() < deadline)
+                Thread.sleep(10L);
+            Assertions.assertFalse(breaker.isOpen(), "The probe did not close the breaker!");
+            Assertions.assertEquals(4, breaker.call(calls::incrementAndGet), "The call was not run after closing!");
+
+        }
+
+    }
+
+    @Test
+    public void slowCallTest() {
+
+        try (final var breaker = new CircuitBreaker(Duration.ofMillis(10L), 1, Duration.ofSeconds(10L), () -> { }, logger)) {
+            final Supplier<String> slow = () -> {
+                try {
+                    Thread.sleep(50L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "slow";
+            };
+
+            // Scans may take longer than the deadline
+            Assertions.assertEquals("slow", breaker.callUnbounded(slow), "The result of a slow scan was lost!");
+            Assertions.assertFalse(breaker.isOpen(), "A slow scan counted as failed!");
+
+            Assertions.assertEquals("slow", breaker.call(slow), "The result of a slow call was lost!");
+            Assertions.assertTrue(breaker.isOpen(), "A call slower than the deadline did not count as failed!");
+        }
+
+    }
+
+    @Test
+    public void unavailableTest() throws SQLException {
+
+        // A single connection that times out quickly, so holding it makes the database unavailable
+        final var source = new SQLDataSource(hikari -> {
+            H2Database.memory("Unavailable").configure(hikari);
+            hikari.setMaximumPoolSize(1);
+            hikari.setConnectionTimeout(250L);
+        });
+        try (final var breaker = new CircuitBreakerDatabase(new SQLDatabase(source), Duration.ofSeconds(5L), 1, Duration.ofSeconds(10L), logger)) {
+            final var held = source.getConnection();
+            Assertions.assertThrows(DatabaseUnavailableException.class, () -> breaker.getPlayerName(new UUID(0, 1)));
+            held.close();
+            Assertions.assertTrue(breaker.isOpen(), "The breaker did not open!");
+            Assertions.assertThrows(DatabaseUnavailableException.class, () -> breaker.getPlayerName(new UUID(0, 1)));
+        } finally {
+            source.close();
+        }
+
+    }
+
+}
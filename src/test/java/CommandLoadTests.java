@@ -0,0 +1,184 @@
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.profiling.LatencyHistogram;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.OwnedHome;
+import me.minecraft_server.homes.services.HomesService;
+import me.minecraft_server.homes.services.HomesStorage;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Runs the commands of thousands of players against a simulated server and an in-memory database, to size a server before launch.
+ * Reports the time the main thread spends per tick, the latency until a command is answered and the database calls per command.
+ * Run with: mvn test -Dtest=CommandLoadTests -Dhomes.loadtest=true
+ * Further properties are homes.loadtest.players, .seconds and .rate, the commands per player and minute.
+ */
+@EnabledIfSystemProperty(named = "homes.loadtest", matches = "true")
+public class CommandLoadTests {
+
+    private static final int PLAYERS = Integer.getInteger("homes.loadtest.players", 2000);
+    private static final int SECONDS = Integer.getInteger("homes.loadtest.seconds", 30);
+    private static final double RATE = Double.parseDouble(System.getProperty("homes.loadtest.rate", "4"));
+    private static final int HOMES = 5;
+    private static final int DATABASE_THREADS = 10;
+    private static final int LOGIN_THREADS = 16;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50L);
+    private static final int DRAIN_TICKS = 200;
+
+    private static final Set<String> PERMISSIONS = Set.of("homes.use", "homes.gui");
+
+    @Test
+    public void teleportScenario(@TempDir final Path pDirectory) throws ReflectiveOperationException {
+        run("teleport", pDirectory, List.of(new Weight("home", 75), new Weight("homes", 10), new Weight("complete", 5),
+                new Weight("sethome", 5), new Weight("invhome", 5)));
+    }
+
+    @Test
+    public void buildScenario(@TempDir final Path pDirectory) throws ReflectiveOperationException {
+        run("build", pDirectory, List.of(new Weight("home", 35), new Weight("sethome", 35), new Weight("homes", 15),
+                new Weight("complete", 10), new Weight("invhome", 5)));
+    }
+
+    private static void run(@NotNull final String pName, @NotNull final Path pDirectory, @NotNull final List<Weight> pMix) throws ReflectiveOperationException {
+
+        final var profiler = new StatementProfiler();
+        try (final var source = new SQLDataSource(H2Database.memory("LoadTest" + UUID.randomUUID()))) {
+
+            // Prepare players with a few homes each
+            final var database = new SQLDatabase(source, null, profiler);
+            final var uniqueIds = new UUID[PLAYERS];
+            final var players = new HashMap<UUID, String>();
+            final var homes = new ArrayList<OwnedHome>();
+            for (int i = 0; i < PLAYERS; i++) {
+                uniqueIds[i] = new UUID(42, i);
+                players.put(uniqueIds[i], "Player" + i);
+                for (int j = 0; j < HOMES; j++)
+                    homes.add(new OwnedHome(uniqueIds[i], "home" + j, new HomeLocation(i, 64.0D, j, 0.0F, 0.0F, "world", "server")));
+            }
+            database.registerPlayers(players);
+            database.setHomes(homes);
+
+            final var service = new HomesService(new HomesStorage(database, null, DATABASE_THREADS, Duration.ofSeconds(1L)), "server", "default", Logger.getLogger("CommandLoadTests"));
+            final var server = new SimulatedServer();
+            final var plugin = server.enable(service, pDirectory.toFile());
+            try {
+
+                // Everyone logs in at once, homes are loaded on the login threads
+                final var loginStart = System.nanoTime();
+                final var loginExecutor = Executors.newFixedThreadPool(LOGIN_THREADS);
+                try {
+                    CompletableFuture.allOf(players.entrySet().stream()
+                            .map(player -> CompletableFuture.runAsync(() -> service.prepareLogin(player.getKey(), player.getValue()), loginExecutor))
+                            .toArray(CompletableFuture[]::new)).join();
+                } finally {
+                    loginExecutor.shutdown();
+                }
+                final var loginTime = System.nanoTime() - loginStart;
+                final var online = new ArrayList<SimulatedServer.VirtualPlayer>(PLAYERS);
+                for (int i = 0; i < PLAYERS; i++)
+                    online.add(server.join(uniqueIds[i], "Player" + i, PERMISSIONS));
+
+                // Players run commands at random, one at a time, every tick takes 50ms
+                final var callsBefore = countCalls(profiler);
+                final var ticks = new LatencyHistogram();
+                final var perTick = PLAYERS * RATE / 60.0D / 20.0D;
+                var due = 0.0D;
+                var commands = 0L;
+                var deadline = System.nanoTime();
+                for (int tick = 0; tick < SECONDS * 20; tick++) {
+                    final var start = System.nanoTime();
+                    server.tick();
+                    for (due += perTick; due >= 1.0D; due--) {
+                        final var player = online.get(ThreadLocalRandom.current().nextInt(PLAYERS));
+                        if (player.isPending())
+                            continue;
+                        runCommand(server, player, online, pick(pMix));
+                        commands++;
+                    }
+                    ticks.record(System.nanoTime() - start);
+                    deadline += TICK_NANOS;
+                    LockSupport.parkNanos(deadline - System.nanoTime());
+                }
+
+                // Let the last commands be answered
+                for (int tick = 0; tick < DRAIN_TICKS && server.getPending() > 0L; tick++) {
+                    server.tick();
+                    LockSupport.parkNanos(TICK_NANOS);
+                }
+                final var calls = countCalls(profiler) - callsBefore;
+
+                System.out.printf("%-8s %d players, %.1f commands per player and minute, %d commands, login %.0f ms%n",
+                        pName, PLAYERS, RATE, commands, loginTime / 1e6D);
+                System.out.println(format(pName, "tick", ticks));
+                new TreeMap<>(server.getLatencies()).forEach((command, latencies) -> System.out.println(format(pName, command, latencies)));
+                System.out.printf("%-8s %.2f database calls per command, %d teleports, %d notifications%n",
+                        pName, commands == 0L ? 0.0D : (double) calls / commands, server.getTeleports(), server.getNotifications());
+
+                Assertions.assertEquals(0L, server.getPending(), "Commands were not answered!");
+                Assertions.assertEquals(0L, server.getAnsweredOffMainThread(), "Players were answered outside the main thread!");
+
+            } finally {
+                plugin.onDisable();
+            }
+        }
+
+    }
+
+    private static void runCommand(@NotNull final SimulatedServer pServer, @NotNull final SimulatedServer.VirtualPlayer pPlayer,
+                                   @NotNull final List<SimulatedServer.VirtualPlayer> pOnline, @NotNull final String pCommand) {
+        final var random = ThreadLocalRandom.current();
+        final var home = "home" + random.nextInt(HOMES);
+        switch (pCommand) {
+            case "home" -> pServer.dispatch(pPlayer, "home", home);
+            case "sethome" -> pServer.dispatch(pPlayer, "sethome", home, "override");
+            case "homes" -> pServer.dispatch(pPlayer, "homes");
+            case "complete" -> pServer.complete(pPlayer, "home", home.substring(0, random.nextInt(home.length() + 1)));
+            case "invhome" -> pServer.dispatch(pPlayer, "invhome", home, pOnline.get(random.nextInt(pOnline.size())).getName());
+            default -> throw new IllegalArgumentException(pCommand);
+        }
+    }
+
+    private static @NotNull String pick(@NotNull final List<Weight> pMix) {
+        var remaining = ThreadLocalRandom.current().nextInt(pMix.stream().mapToInt(Weight::weight).sum());
+        for (final var weight : pMix) {
+            remaining -= weight.weight();
+            if (remaining < 0)
+                return weight.command();
+        }
+        throw new IllegalStateException();
+    }
+
+    private static long countCalls(@NotNull final StatementProfiler pProfiler) {
+        return pProfiler.getStatistics().values().stream().mapToLong(statistics -> statistics.total().getCount()).sum();
+    }
+
+    private static @NotNull String format(@NotNull final String pName, @NotNull final String pPhase, @NotNull final LatencyHistogram pHistogram) {
+        return String.format("%-8s %-14s n=%-7d mean=%8.3fms p50=%8.3fms p90=%8.3fms p99=%8.3fms max=%8.3fms", pName, pPhase,
+                pHistogram.getCount(), pHistogram.getMean() / 1e6D, pHistogram.getPercentile(0.5D) / 1e6D,
+                pHistogram.getPercentile(0.9D) / 1e6D, pHistogram.getPercentile(0.99D) / 1e6D, pHistogram.getMax() / 1e6D);
+    }
+
+    private record Weight(@NotNull String command, int weight) { }
+
+}
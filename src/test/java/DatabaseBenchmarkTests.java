@@ -0,0 +1,103 @@
+import me.minecraft_server.homes.database.IDatabase;
+import me.minecraft_server.homes.database.ISQLConfigurator;
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.impl.MySQLDatabase;
+import me.minecraft_server.homes.database.log.LogDatabase;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Compares the latency of the native database and the local file database with MySQL.
+ * Run with: mvn test -Dtest=DatabaseBenchmarkTests -Dhomes.benchmark=true
+ * MySQL is benchmarked as well, if -Dhomes.benchmark.mysql.host is set.
+ * Further properties are homes.benchmark.mysql.port, .database, .username and .password.
+ * NOTE: The MySQL database is used as it is, don't run this against a production database.
+ */
+@EnabledIfSystemProperty(named = "homes.benchmark", matches = "true")
+public class DatabaseBenchmarkTests {
+
+    private static final int PLAYERS = 1000;
+    private static final int HOMES = 5;
+    private static final int OPERATIONS = 10000;
+
+    @Test
+    public void nativeBenchmark(@TempDir final Path pDirectory) throws IOException {
+        try (final var database = new LogDatabase(pDirectory)) {
+            benchmark("native", database);
+        }
+    }
+
+    @Test
+    public void h2FileBenchmark(@TempDir final Path pDirectory) {
+        benchmark("h2 file", H2Database.file(pDirectory.resolve("homes")));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "homes.benchmark.mysql.host", matches = ".+")
+    public void mysqlBenchmark() {
+        benchmark("mysql", MySQLDatabase.connection(
+                System.getProperty("homes.benchmark.mysql.host"),
+                Integer.getInteger("homes.benchmark.mysql.port", 3306),
+                System.getProperty("homes.benchmark.mysql.database", "homes"),
+                System.getProperty("homes.benchmark.mysql.username", "root"),
+                System.getProperty("homes.benchmark.mysql.password", "")));
+    }
+
+    private static void benchmark(@NotNull final String pName, @NotNull final ISQLConfigurator pConfigurator) {
+        try (final var source = new SQLDataSource(pConfigurator)) {
+            benchmark(pName, new SQLDatabase(source));
+        }
+    }
+
+    private static void benchmark(@NotNull final String pName, @NotNull final IDatabase pDatabase) {
+
+        // Prepare players with a few homes each
+        final var players = new UUID[PLAYERS];
+        final var location = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = new UUID(42, i);
+            pDatabase.registerPlayer(players[i], "Benchmark" + i);
+            for (int j = 0; j < HOMES; j++)
+                pDatabase.setHome(players[i], "home" + j, location);
+        }
+        final var homeIds = pDatabase.getHomeEntries(Arrays.asList(players)).values().stream()
+                .flatMap(list -> list.stream().map(HomeEntry::homeId)).mapToInt(Integer::intValue).toArray();
+
+        measure(pName, "getHomeEntries", i -> pDatabase.getHomeEntries(players[i % PLAYERS]));
+        measure(pName, "getHome(id)", i -> pDatabase.getHome(homeIds[i % homeIds.length]));
+        measure(pName, "setHome", i -> pDatabase.setHome(players[i % PLAYERS], "home" + (i % HOMES), location));
+        measure(pName, "updateHome", i -> pDatabase.updateHome(homeIds[i % homeIds.length], location));
+
+    }
+
+    private static void measure(@NotNull final String pName, @NotNull final String pOperation, @NotNull final IntConsumer pAction) {
+
+        // Warm up connections, statement caches and the JIT
+        for (int i = 0; i < OPERATIONS / 10; i++)
+            pAction.accept(i);
+
+        final var latencies = new long[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            final var start = System.nanoTime();
+            pAction.accept(i);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-8s %-15s p50 %7.1f us  p99 %7.1f us  max %8.1f us%n", pName, pOperation,
+                latencies[OPERATIONS / 2] / 1000.0D, latencies[OPERATIONS * 99 / 100] / 1000.0D, latencies[OPERATIONS - 1] / 1000.0D);
+
+    }
+
+}
@@ -0,0 +1,199 @@
+import me.minecraft_server.homes.database.IDatabase;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.HomesVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tests every implementation of the database has to pass.
+ * Subclasses set the database and clear it before each test.
+ */
+public abstract class DatabaseTests {
+
+    protected IDatabase database;
+
+    @Test
+    public void playerTest() {
+
+        // Check registering players
+        final var inUniqueId = new UUID(0, 1);
+        final var inUsername = "Player";
+        database.registerPlayer(inUniqueId, inUsername);
+        final var outUsername = database.getPlayerName(inUniqueId);
+        Assertions.assertEquals(inUsername, outUsername, "Resulting player name differs!");
+        final var outUniqueIds = database.getPlayerUniqueId(inUsername);
+        Assertions.assertEquals(1, outUniqueIds.size(), "Returned an invalid list size!");
+        Assertions.assertEquals(inUniqueId, outUniqueIds.get(0), "Wrong unique id returned. Did not registered this!");
+
+        // Check updating existing players
+        final var inDifferentUsername = "NotAPlayer";
+        database.registerPlayer(inUniqueId, inDifferentUsername);
+        final var outDifferentUsername = database.getPlayerName(inUniqueId);
+        Assertions.assertEquals(inDifferentUsername, outDifferentUsername, "Resulting player name differs! Maybe it's not overriding existing players?");
+
+        // Check multiple players
+        final var inDifferentUniqueId = new UUID(0, 2);
+        database.registerPlayer(inDifferentUniqueId, inUsername);
+        final var outYetAnotherUsername = database.getPlayerName(inDifferentUniqueId);
+        final var outPreviousUsername = database.getPlayerName(inUniqueId);
+        Assertions.assertEquals(inUsername, outYetAnotherUsername, "Resulting player name differs!");
+        Assertions.assertEquals(inDifferentUsername, outPreviousUsername, "Resulting player name differs! Does it not override existing players?");
+        final var outAgainUniqueIds = database.getPlayerUniqueId(inUsername);
+        Assertions.assertEquals(1, outAgainUniqueIds.size(), "Returned an invalid list size!");
+        Assertions.assertEquals(inDifferentUniqueId, outAgainUniqueIds.get(0), "Wrong unique id returned. We did not registered this!");
+        final var outPreviousUniqueIds = database.getPlayerUniqueId(inDifferentUsername);
+        Assertions.assertEquals(1, outPreviousUniqueIds.size(), "Returned an invalid list size!");
+        Assertions.assertEquals(inUniqueId, outPreviousUniqueIds.get(0), "Wrong unique id returned. We did not registered this!");
+
+        // Check multiple equal usernames
+        database.registerPlayer(inUniqueId, inUsername);
+        final var outFirstUsername = database.getPlayerName(inUniqueId);
+        final var outSecondUsername = database.getPlayerName(inDifferentUniqueId);
+        Assertions.assertEquals(inUsername, outFirstUsername, "Resulting player name differs!");
+        Assertions.assertEquals(inUsername, outSecondUsername, "Resulting player name differs!");
+        final var outTwoUniqueIds = database.getPlayerUniqueId(inUsername);
+        Assertions.assertEquals(2, outTwoUniqueIds.size(), "Returned an invalid list size!");
+        Assertions.assertTrue(outTwoUniqueIds.contains(inUniqueId), "List does not contains that player!");
+        Assertions.assertTrue(outTwoUniqueIds.contains(inDifferentUniqueId), "List does not contain that player!");
+
+        // Check listing all players
+        final var outPlayers = new HashMap<UUID, String>();
+        database.forEachPlayer(outPlayers::put);
+        Assertions.assertEquals(Map.of(inUniqueId, inUsername, inDifferentUniqueId, inUsername), outPlayers, "Returned wrong players!");
+
+        // Check registering multiple players at once
+        final var inThirdUniqueId = new UUID(0, 3);
+        database.registerPlayers(Map.of(inUniqueId, inDifferentUsername, inThirdUniqueId, "Third"));
+        Assertions.assertEquals(inDifferentUsername, database.getPlayerName(inUniqueId), "The player was not renamed!");
+        Assertions.assertEquals("Third", database.getPlayerName(inThirdUniqueId), "The player was not registered!");
+        Assertions.assertEquals(inUsername, database.getPlayerName(inDifferentUniqueId), "A different player was renamed!");
+
+    }
+
+    @Test
+    public void checkHomes() {
+
+        final var uniqueId_A = new UUID(0, 1);
+        final var uniqueId_B = new UUID(0, 2);
+        database.registerPlayer(uniqueId_A, "A");
+        database.registerPlayer(uniqueId_B, "B");
+
+        // Check adding homes
+        final var home_A = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "worldA", "serverA");
+        final var home_B = new HomeLocation(3.0D, 2.0D, 1.0D, 20.0F, 10.0F, "worldB", "serverB");
+        checkHomes_AddHomes(uniqueId_A, "A", home_A, "B", home_B);
+        checkHomes_AddHomes(uniqueId_B, "B", home_A, "A", home_B); // Homes are flipped to check if they override each other
+        final var outHome_A = database.getHome(uniqueId_A, "A");
+        final var outHome_B = database.getHome(uniqueId_A, "B");
+        Assertions.assertEquals(home_A, outHome_A, "The homes differ. Did a different player override homes with the same name?");
+        Assertions.assertEquals(home_B, outHome_B, "The homes differ. Did a different player override homes with the same name?");
+
+        // Check if it fails adding homes where the player is not registered
+        final var uniqueId_NotRegistered = new UUID(0, 3);
+        final var failNotRegistered = database.addHome(uniqueId_NotRegistered, "A", home_A);
+        Assertions.assertNull(failNotRegistered, "This is supposed to fail because the player is not registered.");
+
+        // Check setting homes
+        checkHomes_SetHome(uniqueId_A, "A", home_B);
+        checkHomes_SetHome(uniqueId_A, "B", home_A);
+        checkHomes_SetHome(uniqueId_B, "A", home_A);
+        checkHomes_SetHome(uniqueId_B, "B", home_B);
+
+        // Getting homes
+        final var homes_A = database.getHomes(uniqueId_A);
+        Assertions.assertEquals(2, homes_A.size(), "Player A has a wrong amount of homes!");
+        Assertions.assertEquals(home_B, homes_A.get("A"), "Wrong home for player A returned for home A!");
+        Assertions.assertEquals(home_A, homes_A.get("B"), "Wrong home for player A returned for home B!");
+
+        final var homes_B = database.getHomes(uniqueId_B);
+        Assertions.assertEquals(2, homes_B.size(), "Player B has a wrong amount of homes!");
+        Assertions.assertEquals(home_A, homes_B.get("A"), "Wrong home for player B returned for home A!");
+        Assertions.assertEquals(home_B, homes_B.get("B"), "Wrong home for player B returned for home B!");
+
+        final var homes_Invalid = database.getHomes(uniqueId_NotRegistered);
+        Assertions.assertEquals(0, homes_Invalid.size(), "This player should have no homes.");
+
+    }
+
+    @Test
+    public void bulkHomesTest() {
+
+        // More players than fit into a single chunk, every second player has a home
+        final var owners = new ArrayList<UUID>();
+        final var home = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+        for (int i = 0; i < 700; i++) {
+            final var uniqueId = new UUID(1, i);
+            database.registerPlayer(uniqueId, "P" + i);
+            if (i % 2 == 0)
+                database.addHome(uniqueId, "A", home);
+            owners.add(uniqueId);
+        }
+        final var notRegistered = new UUID(2, 0);
+        owners.add(notRegistered);
+
+        final var entries = database.getHomeEntries(owners);
+        Assertions.assertEquals(owners.size(), entries.size(), "Every requested owner must be contained!");
+        for (int i = 0; i < 700; i++) {
+            final var homes = entries.get(new UUID(1, i));
+            Assertions.assertEquals(i % 2 == 0 ? 1 : 0, homes.size(), "Player has a wrong amount of homes!");
+            if (i % 2 == 0) {
+                Assertions.assertEquals("A", homes.get(0).name(), "Wrong home name returned!");
+                Assertions.assertEquals(home, homes.get(0).location(), "Wrong home returned!");
+            }
+        }
+        Assertions.assertTrue(entries.get(notRegistered).isEmpty(), "This player should have no homes.");
+        Assertions.assertTrue(database.getHomeEntries(List.of()).isEmpty(), "Nothing requested, nothing returned.");
+
+        // Homes by id, missing homes are left out
+        final var homeIds = new ArrayList<Integer>();
+        for (final var list : entries.values())
+            list.forEach(entry -> homeIds.add(entry.homeId()));
+        homeIds.add(-1);
+        final var locations = database.getHomes(homeIds);
+        Assertions.assertEquals(350, locations.size(), "Returned a wrong amount of homes!");
+        Assertions.assertFalse(locations.containsKey(-1), "This home does not exist.");
+        locations.values().forEach(location -> Assertions.assertEquals(home, location, "Wrong home returned!"));
+
+    }
+
+    private void checkHomes_AddHomes(UUID uniqueId, String homeName_A, HomeLocation home_A, String homeName_B, HomeLocation home_B) {
+
+        // Assertions for tests
+        Assertions.assertNotEquals(homeName_A, homeName_B, "This is a mistake in the tests. They should differ or the next tests will fail.");
+        Assertions.assertNotEquals(home_A, home_B, "This is a mistake in the tests. They should differ or the next tests will fail.");
+
+        // Adding homes
+        checkHomes_AddHome(uniqueId, homeName_A, home_A);
+        checkHomes_AddHome(uniqueId, homeName_B, home_B);
+
+        // Check if home b did override a
+        final var outHome_A = database.getHome(uniqueId, homeName_A);
+        Assertions.assertEquals(home_A, outHome_A, "Homes differ! Did adding a different home override this one?");
+
+    }
+
+    private void checkHomes_AddHome(UUID uniqueId, String homeName, HomeLocation home) {
+        final var homeId = database.addHome(uniqueId, homeName, home);
+        Assertions.assertNotNull(homeId, "Adding homes must succeed here!");
+        Assertions.assertEquals(homeId, database.getPlayerMappedHomes(uniqueId).inverse().get(homeName), "Returned the id of a different home!");
+        Assertions.assertEquals(HomesVersion.of(database.getPlayerMappedHomes(uniqueId).keySet()), database.getHomesVersion(uniqueId), "Wrong version of the homes!");
+        final var outHome = database.getHome(uniqueId, homeName);
+        Assertions.assertEquals(home, outHome, "Homes differ!");
+        final var homeFail = database.addHome(uniqueId, homeName, home);
+        Assertions.assertNull(homeFail, "Adding homes must fail here, because we already have that home!");
+    }
+
+    private void checkHomes_SetHome(UUID uniqueId, String homeName, HomeLocation home) {
+        final var homeId = database.setHome(uniqueId, homeName, home);
+        Assertions.assertEquals(database.getPlayerMappedHomes(uniqueId).inverse().get(homeName), homeId, "Returned the id of a different home!");
+        final var outHome = database.getHome(uniqueId, homeName);
+        Assertions.assertEquals(home, outHome, "Homes differ!");
+    }
+
+}
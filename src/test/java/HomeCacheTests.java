@@ -0,0 +1,142 @@
+import me.minecraft_server.homes.dto.HomeChange;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import me.minecraft_server.homes.exceptions.HomeNotFoundException;
+import me.minecraft_server.homes.services.HomeCache;
+import me.minecraft_server.homes.util.CommandUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class HomeCacheTests {
+
+    private final UUID owner = new UUID(0, 1);
+    private final HomeLocation home_A = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+    private final HomeLocation home_B = new HomeLocation(4.0D, 5.0D, 6.0D, 0.0F, 0.0F, "world", "server");
+
+    /**
+     * The pending loads, completed by the tests.
+     */
+    private Map<Integer, CompletableFuture<HomeLocation>> locationLoads;
+    private Map<UUID, CompletableFuture<List<HomeEntry>>> entryLoads;
+
+    private HomeCache cache;
+
+    @BeforeEach
+    public void openCache() {
+        locationLoads = new ConcurrentHashMap<>();
+        entryLoads = new ConcurrentHashMap<>();
+        cache = new HomeCache(Duration.ofMinutes(4L), Duration.ofMinutes(5L), 0.0D, Duration.ofHours(1L), Duration.ofSeconds(30L),
+                (homeId, generation) -> locationLoads.computeIfAbsent(homeId, key -> new CompletableFuture<>()),
+                (uniqueId, generation) -> entryLoads.computeIfAbsent(uniqueId, key -> new CompletableFuture<>()));
+    }
+
+    @Test
+    public void writeDuringLoadTest() {
+
+        // A load that read the homes before a write does not cache them
+        final var load = cache.getPlayerHomes(owner);
+        cache.cacheWrittenHome(owner, 1, "home", home_A);
+        entryLoads.remove(owner).complete(List.of(new HomeEntry(1, "old", home_B)));
+        Assertions.assertEquals("old", load.join().get(1), "The load returns what it read!");
+        Assertions.assertNull(cache.getCachedPlayerHomes(owner), "The outdated homes were cached!");
+        Assertions.assertEquals(home_A, cache.getCachedLocation(1), "The written location was replaced!");
+
+        // A load that started afterwards does
+        final var reload = cache.getPlayerHomes(owner);
+        entryLoads.remove(owner).complete(List.of(new HomeEntry(1, "home", home_A)));
+        Assertions.assertEquals("home", reload.join().get(1), "Wrong home!");
+        Assertions.assertEquals("home", cache.getCachedPlayerHomes(owner).get(1), "The homes were not cached!");
+
+        // Deleted homes are forgotten, including their last known location
+        cache.forgetHome(owner, "home");
+        Assertions.assertTrue(cache.getCachedPlayerHomes(owner).isEmpty(), "The home was not removed!");
+        Assertions.assertNull(cache.getCachedLocation(1), "The location is still cached!");
+        Assertions.assertTrue(cache.getStaleLocations(Set.of(1)).isEmpty(), "The last known location is still kept!");
+        final var missing = Assertions.assertThrows(CompletionException.class, () -> cache.getLocation(1).join());
+        Assertions.assertInstanceOf(HomeNotFoundException.class, missing.getCause(), "The home still exists!");
+        Assertions.assertTrue(locationLoads.isEmpty(), "The deleted home was loaded!");
+
+    }
+
+    @Test
+    public void changeDuringLoadTest() {
+
+        // A change of another server drops the loads of the home in flight
+        final var load = cache.getLocation(1);
+        cache.applyChange(HomeChange.home(1L, 2, 1));
+        locationLoads.remove(1).complete(home_B);
+        Assertions.assertEquals(home_B, load.join(), "The load returns what it read!");
+        Assertions.assertNull(cache.getCachedLocation(1), "The outdated location was cached!");
+
+        // Changes of usernames don't touch homes
+        cache.cacheEntries(owner, List.of(new HomeEntry(1, "home", home_A)), cache.generation(owner));
+        cache.applyChange(HomeChange.player(2L, 2, owner, "Owner"));
+        Assertions.assertNotNull(cache.getCachedPlayerHomes(owner), "The homes were invalidated!");
+        Assertions.assertEquals(home_A, cache.getCachedLocation(1), "The location was invalidated!");
+
+    }
+
+    @Test
+    public void ownerChangeTest() {
+
+        cache.cacheEntries(owner, List.of(new HomeEntry(1, "home", home_A), new HomeEntry(2, "other", home_A)), cache.generation(owner));
+        Assertions.assertEquals(home_A, cache.getCachedLocation(2), "The locations were not cached!");
+
+        // A change of the owner invalidates the locations of the known homes, and the loads of them in flight
+        cache.invalidatePlayerHomes(owner);
+        final var load = cache.getLocation(3);
+        cache.cacheEntries(owner, List.of(new HomeEntry(1, "home", home_A), new HomeEntry(2, "other", home_A),
+                new HomeEntry(3, "third", home_A)), cache.generation(owner));
+        cache.applyChange(HomeChange.homes(1L, 2, owner));
+        locationLoads.remove(3).complete(home_B);
+        Assertions.assertEquals(home_B, load.join(), "The load returns what it read!");
+        Assertions.assertNull(cache.getCachedPlayerHomes(owner), "The homes are still cached!");
+        for (final var homeId : List.of(1, 2, 3))
+            Assertions.assertNull(cache.getCachedLocation(homeId), "The location of home " + homeId + " is still cached!");
+
+        // The last known homes are kept
+        Assertions.assertEquals(3, cache.getStalePlayerHomes(owner).size(), "The last known homes were dropped!");
+        Assertions.assertEquals(3, cache.getStaleLocations(Set.of(1, 2, 3)).size(), "The last known locations were dropped!");
+
+    }
+
+    @Test
+    public void invalidateAllTest() {
+
+        cache.cacheEntries(owner, List.of(new HomeEntry(1, "home", home_A)), cache.generation(owner));
+        final var started = cache.generation(owner);
+        final var load = cache.getLocation(2);
+
+        // Everything is invalidated and every load in flight is dropped
+        cache.invalidateAll();
+        Assertions.assertNotEquals(started, cache.generation(owner), "The write counter did not advance!");
+        locationLoads.remove(2).complete(home_B);
+        Assertions.assertEquals(home_B, load.join(), "The load returns what it read!");
+        Assertions.assertNull(cache.getCachedLocation(2), "The outdated location was cached!");
+        Assertions.assertNull(cache.getCachedLocation(1), "The location is still cached!");
+        Assertions.assertNull(cache.getCachedPlayerHomes(owner), "The homes are still cached!");
+        Assertions.assertFalse(cache.restorePlayerHomes(owner, cache.getStalePlayerHomes(owner), started), "Outdated homes were restored!");
+
+        // The last known homes are served while the database is unavailable
+        final var stale = cache.getPlayerHomes(owner);
+        entryLoads.remove(owner).completeExceptionally(new DatabaseUnavailableException("Unavailable"));
+        Assertions.assertEquals("home", stale.join().get(1), "The last known homes were not served!");
+        final var failed = cache.getLocation(3);
+        locationLoads.remove(3).completeExceptionally(new DatabaseUnavailableException("Unavailable"));
+        final var unknown = Assertions.assertThrows(CompletionException.class, failed::join);
+        Assertions.assertInstanceOf(DatabaseUnavailableException.class, CommandUtils.unwrap(unknown), "Wrong failure!");
+
+    }
+
+}
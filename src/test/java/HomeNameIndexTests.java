@@ -0,0 +1,36 @@
+import me.minecraft_server.homes.util.HomeNameIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class HomeNameIndexTests {
+
+    private final HomeNameIndex index = new HomeNameIndex(List.of("farm", "Base", "bAsement", "mine", "base2", "Farm_North"));
+
+    @Test
+    public void completeTest() {
+
+        // Prefixes match ignoring case, sorted by their lowercase name
+        Assertions.assertEquals(List.of("Base", "base2", "bAsement"), index.complete("BAS"), "Wrong completions!");
+        Assertions.assertEquals(List.of("farm", "Farm_North"), index.complete("f"), "Wrong completions!");
+        Assertions.assertEquals(List.of("mine"), index.complete("mine"), "Wrong completions!");
+        Assertions.assertTrue(index.complete("mines").isEmpty(), "Completed a name shorter than the prefix!");
+        Assertions.assertTrue(index.complete("z").isEmpty(), "Completed names after the last one!");
+        Assertions.assertTrue(index.complete("a").isEmpty(), "Completed names before the first one!");
+        Assertions.assertEquals(6, index.complete("").size(), "An empty prefix must complete all names!");
+
+    }
+
+    @Test
+    public void qualifiedTest() {
+
+        // Names are qualified with the username as typed
+        Assertions.assertEquals(List.of("Owner:farm", "Owner:Farm_North"), index.complete("Owner", "F"), "Wrong completions!");
+        final var completions = index.complete("Owner", "");
+        Assertions.assertSame(completions.get(0), index.complete("Owner", "b").get(0), "The qualified names were built again!");
+        Assertions.assertEquals(List.of("owner:mine"), index.complete("owner", "m"), "The names were not qualified again!");
+
+    }
+
+}
@@ -0,0 +1,330 @@
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.dto.HomeEntry;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.exceptions.HomeNotFoundException;
+import me.minecraft_server.homes.exceptions.RegisteredPlayerNotFoundException;
+import me.minecraft_server.homes.services.HomesService;
+import me.minecraft_server.homes.services.HomesStorage;
+import me.minecraft_server.homes.services.homes.HomeTarget;
+import me.minecraft_server.homes.util.CommandUtils;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Tests of the caches of the homes service on top of an in-memory database.
+ */
+public class HomesServiceTests {
+
+    private final UUID owner = new UUID(0, 1);
+    private final HomeLocation home_A = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+    private final HomeLocation home_B = new HomeLocation(4.0D, 5.0D, 6.0D, 0.0F, 0.0F, "world", "server");
+
+    private SQLDataSource source;
+    private StatementProfiler profiler;
+    private GatedDatabase database;
+    private HomesService service;
+
+    @BeforeEach
+    public void openService() {
+        source = new SQLDataSource(H2Database.memory("Service" + UUID.randomUUID()));
+        profiler = new StatementProfiler();
+        database = new GatedDatabase(source, profiler);
+        database.registerPlayer(owner, "Owner");
+        service = new HomesService(new HomesStorage(database, null, 2, Duration.ofSeconds(1L)), "server", "default", Logger.getLogger("HomesServiceTests"));
+    }
+
+    @AfterEach
+    public void closeService() {
+        service.shutdown();
+        source.close();
+    }
+
+    @Test
+    public void writeThroughTest() {
+
+        // Cache the homes of the owner, there are none yet
+        final var target = new HomeTarget.ForeignHomeNameUnique("A", owner);
+        Assertions.assertThrows(CompletionException.class, () -> service.getHomeLocation(target, owner).join(), "There is no home yet!");
+
+        // Adding and moving the home updates the caches, so teleporting does not query anything
+        Assertions.assertTrue(service.setHomeLocation(target, owner, home_A, false).join(), "The home was not added!");
+        final var calls = countCalls();
+        Assertions.assertEquals(home_A, service.getHomeLocation(target, owner).join(), "The added home was not cached!");
+        Assertions.assertEquals(calls, countCalls(), "The added home was loaded again!");
+        Assertions.assertTrue(service.setHomeLocation(target, owner, home_B, true).join(), "The home was not moved!");
+        final var movedCalls = countCalls();
+        Assertions.assertEquals(home_B, service.getHomeLocation(target, owner).join(), "The moved home was not cached!");
+        Assertions.assertEquals(movedCalls, countCalls(), "The moved home was loaded again!");
+
+        // Deleting removes it from the cached homes
+        Assertions.assertTrue(service.deleteHomeLocation(target, owner).join(), "The home was not deleted!");
+        final var failure = Assertions.assertThrows(CompletionException.class, () -> service.getHomeLocation(target, owner).join());
+        Assertions.assertInstanceOf(HomeNotFoundException.class, CommandUtils.unwrap(failure), "The deleted home is still cached!");
+
+    }
+
+    @Test
+    public void staleLoadTest() throws InterruptedException {
+
+        // A load reads the homes before the home is added, but finishes after it was added
+        final var target = new HomeTarget.ForeignHomeNameUnique("A", owner);
+        final var gate = database.closeGate();
+        final var load = service.getHomeLocation(target, owner);
+        Assertions.assertTrue(database.awaitBlocked(), "The load did not start!");
+        Assertions.assertTrue(service.setHomeLocation(target, owner, home_A, false).join(), "The home was not added!");
+        gate.countDown();
+        Assertions.assertThrows(CompletionException.class, load::join, "The load read the homes before the home was added!");
+
+        // The snapshot of the load must not replace the homes the write cached
+        Assertions.assertEquals(home_A, service.getHomeLocation(target, owner).join(), "The load put back outdated homes!");
+
+    }
+
+    @Test
+    public void singleFlightTest() throws InterruptedException {
+
+        // Concurrent loads of the same homes share the pending query
+        final var gate = database.closeGate();
+        final var first = service.getEntries(owner);
+        Assertions.assertTrue(database.awaitBlocked(), "The load did not start!");
+        final var second = service.getEntries(owner);
+        Assertions.assertFalse(service.getHomeNamesAsync(owner).iterator().hasNext(), "The homes are not loaded yet!");
+        Assertions.assertEquals(1L, countCalls("getHomeEntries(owners)"), "The pending load was not shared!");
+
+        // Loads after a write don't join the load that started before it
+        Assertions.assertTrue(service.setHomeLocation(new HomeTarget.ForeignHomeNameUnique("A", owner), owner, home_A, false).join(), "The home was not added!");
+        final var third = service.getEntries(owner);
+        gate.countDown();
+        Assertions.assertTrue(first.join().isEmpty() && second.join().isEmpty(), "The shared load read the homes before the home was added!");
+        Assertions.assertEquals(1, third.join().size(), "The load after the write joined the outdated load!");
+        Assertions.assertEquals(2L, countCalls("getHomeEntries(owners)"), "Wrong amount of loads!");
+
+    }
+
+    @Test
+    public void batchTest() {
+
+        final var players = new ArrayList<UUID>();
+        for (int i = 2; i < 12; i++) {
+            final var player = new UUID(0, i);
+            database.registerPlayer(player, "Player" + i);
+            database.setHome(player, "A", home_A);
+            players.add(player);
+        }
+        service.getEntries(owner).join();
+        final var calls = countCalls("getHomeEntries(owners)");
+
+        // Concurrent loads of different players are loaded together, the window is short so they may be split once
+        final var loads = players.stream().map(service::getEntries).toList();
+        for (final var load : loads)
+            Assertions.assertEquals(1, load.join().size(), "Wrong homes loaded!");
+        Assertions.assertTrue(countCalls("getHomeEntries(owners)") - calls <= 2L, "The players were not loaded together!");
+        Assertions.assertEquals(0L, countCalls("getHomeEntries(owner)"), "A player was loaded on its own!");
+
+    }
+
+    @Test
+    public void loginTest() {
+
+        // Logging in registers the player
+        final var player = new UUID(0, 2);
+        service.prepareLogin(player, "Player");
+        Assertions.assertEquals("Player", database.getPlayerName(player), "The player was not registered!");
+
+        // Logging in again loads their homes, so joining and teleporting don't query anything
+        database.setHome(player, "A", home_A);
+        service.prepareLogin(player, "Player");
+        final var calls = countCalls();
+        Assertions.assertEquals(home_A, service.getHomeLocation(new HomeTarget.ForeignHomeNameUnique("A", player), player).join(), "Wrong home loaded!");
+        Assertions.assertEquals(calls, countCalls(), "The homes were not loaded while logging in!");
+
+    }
+
+    @Test
+    public void keepWarmTest() {
+
+        // Reconnecting keeps the homes of the player, nothing is queried
+        final var player = new UUID(0, 2);
+        final var target = new HomeTarget.ForeignHomeNameUnique("A", player);
+        service.prepareLogin(player, "Player");
+        Assertions.assertTrue(service.setHomeLocation(target, player, home_A, false).join(), "The home was not added!");
+        service.releasePlayer(player);
+        final var calls = countCalls();
+        service.prepareLogin(player, "Player");
+        Assertions.assertEquals(home_A, service.getHomeLocation(target, player).join(), "The retained home was not restored!");
+        Assertions.assertEquals(calls, countCalls(), "The retained homes were loaded again!");
+
+        // Writes while the player is offline discard the retained homes
+        service.releasePlayer(player);
+        Assertions.assertTrue(service.setHomeLocation(new HomeTarget.ForeignHomeNameUnique("B", player), player, home_B, false).join(), "The home was not added!");
+        service.prepareLogin(player, "Player");
+        Assertions.assertEquals(home_B, service.getHomeLocation(new HomeTarget.ForeignHomeNameUnique("B", player), player).join(), "The outdated homes were restored!");
+
+    }
+
+    @Test
+    public void revalidationTest() {
+
+        // Another server changes the database without telling
+        final var shared = new HomesService(new HomesStorage(database, null, 2, true, Duration.ofSeconds(1L)), "server", "default", Logger.getLogger("HomesServiceTests"));
+        try {
+            final var player = new UUID(0, 2);
+            database.registerPlayer(player, "Player");
+            database.setHome(player, "A", home_A);
+            shared.prepareLogin(player, "Player");
+            Assertions.assertEquals(home_A, shared.getHomeLocation(new HomeTarget.ForeignHomeNameUnique("A", player), player).join(), "Wrong home loaded!");
+
+            // Unchanged homes are revalidated with a single cheap query
+            shared.releasePlayer(player);
+            final var loads = countCalls("getHomeEntries(owners)");
+            shared.prepareLogin(player, "Player");
+            Assertions.assertEquals(1L, countCalls("getHomesVersion"), "The retained homes were not revalidated!");
+            Assertions.assertEquals(loads, countCalls("getHomeEntries(owners)"), "The unchanged homes were loaded again!");
+
+            // Homes added by the other server are loaded
+            shared.releasePlayer(player);
+            database.setHome(player, "B", home_B);
+            shared.prepareLogin(player, "Player");
+            Assertions.assertEquals(home_B, shared.getHomeLocation(new HomeTarget.ForeignHomeNameUnique("B", player), player).join(), "The outdated homes were restored!");
+        } finally {
+            shared.shutdown();
+        }
+
+    }
+
+    @Test
+    public void directoryTest() throws InterruptedException {
+
+        // The registered players are loaded at startup, players registered later are added
+        final var player = new UUID(0, 2);
+        service.prepareLogin(player, "Player");
+        final var deadline = System.nanoTime() + Duration.ofSeconds(5L).toNanos();
+        while (service.getPossiblePlayers("") == null && System.nanoTime() < deadline)
+            Thread.sleep(10L);
+        Assertions.assertEquals(List.of("Owner", "Player"), service.getPossiblePlayers(""), "Wrong registered players!");
+        Assertions.assertEquals(List.of("Player"), service.getPossiblePlayers("pl"), "Wrong completions!");
+
+        // Usernames are resolved ignoring case, without a query
+        final var calls = countCalls();
+        Assertions.assertEquals(player, service.getPlayerName("PLAYER").join(), "Wrong player resolved!");
+        final var failure = Assertions.assertThrows(CompletionException.class, () -> service.getPlayerName("Nobody").join());
+        Assertions.assertInstanceOf(RegisteredPlayerNotFoundException.class, CommandUtils.unwrap(failure), "Nobody is registered with the username!");
+        Assertions.assertEquals(calls, countCalls(), "The usernames were queried!");
+
+        // Owners are only completed in the foreign form, not mixed into the own homes of a player
+        Assertions.assertTrue(service.setHomeLocation(new HomeTarget.ForeignHomeNameUnique("home", player), player, home_A, false).join(), "The home was not added!");
+        final var admin = newPlayer(player, "homes.admin.use");
+        Assertions.assertEquals(List.of(), service.getPossibleHomes(admin, "O", "homes.admin.use"), "Owners were mixed into the own homes!");
+        Assertions.assertEquals(List.of("home"), service.getPossibleHomes(admin, "h", "homes.admin.use"), "Wrong own homes completed!");
+        service.getPossibleHomes(admin, "Player:", "homes.admin.use");
+        Assertions.assertEquals(List.of("Player:home"), service.getPossibleHomes(admin, "Player:h", "homes.admin.use"), "Wrong foreign homes completed!");
+
+    }
+
+    @Test
+    public void unknownChangesTest() throws InterruptedException {
+
+        // Other servers register players without telling, so the directory is loaded once but absence is not trusted
+        final var shared = new HomesService(new HomesStorage(database, null, 2, true, Duration.ofSeconds(1L)), "server", "default", Logger.getLogger("HomesServiceTests"));
+        try {
+            final var player = new UUID(0, 2);
+            final var deadline = System.nanoTime() + Duration.ofSeconds(5L).toNanos();
+            while (shared.getPossiblePlayers("") == null && System.nanoTime() < deadline)
+                Thread.sleep(10L);
+            final var loads = countCalls("forEachPlayer");
+            database.registerPlayer(player, "Player");
+            Assertions.assertEquals(player, shared.getPlayerName("Player").join(), "The player registered elsewhere was not found!");
+            Assertions.assertEquals(loads, countCalls("forEachPlayer"), "All players were scanned again!");
+        } finally {
+            shared.shutdown();
+        }
+
+    }
+
+    private static @NotNull Player newPlayer(@NotNull final UUID pUniqueId, @NotNull final String pPermission) {
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] { Player.class }, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> pUniqueId;
+            case "hasPermission" -> pPermission.equals(args[0]);
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> null;
+        });
+    }
+
+    private long countCalls(final String pMethod) {
+        final var statistics = profiler.getStatistics().get(pMethod);
+        return statistics != null ? statistics.total().getCount() : 0L;
+    }
+
+    private long countCalls() {
+        return profiler.getStatistics().values().stream().mapToLong(statistics -> statistics.total().getCount()).sum();
+    }
+
+    /**
+     * Holds the next load of homes after reading them, until the gate opens.
+     */
+    private static class GatedDatabase extends SQLDatabase {
+
+        private volatile CountDownLatch mGate = null;
+
+        private final CountDownLatch mBlocked = new CountDownLatch(1);
+
+        private GatedDatabase(@NotNull final SQLDataSource pSource, @NotNull final StatementProfiler pProfiler) {
+            super(pSource, null, pProfiler);
+        }
+
+        private CountDownLatch closeGate() {
+            mGate = new CountDownLatch(1);
+            return mGate;
+        }
+
+        private boolean awaitBlocked() throws InterruptedException {
+            return mBlocked.await(5L, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public @NotNull List<HomeEntry> getHomeEntries(@NotNull final UUID pOwner) {
+            return hold(super.getHomeEntries(pOwner));
+        }
+
+        @Override
+        public @NotNull Map<UUID, List<HomeEntry>> getHomeEntries(@NotNull final Collection<UUID> pOwners) {
+            return hold(super.getHomeEntries(pOwners));
+        }
+
+        private <T> T hold(final T pEntries) {
+            final var gate = mGate;
+            if (gate != null) {
+                mGate = null;
+                mBlocked.countDown();
+                try {
+                    gate.await(5L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return pEntries;
+        }
+
+    }
+
+}
@@ -0,0 +1,148 @@
+import me.minecraft_server.homes.database.log.LogDatabase;
+import me.minecraft_server.homes.dto.HomeLocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+public class LogDatabaseTests extends DatabaseTests {
+
+    @TempDir
+    Path directory;
+
+    private LogDatabase log;
+
+    @BeforeEach
+    public void openDatabase() throws IOException {
+        log = new LogDatabase(directory);
+        database = log;
+    }
+
+    @AfterEach
+    public void closeDatabase() {
+        log.close();
+    }
+
+    private void reopen(final int pSegmentSize) throws IOException {
+        log.close();
+        log = new LogDatabase(directory, pSegmentSize);
+        database = log;
+    }
+
+    @Test
+    public void recoveryTest() throws IOException {
+
+        final var uniqueId = new UUID(0, 1);
+        final var home = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+        log.registerPlayer(uniqueId, "A");
+        log.addHome(uniqueId, "A", home);
+        log.addHome(uniqueId, "B", home);
+        log.deleteHome(uniqueId, "A");
+        final var homeId = log.getPlayerMappedHomes(uniqueId).inverse().get("B");
+
+        // Everything written must be there after opening the directory again
+        reopen(LogDatabase.DEFAULT_SEGMENT_SIZE);
+        Assertions.assertEquals("A", log.getPlayerName(uniqueId), "The player was not recovered!");
+        Assertions.assertNull(log.getHome(uniqueId, "A"), "The deleted home was recovered!");
+        Assertions.assertEquals(home, log.getHome(homeId), "The home was not recovered!");
+
+        // Ids of deleted homes are not reused
+        log.addHome(uniqueId, "C", home);
+        Assertions.assertTrue(log.getPlayerMappedHomes(uniqueId).inverse().get("C") > homeId, "A home id was reused!");
+
+    }
+
+    @Test
+    public void compactionTest() throws IOException {
+
+        // Small segments so the log is compacted a few times
+        directory = directory.resolve("compaction");
+        reopen(4096);
+        final var home = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "world", "server");
+        for (int i = 0; i < 200; i++) {
+            final var uniqueId = new UUID(1, i);
+            log.registerPlayer(uniqueId, "P" + i);
+            log.setHome(uniqueId, "A", home);
+            log.setHome(uniqueId, "B", home);
+            log.deleteHome(uniqueId, "B");
+        }
+
+        reopen(4096);
+        try (final var files = Files.list(directory)) {
+            Assertions.assertTrue(files.anyMatch(path -> path.toString().endsWith(".snapshot")), "The log was never compacted!");
+        }
+        for (int i = 0; i < 200; i++) {
+            final var uniqueId = new UUID(1, i);
+            Assertions.assertEquals("P" + i, log.getPlayerName(uniqueId), "The player was not recovered!");
+            Assertions.assertEquals(1, log.getHomes(uniqueId).size(), "Player has a wrong amount of homes!");
+            Assertions.assertEquals(home, log.getHome(uniqueId, "A"), "The home was not recovered!");
+        }
+
+    }
+
+    @Test
+    public void tornRecordTest() throws IOException {
+
+        final var uniqueId = new UUID(0, 1);
+        log.registerPlayer(uniqueId, "A");
+        log.close();
+
+        // Simulate a crash in the middle of appending a record
+        try (final var files = Files.list(directory);
+             final var channel = FileChannel.open(files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final var header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            final var end = 8 + header.flip().getInt();
+            channel.write(ByteBuffer.allocate(6).putInt(100).put((byte) 1).put((byte) 2).flip(), end);
+        }
+
+        log = new LogDatabase(directory);
+        database = log;
+        Assertions.assertEquals("A", log.getPlayerName(uniqueId), "Records before the torn one must be recovered!");
+        log.registerPlayer(uniqueId, "B");
+        reopen(LogDatabase.DEFAULT_SEGMENT_SIZE);
+        Assertions.assertEquals("B", log.getPlayerName(uniqueId), "Appending after a torn record failed!");
+
+    }
+
+    @Test
+    public void corruptedSegmentTest() throws IOException {
+
+        final var uniqueId = new UUID(0, 1);
+        log.registerPlayer(uniqueId, "A");
+        log.close();
+
+        // A corrupted record followed by a newer segment is not a torn append, so the open fails
+        final Path segment;
+        try (final var files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (final var channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final var header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            final var end = 8 + header.flip().getInt();
+            channel.write(ByteBuffer.allocate(6).putInt(100).put((byte) 1).put((byte) 2).flip(), end);
+        }
+        final var next = directory.resolve(String.format("%020d", 1L) + ".log");
+        Files.createFile(next);
+        Assertions.assertThrows(IOException.class, () -> new LogDatabase(directory), "The corrupted segment was skipped!");
+        Assertions.assertTrue(Files.size(segment) > 0L, "The corrupted segment was not kept!");
+
+        // Once it is the last segment again, the corrupted record is a torn append
+        Files.delete(next);
+        log = new LogDatabase(directory);
+        database = log;
+        Assertions.assertEquals("A", log.getPlayerName(uniqueId), "Records before the corrupted one must be recovered!");
+
+    }
+
+}
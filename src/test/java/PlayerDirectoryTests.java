@@ -0,0 +1,39 @@
+import me.minecraft_server.homes.services.PlayerDirectory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+public class PlayerDirectoryTests {
+
+    @Test
+    public void directoryTest() {
+
+        final var directory = new PlayerDirectory();
+        final var alice = new UUID(0, 1);
+        final var alex = new UUID(0, 2);
+        final var other = new UUID(0, 3);
+        directory.put(alice, "Alice");
+        directory.put(alex, "alex");
+        directory.put(other, "ALICE");
+
+        // Usernames are resolved ignoring case
+        Assertions.assertEquals("Alice", directory.getUsername(alice), "Wrong username!");
+        Assertions.assertEquals(List.of(alice, other), directory.getUniqueIds("aLiCe"), "Wrong players registered with the username!");
+        Assertions.assertTrue(directory.getUniqueIds("Bob").isEmpty(), "Nobody is registered with the username!");
+
+        // Prefixes are completed ignoring case, shared usernames once
+        Assertions.assertEquals(List.of("alex", "Alice"), directory.complete("AL", 10), "Wrong completions!");
+        Assertions.assertEquals(List.of("alex"), directory.complete("al", 1), "The completions were not limited!");
+        Assertions.assertTrue(directory.complete("b", 10).isEmpty(), "Nobody is registered with the prefix!");
+
+        // Renames move the player to the new username
+        directory.put(other, "Bob");
+        Assertions.assertEquals(List.of(alice), directory.getUniqueIds("alice"), "The renamed player is still registered with the old username!");
+        Assertions.assertEquals(List.of(other), directory.getUniqueIds("bob"), "The renamed player is not registered with the new username!");
+        Assertions.assertEquals(3, directory.size(), "Wrong amount of players!");
+
+    }
+
+}
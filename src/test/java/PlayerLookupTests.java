@@ -0,0 +1,73 @@
+import me.minecraft_server.homes.database.AsyncDatabase;
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.services.PlayerLookup;
+import me.minecraft_server.homes.services.PlayerRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+public class PlayerLookupTests {
+
+    @Test
+    public void lookupTest() {
+
+        final var profiler = new StatementProfiler();
+        try (final var source = new SQLDataSource(H2Database.memory("LookupTest"))) {
+            final var database = new SQLDatabase(source, null, profiler);
+            final var known = new UUID(0, 1);
+            final var joined = new UUID(0, 2);
+            database.registerPlayer(known, "Known");
+            final var asyncDatabase = new AsyncDatabase(database, 2);
+            try {
+                final var lookup = new PlayerLookup(asyncDatabase, new PlayerRegistry(database, 1000L, null),
+                        Duration.ofMinutes(4L), Duration.ofMinutes(5L), 0.0D, Duration.ofSeconds(30L), true);
+                Assertions.assertNull(lookup.complete("", 50), "The directory is not loaded yet!");
+                lookup.load();
+                for (int i = 0; i < 500 && lookup.complete("", 50) == null; i++)
+                    LockSupport.parkNanos(10_000_000L);
+
+                // Registered and learned players are known without a query
+                Assertions.assertEquals(List.of("Known"), lookup.complete("K", 50), "Wrong completions!");
+                Assertions.assertEquals(List.of(known), lookup.getKnownUniqueIds("Known"), "The player was not loaded!");
+                lookup.learn(joined, "Joined");
+                Assertions.assertEquals(List.of(joined), lookup.getUniqueIds("Joined").join(), "The player was not learned!");
+                Assertions.assertTrue(lookup.getUniqueIds("Missing").join().isEmpty(), "No player is registered with the username!");
+                Assertions.assertEquals(0L, countCalls(profiler, "getPlayerUniqueId"), "The complete directory was not trusted!");
+
+                // Once changes may have been missed, the directory only completes and usernames are looked up on demand
+                lookup.invalidateAll();
+                Assertions.assertNull(lookup.getKnownUniqueIds("Known"), "The directory is trusted after changes were missed!");
+                Assertions.assertEquals(List.of("Joined", "Known"), lookup.complete("", 50), "The directory was dropped!");
+                Assertions.assertEquals(List.of(known), lookup.getUniqueIds("Known").join(), "Wrong player!");
+                Assertions.assertEquals(List.of(known), lookup.getKnownUniqueIds("Known"), "The looked up player was not cached!");
+                Assertions.assertEquals(1L, countCalls(profiler, "getPlayerUniqueId"), "The username was not looked up once!");
+                Assertions.assertEquals(1L, countCalls(profiler, "forEachPlayer"), "All players were scanned again!");
+
+                // Unknown usernames are looked up once
+                Assertions.assertTrue(lookup.getUniqueIds("Missing").join().isEmpty(), "No player is registered with the username!");
+                Assertions.assertTrue(lookup.getUniqueIds("Missing").join().isEmpty(), "No player is registered with the username!");
+                Assertions.assertEquals(2L, countCalls(profiler, "getPlayerUniqueId"), "The unknown username was looked up again!");
+
+                // Forgotten usernames are looked up again
+                lookup.forget("Known");
+                Assertions.assertNull(lookup.getKnownUniqueIds("Known"), "The username was not forgotten!");
+            } finally {
+                asyncDatabase.close();
+            }
+        }
+
+    }
+
+    private static long countCalls(final StatementProfiler pProfiler, final String pMethod) {
+        final var statistics = pProfiler.getStatistics().get(pMethod);
+        return statistics != null ? statistics.total().getCount() : 0L;
+    }
+
+}
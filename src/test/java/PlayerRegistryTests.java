@@ -0,0 +1,58 @@
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.services.PlayerRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+public class PlayerRegistryTests {
+
+    @Test
+    public void registerTest() {
+
+        final var profiler = new StatementProfiler();
+        try (final var source = new SQLDataSource(H2Database.memory("RegistryTest"))) {
+            final var database = new SQLDatabase(source, null, profiler);
+            final var known = new UUID(0, 1);
+            final var unknown = new UUID(0, 2);
+            database.registerPlayer(known, "Known");
+            final var registry = new PlayerRegistry(database, 1000L, null);
+            registry.warm(Map.of(known, "Known"));
+
+            // Unchanged usernames are not written
+            Assertions.assertFalse(registry.register(known, "Known"), "The username did not change!");
+            Assertions.assertEquals(1L, countCalls(profiler, "registerPlayer"), "The unchanged username was written!");
+
+            // Unknown players are written immediately
+            Assertions.assertTrue(registry.register(unknown, "Unknown"), "The player was unknown!");
+            Assertions.assertEquals("Unknown", database.getPlayerName(unknown), "The unknown player was not written immediately!");
+            Assertions.assertFalse(registry.register(unknown, "Unknown"), "The player is known now!");
+
+            // Renames are collected until the next flush
+            Assertions.assertTrue(registry.register(known, "Renamed"), "The username changed!");
+            Assertions.assertTrue(registry.register(unknown, "AlsoRenamed"), "The username changed!");
+            Assertions.assertEquals("Known", database.getPlayerName(known), "The rename should still be pending!");
+            Assertions.assertEquals(Map.of(known, "Renamed", unknown, "AlsoRenamed"), registry.flush(), "Wrong renames written!");
+            Assertions.assertEquals("Renamed", database.getPlayerName(known), "The rename was not written!");
+            Assertions.assertEquals("AlsoRenamed", database.getPlayerName(unknown), "The rename was not written!");
+            Assertions.assertEquals(1L, countCalls(profiler, "registerPlayers"), "The renames were not written in one batch!");
+            Assertions.assertTrue(registry.flush().isEmpty(), "The renames were written already!");
+
+            // Forgotten players are written again
+            registry.forget(known);
+            Assertions.assertTrue(registry.register(known, "Renamed"), "The player was forgotten!");
+            Assertions.assertEquals(3L, countCalls(profiler, "registerPlayer"), "The forgotten player was not written!");
+        }
+
+    }
+
+    private static long countCalls(final StatementProfiler pProfiler, final String pMethod) {
+        final var statistics = pProfiler.getStatistics().get(pMethod);
+        return statistics != null ? statistics.total().getCount() : 0L;
+    }
+
+}
@@ -0,0 +1,101 @@
+import com.google.common.base.Ticker;
+import me.minecraft_server.homes.util.RefreshingCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RefreshingCacheTests {
+
+    private final AtomicLong time = new AtomicLong();
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return time.get();
+        }
+    };
+
+    private void advance(final Duration pDuration) {
+        time.addAndGet(pDuration.toNanos());
+    }
+
+    @Test
+    public void refreshTest() {
+
+        final var loads = new AtomicInteger();
+        final var load = new CompletableFuture<String>();
+        final var cache = new RefreshingCache<Integer, String>(Duration.ofMinutes(4L), Duration.ofMinutes(5L), 0.0D, key -> {
+            loads.incrementAndGet();
+            return load;
+        }, ticker);
+        cache.put(1, "old");
+
+        // Before the refresh time nothing is loaded
+        advance(Duration.ofMinutes(3L));
+        Assertions.assertEquals("old", cache.getIfPresent(1), "The value was not cached!");
+        Assertions.assertEquals(0, loads.get(), "The value was reloaded too early!");
+
+        // Reads after the refresh time return the old value and reload it once
+        advance(Duration.ofMinutes(2L).minusSeconds(1L));
+        Assertions.assertEquals("old", cache.getIfPresent(1), "The old value was not returned while reloading!");
+        Assertions.assertEquals("old", cache.getIfPresent(1), "The old value was not returned while reloading!");
+        Assertions.assertEquals(1, loads.get(), "The value was not reloaded exactly once!");
+
+        // The reloaded value starts a new lifetime
+        load.complete("new");
+        advance(Duration.ofMinutes(3L));
+        Assertions.assertEquals("new", cache.getIfPresent(1), "The reloaded value was not cached!");
+
+    }
+
+    @Test
+    public void expiryTest() {
+
+        final var cache = new RefreshingCache<Integer, String>(Duration.ofMinutes(4L), Duration.ofMinutes(5L), 0.0D,
+                key -> CompletableFuture.completedFuture("new"), ticker);
+        cache.put(1, "old");
+        advance(Duration.ofMinutes(5L));
+        Assertions.assertNull(cache.getIfPresent(1), "An entry that was not read did not expire!");
+
+    }
+
+    @Test
+    public void invalidateTest() {
+
+        final var load = new CompletableFuture<String>();
+        final var cache = new RefreshingCache<Integer, String>(Duration.ofMinutes(4L), Duration.ofMinutes(5L), 0.0D, key -> load, ticker);
+        cache.put(1, "old");
+        advance(Duration.ofMinutes(4L));
+        cache.getIfPresent(1);
+
+        // A reload that completes after the entry was invalidated must not cache its result
+        cache.invalidate(1);
+        load.complete("new");
+        Assertions.assertNull(cache.getIfPresent(1), "A reload brought back an invalidated entry!");
+
+    }
+
+    @Test
+    public void jitterTest() {
+
+        final var cache = new RefreshingCache<Integer, String>(Duration.ofMinutes(4L), Duration.ofMinutes(5L), 0.2D,
+                key -> new CompletableFuture<>(), ticker);
+        for (int i = 0; i < 1000; i++)
+            cache.put(i, "value");
+
+        // Expiry is spread between four and six minutes, so about a quarter is gone after four and a half
+        advance(Duration.ofSeconds(270L));
+        var expired = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (cache.getIfPresent(i) == null)
+                expired++;
+        }
+        Assertions.assertTrue(expired > 100 && expired < 400, "Entries cached together did not expire spread out: " + expired);
+
+    }
+
+}
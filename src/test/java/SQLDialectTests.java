@@ -0,0 +1,83 @@
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.dialect.ANSIDialect;
+import me.minecraft_server.homes.database.dialect.H2Dialect;
+import me.minecraft_server.homes.database.dialect.ISQLDialect;
+import me.minecraft_server.homes.database.dialect.MySQLDialect;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.dto.HomeLocation;
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+/**
+ * Runs the database tests with every dialect. H2 understands the statements of all of them.
+ */
+public class SQLDialectTests {
+
+    private static int databases = 0;
+
+    abstract static class DialectTests extends DatabaseTests {
+
+        private SQLDataSource source;
+
+        abstract ISQLDialect dialect();
+
+        @BeforeEach
+        public void openDatabase() {
+            source = new SQLDataSource(H2Database.memory("Dialect" + databases++));
+            database = new SQLDatabase(source, dialect());
+        }
+
+        @AfterEach
+        public void closeDatabase() {
+            source.close();
+        }
+
+        @Test
+        public void upsertTest() {
+
+            final var uniqueId = new UUID(0, 1);
+            database.registerPlayer(uniqueId, "A");
+            database.registerPlayer(uniqueId, "B");
+            Assertions.assertEquals("B", database.getPlayerName(uniqueId), "The player was not updated!");
+
+            // Updating a home keeps its id, both writes return it
+            final var added = database.setHome(uniqueId, "A", new HomeLocation(0, 0, 0, 0, 0, "world", "server"));
+            final var homeId = database.getPlayerMappedHomes(uniqueId).inverse().get("A");
+            Assertions.assertEquals(homeId, added, "The inserted home returned a wrong id!");
+            database.setHome(uniqueId, "B", new HomeLocation(0, 0, 0, 0, 0, "world", "server"));
+            final var location = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "nether", "server");
+            Assertions.assertEquals(homeId, database.setHome(uniqueId, "A", location), "The updated home returned a wrong id!");
+            Assertions.assertEquals(location, database.getHome(homeId), "The home was not updated!");
+            Assertions.assertNull(database.addHome(uniqueId, "A", location), "The home already exists!");
+
+        }
+
+    }
+
+    @Nested
+    class MySQL extends DialectTests {
+        @Override
+        ISQLDialect dialect() {
+            return new MySQLDialect();
+        }
+    }
+
+    @Nested
+    class H2 extends DialectTests {
+        @Override
+        ISQLDialect dialect() {
+            return new H2Dialect();
+        }
+    }
+
+    @Nested
+    class ANSI extends DialectTests {
+        @Override
+        ISQLDialect dialect() {
+            return new ANSIDialect();
+        }
+    }
+
+}
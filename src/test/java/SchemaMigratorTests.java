@@ -0,0 +1,193 @@
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.migration.Migration;
+import me.minecraft_server.homes.database.migration.Migrations;
+import me.minecraft_server.homes.database.migration.SchemaMigrator;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.exceptions.SchemaMigrationException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+
+@SuppressWarnings({"SqlNoDataSourceInspection", "SqlResolve"})
+public class SchemaMigratorTests {
+
+    private static final int LATEST = Migrations.ALL.get(Migrations.ALL.size() - 1).version();
+
+    @Test
+    public void freshDatabaseTest() throws SQLException {
+        try (final var source = new SQLDataSource(H2Database.memory("FreshMigrationTest"))) {
+            Assertions.assertEquals(LATEST, new SchemaMigrator(source).migrate(), "Not all migrations were applied!");
+            Assertions.assertEquals(LATEST, new SchemaMigrator(source).migrate(), "Migrating twice must not change anything!");
+            try (final var connection = source.getConnection()) {
+                checkLatestSchema(connection);
+                try (final var statement = connection.prepareStatement("SELECT COUNT(*) FROM `SchemaHistory`;");
+                     final var result = statement.executeQuery()) {
+                    Assertions.assertTrue(result.next());
+                    Assertions.assertEquals(Migrations.ALL.size(), result.getInt(1), "Every migration must be recorded once!");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void legacyDatabaseTest() throws SQLException {
+        try (final var source = new SQLDataSource(H2Database.memory("LegacyMigrationTest"))) {
+
+            // The schema from before the schema history existed
+            final var owner = new UUID(0, 1);
+            createLegacySchema(source);
+
+            // Upgrading keeps the data and enforces the same rules
+            final var database = new SQLDatabase(source);
+            try (final var connection = source.getConnection()) {
+                checkLatestSchema(connection);
+            }
+            Assertions.assertEquals(List.of(owner), database.getPlayerUniqueId("Owner"), "The player was lost while migrating!");
+            Assertions.assertEquals(new HomeLocation(1, 2, 3, 4, 5, "world", "server"), database.getHome(owner, "A"), "The home was lost while migrating!");
+            Assertions.assertNull(database.addHome(owner, "A", new HomeLocation(0, 0, 0, 0, 0, "world", "server")), "Home names must still be unique per player!");
+            Assertions.assertNotNull(database.addHome(owner, "B", new HomeLocation(0, 0, 0, 0, 0, "world", "server")), "New homes must get an id!");
+
+        }
+    }
+
+    @Test
+    public void caseSensitiveNamesTest() throws SQLException {
+        try (final var source = new SQLDataSource(H2Database.memory("CaseMigrationTest"))) {
+
+            // Names that only differ in case get their own dictionary entries
+            final var owner = new UUID(0, 1);
+            createLegacySchema(source);
+            try (final var connection = source.getConnection();
+                 final var statement = connection.prepareStatement("INSERT INTO `Homes` (`name`, `server`, `world`, `x`, `y`, `z`, `yaw`, `pitch`, `uniqueId`) SELECT 'B', 'Server', 'World', 1, 2, 3, 4, 5, `uniqueId` FROM `Players`;")) {
+                statement.executeUpdate();
+            }
+            final var database = new SQLDatabase(source);
+            Assertions.assertEquals(new HomeLocation(1, 2, 3, 4, 5, "world", "server"), database.getHome(owner, "A"), "The home was lost while migrating!");
+            Assertions.assertEquals(new HomeLocation(1, 2, 3, 4, 5, "World", "Server"), database.getHome(owner, "B"), "The spelling was lost while migrating!");
+
+        }
+    }
+
+    @Test
+    public void fileDatabaseTest(@TempDir final Path pDirectory) {
+        final var owner = new UUID(0, 1);
+        final var home = new HomeLocation(1, 2, 3, 4, 5, "world", "server");
+        try (final var source = new SQLDataSource(H2Database.file(pDirectory.resolve("homes")))) {
+            final var database = new SQLDatabase(source);
+            database.registerPlayer(owner, "Owner");
+            Assertions.assertNotNull(database.addHome(owner, "A", home), "Adding homes must succeed here!");
+        }
+
+        // Reopening keeps the data and the schema version
+        try (final var source = new SQLDataSource(H2Database.file(pDirectory.resolve("homes")))) {
+            Assertions.assertEquals(LATEST, new SchemaMigrator(source).migrate(), "Reopening must not migrate again!");
+            Assertions.assertEquals(home, new SQLDatabase(source).getHome(owner, "A"), "The home was not persisted!");
+        }
+    }
+
+    @Test
+    public void restartTest() throws SQLException {
+
+        // The migrations changing existing tables fail after each of their statements in turn, like a connection lost halfway
+        for (final var version : List.of(3, 4)) {
+            for (int statements = 0; ; statements++) {
+                try (final var source = new SQLDataSource(H2Database.memory("RestartMigrationTest" + version + "-" + statements))) {
+                    createLegacySchema(source);
+                    try {
+                        new SchemaMigrator(source, failAfter(version, statements)).migrate();
+                        break; // The migration has no further statements
+                    } catch (SchemaMigrationException ignored) {
+                        // Failed halfway as planned
+                    }
+
+                    // Migrating again finishes the schema and keeps the data
+                    Assertions.assertEquals(LATEST, new SchemaMigrator(source).migrate(), "Migrating again after a failed migration " + version + " failed!");
+                    try (final var connection = source.getConnection()) {
+                        checkLatestSchema(connection);
+                    }
+                    Assertions.assertEquals(new HomeLocation(1, 2, 3, 4, 5, "world", "server"), new SQLDatabase(source).getHome(new UUID(0, 1), "A"),
+                            "The home was lost after migration " + version + " failed after " + statements + " statements!");
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Creates the schema from before the schema history existed, with one player and one home.
+     */
+    private static void createLegacySchema(@NotNull final SQLDataSource pSource) throws SQLException {
+        final var ownerBytes = new byte[16];
+        ownerBytes[15] = 1;
+        try (final var connection = pSource.getConnection()) {
+            for (final var sql : List.of(
+                    "CREATE TABLE `Players` (`uniqueId` BINARY(16) NOT NULL, `username` VARCHAR(16) NOT NULL, PRIMARY KEY (`uniqueId`));",
+                    "CREATE TABLE `Homes` (`homeId` INTEGER NOT NULL AUTO_INCREMENT, `name` VARCHAR(64) NOT NULL, `server` VARCHAR(32) NOT NULL, `world` VARCHAR(32) NOT NULL, `x` DOUBLE NOT NULL, `y` DOUBLE NOT NULL, `z` DOUBLE NOT NULL, `yaw` FLOAT NOT NULL, `pitch` FLOAT NOT NULL, `uniqueId` BINARY(16) NOT NULL, CONSTRAINT UC_HomeId UNIQUE (`homeId`), CONSTRAINT UC_OnlyOneName UNIQUE (`name`, `uniqueId`), PRIMARY KEY (`homeId`, `uniqueId`), CONSTRAINT FK_HomeOwner FOREIGN KEY (`uniqueId`) REFERENCES `Players`(`uniqueId`));")) {
+                try (final var statement = connection.prepareStatement(sql)) {
+                    statement.executeUpdate();
+                }
+            }
+            try (final var statement = connection.prepareStatement("INSERT INTO `Players` VALUES (?, 'Owner');")) {
+                statement.setBytes(1, ownerBytes);
+                statement.executeUpdate();
+            }
+            try (final var statement = connection.prepareStatement("INSERT INTO `Homes` (`name`, `server`, `world`, `x`, `y`, `z`, `yaw`, `pitch`, `uniqueId`) VALUES ('A', 'server', 'world', 1, 2, 3, 4, 5, ?);")) {
+                statement.setBytes(1, ownerBytes);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * All migrations, but one of them fails once it prepared a number of statements that change the schema or data.
+     */
+    private static @NotNull List<Migration> failAfter(final int pVersion, final int pStatements) {
+        return Migrations.ALL.stream().map(migration -> migration.version() != pVersion ? migration : new Migration(migration.version(), migration.description(),
+                (connection, engine) -> migration.step().migrate(failAfter(connection, pStatements), engine))).toList();
+    }
+
+    private static @NotNull Connection failAfter(@NotNull final Connection pConnection, final int pStatements) {
+        final var prepared = new int[1];
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+            if (method.getName().equals("prepareStatement") && !((String) args[0]).startsWith("SELECT") && prepared[0]++ >= pStatements)
+                throw new SQLException("Simulated failure.");
+            try {
+                return method.invoke(pConnection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private static void checkLatestSchema(@NotNull final Connection pConnection) throws SQLException {
+        final var metaData = pConnection.getMetaData();
+
+        // Homes of a player are clustered together
+        final var primaryKey = new TreeMap<Short, String>();
+        try (final var result = metaData.getPrimaryKeys(null, null, "homes")) {
+            while (result.next())
+                primaryKey.put(result.getShort("KEY_SEQ"), result.getString("COLUMN_NAME"));
+        }
+        Assertions.assertEquals(List.of("uniqueid", "name"), List.copyOf(primaryKey.values()), "Wrong primary key for 'Homes'!");
+
+        // Player names are indexed
+        var indexed = false;
+        try (final var result = metaData.getIndexInfo(null, null, "players", false, false)) {
+            while (result.next())
+                indexed |= "username".equals(result.getString("COLUMN_NAME"));
+        }
+        Assertions.assertTrue(indexed, "Player names are not indexed!");
+    }
+
+}
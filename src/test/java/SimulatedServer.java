@@ -0,0 +1,385 @@
+import me.minecraft_server.homes.Homes;
+import me.minecraft_server.homes.database.profiling.LatencyHistogram;
+import me.minecraft_server.homes.services.HomesService;
+import net.md_5.bungee.api.chat.BaseComponent;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A server for load tests, built from proxies of the Bukkit interfaces.
+ * The thread creating the server is its main thread, it runs the scheduled tasks whenever it ticks.
+ * Online players are answered by a chat message or an opened inventory, the time until then is recorded per command.
+ */
+public final class SimulatedServer {
+
+    /**
+     * The server of Bukkit can only be set once, so it serves the latest simulated server.
+     */
+    private static volatile SimulatedServer current = null;
+
+    private static final Server SERVER = proxy(Server.class, (proxy, method, args) -> current.serve(method.getName(), args));
+
+    private final Thread mainThread = Thread.currentThread();
+    private final Logger logger = Logger.getLogger("SimulatedServer");
+    private final World world = proxy(World.class, (proxy, method, args) -> method.getName().equals("getName") ? "world" : null);
+    private final BukkitScheduler scheduler = proxy(BukkitScheduler.class, (proxy, method, args) -> schedule(method.getName(), args));
+    private final ItemFactory itemFactory = proxy(ItemFactory.class, (proxy, method, args) -> switch (method.getName()) {
+        case "getItemMeta" -> proxy(ItemMeta.class, (meta, metaMethod, metaArgs) -> metaMethod.getName().equals("clone") ? meta : null);
+        case "isApplicable" -> true;
+        case "asMetaFor" -> args[0];
+        case "updateMaterial" -> args[1];
+        default -> null;
+    });
+    private final ServicesManager servicesManager = proxy(ServicesManager.class, (proxy, method, args) -> null);
+    private final PluginManager pluginManager = proxy(PluginManager.class, (proxy, method, args) -> null);
+
+    private final Map<String, PluginCommand> commands = new ConcurrentHashMap<>();
+    private final Map<String, VirtualPlayer> players = new ConcurrentHashMap<>();
+
+    /**
+     * Tasks scheduled since the last tick, by any thread.
+     */
+    private final Queue<Task> submitted = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Tasks waiting for their tick, only used by the main thread.
+     */
+    private final PriorityQueue<Task> scheduled = new PriorityQueue<>(Comparator.comparingLong(Task::tick).thenComparingLong(Task::sequence));
+
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long tick = 0L;
+
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong answeredOffMainThread = new AtomicLong();
+    private final AtomicLong teleports = new AtomicLong();
+    private final AtomicLong notifications = new AtomicLong();
+
+    /**
+     * Creates a server, the current thread becomes its main thread.
+     */
+    public SimulatedServer() {
+        current = this;
+        synchronized (SimulatedServer.class) {
+            if (Bukkit.getServer() == null)
+                Bukkit.setServer(SERVER);
+        }
+    }
+
+    /**
+     * Enables the plugin with the commands of its plugin.yml.
+     * @param pHomesService The homes service to use instead of the configured database.
+     * @param pDataFolder The folder to save the default config.yml to.
+     * @return The enabled plugin.
+     */
+    public @NotNull Homes enable(@NotNull final HomesService pHomesService, @NotNull final File pDataFolder) throws ReflectiveOperationException {
+        final var description = new PluginDescriptionFile("Homes", "load-test", Homes.class.getName());
+        final var plugin = new Homes(new JavaPluginLoader(SERVER), description, pDataFolder, new File(pDataFolder, "Homes.jar"), pHomesService);
+        final var constructor = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+        constructor.setAccessible(true);
+        for (final var name : List.of("home", "sethome", "homes", "delhome", "invhome", "acpthome", "declhome"))
+            commands.put(name, constructor.newInstance(name, plugin));
+        plugin.onEnable();
+        return plugin;
+    }
+
+    /**
+     * Lets a player join.
+     * @param pUniqueId The unique id of the player.
+     * @param pName The name of the player.
+     * @param pPermissions The permissions of the player.
+     * @return The player.
+     */
+    public @NotNull VirtualPlayer join(@NotNull final UUID pUniqueId, @NotNull final String pName, @NotNull final Set<String> pPermissions) {
+        final var player = new VirtualPlayer(pUniqueId, pName, pPermissions);
+        players.put(pName.toLowerCase(Locale.ROOT), player);
+        return player;
+    }
+
+    /**
+     * Runs a command of a player, like typing it in the chat. Must be called on the main thread.
+     * @param pPlayer The player running the command.
+     * @param pLabel The name of the command.
+     * @param pArgs The arguments of the command.
+     */
+    public void dispatch(@NotNull final VirtualPlayer pPlayer, @NotNull final String pLabel, @NotNull final String... pArgs) {
+        final var command = commands.get(pLabel);
+        pPlayer.issue(pLabel);
+        command.getExecutor().onCommand(pPlayer.player, command, pLabel, pArgs);
+    }
+
+    /**
+     * Completes a command of a player, like pressing tab. Completions are answered immediately.
+     * @param pPlayer The player completing the command.
+     * @param pLabel The name of the command.
+     * @param pArgs The arguments of the command, the last one is completed.
+     * @return The completions.
+     */
+    public @Nullable List<String> complete(@NotNull final VirtualPlayer pPlayer, @NotNull final String pLabel, @NotNull final String... pArgs) {
+        final var command = commands.get(pLabel);
+        pPlayer.issue(pLabel + " <tab>");
+        final var completions = command.getTabCompleter().onTabComplete(pPlayer.player, command, pLabel, pArgs);
+        pPlayer.answer();
+        return completions;
+    }
+
+    /**
+     * Runs the tasks that are due. Must be called on the main thread.
+     */
+    public void tick() {
+        for (Task task; (task = submitted.poll()) != null; )
+            scheduled.add(task);
+        while (!scheduled.isEmpty() && scheduled.peek().tick() <= tick) {
+            final var task = scheduled.poll();
+            if (!task.cancelled().get())
+                task.task().run();
+        }
+        tick++;
+    }
+
+    /**
+     * @return The latencies from running a command until it was answered, mapped by command.
+     */
+    public @NotNull Map<String, LatencyHistogram> getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return The players waiting for an answer.
+     */
+    public long getPending() {
+        return players.values().stream().filter(VirtualPlayer::isPending).count();
+    }
+
+    /**
+     * @return The answers sent outside the main thread, which Bukkit does not allow.
+     */
+    public long getAnsweredOffMainThread() {
+        return answeredOffMainThread.get();
+    }
+
+    /**
+     * @return The players teleported, instantly or after waiting.
+     */
+    public long getTeleports() {
+        return teleports.get();
+    }
+
+    /**
+     * @return The rich messages sent, e.g. invitations.
+     */
+    public long getNotifications() {
+        return notifications.get();
+    }
+
+    private @Nullable Object serve(@NotNull final String pMethod, @Nullable final Object[] pArgs) {
+        return switch (pMethod) {
+            case "isPrimaryThread" -> Thread.currentThread() == mainThread;
+            case "getScheduler" -> scheduler;
+            case "getItemFactory" -> itemFactory;
+            case "getServicesManager" -> servicesManager;
+            case "getPluginManager" -> pluginManager;
+            case "getPluginCommand" -> commands.get((String) pArgs[0]);
+            case "getPlayer", "getPlayerExact" -> {
+                final var player = pArgs[0] instanceof String name ? players.get(name.toLowerCase(Locale.ROOT)) : null;
+                yield player != null ? player.player : null;
+            }
+            case "getOnlinePlayers" -> players.values().stream().map(player -> player.player).toList();
+            case "getWorld" -> "world".equals(pArgs[0]) ? world : null;
+            case "getWorlds" -> List.of(world);
+            case "createInventory" -> proxy(Inventory.class, (proxy, method, args) -> null);
+            case "getLogger" -> logger;
+            case "getName" -> "SimulatedServer";
+            case "getVersion" -> "load-test";
+            case "getBukkitVersion" -> "1.18.1-R0.1-SNAPSHOT";
+            default -> null;
+        };
+    }
+
+    private @Nullable Object schedule(@NotNull final String pMethod, @Nullable final Object[] pArgs) {
+        if (pArgs == null || pArgs.length < 2 || !(pArgs[1] instanceof Runnable runnable))
+            return null;
+        return switch (pMethod) {
+            case "runTask" -> schedule(runnable, 0L);
+            case "runTaskLater" -> schedule(runnable, (Long) pArgs[2]);
+            case "runTaskAsynchronously" -> {
+                final var cancelled = new AtomicBoolean();
+                ForkJoinPool.commonPool().execute(() -> {
+                    if (!cancelled.get())
+                        runnable.run();
+                });
+                yield newTask(cancelled);
+            }
+            default -> throw new UnsupportedOperationException(pMethod + " is not simulated.");
+        };
+    }
+
+    private @NotNull BukkitTask schedule(@NotNull final Runnable pTask, final long pDelay) {
+        final var cancelled = new AtomicBoolean();
+        submitted.add(new Task(pTask, tick + Math.max(0L, pDelay), sequence.incrementAndGet(), cancelled));
+        return newTask(cancelled);
+    }
+
+    private static @NotNull BukkitTask newTask(@NotNull final AtomicBoolean pCancelled) {
+        return proxy(BukkitTask.class, (proxy, method, args) -> switch (method.getName()) {
+            case "cancel" -> {
+                pCancelled.set(true);
+                yield null;
+            }
+            case "isCancelled" -> pCancelled.get();
+            case "isSync" -> true;
+            default -> null;
+        });
+    }
+
+    /**
+     * Creates a proxy that is only equal to itself. Methods the handler returns null for return null, false or zero.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> @NotNull T proxy(@NotNull final Class<T> pInterface, @NotNull final InvocationHandler pHandler) {
+        return (T) Proxy.newProxyInstance(pInterface.getClassLoader(), new Class<?>[] { pInterface }, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> pInterface.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                };
+            }
+            final var result = pHandler.invoke(proxy, method, args);
+            if (result != null || !method.getReturnType().isPrimitive() || method.getReturnType() == void.class)
+                return result;
+            return Array.get(Array.newInstance(method.getReturnType(), 1), 0);
+        });
+    }
+
+    private record Task(@NotNull Runnable task, long tick, long sequence, @NotNull AtomicBoolean cancelled) { }
+
+    /**
+     * An online player, waiting for at most one command to be answered.
+     */
+    public final class VirtualPlayer {
+
+        private final UUID uniqueId;
+        private final String name;
+        private final Set<String> permissions;
+        private final Player player;
+        private final Player.Spigot spigot = new Player.Spigot() {
+
+            @Override
+            public void sendMessage(@NotNull final BaseComponent pComponent) {
+                notifications.incrementAndGet();
+            }
+
+            @Override
+            public void sendMessage(@NotNull final BaseComponent... pComponents) {
+                notifications.incrementAndGet();
+            }
+
+        };
+
+        private volatile @Nullable String pendingCommand = null;
+        private volatile long pendingSince = 0L;
+
+        private VirtualPlayer(@NotNull final UUID pUniqueId, @NotNull final String pName, @NotNull final Set<String> pPermissions) {
+            uniqueId = pUniqueId;
+            name = pName;
+            permissions = pPermissions;
+            player = proxy(Player.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getUniqueId" -> uniqueId;
+                case "getName", "getDisplayName", "getPlayerListName" -> name;
+                case "hasPermission", "isPermissionSet" -> args[0] instanceof String permission && permissions.contains(permission);
+                case "isOnline" -> true;
+                case "getServer" -> SERVER;
+                case "getWorld" -> world;
+                case "getLocation" -> args == null ? randomLocation() : null;
+                case "spigot" -> spigot;
+                case "teleport" -> {
+                    teleports.incrementAndGet();
+                    yield true;
+                }
+                case "sendMessage", "sendRawMessage", "openInventory" -> {
+                    answer();
+                    yield null;
+                }
+                default -> null;
+            });
+        }
+
+        public @NotNull UUID getUniqueId() {
+            return uniqueId;
+        }
+
+        public @NotNull String getName() {
+            return name;
+        }
+
+        public @NotNull Player getPlayer() {
+            return player;
+        }
+
+        public boolean isPending() {
+            return pendingCommand != null;
+        }
+
+        private void issue(@NotNull final String pCommand) {
+            pendingSince = System.nanoTime();
+            pendingCommand = pCommand;
+        }
+
+        /**
+         * Records the latency of the pending command, further answers to it are ignored.
+         */
+        private void answer() {
+            final var command = pendingCommand;
+            if (command == null)
+                return;
+            pendingCommand = null;
+            latencies.computeIfAbsent(command, key -> new LatencyHistogram()).record(System.nanoTime() - pendingSince);
+            if (Thread.currentThread() != mainThread)
+                answeredOffMainThread.incrementAndGet();
+        }
+
+        private @NotNull Location randomLocation() {
+            final var random = ThreadLocalRandom.current();
+            return new Location(world, random.nextDouble(-1000.0D, 1000.0D), random.nextDouble(60.0D, 120.0D), random.nextDouble(-1000.0D, 1000.0D),
+                    random.nextFloat() * 360.0F, 0.0F);
+        }
+
+    }
+
+}
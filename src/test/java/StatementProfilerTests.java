@@ -0,0 +1,97 @@
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.database.profiling.LatencyHistogram;
+import me.minecraft_server.homes.database.profiling.StatementProfiler;
+import me.minecraft_server.homes.dto.HomeLocation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+public class StatementProfilerTests {
+
+    @Test
+    public void histogramTest() {
+        final var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i * 1000L);
+        Assertions.assertEquals(1000, histogram.getCount(), "Wrong amount of latencies recorded!");
+        Assertions.assertEquals(1_000_000L, histogram.getMax(), "Wrong maximum!");
+        Assertions.assertEquals(500_500.0D, histogram.getMean(), 0.001D, "Wrong mean!");
+        final var median = histogram.getPercentile(0.5D);
+        Assertions.assertTrue(median >= 500_000L && median <= 625_000L, "The median is too far off: " + median);
+        Assertions.assertEquals(1_000_000L, histogram.getPercentile(1.0D), "The last percentile must be the maximum!");
+    }
+
+    @Test
+    public void slowQueryLogTest() throws SQLException {
+
+        // Log every call
+        final var messages = new ArrayList<String>();
+        final var logger = Logger.getLogger("StatementProfilerTests");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(final LogRecord pRecord) {
+                messages.add(pRecord.getMessage());
+            }
+            @Override
+            public void flush() { }
+            @Override
+            public void close() { }
+        });
+        final var profiler = new StatementProfiler(logger, Duration.ofNanos(1L), true);
+
+        try (final var source = new SQLDataSource(H2Database.memory("ProfilerTest"))) {
+            final var database = new SQLDatabase(source, null, profiler);
+            final var uniqueId = new UUID(0, 1);
+            database.registerPlayer(uniqueId, "A");
+            database.setHome(uniqueId, "A", new HomeLocation(0, 0, 0, 0, 0, "world", "server"));
+            messages.clear();
+            Assertions.assertNotNull(database.getHome(uniqueId, "A"), "The home must be found through the profiled connection!");
+
+            // Every method is measured on its own
+            final var statistics = profiler.getStatistics();
+            Assertions.assertEquals(1, statistics.get("registerPlayer").total().getCount(), "registerPlayer was not measured!");
+            Assertions.assertEquals(1, statistics.get("setHome").total().getCount(), "setHome was not measured!");
+            Assertions.assertEquals(1, statistics.get("getHome(name)").execute().getCount(), "getHome was not measured!");
+            Assertions.assertFalse(profiler.report().isEmpty(), "The report is empty!");
+
+            // The slow call is logged with its statement and plan
+            Assertions.assertEquals(1, messages.size(), "The slow call was not logged!");
+            final var message = messages.get(0);
+            Assertions.assertTrue(message.startsWith("Slow database call getHome(name)"), "Wrong call logged: " + message);
+            Assertions.assertTrue(message.lines().count() > 2, "The plan is missing: " + message);
+
+            // Parameters are bound the way the slow statement bound them, a null with its type instead of the type as value
+            messages.clear();
+            try (final var connection = profiler.getConnection(source, "nullParameter");
+                 final var statement = connection.prepareStatement("SELECT `username` FROM `Players` WHERE `uniqueId` = ? OR `username` = ?;")) {
+                statement.setNull(1, Types.BINARY);
+                statement.setObject(2, "A", Types.VARCHAR);
+                statement.executeQuery().close();
+            }
+            Assertions.assertTrue(messages.get(0).lines().count() > 2, "The statement with a null parameter was not explained: " + messages.get(0));
+
+            // A parameter bound from a stream can't be bound again, so the statement is not explained
+            messages.clear();
+            try (final var connection = profiler.getConnection(source, "streamParameter");
+                 final var statement = connection.prepareStatement("SELECT `uniqueId` FROM `Players` WHERE `username` = ?;")) {
+                statement.setCharacterStream(1, new StringReader("A"));
+                statement.executeQuery().close();
+            }
+            Assertions.assertTrue(messages.get(0).endsWith("Not explained, not all parameters were captured."), "A guessed plan was logged: " + messages.get(0));
+        }
+
+    }
+
+}
@@ -0,0 +1,204 @@
+import me.minecraft_server.homes.database.IDatabase;
+import me.minecraft_server.homes.database.SQLDataSource;
+import me.minecraft_server.homes.database.SQLDatabase;
+import me.minecraft_server.homes.database.WriteBehindDatabase;
+import me.minecraft_server.homes.database.impl.H2Database;
+import me.minecraft_server.homes.dto.HomeChange;
+import me.minecraft_server.homes.dto.HomeLocation;
+import me.minecraft_server.homes.dto.OwnedHome;
+import me.minecraft_server.homes.exceptions.DatabaseUnavailableException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings({"SqlNoDataSourceInspection", "SqlResolve", "SqlWithoutWhere"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class WriteBehindDatabaseTests {
+
+    private SQLDataSource source;
+    private SQLDatabase database;
+    private WriteBehindDatabase writeBehind;
+
+    private final UUID owner = new UUID(0, 1);
+    private final HomeLocation home_A = new HomeLocation(1.0D, 2.0D, 3.0D, 90.0F, 30.0F, "worldA", "serverA");
+    private final HomeLocation home_B = new HomeLocation(3.0D, 2.0D, 1.0D, 20.0F, 10.0F, "worldB", "serverB");
+
+    @BeforeAll
+    public void prepareDatabase() {
+        source = new SQLDataSource(H2Database.memory("WriteBehindTest"));
+        database = new SQLDatabase(source);
+        // Never flush on its own, so the tests decide when writes reach the database.
+        writeBehind = new WriteBehindDatabase(database, Duration.ofHours(1L));
+    }
+
+    @AfterAll
+    public void closeDatabase() {
+        writeBehind.close();
+        source.close();
+    }
+
+    @BeforeEach
+    public void clearTables() {
+        writeBehind.flush();
+        try (final var connection = source.getConnection();
+             final var statement = connection.prepareStatement("DELETE FROM `homes`; DELETE FROM `players`;")) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        database.registerPlayer(owner, "Owner");
+    }
+
+    @Test
+    public void coalesceTest() {
+
+        // Pending writes are visible, but not written yet
+        writeBehind.setHome(owner, "A", home_B);
+        Assertions.assertEquals(IDatabase.PENDING_HOME_ID, writeBehind.setHome(owner, "A", home_A), "The id of a pending home can't be known!");
+        Assertions.assertNull(database.getHome(owner, "A"), "The write should still be pending!");
+        Assertions.assertEquals(home_A, writeBehind.getHome(owner, "A"), "Pending writes must be readable!");
+
+        // Only the latest write reaches the database
+        writeBehind.flush();
+        Assertions.assertEquals(home_A, database.getHome(owner, "A"), "The latest write did not win!");
+
+        // Updates by id are coalesced as well
+        final var homeId = database.getPlayerMappedHomes(owner).inverse().get("A");
+        writeBehind.updateHome(homeId, home_B);
+        Assertions.assertEquals(home_A, database.getHome(homeId), "The update should still be pending!");
+        Assertions.assertEquals(home_B, writeBehind.getHome(homeId), "Pending updates must be readable!");
+        writeBehind.flush();
+        Assertions.assertEquals(home_B, database.getHome(homeId), "The update was not written!");
+
+    }
+
+    @Test
+    public void readFlushesTest() {
+        writeBehind.setHome(owner, "A", home_A);
+        writeBehind.setHome(owner, "B", home_B);
+        final var homes = writeBehind.getHomes(owner);
+        Assertions.assertEquals(2, homes.size(), "Reading all homes must flush pending writes first!");
+        Assertions.assertEquals(home_A, homes.get("A"), "Wrong home returned for home A!");
+        Assertions.assertEquals(home_B, homes.get("B"), "Wrong home returned for home B!");
+    }
+
+    @Test
+    public void independentReadsTest() {
+
+        final var other = new UUID(0, 2);
+        database.registerPlayer(other, "Other");
+        Assertions.assertNotNull(database.setHome(owner, "A", home_A), "The home was not added!");
+        final var homeId = writeBehind.getHomeEntries(owner).get(0).homeId();
+
+        // Reads by owner only flush the writes of that owner, including updates of its homes by id
+        writeBehind.setHome(other, "A", home_A);
+        writeBehind.updateHome(homeId, home_B);
+        Assertions.assertEquals(home_B, writeBehind.getHomes(owner).get("A"), "The update of the home was not flushed!");
+        Assertions.assertNull(database.getHome(other, "A"), "The write of another owner was flushed!");
+
+        // Reads by id only flush the writes of these homes, once their names are known
+        writeBehind.setHome(owner, "A", home_A);
+        writeBehind.setHome(owner, "B", home_B);
+        Assertions.assertEquals(home_A, writeBehind.getHomes(List.of(homeId)).get(homeId), "The write of the home was not flushed!");
+        Assertions.assertNull(database.getHome(owner, "B"), "The write of another home was flushed!");
+        Assertions.assertNull(database.getHome(other, "A"), "The write of another owner was flushed!");
+        writeBehind.flush();
+        Assertions.assertEquals(home_A, database.getHome(other, "A"), "The write of the other owner was lost!");
+
+    }
+
+    @Test
+    public void addAndDeleteTest() {
+
+        // Adding must see pending writes
+        writeBehind.setHome(owner, "A", home_A);
+        Assertions.assertNull(writeBehind.addHome(owner, "A", home_B), "Adding must fail, the home is pending!");
+        Assertions.assertEquals(home_A, database.getHome(owner, "A"), "Adding did not flush pending writes!");
+
+        // Deleting discards pending writes of that home
+        writeBehind.setHome(owner, "B", home_B);
+        Assertions.assertTrue(writeBehind.deleteHome(owner, "B"), "The pending home existed, deleting must succeed!");
+        writeBehind.flush();
+        Assertions.assertNull(database.getHome(owner, "B"), "The deleted home was written anyway!");
+
+    }
+
+    @Test
+    public void rejectedWriteTest() {
+
+        // The home of an unknown player violates a constraint, it must not block the other writes of its batch
+        final var dropped = new ArrayList<HomeChange>();
+        writeBehind.setDroppedWriteListener(dropped::add);
+        writeBehind.setHome(owner, "A", home_A);
+        writeBehind.setHome(new UUID(0, 99), "A", home_A);
+        writeBehind.setHome(owner, "B", home_B);
+        writeBehind.flush();
+        Assertions.assertEquals(home_A, database.getHome(owner, "A"), "The rejected write blocked home A!");
+        Assertions.assertEquals(home_B, database.getHome(owner, "B"), "The rejected write blocked home B!");
+        Assertions.assertEquals(List.of(HomeChange.homes(0L, 0, new UUID(0, 99))), dropped, "The rejected write was not reported!");
+
+        // The rejected write is dropped, not retried forever
+        writeBehind.setHome(owner, "C", home_A);
+        writeBehind.flush();
+        Assertions.assertEquals(home_A, database.getHome(owner, "C"), "The rejected write was queued again!");
+        Assertions.assertEquals(1, dropped.size(), "The rejected write was reported again!");
+        writeBehind.setDroppedWriteListener(change -> { });
+
+    }
+
+    @Test
+    public void requeueTest() {
+        Assertions.assertNotNull(database.setHome(owner, "A", home_A), "The home was not added!");
+        final var homeId = database.getPlayerMappedHomes(owner).inverse().get("A");
+        final var unavailable = new UnavailableDatabase(source);
+        try (final var failing = new WriteBehindDatabase(unavailable, Duration.ofHours(1L))) {
+
+            // While the first flush fails, a read of another home doesn't wait for it and the home is moved by id
+            unavailable.during = () -> {
+                Assertions.assertNull(CompletableFuture.supplyAsync(() -> failing.getHome(owner, "B")).orTimeout(5L, TimeUnit.SECONDS).join(),
+                        "The home B does not exist!");
+                failing.updateHome(homeId, home_B);
+            };
+            failing.setHome(owner, "A", home_A);
+            failing.flush();
+            Assertions.assertEquals(home_A, database.getHome(homeId), "The failed write was written anyway!");
+
+            // The failed write is queued before the newer update, so the update wins
+            failing.flush();
+            Assertions.assertEquals(home_B, database.getHome(homeId), "The failed write was written after the newer update!");
+
+        }
+    }
+
+    /**
+     * Fails the next batch of homes as if the database was unavailable, after running a task during the write.
+     */
+    private static class UnavailableDatabase extends SQLDatabase {
+
+        private Runnable during;
+
+        private UnavailableDatabase(@NotNull final SQLDataSource pSource) {
+            super(pSource);
+        }
+
+        @Override
+        public boolean setHomes(@NotNull final Collection<OwnedHome> pHomes) {
+            final var task = during;
+            if (task == null)
+                return super.setHomes(pHomes);
+            during = null;
+            task.run();
+            throw new DatabaseUnavailableException("The database is unavailable.");
+        }
+
+    }
+
+}